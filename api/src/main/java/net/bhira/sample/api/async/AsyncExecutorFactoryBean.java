@@ -0,0 +1,214 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Baldeep Hira
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.bhira.sample.api.async;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.FactoryBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ConcurrentTaskExecutor;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Factory bean for the task executor used by spring mvc to run the Callable returned by the
+ * controllers. The executor is selected by the mode property:
+ * <ul>
+ * <li>pooled - a bounded thread pool with a bounded queue, every request blocks one pool thread
+ * for its whole duration. The pool runs corePoolSize threads and queues the requests beyond that,
+ * threads up to maxPoolSize are only added once the queue is full, so corePoolSize is the number
+ * of requests executing at once.</li>
+ * <li>virtual - a new virtual thread per request, available on Java 21 and later. On older JVMs
+ * it falls back to an elastic pool that creates threads on demand and reaps the idle ones.</li>
+ * </ul>
+ * In virtual mode the executor does not limit concurrency, so the number of requests running
+ * against the database must be limited by {@link ConcurrencyLimitInterceptor}.
+ * 
+ * @author Baldeep Hira
+ */
+public class AsyncExecutorFactoryBean implements FactoryBean<AsyncTaskExecutor>, InitializingBean,
+		DisposableBean {
+
+	/**
+	 * private singleton instance of the SLF4J logger for this class.
+	 */
+	private static final Logger LOG = LoggerFactory.getLogger(AsyncExecutorFactoryBean.class);
+
+	static final String MODE_POOLED = "pooled";
+	static final String MODE_VIRTUAL = "virtual";
+
+	private String mode = MODE_POOLED;
+	private int corePoolSize = 5;
+	private int maxPoolSize = 10;
+	private int queueCapacity = 200;
+	private String threadNamePrefix = "async-";
+
+	private AsyncTaskExecutor executor;
+	private ThreadPoolTaskExecutor threadPool;
+	private ExecutorService executorService;
+
+	/**
+	 * @see org.springframework.beans.factory.InitializingBean#afterPropertiesSet()
+	 */
+	@Override
+	public void afterPropertiesSet() {
+		if (MODE_POOLED.equals(mode)) {
+			threadPool = new ThreadPoolTaskExecutor();
+			threadPool.setCorePoolSize(corePoolSize);
+			threadPool.setMaxPoolSize(maxPoolSize);
+			threadPool.setQueueCapacity(queueCapacity);
+			threadPool.setThreadNamePrefix(threadNamePrefix);
+			threadPool.initialize();
+			executor = threadPool;
+			LOG.info("async executor mode = {}, corePoolSize = {}, maxPoolSize = {}, "
+					+ "queueCapacity = {}", mode, corePoolSize, maxPoolSize, queueCapacity);
+		} else if (MODE_VIRTUAL.equals(mode)) {
+			executorService = createVirtualThreadExecutor();
+			if (executorService == null) {
+				LOG.warn("virtual threads are not available on Java {}, using elastic thread pool",
+						System.getProperty("java.version"));
+				executorService = Executors.newCachedThreadPool(new CustomizableThreadFactory(
+						threadNamePrefix));
+			}
+			executor = new ConcurrentTaskExecutor(executorService);
+			LOG.info("async executor mode = {}, executor = {}", mode, executorService);
+		} else {
+			throw new IllegalArgumentException("Invalid async executor mode " + mode);
+		}
+	}
+
+	/**
+	 * Create an executor that starts a new virtual thread for each task. It is looked up
+	 * reflectively, as the application is compiled for Java versions without virtual threads.
+	 * 
+	 * @return the executor, or null if virtual threads are not available.
+	 */
+	private static ExecutorService createVirtualThreadExecutor() {
+		try {
+			Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) method.invoke(null);
+		} catch (ReflectiveOperationException ex) {
+			LOG.debug("virtual thread executor lookup failed: ", ex);
+			return null;
+		}
+	}
+
+	/**
+	 * @see org.springframework.beans.factory.DisposableBean#destroy()
+	 */
+	@Override
+	public void destroy() {
+		if (threadPool != null) {
+			threadPool.shutdown();
+		}
+		if (executorService != null) {
+			executorService.shutdown();
+		}
+	}
+
+	/**
+	 * @see org.springframework.beans.factory.FactoryBean#getObject()
+	 */
+	@Override
+	public AsyncTaskExecutor getObject() {
+		return executor;
+	}
+
+	/**
+	 * @see org.springframework.beans.factory.FactoryBean#getObjectType()
+	 */
+	@Override
+	public Class<?> getObjectType() {
+		return AsyncTaskExecutor.class;
+	}
+
+	/**
+	 * @see org.springframework.beans.factory.FactoryBean#isSingleton()
+	 */
+	@Override
+	public boolean isSingleton() {
+		return true;
+	}
+
+	// -------------------------GETTERS AND SETTERS-------------------------
+
+	/**
+	 * Set the executor mode, either "pooled" or "virtual".
+	 * 
+	 * @param mode
+	 *            the executor mode.
+	 */
+	public void setMode(String mode) {
+		this.mode = mode;
+	}
+
+	/**
+	 * Set the core pool size, used in pooled mode. It is the number of requests executing at once
+	 * as long as the queue is not full.
+	 * 
+	 * @param corePoolSize
+	 *            the core pool size.
+	 */
+	public void setCorePoolSize(int corePoolSize) {
+		this.corePoolSize = corePoolSize;
+	}
+
+	/**
+	 * Set the maximum pool size, used in pooled mode. Threads beyond the core pool size are only
+	 * started once the queue is full.
+	 * 
+	 * @param maxPoolSize
+	 *            the maximum pool size.
+	 */
+	public void setMaxPoolSize(int maxPoolSize) {
+		this.maxPoolSize = maxPoolSize;
+	}
+
+	/**
+	 * Set the capacity of the queue of waiting tasks, used in pooled mode.
+	 * 
+	 * @param queueCapacity
+	 *            the queue capacity.
+	 */
+	public void setQueueCapacity(int queueCapacity) {
+		this.queueCapacity = queueCapacity;
+	}
+
+	/**
+	 * Set the name prefix of the executor threads.
+	 * 
+	 * @param threadNamePrefix
+	 *            the thread name prefix.
+	 */
+	public void setThreadNamePrefix(String threadNamePrefix) {
+		this.threadNamePrefix = threadNamePrefix;
+	}
+
+}
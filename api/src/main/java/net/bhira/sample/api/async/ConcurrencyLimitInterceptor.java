@@ -0,0 +1,264 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Baldeep Hira
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.bhira.sample.api.async;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+import io.prometheus.client.Counter;
+import io.prometheus.client.Gauge;
+
+/**
+ * Interceptor for the requests mapped to the controllers that limits the number of requests
+ * processed concurrently per endpoint. An endpoint is identified by http method and request
+ * mapping pattern, e.g. "GET /employee/{employeeId}". The slot is taken on the container thread
+ * before the request is handed to the async executor, and a request finding all the slots of its
+ * endpoint taken fails right away with {@link ConcurrencyLimitExceededException}, so a waiting
+ * request never holds on to an executor thread. The slot is given back when the async processing
+ * of the request completes, or when the request completes without async processing.
+ * 
+ * @author Baldeep Hira
+ */
+public class ConcurrencyLimitInterceptor extends HandlerInterceptorAdapter {
+
+	/**
+	 * private singleton instance of the SLF4J logger for this class.
+	 */
+	private static final Logger LOG = LoggerFactory.getLogger(ConcurrencyLimitInterceptor.class);
+
+	private static final String ATTR_PERMIT = ConcurrencyLimitInterceptor.class.getName()
+			+ ".permit";
+
+	private static final Gauge IN_PROGRESS = Gauge.build().name("async_requests_in_progress")
+			.help("Number of requests accepted and not completed yet.").labelNames("endpoint")
+			.register();
+	private static final Counter REJECTED = Counter.build().name("async_requests_rejected_total")
+			.help("Number of requests rejected by the concurrency limit.")
+			.labelNames("endpoint").register();
+
+	private Map<String, Integer> limits = Collections.emptyMap();
+	private int defaultLimit;
+	private final ConcurrentMap<String, Semaphore> semaphores =
+			new ConcurrentHashMap<String, Semaphore>();
+
+	/**
+	 * @see org.springframework.web.servlet.handler.HandlerInterceptorAdapter#preHandle(
+	 *      javax.servlet.http.HttpServletRequest, javax.servlet.http.HttpServletResponse,
+	 *      java.lang.Object)
+	 */
+	@Override
+	public boolean preHandle(HttpServletRequest request, HttpServletResponse response,
+			Object handler) {
+		// the async dispatch writing the result already holds the slot taken by the request
+		if (request.getDispatcherType() == DispatcherType.ASYNC
+				|| request.getAttribute(ATTR_PERMIT) != null) {
+			return true;
+		}
+		String endpoint = getEndpoint(request);
+		Semaphore semaphore = getSemaphore(endpoint);
+		if (semaphore != null && !semaphore.tryAcquire()) {
+			REJECTED.labels(endpoint).inc();
+			LOG.warn("concurrency limit exceeded for {}", endpoint);
+			throw new ConcurrencyLimitExceededException("Too many concurrent requests for "
+					+ endpoint);
+		}
+		request.setAttribute(ATTR_PERMIT, new Permit(endpoint, semaphore));
+		IN_PROGRESS.labels(endpoint).inc();
+		return true;
+	}
+
+	/**
+	 * @see org.springframework.web.servlet.handler.HandlerInterceptorAdapter#
+	 *      afterConcurrentHandlingStarted(javax.servlet.http.HttpServletRequest,
+	 *      javax.servlet.http.HttpServletResponse, java.lang.Object)
+	 */
+	@Override
+	public void afterConcurrentHandlingStarted(HttpServletRequest request,
+			HttpServletResponse response, Object handler) {
+		Permit permit = (Permit) request.getAttribute(ATTR_PERMIT);
+		if (permit != null && request.isAsyncStarted()) {
+			// the async processing may time out or fail without a dispatch, so the slot is given
+			// back by the listener of the async request
+			request.getAsyncContext().addListener(permit);
+		} else if (permit != null) {
+			permit.release();
+		}
+	}
+
+	/**
+	 * @see org.springframework.web.servlet.handler.HandlerInterceptorAdapter#afterCompletion(
+	 *      javax.servlet.http.HttpServletRequest, javax.servlet.http.HttpServletResponse,
+	 *      java.lang.Object, java.lang.Exception)
+	 */
+	@Override
+	public void afterCompletion(HttpServletRequest request, HttpServletResponse response,
+			Object handler, Exception ex) {
+		Permit permit = (Permit) request.getAttribute(ATTR_PERMIT);
+		if (permit != null) {
+			permit.release();
+		}
+	}
+
+	/**
+	 * Get the endpoint of the given request, i.e. http method and request mapping pattern.
+	 * 
+	 * @param request
+	 *            the request being processed.
+	 * @return the endpoint of the request.
+	 */
+	public static String getEndpoint(NativeWebRequest request) {
+		Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE,
+				RequestAttributes.SCOPE_REQUEST);
+		HttpServletRequest httpRequest = request.getNativeRequest(HttpServletRequest.class);
+		String method = (httpRequest == null) ? "" : httpRequest.getMethod() + " ";
+		return method + ((pattern == null) ? "unmapped" : pattern);
+	}
+
+	/**
+	 * Get the endpoint of the given request, i.e. http method and request mapping pattern.
+	 * 
+	 * @param request
+	 *            the request being processed.
+	 * @return the endpoint of the request.
+	 */
+	public static String getEndpoint(HttpServletRequest request) {
+		Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+		return request.getMethod() + " " + ((pattern == null) ? "unmapped" : pattern);
+	}
+
+	/**
+	 * Get the semaphore limiting the concurrency of the given endpoint.
+	 * 
+	 * @param endpoint
+	 *            the endpoint.
+	 * @return the semaphore, or null if the endpoint is not limited.
+	 */
+	private Semaphore getSemaphore(String endpoint) {
+		Semaphore semaphore = semaphores.get(endpoint);
+		if (semaphore == null) {
+			Integer limit = limits.get(endpoint);
+			int permits = (limit == null) ? defaultLimit : limit;
+			if (permits <= 0) {
+				return null;
+			}
+			Semaphore created = new Semaphore(permits);
+			semaphore = semaphores.putIfAbsent(endpoint, created);
+			if (semaphore == null) {
+				semaphore = created;
+			}
+		}
+		return semaphore;
+	}
+
+	/**
+	 * The slot taken by a request, given back once, whichever of the completion callbacks comes
+	 * first.
+	 */
+	private static class Permit implements AsyncListener {
+
+		private final String endpoint;
+		private final Semaphore semaphore;
+		private final AtomicBoolean released = new AtomicBoolean();
+
+		Permit(String endpoint, Semaphore semaphore) {
+			this.endpoint = endpoint;
+			this.semaphore = semaphore;
+		}
+
+		void release() {
+			if (released.compareAndSet(false, true)) {
+				IN_PROGRESS.labels(endpoint).dec();
+				if (semaphore != null) {
+					semaphore.release();
+				}
+			}
+		}
+
+		@Override
+		public void onComplete(AsyncEvent event) throws IOException {
+			release();
+		}
+
+		@Override
+		public void onTimeout(AsyncEvent event) throws IOException {
+			// completed next, with or without a dispatch
+		}
+
+		@Override
+		public void onError(AsyncEvent event) throws IOException {
+			// completed next, with or without a dispatch
+		}
+
+		@Override
+		public void onStartAsync(AsyncEvent event) throws IOException {
+			// a new async cycle of the same request, the listener has to be added again
+		}
+	}
+
+	// -------------------------GETTERS AND SETTERS-------------------------
+
+	/**
+	 * Set the concurrency limits of the endpoints, keyed by http method and request mapping
+	 * pattern, e.g. "GET /employee/{employeeId}". A limit of 0 means the endpoint is not limited.
+	 * 
+	 * @param limits
+	 *            the concurrency limit by endpoint.
+	 */
+	public void setLimits(Map<String, Integer> limits) {
+		this.limits = new HashMap<String, Integer>(limits);
+	}
+
+	/**
+	 * Set the concurrency limit of the endpoints without their own limit, 0 for no limit. Keep it
+	 * at most the number of threads of the async executor, see
+	 * {@link AsyncExecutorFactoryBean#setCorePoolSize(int)}, the requests beyond that wait in the
+	 * queue of the executor anyway.
+	 * 
+	 * @param defaultLimit
+	 *            the default concurrency limit.
+	 */
+	public void setDefaultLimit(int defaultLimit) {
+		this.defaultLimit = defaultLimit;
+	}
+
+}
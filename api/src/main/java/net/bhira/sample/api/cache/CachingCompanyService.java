@@ -0,0 +1,170 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Baldeep Hira
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.bhira.sample.api.cache;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import net.bhira.sample.api.jdbc.ModifiedStamp;
+import net.bhira.sample.api.service.CompanyService;
+import net.bhira.sample.api.service.PurgeProgress;
+import net.bhira.sample.common.exception.InvalidObjectException;
+import net.bhira.sample.common.exception.InvalidReferenceException;
+import net.bhira.sample.common.exception.ObjectNotFoundException;
+import net.bhira.sample.common.exception.StaleObjectException;
+import net.bhira.sample.model.Company;
+import net.bhira.sample.model.Department;
+import net.bhira.sample.model.Employee;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+/**
+ * Caching decorator of {@link net.bhira.sample.api.service.CompanyService}. It serves the loads by
+ * ID from the company cache and invalidates the cached instance when a company is saved or
+ * deleted, along with the cached departments and employees when a company is purged. It is
+ * outside the transactional service package, so a cache hit does not start a transaction; all
+ * other calls are delegated to the transactional service.
+ * 
+ * @author Baldeep Hira
+ */
+@Primary
+@Service("cachingCompanyService")
+public class CachingCompanyService implements CompanyService {
+
+	@Autowired
+	@Qualifier("companyService")
+	CompanyService companyService;
+
+	@Autowired
+	@Qualifier("companyCache")
+	EntityCache<Company> companyCache;
+
+	@Autowired
+	@Qualifier("departmentCache")
+	EntityCache<Department> departmentCache;
+
+	@Autowired
+	@Qualifier("employeeCache")
+	EntityCache<Employee> employeeCache;
+
+	/**
+	 * @see net.bhira.sample.api.service.CompanyService#load(long)
+	 */
+	@Override
+	public Company load(long companyId) {
+		return companyCache.get(companyId, new Function<Long, Company>() {
+			@Override
+			public Company apply(Long id) {
+				return companyService.load(id);
+			}
+		});
+	}
+
+	/**
+	 * @see net.bhira.sample.api.service.CompanyService#loadAll(java.util.Collection)
+	 */
+	@Override
+	public List<Company> loadAll(Collection<Long> companyIds) {
+		return companyCache.getAll(companyIds, new Function<Collection<Long>, List<Company>>() {
+			@Override
+			public List<Company> apply(Collection<Long> ids) {
+				return companyService.loadAll(ids);
+			}
+		});
+	}
+
+	/**
+	 * @see net.bhira.sample.api.service.CompanyService#save(net.bhira.sample.model.Company)
+	 */
+	@Override
+	public void save(Company company) throws ObjectNotFoundException, InvalidObjectException,
+			InvalidReferenceException, StaleObjectException {
+		companyService.save(company);
+		companyCache.invalidate(company.getId());
+	}
+
+	/**
+	 * @see net.bhira.sample.api.service.CompanyService#delete(long)
+	 */
+	@Override
+	public boolean delete(long companyId) {
+		boolean deleted = companyService.delete(companyId);
+		companyCache.invalidate(companyId);
+		return deleted;
+	}
+
+	/**
+	 * @see net.bhira.sample.api.service.CompanyService#purge(long,
+	 *      java.util.function.Consumer)
+	 */
+	@Override
+	public boolean purge(long companyId, Consumer<PurgeProgress> progress) {
+		try {
+			return companyService.purge(companyId, progress);
+		} finally {
+			// the caches are not keyed by company, so drop all the departments and employees
+			companyCache.invalidate(companyId);
+			departmentCache.invalidateAll();
+			employeeCache.invalidateAll();
+		}
+	}
+
+	/**
+	 * @see net.bhira.sample.api.service.CompanyService#loadAll()
+	 */
+	@Override
+	public List<Company> loadAll() {
+		return companyService.loadAll();
+	}
+
+	/**
+	 * @see net.bhira.sample.api.service.CompanyService#loadAll(java.util.function.Consumer)
+	 */
+	@Override
+	public void loadAll(Consumer<Company> consumer) {
+		companyService.loadAll(consumer);
+	}
+
+	/**
+	 * @see net.bhira.sample.api.service.CompanyService#loadPage(long, int)
+	 */
+	@Override
+	public List<Company> loadPage(long afterId, int limit) {
+		return companyService.loadPage(afterId, limit);
+	}
+
+	/**
+	 * @see net.bhira.sample.api.service.CompanyService#loadModifiedStamp()
+	 */
+	@Override
+	public ModifiedStamp loadModifiedStamp() {
+		return companyService.loadModifiedStamp();
+	}
+
+}
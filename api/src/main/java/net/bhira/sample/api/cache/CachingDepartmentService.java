@@ -0,0 +1,156 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Baldeep Hira
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.bhira.sample.api.cache;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import net.bhira.sample.api.jdbc.ModifiedStamp;
+import net.bhira.sample.api.service.DepartmentService;
+import net.bhira.sample.common.exception.DuplicateNameException;
+import net.bhira.sample.common.exception.InvalidObjectException;
+import net.bhira.sample.common.exception.InvalidReferenceException;
+import net.bhira.sample.common.exception.ObjectNotFoundException;
+import net.bhira.sample.common.exception.StaleObjectException;
+import net.bhira.sample.model.Department;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+/**
+ * Caching decorator of {@link net.bhira.sample.api.service.DepartmentService}. It serves the loads
+ * by ID from the department cache and invalidates the cached instance when a department is saved
+ * or deleted. All other calls are delegated to the transactional service.
+ * 
+ * @author Baldeep Hira
+ */
+@Primary
+@Service("cachingDepartmentService")
+public class CachingDepartmentService implements DepartmentService {
+
+	@Autowired
+	@Qualifier("departmentService")
+	DepartmentService departmentService;
+
+	@Autowired
+	@Qualifier("departmentCache")
+	EntityCache<Department> departmentCache;
+
+	/**
+	 * @see net.bhira.sample.api.service.DepartmentService#load(long)
+	 */
+	@Override
+	public Department load(long departmentId) {
+		return departmentCache.get(departmentId, new Function<Long, Department>() {
+			@Override
+			public Department apply(Long id) {
+				return departmentService.load(id);
+			}
+		});
+	}
+
+	/**
+	 * @see net.bhira.sample.api.service.DepartmentService#loadAll(java.util.Collection)
+	 */
+	@Override
+	public List<Department> loadAll(Collection<Long> departmentIds) {
+		return departmentCache.getAll(departmentIds,
+				new Function<Collection<Long>, List<Department>>() {
+					@Override
+					public List<Department> apply(Collection<Long> ids) {
+						return departmentService.loadAll(ids);
+					}
+				});
+	}
+
+	/**
+	 * @see net.bhira.sample.api.service.DepartmentService#save(net.bhira.sample.model.Department)
+	 */
+	@Override
+	public void save(Department department) throws ObjectNotFoundException, DuplicateNameException,
+			InvalidObjectException, InvalidReferenceException, StaleObjectException {
+		departmentService.save(department);
+		departmentCache.invalidate(department.getId());
+	}
+
+	/**
+	 * @see net.bhira.sample.api.service.DepartmentService#delete(long)
+	 */
+	@Override
+	public boolean delete(long departmentId) {
+		boolean deleted = departmentService.delete(departmentId);
+		departmentCache.invalidate(departmentId);
+		return deleted;
+	}
+
+	/**
+	 * @see net.bhira.sample.api.service.DepartmentService#loadByCompany(long)
+	 */
+	@Override
+	public List<Department> loadByCompany(long companyId) {
+		return departmentService.loadByCompany(companyId);
+	}
+
+	/**
+	 * @see net.bhira.sample.api.service.DepartmentService#loadByCompany(long,
+	 *      java.util.function.Consumer)
+	 */
+	@Override
+	public void loadByCompany(long companyId, Consumer<Department> consumer) {
+		departmentService.loadByCompany(companyId, consumer);
+	}
+
+	/**
+	 * @see net.bhira.sample.api.service.DepartmentService#loadModifiedSince(long,
+	 *      java.util.Date, java.util.function.Consumer)
+	 */
+	@Override
+	public void loadModifiedSince(long companyId, Date since, Consumer<Department> consumer) {
+		departmentService.loadModifiedSince(companyId, since, consumer);
+	}
+
+	/**
+	 * @see net.bhira.sample.api.service.DepartmentService#loadDetailsByCompany(long, long,
+	 *      java.util.function.Consumer)
+	 */
+	@Override
+	public void loadDetailsByCompany(long companyId, long afterId,
+			Consumer<Department> consumer) {
+		departmentService.loadDetailsByCompany(companyId, afterId, consumer);
+	}
+
+	/**
+	 * @see net.bhira.sample.api.service.DepartmentService#loadModifiedStampByCompany(long)
+	 */
+	@Override
+	public ModifiedStamp loadModifiedStampByCompany(long companyId) {
+		return departmentService.loadModifiedStampByCompany(companyId);
+	}
+
+}
@@ -0,0 +1,252 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Baldeep Hira
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.bhira.sample.api.cache;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import net.bhira.sample.api.jdbc.EmployeeProjection;
+import net.bhira.sample.api.jdbc.EmployeeStats;
+import net.bhira.sample.api.jdbc.ModifiedStamp;
+import net.bhira.sample.api.service.EmployeeService;
+import net.bhira.sample.common.exception.InvalidObjectException;
+import net.bhira.sample.common.exception.InvalidReferenceException;
+import net.bhira.sample.common.exception.ObjectNotFoundException;
+import net.bhira.sample.common.exception.StaleObjectException;
+import net.bhira.sample.model.Employee;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+/**
+ * Caching decorator of {@link net.bhira.sample.api.service.EmployeeService}. It serves the loads
+ * by ID from the employee cache and invalidates the cached instances when employees are saved or
+ * deleted. The stats of a company are served from the short-lived stats cache. All other calls
+ * are delegated to the transactional service.
+ * 
+ * @author Baldeep Hira
+ */
+@Primary
+@Service("cachingEmployeeService")
+public class CachingEmployeeService implements EmployeeService {
+
+	@Autowired
+	@Qualifier("employeeService")
+	EmployeeService employeeService;
+
+	@Autowired
+	@Qualifier("employeeCache")
+	EntityCache<Employee> employeeCache;
+
+	@Autowired
+	StatsCache statsCache;
+
+	/**
+	 * @see net.bhira.sample.api.service.EmployeeService#load(long)
+	 */
+	@Override
+	public Employee load(long employeeId) {
+		return employeeCache.get(employeeId, new Function<Long, Employee>() {
+			@Override
+			public Employee apply(Long id) {
+				return employeeService.load(id);
+			}
+		});
+	}
+
+	/**
+	 * @see net.bhira.sample.api.service.EmployeeService#loadAll(java.util.Collection)
+	 */
+	@Override
+	public List<Employee> loadAll(Collection<Long> employeeIds) {
+		return employeeCache.getAll(employeeIds,
+				new Function<Collection<Long>, List<Employee>>() {
+					@Override
+					public List<Employee> apply(Collection<Long> ids) {
+						return employeeService.loadAll(ids);
+					}
+				});
+	}
+
+	/**
+	 * @see net.bhira.sample.api.service.EmployeeService#save(net.bhira.sample.model.Employee)
+	 */
+	@Override
+	public void save(Employee employee) throws ObjectNotFoundException, InvalidObjectException,
+			InvalidReferenceException, StaleObjectException {
+		employeeService.save(employee);
+		employeeCache.invalidate(employee.getId());
+	}
+
+	/**
+	 * @see net.bhira.sample.api.service.EmployeeService#saveAll(java.util.List)
+	 */
+	@Override
+	public void saveAll(List<Employee> employees) throws ObjectNotFoundException,
+			InvalidObjectException, InvalidReferenceException, StaleObjectException {
+		employeeService.saveAll(employees);
+		for (Employee employee : employees) {
+			employeeCache.invalidate(employee.getId());
+		}
+	}
+
+	/**
+	 * @see net.bhira.sample.api.service.EmployeeService#updateManagers(long, java.util.Map)
+	 */
+	@Override
+	public int updateManagers(long companyId, Map<Long, Long> managerIds)
+			throws InvalidReferenceException {
+		int count = employeeService.updateManagers(companyId, managerIds);
+		for (Long employeeId : managerIds.keySet()) {
+			employeeCache.invalidate(employeeId);
+		}
+		return count;
+	}
+
+	/**
+	 * @see net.bhira.sample.api.service.EmployeeService#delete(long)
+	 */
+	@Override
+	public boolean delete(long employeeId) {
+		boolean deleted = employeeService.delete(employeeId);
+		employeeCache.invalidate(employeeId);
+		return deleted;
+	}
+
+	/**
+	 * @see net.bhira.sample.api.service.EmployeeService#loadByCompany(long)
+	 */
+	@Override
+	public List<Employee> loadByCompany(long companyId) {
+		return employeeService.loadByCompany(companyId);
+	}
+
+	/**
+	 * @see net.bhira.sample.api.service.EmployeeService#loadByDepartment(long)
+	 */
+	@Override
+	public List<Employee> loadByDepartment(long departmentId) {
+		return employeeService.loadByDepartment(departmentId);
+	}
+
+	/**
+	 * @see net.bhira.sample.api.service.EmployeeService#loadByCompany(long, long, int,
+	 *      net.bhira.sample.api.jdbc.EmployeeProjection, java.util.function.Consumer)
+	 */
+	@Override
+	public void loadByCompany(long companyId, long afterId, int limit,
+			EmployeeProjection projection, Consumer<Employee> consumer) {
+		employeeService.loadByCompany(companyId, afterId, limit, projection, consumer);
+	}
+
+	/**
+	 * @see net.bhira.sample.api.service.EmployeeService#loadByDepartment(long, long, int,
+	 *      net.bhira.sample.api.jdbc.EmployeeProjection, java.util.function.Consumer)
+	 */
+	@Override
+	public void loadByDepartment(long departmentId, long afterId, int limit,
+			EmployeeProjection projection, Consumer<Employee> consumer) {
+		employeeService.loadByDepartment(departmentId, afterId, limit, projection, consumer);
+	}
+
+	/**
+	 * @see net.bhira.sample.api.service.EmployeeService#loadModifiedSince(long, java.util.Date,
+	 *      long, int, net.bhira.sample.api.jdbc.EmployeeProjection, java.util.function.Consumer)
+	 */
+	@Override
+	public void loadModifiedSince(long companyId, Date since, long afterId, int limit,
+			EmployeeProjection projection, Consumer<Employee> consumer) {
+		employeeService.loadModifiedSince(companyId, since, afterId, limit, projection, consumer);
+	}
+
+	/**
+	 * @see net.bhira.sample.api.service.EmployeeService#loadDetailsByCompany(long, long,
+	 *      java.util.function.Consumer)
+	 */
+	@Override
+	public void loadDetailsByCompany(long companyId, long afterId, Consumer<Employee> consumer) {
+		employeeService.loadDetailsByCompany(companyId, afterId, consumer);
+	}
+
+	/**
+	 * @see net.bhira.sample.api.service.EmployeeService#loadReportIds(long, long, int)
+	 */
+	@Override
+	public List<Long> loadReportIds(long companyId, long employeeId, int depth) {
+		return employeeService.loadReportIds(companyId, employeeId, depth);
+	}
+
+	/**
+	 * @see net.bhira.sample.api.service.EmployeeService#loadChainIds(long, long)
+	 */
+	@Override
+	public List<Long> loadChainIds(long companyId, long employeeId) {
+		return employeeService.loadChainIds(companyId, employeeId);
+	}
+
+	/**
+	 * @see net.bhira.sample.api.service.EmployeeService#loadMatchingIds(long, java.lang.String,
+	 *      int)
+	 */
+	@Override
+	public List<Long> loadMatchingIds(long companyId, String query, int limit) {
+		return employeeService.loadMatchingIds(companyId, query, limit);
+	}
+
+	/**
+	 * @see net.bhira.sample.api.service.EmployeeService#loadModifiedStampByCompany(long)
+	 */
+	@Override
+	public ModifiedStamp loadModifiedStampByCompany(long companyId) {
+		return employeeService.loadModifiedStampByCompany(companyId);
+	}
+
+	/**
+	 * @see net.bhira.sample.api.service.EmployeeService#loadStatsByCompany(long)
+	 */
+	@Override
+	public EmployeeStats loadStatsByCompany(long companyId) {
+		return statsCache.get(companyId, new Function<Long, EmployeeStats>() {
+			@Override
+			public EmployeeStats apply(Long id) {
+				return employeeService.loadStatsByCompany(id);
+			}
+		});
+	}
+
+	/**
+	 * @see net.bhira.sample.api.service.EmployeeService#loadModifiedStampByDepartment(long)
+	 */
+	@Override
+	public ModifiedStamp loadModifiedStampByDepartment(long departmentId) {
+		return employeeService.loadModifiedStampByDepartment(departmentId);
+	}
+
+}
@@ -0,0 +1,190 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Baldeep Hira
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.bhira.sample.api.cache;
+
+import java.beans.ConstructorProperties;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import net.bhira.sample.model.BaseModel;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.prometheus.client.cache.caffeine.CacheMetricsCollector;
+
+/**
+ * Bounded in-process cache of model objects keyed by their ID. It evicts by size, using the
+ * W-TinyLFU policy of Caffeine, and by age of the cached entry. Hit, miss, load and eviction
+ * statistics are published to the default prometheus registry, labelled with the cache name.
+ * <p>
+ * Cached instances are shared between callers and must not be modified.
+ * 
+ * @author Baldeep Hira
+ */
+public class EntityCache<T extends BaseModel> {
+
+	/**
+	 * private singleton instance of the SLF4J logger for this class.
+	 */
+	private static final Logger LOG = LoggerFactory.getLogger(EntityCache.class);
+
+	/**
+	 * Collector of the statistics of all the caches, also used by {@link StatsCache}, as a
+	 * collector can only be registered once.
+	 */
+	static final CacheMetricsCollector METRICS = new CacheMetricsCollector().register();
+
+	private final String name;
+	private final Cache<Long, T> cache;
+
+	/**
+	 * Constructor for EntityCache.
+	 * 
+	 * @param name
+	 *            the name of the cache, used for logging and metrics.
+	 * @param maximumSize
+	 *            the maximum number of entries in the cache.
+	 * @param expireAfterWriteSeconds
+	 *            the number of seconds after which an entry is evicted, regardless of its use.
+	 */
+	@ConstructorProperties({ "name", "maximumSize", "expireAfterWriteSeconds" })
+	public EntityCache(String name, long maximumSize, long expireAfterWriteSeconds) {
+		this.name = name;
+		this.cache = Caffeine.newBuilder().maximumSize(maximumSize)
+				.expireAfterWrite(expireAfterWriteSeconds, TimeUnit.SECONDS).recordStats().build();
+		METRICS.addCache(name, cache);
+		LOG.info("created {} cache, maximumSize = {}, expireAfterWriteSeconds = {}", name,
+				maximumSize, expireAfterWriteSeconds);
+	}
+
+	/**
+	 * Get the model object for the given ID from cache. If it is not cached, it is loaded with
+	 * the given loader and cached. Objects that are not found by the loader are not cached.
+	 * 
+	 * @param id
+	 *            the ID of the model object.
+	 * @param loader
+	 *            the function used to load the model object if it is not cached.
+	 * @return the model object, or null if it is not found.
+	 */
+	public T get(long id, Function<Long, T> loader) {
+		return cache.get(id, loader);
+	}
+
+	/**
+	 * Get the model objects for the given IDs from cache. The objects that are not cached are
+	 * loaded with a single call to the given loader and returned without being cached. Unlike the
+	 * load of {@link #get(long, Function)}, which holds the entry while loading, a bulk load is
+	 * not ordered against a concurrent {@link #invalidate(long)}, so caching its rows could bring
+	 * back a stale entry that was just invalidated.
+	 * 
+	 * @param ids
+	 *            the IDs of the model objects.
+	 * @param loader
+	 *            the function used to load the model objects that are not cached.
+	 * @return List of the model objects in the order of the given IDs, skipping duplicate IDs and
+	 *         the IDs that are not found.
+	 */
+	public List<T> getAll(Collection<Long> ids, Function<Collection<Long>, List<T>> loader) {
+		Set<Long> keys = new LinkedHashSet<Long>(ids.size());
+		for (Long id : ids) {
+			if (id != null) {
+				keys.add(id);
+			}
+		}
+		Map<Long, T> found = new HashMap<Long, T>(cache.getAllPresent(keys));
+		List<Long> missingIds = new ArrayList<Long>();
+		for (Long id : keys) {
+			if (!found.containsKey(id)) {
+				missingIds.add(id);
+			}
+		}
+		if (!missingIds.isEmpty()) {
+			for (T model : loader.apply(missingIds)) {
+				found.put(model.getId(), model);
+			}
+		}
+		List<T> list = new ArrayList<T>(found.size());
+		for (Long id : keys) {
+			T model = found.get(id);
+			if (model != null) {
+				list.add(model);
+			}
+		}
+		return list;
+	}
+
+	/**
+	 * Remove the model object for the given ID from cache. If called in a transaction, it is
+	 * removed again after the transaction completes, so that a concurrent read of the old row
+	 * cannot leave a stale entry behind.
+	 * 
+	 * @param id
+	 *            the ID of the model object.
+	 */
+	public void invalidate(long id) {
+		cache.invalidate(id);
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager
+					.registerSynchronization(new TransactionSynchronizationAdapter() {
+						@Override
+						public void afterCompletion(int status) {
+							cache.invalidate(id);
+						}
+					});
+		}
+		LOG.debug("invalidated {} cache entry, id = {}", name, id);
+	}
+
+	/**
+	 * Remove all the model objects from cache.
+	 */
+	public void invalidateAll() {
+		cache.invalidateAll();
+		LOG.debug("invalidated all {} cache entries", name);
+	}
+
+	/**
+	 * Get the name of this cache.
+	 * 
+	 * @return the name of the cache.
+	 */
+	public String getName() {
+		return name;
+	}
+
+}
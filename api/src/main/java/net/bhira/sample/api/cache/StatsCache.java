@@ -0,0 +1,89 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Baldeep Hira
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.bhira.sample.api.cache;
+
+import java.beans.ConstructorProperties;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import net.bhira.sample.api.jdbc.EmployeeStats;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * Short-lived cache of the {@link net.bhira.sample.api.jdbc.EmployeeStats} of every company,
+ * keyed by company ID. The stats aggregate all the employees of a company, so they are not
+ * invalidated on every save and delete, they are recomputed once the cached entry expires.
+ * Concurrent requests for the stats of the same company wait for a single computation. Like
+ * {@link EntityCache}, its statistics are published to the default prometheus registry.
+ * 
+ * @author Baldeep Hira
+ */
+public class StatsCache {
+
+	/**
+	 * private singleton instance of the SLF4J logger for this class.
+	 */
+	private static final Logger LOG = LoggerFactory.getLogger(StatsCache.class);
+
+	private final Cache<Long, EmployeeStats> cache;
+
+	/**
+	 * Constructor for StatsCache.
+	 * 
+	 * @param name
+	 *            the name of the cache, used for logging and metrics.
+	 * @param maximumSize
+	 *            the maximum number of companies in the cache.
+	 * @param expireAfterWriteSeconds
+	 *            the number of seconds after which the stats are recomputed.
+	 */
+	@ConstructorProperties({ "name", "maximumSize", "expireAfterWriteSeconds" })
+	public StatsCache(String name, long maximumSize, long expireAfterWriteSeconds) {
+		this.cache = Caffeine.newBuilder().maximumSize(maximumSize)
+				.expireAfterWrite(expireAfterWriteSeconds, TimeUnit.SECONDS).recordStats().build();
+		EntityCache.METRICS.addCache(name, cache);
+		LOG.info("created {} cache, maximumSize = {}, expireAfterWriteSeconds = {}", name,
+				maximumSize, expireAfterWriteSeconds);
+	}
+
+	/**
+	 * Get the stats of the given company from cache. If they are not cached, they are computed
+	 * with the given loader and cached.
+	 * 
+	 * @param companyId
+	 *            the ID of the company.
+	 * @param loader
+	 *            the function used to compute the stats if they are not cached.
+	 * @return the stats of the company.
+	 */
+	public EmployeeStats get(long companyId, Function<Long, EmployeeStats> loader) {
+		return cache.get(companyId, loader);
+	}
+
+}
@@ -0,0 +1,153 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Baldeep Hira
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.bhira.sample.api.change;
+
+import java.util.Date;
+
+/**
+ * A change to a company, department or employee, as kept in the {@link ChangeFeed}. The event
+ * only identifies the changed instance, consumers load its current state with the regular GET
+ * endpoints. A "reset" event tells the consumer that the changes before it are not available
+ * anymore and that the data must be loaded again.
+ * 
+ * @author Baldeep Hira
+ */
+public class ChangeEvent {
+
+	public static final String COMPANY = "company";
+	public static final String DEPARTMENT = "department";
+	public static final String EMPLOYEE = "employee";
+
+	public static final String CREATE = "create";
+	public static final String UPDATE = "update";
+	public static final String DELETE = "delete";
+	public static final String RESET = "reset";
+
+	private long seq;
+	private Date time;
+	private String action;
+	private String entity;
+	private long id;
+	private long companyId;
+
+	/**
+	 * Constructor for ChangeEvent. The sequence number and time are set once the change is
+	 * committed.
+	 * 
+	 * @param action
+	 *            the change made, i.e. "create", "update", "delete" or "reset".
+	 * @param entity
+	 *            the type of the changed instance, i.e. "company", "department" or "employee".
+	 * @param id
+	 *            the ID of the changed instance.
+	 * @param companyId
+	 *            the ID of the company of the changed instance.
+	 */
+	ChangeEvent(String action, String entity, long id, long companyId) {
+		this.action = action;
+		this.entity = entity;
+		this.id = id;
+		this.companyId = companyId;
+	}
+
+	// -------------------------GETTERS AND SETTERS-------------------------
+
+	/**
+	 * Get the sequence number of the change. Sequence numbers grow in the order in which the
+	 * changes are committed.
+	 * 
+	 * @return the sequence number of the change.
+	 */
+	public long getSeq() {
+		return seq;
+	}
+
+	/**
+	 * Set the sequence number of the change.
+	 * 
+	 * @param seq
+	 *            the sequence number of the change.
+	 */
+	void setSeq(long seq) {
+		this.seq = seq;
+	}
+
+	/**
+	 * Get the time at which the change was committed.
+	 * 
+	 * @return the time at which the change was committed.
+	 */
+	public Date getTime() {
+		return time;
+	}
+
+	/**
+	 * Set the time at which the change was committed.
+	 * 
+	 * @param time
+	 *            the time at which the change was committed.
+	 */
+	void setTime(Date time) {
+		this.time = time;
+	}
+
+	/**
+	 * Get the change made, i.e. "create", "update", "delete" or "reset".
+	 * 
+	 * @return the change made.
+	 */
+	public String getAction() {
+		return action;
+	}
+
+	/**
+	 * Get the type of the changed instance, i.e. "company", "department" or "employee", or null
+	 * for a reset.
+	 * 
+	 * @return the type of the changed instance.
+	 */
+	public String getEntity() {
+		return entity;
+	}
+
+	/**
+	 * Get the ID of the changed instance.
+	 * 
+	 * @return the ID of the changed instance.
+	 */
+	public long getId() {
+		return id;
+	}
+
+	/**
+	 * Get the ID of the company of the changed instance, the ID of the company itself for changes
+	 * to a company.
+	 * 
+	 * @return the ID of the company of the changed instance.
+	 */
+	public long getCompanyId() {
+		return companyId;
+	}
+
+}
@@ -0,0 +1,235 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Baldeep Hira
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.bhira.sample.api.change;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Ring buffer of the most recent changes to companies, departments and employees, followed by the
+ * consumers of GET /changes. The changes of a transaction are published when it commits, rolled
+ * back changes are never published. Sequence numbers are given at commit, so they follow the
+ * commit order and a consumer that has read a change has read all the changes before it. Once
+ * full, every new change replaces the oldest one, so the memory used is bounded by the capacity.
+ * The feed is kept in memory of each server and starts empty. Readers do not wait on a thread
+ * for new changes, they register a listener that is run when the next changes are published.
+ * 
+ * @author Baldeep Hira
+ */
+public class ChangeFeed {
+
+	/**
+	 * private singleton instance of the SLF4J logger for this class.
+	 */
+	private static final Logger LOG = LoggerFactory.getLogger(ChangeFeed.class);
+
+	private final ChangeEvent[] events;
+	private final long startSeq;
+	private long lastSeq;
+	private Set<Runnable> listeners = new LinkedHashSet<Runnable>();
+
+	/**
+	 * Constructor for ChangeFeed.
+	 * 
+	 * @param capacity
+	 *            the maximum number of changes kept.
+	 */
+	public ChangeFeed(int capacity) {
+		this.events = new ChangeEvent[Math.max(capacity, 1)];
+		// start from the clock, so that the sequence numbers read from an earlier run are older
+		// than the feed and get a reset, instead of skipping the changes of this run
+		this.startSeq = System.currentTimeMillis();
+		this.lastSeq = startSeq;
+	}
+
+	/**
+	 * Publish a change once the current transaction commits. Without a transaction the change is
+	 * published right away.
+	 * 
+	 * @param action
+	 *            the change made, i.e. "create", "update" or "delete".
+	 * @param entity
+	 *            the type of the changed instance, i.e. "company", "department" or "employee".
+	 * @param id
+	 *            the ID of the changed instance.
+	 * @param companyId
+	 *            the ID of the company of the changed instance.
+	 */
+	public void publish(String action, String entity, long id, long companyId) {
+		ChangeEvent event = new ChangeEvent(action, entity, id, companyId);
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			append(Collections.singletonList(event));
+			return;
+		}
+		@SuppressWarnings("unchecked")
+		List<ChangeEvent> pending = (List<ChangeEvent>) TransactionSynchronizationManager
+				.getResource(this);
+		if (pending == null) {
+			pending = bind(new ArrayList<ChangeEvent>());
+		}
+		pending.add(event);
+	}
+
+	/**
+	 * Read the changes after the given sequence number, without waiting for the next change if
+	 * there is none yet. A reset event is read first if the sequence number is negative or the
+	 * changes after it are not kept anymore, the changes are then read from the reset on.
+	 * 
+	 * @param since
+	 *            the sequence number of the last change read, -1 to start with a reset.
+	 * @param companyId
+	 *            the ID of the company to read the changes of, 0 for all the companies.
+	 * @param limit
+	 *            the maximum number of changes to read.
+	 * @param changes
+	 *            the list to which the changes are added.
+	 * @return the sequence number up to which the changes were read, including those of other
+	 *         companies that were skipped, to be passed as "since" to the next read.
+	 */
+	public synchronized long read(long since, long companyId, int limit,
+			List<ChangeEvent> changes) {
+		long firstSeq = Math.max(startSeq, lastSeq - events.length) + 1;
+		if (since < firstSeq - 1 || since > lastSeq) {
+			ChangeEvent reset = new ChangeEvent(ChangeEvent.RESET, null, 0, companyId);
+			reset.setSeq(lastSeq);
+			reset.setTime(new Date());
+			changes.add(reset);
+			since = lastSeq;
+		}
+		for (long seq = since + 1; seq <= lastSeq && changes.size() < limit; seq++) {
+			ChangeEvent event = events[(int) (seq % events.length)];
+			if (companyId == 0 || event.getCompanyId() == companyId) {
+				changes.add(event);
+			}
+			since = seq;
+		}
+		return since;
+	}
+
+	/**
+	 * Register the given listener to be run once, when the next changes after the given sequence
+	 * number are published. The listener is run on the thread publishing the changes, right after
+	 * its transaction commits, so it must hand any work over to another thread. If there is a
+	 * change to read already, the listener is not registered and the caller reads it right away.
+	 * 
+	 * @param since
+	 *            the sequence number returned by the last read.
+	 * @param listener
+	 *            the listener to run when the next changes are published.
+	 * @return true if the listener was registered, false if there are changes to read.
+	 */
+	public synchronized boolean await(long since, Runnable listener) {
+		if (since != lastSeq) {
+			return false;
+		}
+		listeners.add(listener);
+		return true;
+	}
+
+	/**
+	 * Remove the given listener, e.g. once its reader is closed.
+	 * 
+	 * @param listener
+	 *            the listener registered with {@link #await(long, Runnable)}.
+	 */
+	public synchronized void cancel(Runnable listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Get the sequence number of the last change published.
+	 * 
+	 * @return the sequence number of the last change.
+	 */
+	public synchronized long getLastSeq() {
+		return lastSeq;
+	}
+
+	/**
+	 * Bind the list of pending changes to the current transaction, to be published when it
+	 * commits. The list is unbound while the transaction is suspended.
+	 */
+	private List<ChangeEvent> bind(List<ChangeEvent> pending) {
+		TransactionSynchronizationManager.bindResource(this, pending);
+		TransactionSynchronizationManager
+				.registerSynchronization(new TransactionSynchronizationAdapter() {
+					@Override
+					public void suspend() {
+						TransactionSynchronizationManager.unbindResource(ChangeFeed.this);
+					}
+
+					@Override
+					public void resume() {
+						TransactionSynchronizationManager.bindResource(ChangeFeed.this, pending);
+					}
+
+					@Override
+					public void afterCompletion(int status) {
+						TransactionSynchronizationManager.unbindResourceIfPossible(ChangeFeed.this);
+						if (status == STATUS_COMMITTED) {
+							append(pending);
+						}
+					}
+				});
+		return pending;
+	}
+
+	/**
+	 * Add the given changes with the next sequence numbers and run the listeners of the waiting
+	 * readers, outside of the lock so that they can read the changes.
+	 */
+	private void append(List<ChangeEvent> changes) {
+		Set<Runnable> waiting;
+		synchronized (this) {
+			Date now = new Date();
+			for (ChangeEvent event : changes) {
+				event.setSeq(++lastSeq);
+				event.setTime(now);
+				events[(int) (lastSeq % events.length)] = event;
+			}
+			LOG.debug("published changes, count = {}, lastSeq = {}, listeners = {}",
+					changes.size(), lastSeq, listeners.size());
+			waiting = listeners;
+			listeners = new LinkedHashSet<Runnable>();
+		}
+		for (Runnable listener : waiting) {
+			try {
+				listener.run();
+			} catch (RuntimeException ex) {
+				LOG.warn("Error running change listener. {}", ex.getLocalizedMessage());
+				LOG.debug("Listener error stacktrace: ", ex);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,164 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Baldeep Hira
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.bhira.sample.api.controller;
+
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import javax.servlet.http.HttpServletResponse;
+
+import net.bhira.sample.api.exporter.CompanyExporter;
+import net.bhira.sample.api.exporter.ExportWriter;
+import net.bhira.sample.api.metrics.SlowStatementLog;
+import net.bhira.sample.common.JsonUtil;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.context.request.async.WebAsyncTask;
+
+/**
+ * Controller class for administrative diagnostics and tasks, e.g. the most recent slow SQL
+ * statements and the export of all the companies.
+ * 
+ * @author Baldeep Hira
+ */
+@Controller("adminController")
+public class AdminController {
+
+	/**
+	 * private singleton instance of the SLF4J logger for this class.
+	 */
+	private static final Logger LOG = LoggerFactory.getLogger(AdminController.class);
+
+	@Autowired
+	SlowStatementLog slowStatementLog;
+
+	@Autowired
+	CompanyExporter companyExporter;
+
+	@Value("${export.timeoutMillis}")
+	long exportTimeoutMillis;
+
+	@Autowired
+	@Qualifier("longTaskExecutor")
+	AsyncTaskExecutor longTaskExecutor;
+
+	/**
+	 * Fetch the most recent SQL statements that exceeded the slow statement threshold, most recent
+	 * first, along with their query plans if captured. The response is a JSON object with the
+	 * "total" number of slow statements since startup and the "statements" array.
+	 * 
+	 * @param response
+	 *            the http response to which the results will be written.
+	 * @return the slow statements as JSON.
+	 */
+	@RequestMapping(value = "/admin/slow-statements", method = RequestMethod.GET)
+	@ResponseBody
+	public Callable<String> getSlowStatements(HttpServletResponse response) {
+		return new Callable<String>() {
+			public String call() throws Exception {
+				String body = "";
+				try {
+					LOG.debug("servicing GET admin/slow-statements");
+					Map<String, Object> result = new LinkedHashMap<String, Object>();
+					result.put("total", slowStatementLog.getTotal());
+					result.put("statements", slowStatementLog.getEntries());
+					body = JsonUtil.getGson().toJson(result);
+				} catch (Exception ex) {
+					response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+					body = ex.getLocalizedMessage();
+					LOG.warn("Error loading slow statements. {}", body);
+					LOG.debug("Load error stacktrace: ", ex);
+				}
+				return body;
+			}
+		};
+	}
+
+
+	/**
+	 * Export the complete data of all the companies, ordered by ID, each followed by its
+	 * departments and employees, in the same format as GET /company/{companyId}/export. An
+	 * interrupted export is resumed with the "companyId" of the last record received and the
+	 * "after" parameter. The export runs on the executor of the long running requests, so it does
+	 * not hold a thread of the async request pool.
+	 * 
+	 * @param format
+	 *            the format of the records, "ndjson" for newline delimited JSON or "csv".
+	 * @param companyId
+	 *            the ID of the company to start with, omit it to start with the first company.
+	 * @param after
+	 *            the type and ID of the last record of the start company received, e.g.
+	 *            "employee:1234", omit it to export the complete start company.
+	 * @param response
+	 *            the http response to which the records will be written.
+	 * @return the async task returning null once the records are written, or the error message.
+	 */
+	@RequestMapping(value = "/admin/export", method = RequestMethod.GET)
+	@ResponseBody
+	public WebAsyncTask<String> exportAll(
+			@RequestParam(value = "format", defaultValue = ExportWriter.NDJSON) String format,
+			@RequestParam(value = "companyId", defaultValue = "0") long companyId,
+			@RequestParam(value = "after", required = false) String after,
+			HttpServletResponse response) {
+		Callable<String> export = new Callable<String>() {
+			public String call() throws Exception {
+				LOG.debug("servicing GET admin/export, companyId = {}, after = {}", companyId,
+						after);
+				String body = null;
+				try {
+					response.setContentType(ExportWriter.getContentType(format));
+					ExportWriter writer = new ExportWriter(new BufferedWriter(
+							new OutputStreamWriter(response.getOutputStream(),
+									StandardCharsets.UTF_8)), format);
+					companyExporter.exportAll(companyId, after, writer);
+					LOG.debug("GET admin/export count = {}", writer.getCount());
+				} catch (Exception ex) {
+					LOG.warn("Error exporting companies. {}", ex.getLocalizedMessage());
+					LOG.debug("Export error stacktrace: ", ex);
+					int status = (ex instanceof IllegalArgumentException)
+							? HttpServletResponse.SC_BAD_REQUEST
+							: HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+					body = JsonListWriter.error(response, status, ex);
+				}
+				return body;
+			}
+		};
+		return new WebAsyncTask<String>(exportTimeoutMillis, longTaskExecutor, export);
+	}
+
+}
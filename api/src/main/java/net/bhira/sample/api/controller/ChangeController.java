@@ -0,0 +1,275 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Baldeep Hira
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.bhira.sample.api.controller;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import net.bhira.sample.api.change.ChangeEvent;
+import net.bhira.sample.api.change.ChangeFeed;
+import net.bhira.sample.common.JsonUtil;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import com.google.gson.Gson;
+
+/**
+ * Controller class for the change feed. It streams the changes to companies, departments and
+ * employees as Server-Sent Events. The streams wait for the changes without holding a thread,
+ * the changes are written on the async task executor as they are published.
+ * 
+ * @author Baldeep Hira
+ */
+@Controller("changeController")
+public class ChangeController {
+
+	/**
+	 * private singleton instance of the SLF4J logger for this class.
+	 */
+	private static final Logger LOG = LoggerFactory.getLogger(ChangeController.class);
+
+	private static final int BATCH_SIZE = 100;
+
+	@Autowired
+	ChangeFeed changeFeed;
+
+	@Autowired
+	@Qualifier("asyncTaskExecutor")
+	AsyncTaskExecutor asyncTaskExecutor;
+
+	@Value("${changes.streamMillis}")
+	long streamMillis;
+
+	/**
+	 * Follow the changes to companies, departments and employees as Server-Sent Events. Every
+	 * change is sent as an event with its sequence number as ID and the
+	 * {@link net.bhira.sample.api.change.ChangeEvent} as JSON data. The changes after the
+	 * "Last-Event-ID" header sent by reconnecting clients are streamed, or else those after the
+	 * "since" parameter. Without either, or if the changes after it are not kept anymore, the
+	 * stream starts with a "reset" event, after which the data must be loaded again. The stream is
+	 * closed after a while, and the client reconnects to continue after the last event. The
+	 * departments and employees of a purged company are not sent, only the delete of the company.
+	 * 
+	 * @param since
+	 *            the sequence number of the last change received, omit it to start with a reset.
+	 * @param companyId
+	 *            the ID of the company to follow, omit it to follow all the companies.
+	 * @param request
+	 *            the http request with the optional "Last-Event-ID" header.
+	 * @param response
+	 *            the http response to which the events will be written.
+	 * @return the deferred result set to null once the stream is closed, or to the error message.
+	 */
+	@RequestMapping(value = "/changes", method = RequestMethod.GET)
+	@ResponseBody
+	public DeferredResult<String> getChanges(
+			@RequestParam(value = "since", defaultValue = "-1") long since,
+			@RequestParam(value = "companyId", defaultValue = "0") long companyId,
+			HttpServletRequest request, HttpServletResponse response) {
+		DeferredResult<String> result = new DeferredResult<String>(streamMillis, null);
+		ChangeStream stream = new ChangeStream(result, response, companyId);
+		result.onTimeout(new Runnable() {
+			@Override
+			public void run() {
+				stream.close();
+			}
+		});
+		result.onCompletion(new Runnable() {
+			@Override
+			public void run() {
+				stream.detach();
+			}
+		});
+		try {
+			String lastEventId = request.getHeader("Last-Event-ID");
+			long seq = (lastEventId == null || lastEventId.trim().isEmpty()) ? since
+					: Long.parseLong(lastEventId.trim());
+			LOG.debug("servicing GET changes, since = {}, companyId = {}", seq, companyId);
+			response.setContentType("text/event-stream;charset=UTF-8");
+			response.setHeader("Cache-Control", "no-cache");
+			stream.start(seq);
+		} catch (Exception ex) {
+			stream.fail(ex);
+		}
+		return result;
+	}
+
+	/**
+	 * The event stream of a GET /changes request. The changes already published are written on
+	 * the request thread, the later ones on the async task executor when they are published, and
+	 * no thread is held while waiting for them.
+	 */
+	private final class ChangeStream implements Runnable {
+		private final DeferredResult<String> result;
+		private final HttpServletResponse response;
+		private final long companyId;
+		private final List<ChangeEvent> changes = new ArrayList<ChangeEvent>(BATCH_SIZE);
+		private final Gson gson = JsonUtil.getGson();
+		private final Runnable listener = new Runnable() {
+			@Override
+			public void run() {
+				schedule();
+			}
+		};
+		private Writer writer;
+		private long seq;
+		private long sentSeq;
+		private long count;
+		private boolean closed;
+
+		private ChangeStream(DeferredResult<String> result, HttpServletResponse response,
+				long companyId) {
+			this.result = result;
+			this.response = response;
+			this.companyId = companyId;
+		}
+
+		private synchronized void start(long since) throws IOException {
+			writer = new BufferedWriter(new OutputStreamWriter(response.getOutputStream(),
+					StandardCharsets.UTF_8));
+			seq = since;
+			sentSeq = since;
+			write();
+		}
+
+		/**
+		 * Run on the thread publishing the changes, hand the write over to the executor.
+		 */
+		private void schedule() {
+			try {
+				asyncTaskExecutor.execute(this);
+			} catch (TaskRejectedException ex) {
+				// the client reconnects and reads the changes later
+				LOG.warn("Closing change stream, async executor is busy. {}",
+						ex.getLocalizedMessage());
+				close();
+			}
+		}
+
+		@Override
+		public void run() {
+			try {
+				write();
+			} catch (Exception ex) {
+				fail(ex);
+			}
+		}
+
+		/**
+		 * Write the changes published since the last write, and wait for the next ones.
+		 */
+		private synchronized void write() throws IOException {
+			if (closed) {
+				return;
+			}
+			do {
+				changes.clear();
+				seq = changeFeed.read(seq, companyId, BATCH_SIZE, changes);
+				for (ChangeEvent change : changes) {
+					writer.write("id: " + change.getSeq() + "\n");
+					if (ChangeEvent.RESET.equals(change.getAction())) {
+						writer.write("event: " + ChangeEvent.RESET + "\n");
+					}
+					writer.write("data: " + gson.toJson(change) + "\n\n");
+					sentSeq = change.getSeq();
+				}
+				writer.flush();
+				count += changes.size();
+			} while (!changeFeed.await(seq, listener));
+		}
+
+		/**
+		 * Close the stream once its time is up, moving the client past the changes of other
+		 * companies skipped at the end.
+		 */
+		private synchronized void close() {
+			if (closed) {
+				return;
+			}
+			detach();
+			try {
+				if (seq > sentSeq) {
+					writer.write("id: " + seq + "\n\n");
+				}
+				writer.flush();
+			} catch (IOException ex) {
+				LOG.debug("GET changes closed by the client. {}", ex.getLocalizedMessage());
+			}
+			LOG.debug("GET changes count = {}, seq = {}", count, seq);
+			result.setResult(null);
+		}
+
+		private synchronized void fail(Exception ex) {
+			if (closed) {
+				return;
+			}
+			detach();
+			if (ex instanceof IOException && response.isCommitted()) {
+				LOG.debug("GET changes closed by the client. {}", ex.getLocalizedMessage());
+				result.setResult(null);
+				return;
+			}
+			LOG.warn("Error streaming changes. {}", ex.getLocalizedMessage());
+			LOG.debug("Stream error stacktrace: ", ex);
+			int status = (ex instanceof IllegalArgumentException)
+					? HttpServletResponse.SC_BAD_REQUEST
+					: HttpServletResponse.SC_FORBIDDEN;
+			try {
+				result.setResult(JsonListWriter.error(response, status, ex));
+			} catch (Exception committed) {
+				// the events already sent can not be taken back, the stream is cut off
+				result.setErrorResult(committed);
+			}
+		}
+
+		/**
+		 * Stop following the feed, e.g. when the request is completed by an error.
+		 */
+		private synchronized void detach() {
+			closed = true;
+			changeFeed.cancel(listener);
+		}
+	}
+
+}
@@ -23,25 +23,47 @@
  */
 package net.bhira.sample.api.controller;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.function.Consumer;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import net.bhira.sample.api.exporter.CompanyExporter;
+import net.bhira.sample.api.exporter.ExportWriter;
+import net.bhira.sample.api.jdbc.EmployeeStats;
+import net.bhira.sample.api.jdbc.ModifiedStamp;
 import net.bhira.sample.api.service.CompanyService;
+import net.bhira.sample.api.service.EmployeeService;
+import net.bhira.sample.api.service.PurgeProgress;
+import net.bhira.sample.common.ConditionalGet;
 import net.bhira.sample.common.JsonUtil;
+import net.bhira.sample.common.exception.StaleObjectException;
 import net.bhira.sample.model.Company;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.context.request.async.WebAsyncTask;
 
 import com.google.gson.Gson;
 import com.google.gson.JsonSyntaxException;
@@ -59,34 +81,68 @@ public class CompanyController {
 	 */
 	private static final Logger LOG = LoggerFactory.getLogger(CompanyController.class);
 
+	static final int MAX_BATCH_GET_SIZE = 1000;
+
 	@Autowired
 	CompanyService companyService;
 
+	@Autowired
+	CompanyExporter companyExporter;
+
+	@Autowired
+	EmployeeService employeeService;
+
+	@Value("${company.purge.timeoutMillis}")
+	long purgeTimeoutMillis;
+
+	@Value("${export.timeoutMillis}")
+	long exportTimeoutMillis;
+
+	@Autowired
+	@Qualifier("longTaskExecutor")
+	AsyncTaskExecutor longTaskExecutor;
+
 	/**
 	 * Fetch all the companies in the system. It will return a light weight version of
 	 * {@link net.bhira.sample.model.Company} model without the address and contactInfo objects.
+	 * The companies are streamed to the response as they are read from the database. The response
+	 * carries an ETag derived from the number, latest modified time, versions and highest ID of
+	 * the companies, and a request with a matching "If-None-Match" header is answered with 304
+	 * without loading them.
 	 * 
+	 * @param request
+	 *            the http request with the optional conditional headers.
 	 * @param response
 	 *            the http response to which the results will be written.
-	 * @return an array of {@link net.bhira.sample.model.Company} instances as JSON.
+	 * @return null once an array of {@link net.bhira.sample.model.Company} instances is written to
+	 *         the response as JSON, or the error message.
 	 */
 	@RequestMapping(value = "/company", method = RequestMethod.GET)
 	@ResponseBody
-	public Callable<String> getAll(HttpServletResponse response) {
+	public Callable<String> getAll(HttpServletRequest request, HttpServletResponse response) {
 		return new Callable<String>() {
 			public String call() throws Exception {
-				String body = "";
+				String body = null;
 				try {
 					LOG.debug("servicing GET company/");
-					List<Company> list = companyService.loadAll();
-					int count = (list == null) ? 0 : list.size();
-					LOG.debug("GET company/ count = {}", count);
-					body = JsonUtil.createGson().toJson(list);
+					ModifiedStamp stamp = companyService.loadModifiedStamp();
+					String etag = ConditionalGet.etag("company", stamp.getCount(),
+							stamp.getLastModifiedTime(), stamp.getVersionSum(), stamp.getMaxId());
+					if (ConditionalGet.checkNotModified(request, response, etag, -1)) {
+						LOG.debug("GET company/ not modified");
+						return body;
+					}
+					JsonListWriter<Company> list = new JsonListWriter<Company>(response,
+							Company.class);
+					list.beginArray();
+					companyService.loadAll(list);
+					list.endArray();
+					list.flush();
+					LOG.debug("GET company/ count = {}", list.getCount());
 				} catch (Exception ex) {
-					response.setStatus(HttpServletResponse.SC_FORBIDDEN);
-					body = ex.getLocalizedMessage();
-					LOG.warn("Error loading companies. {}", body);
+					LOG.warn("Error loading companies. {}", ex.getLocalizedMessage());
 					LOG.debug("Load error stacktrace: ", ex);
+					body = JsonListWriter.error(response, HttpServletResponse.SC_FORBIDDEN, ex);
 				}
 				return body;
 			}
@@ -95,17 +151,22 @@ public class CompanyController {
 
 	/**
 	 * Fetch the instance of {@link net.bhira.sample.model.Company} represented by given companyId
-	 * and return it as JSON object.
+	 * and return it as JSON object. The response carries an ETag derived from the version and a
+	 * Last-Modified header from the modified time of the company, and a conditional request for an
+	 * unchanged company is answered with 304 without serializing it.
 	 * 
 	 * @param companyId
 	 *            the ID for {@link net.bhira.sample.model.Company}.
+	 * @param request
+	 *            the http request with the optional conditional headers.
 	 * @param response
 	 *            the http response to which the results will be written.
 	 * @return an instance of {@link net.bhira.sample.model.Company} as JSON.
 	 */
 	@RequestMapping(value = "/company/{companyId}", method = RequestMethod.GET)
 	@ResponseBody
-	public Callable<String> getCompany(@PathVariable long companyId, HttpServletResponse response) {
+	public Callable<String> getCompany(@PathVariable long companyId, HttpServletRequest request,
+			HttpServletResponse response) {
 		return new Callable<String>() {
 			public String call() throws Exception {
 				String body = "";
@@ -115,8 +176,8 @@ public class CompanyController {
 					LOG.debug("GET company/{}, found = {}", companyId, company != null);
 					if (company == null) {
 						response.setStatus(HttpServletResponse.SC_NOT_FOUND);
-					} else {
-						body = JsonUtil.createGson().toJson(company);
+					} else if (!isNotModified(company, request, response)) {
+						body = JsonUtil.getGson().toJson(company);
 					}
 				} catch (Exception ex) {
 					response.setStatus(HttpServletResponse.SC_FORBIDDEN);
@@ -129,15 +190,61 @@ public class CompanyController {
 		};
 	}
 
+	/**
+	 * Fetch the instances of {@link net.bhira.sample.model.Company} represented by the given
+	 * company IDs and return them as JSON array. The request body must be a JSON array of IDs. IDs
+	 * that are not found are skipped. At most {@value #MAX_BATCH_GET_SIZE} IDs are allowed, larger
+	 * requests are rejected with 400 (Bad Request).
+	 * 
+	 * @param request
+	 *            the http request containing JSON array of IDs in its body.
+	 * @param response
+	 *            the http response to which the results will be written.
+	 * @return an array of {@link net.bhira.sample.model.Company} instances as JSON.
+	 */
+	@RequestMapping(value = "/company/batch-get", method = RequestMethod.POST)
+	@ResponseBody
+	public Callable<String> getCompanies(HttpServletRequest request, HttpServletResponse response) {
+		return new Callable<String>() {
+			public String call() throws Exception {
+				String body = "";
+				try {
+					LOG.debug("servicing POST company/batch-get");
+					Gson gson = JsonUtil.getGson();
+					List<Long> idList = JsonUtil.readIds(request.getReader(), MAX_BATCH_GET_SIZE);
+					List<Company> list = companyService.loadAll(idList);
+					int count = (list == null) ? 0 : list.size();
+					LOG.debug("POST company/batch-get requested = {}, found = {}", idList.size(),
+							count);
+					body = gson.toJson(list);
+				} catch (Exception ex) {
+					if (ex instanceof JsonSyntaxException
+							|| ex instanceof IllegalArgumentException) {
+						response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+					} else {
+						response.setStatus(HttpServletResponse.SC_FORBIDDEN);
+					}
+					body = ex.getLocalizedMessage();
+					LOG.warn("Error loading companies. {}", body);
+					LOG.debug("Load error stacktrace: ", ex);
+				}
+				return body;
+			}
+		};
+	}
+
 	/**
 	 * Save the given instance of {@link net.bhira.sample.model.Company}. It will create a new
 	 * instance of the company does not exist, otherwise it will update the existing instance.
+	 * An existing company must carry the version it was loaded with, and if it was modified since
+	 * then the update is rejected with 409 (Conflict). The ID and the new version are returned.
 	 * 
 	 * @param request
 	 *            the http request containing JSON payload in its body.
 	 * @param response
 	 *            the http response to which the results will be written.
-	 * @return the error message, if save was not successful.
+	 * @return the ID and version of the saved company as JSON, or the error message if save was
+	 *         not successful.
 	 */
 	@RequestMapping(value = "/company", method = RequestMethod.POST)
 	@ResponseBody
@@ -147,17 +254,20 @@ public class CompanyController {
 				String body = "";
 				try {
 					LOG.debug("servicing POST company");
-					Gson gson = JsonUtil.createGson();
+					Gson gson = JsonUtil.getGson();
 					Company company = gson.fromJson(request.getReader(), Company.class);
 					LOG.debug("POST company received json = {}", gson.toJson(company));
 					companyService.save(company);
 					HashMap<String, Long> map = new HashMap<String, Long>();
 					map.put("id", company.getId());
+					map.put("version", company.getVersion());
 					body = gson.toJson(map);
 					LOG.debug("POST company/ successful with return ID = {}", company.getId());
 				} catch (Exception ex) {
 					if (ex instanceof JsonSyntaxException) {
 						response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+					} else if (ex instanceof StaleObjectException) {
+						response.setStatus(HttpServletResponse.SC_CONFLICT);
 					} else {
 						response.setStatus(HttpServletResponse.SC_FORBIDDEN);
 					}
@@ -204,4 +314,196 @@ public class CompanyController {
 		};
 	}
 
+	/**
+	 * Delete the instance of {@link net.bhira.sample.model.Company} represented by given companyId
+	 * along with all its employees and departments. They are deleted in chunks, each in its own
+	 * transaction, and the progress is streamed as newline delimited JSON, one
+	 * {@link net.bhira.sample.api.service.PurgeProgress} per line, ending with the line of the
+	 * "company" phase. The status is 403 (Forbidden) if the company does not exist or the purge
+	 * fails before any progress is written. Once the progress is streamed the status can no
+	 * longer change, so a purge failing midway ends with a line having the "companyId" and the
+	 * "error" message instead. A response without either line was cut off, e.g. by the timeout,
+	 * and the request can be repeated to delete the rest. The purge runs on the executor of the
+	 * long running requests, so it does not hold a thread of the async request pool.
+	 * 
+	 * @param companyId
+	 *            the ID for {@link net.bhira.sample.model.Company}.
+	 * @param response
+	 *            the http response to which the progress will be written.
+	 * @return the async task returning null once the purge is complete or its error is written,
+	 *         or the error message.
+	 */
+	@RequestMapping(value = "/company/{companyId}", method = RequestMethod.DELETE,
+			params = "cascade=true")
+	@ResponseBody
+	public WebAsyncTask<String> purgeCompany(@PathVariable long companyId,
+			HttpServletResponse response) {
+		Callable<String> purge = new Callable<String>() {
+			public String call() throws Exception {
+				LOG.debug("servicing DELETE company/{}?cascade=true", companyId);
+				String body = null;
+				response.setContentType("application/x-ndjson");
+				Writer writer = new BufferedWriter(new OutputStreamWriter(
+						response.getOutputStream(), StandardCharsets.UTF_8));
+				Gson gson = JsonUtil.getGson();
+				try {
+					boolean success = companyService.purge(companyId,
+							new Consumer<PurgeProgress>() {
+								@Override
+								public void accept(PurgeProgress progress) {
+									try {
+										gson.toJson(progress, writer);
+										writer.write('\n');
+										writer.flush();
+									} catch (IOException ex) {
+										// stop purging once the client is gone
+										throw new UncheckedIOException(ex);
+									}
+								}
+							});
+					LOG.debug("DELETE company/{}?cascade=true status = {}", companyId, success);
+					if (!success && !response.isCommitted()) {
+						// the company was not found, nothing was purged or written
+						response.setStatus(HttpServletResponse.SC_FORBIDDEN);
+					}
+				} catch (Exception ex) {
+					LOG.warn("Error purging company/{}. {}", companyId, ex.getLocalizedMessage());
+					LOG.debug("Purge error stacktrace: ", ex);
+					if (!response.isCommitted()) {
+						body = JsonListWriter.error(response, HttpServletResponse.SC_FORBIDDEN, ex);
+					} else {
+						// the progress is out, so the error ends the stream in place of the status
+						Map<String, Object> error = new LinkedHashMap<String, Object>();
+						error.put("companyId", companyId);
+						error.put("error", ex.getLocalizedMessage());
+						try {
+							gson.toJson(error, writer);
+							writer.write('\n');
+							writer.flush();
+						} catch (IOException ioe) {
+							LOG.debug("Purge error not written, the client is gone. {}",
+									ioe.getLocalizedMessage());
+						}
+					}
+				}
+				return body;
+			}
+		};
+		return new WebAsyncTask<String>(purgeTimeoutMillis, longTaskExecutor, purge);
+	}
+
+	/**
+	 * Export the complete data of the {@link net.bhira.sample.model.Company} represented by given
+	 * companyId, i.e. the company followed by its departments and employees, each with its contact
+	 * info, one record per line. The records are streamed from database cursors as they are read,
+	 * see {@link net.bhira.sample.api.exporter.CompanyExporter}. The response is compressed if the
+	 * client accepts it. An interrupted export is resumed with the "after" parameter. The export
+	 * runs on the executor of the long running requests, like the purge.
+	 * 
+	 * @param companyId
+	 *            the ID for {@link net.bhira.sample.model.Company}.
+	 * @param format
+	 *            the format of the records, "ndjson" for newline delimited JSON or "csv".
+	 * @param after
+	 *            the type and ID of the last record received, e.g. "employee:1234", omit it to
+	 *            export the complete company.
+	 * @param response
+	 *            the http response to which the records will be written.
+	 * @return the async task returning null once the records are written, or the error message.
+	 */
+	@RequestMapping(value = "/company/{companyId}/export", method = RequestMethod.GET)
+	@ResponseBody
+	public WebAsyncTask<String> exportCompany(@PathVariable long companyId,
+			@RequestParam(value = "format", defaultValue = ExportWriter.NDJSON) String format,
+			@RequestParam(value = "after", required = false) String after,
+			HttpServletResponse response) {
+		Callable<String> export = new Callable<String>() {
+			public String call() throws Exception {
+				LOG.debug("servicing GET company/{}/export, after = {}", companyId, after);
+				String body = null;
+				try {
+					response.setContentType(ExportWriter.getContentType(format));
+					ExportWriter writer = new ExportWriter(new BufferedWriter(
+							new OutputStreamWriter(response.getOutputStream(),
+									StandardCharsets.UTF_8)), format);
+					boolean found = companyExporter.export(companyId, after, writer);
+					LOG.debug("GET company/{}/export found = {}, count = {}", companyId, found,
+							writer.getCount());
+					if (!found) {
+						response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+					}
+				} catch (Exception ex) {
+					LOG.warn("Error exporting company/{}. {}", companyId,
+							ex.getLocalizedMessage());
+					LOG.debug("Export error stacktrace: ", ex);
+					int status = (ex instanceof IllegalArgumentException)
+							? HttpServletResponse.SC_BAD_REQUEST
+							: HttpServletResponse.SC_FORBIDDEN;
+					body = JsonListWriter.error(response, status, ex);
+				}
+				return body;
+			}
+		};
+		return new WebAsyncTask<String>(exportTimeoutMillis, longTaskExecutor, export);
+	}
+
+	/**
+	 * Fetch the headcount breakdowns of the company represented by given companyId and return them
+	 * as a JSON object. The employees are counted by sex, age band, title and department. The
+	 * counts are cached for a short while, so they may lag recent changes by up to a minute.
+	 * 
+	 * @param companyId
+	 *            the ID for {@link net.bhira.sample.model.Company}.
+	 * @param response
+	 *            the http response to which the results will be written.
+	 * @return an instance of {@link net.bhira.sample.api.jdbc.EmployeeStats} as JSON.
+	 */
+	@RequestMapping(value = "/company/{companyId}/stats", method = RequestMethod.GET)
+	@ResponseBody
+	public Callable<String> getStats(@PathVariable long companyId, HttpServletResponse response) {
+		return new Callable<String>() {
+			public String call() throws Exception {
+				String body = "";
+				try {
+					LOG.debug("servicing GET company/{}/stats", companyId);
+					Company company = companyService.load(companyId);
+					if (company == null) {
+						response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+					} else {
+						EmployeeStats stats = employeeService.loadStatsByCompany(companyId);
+						LOG.debug("GET company/{}/stats, headcount = {}", companyId,
+								stats.getHeadcount());
+						body = JsonUtil.getGson().toJson(stats);
+					}
+				} catch (Exception ex) {
+					response.setStatus(HttpServletResponse.SC_FORBIDDEN);
+					body = ex.getLocalizedMessage();
+					LOG.warn("Error loading company/{}/stats. {}", companyId, body);
+					LOG.debug("Load error stacktrace: ", ex);
+				}
+				return body;
+			}
+		};
+	}
+
+	/**
+	 * Set the ETag and Last-Modified headers for the given company and check whether the client
+	 * already has this version of it. The ETag is derived from the version of the company, as the
+	 * modified time may not tell apart two updates within the same second.
+	 * 
+	 * @param company
+	 *            the instance of {@link net.bhira.sample.model.Company} being returned.
+	 * @param request
+	 *            the http request with the optional conditional headers.
+	 * @param response
+	 *            the http response on which the headers are set.
+	 * @return true if the response is a 304 (Not Modified) and no body must be written.
+	 */
+	private boolean isNotModified(Company company, HttpServletRequest request,
+			HttpServletResponse response) {
+		long modified = (company.getModified() == null) ? -1 : company.getModified().getTime();
+		String etag = ConditionalGet.etag("company", company.getId(), company.getVersion());
+		return ConditionalGet.checkNotModified(request, response, etag, modified);
+	}
+
 }
\ No newline at end of file
@@ -23,6 +23,7 @@
  */
 package net.bhira.sample.api.controller;
 
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.concurrent.Callable;
@@ -30,8 +31,11 @@ import java.util.concurrent.Callable;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import net.bhira.sample.api.jdbc.ModifiedStamp;
 import net.bhira.sample.api.service.DepartmentService;
+import net.bhira.sample.common.ConditionalGet;
 import net.bhira.sample.common.JsonUtil;
+import net.bhira.sample.common.exception.StaleObjectException;
 import net.bhira.sample.model.Department;
 
 import org.slf4j.Logger;
@@ -41,6 +45,7 @@ import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 
 import com.google.gson.Gson;
@@ -59,37 +64,73 @@ public class DepartmentController {
 	 */
 	private static final Logger LOG = LoggerFactory.getLogger(DepartmentController.class);
 
+	static final int MAX_BATCH_GET_SIZE = 1000;
+
 	@Autowired
 	DepartmentService departmentService;
 
 	/**
 	 * Fetch all the departments for the given company ID. It will return a light weight version of
 	 * {@link net.bhira.sample.model.Department} model without the address and contactInfo objects.
+	 * The departments are streamed to the response as they are read from the database. The response
+	 * carries an ETag derived from the number, latest modified time, versions and highest ID of
+	 * the departments, and a request with a matching "If-None-Match" header is answered with 304
+	 * without loading them.
+	 * With the "modifiedSince" parameter only the departments modified at or after that time are
+	 * returned, ordered by modified time and ID. Deleted departments are not returned.
 	 * 
 	 * @param companyId
 	 *            the ID for {@link net.bhira.sample.model.Company}.
+	 * @param modifiedSince
+	 *            the earliest modified time of the departments in UTC, e.g.
+	 *            "2014-07-02T00:00:00Z", omit it for all the departments.
+	 * @param request
+	 *            the http request with the optional conditional headers.
 	 * @param response
 	 *            the http response to which the results will be written.
-	 * @return an array of {@link net.bhira.sample.model.Department} instances as JSON.
+	 * @return null once an array of {@link net.bhira.sample.model.Department} instances is written
+	 *         to the response as JSON, or the error message.
 	 */
 	@RequestMapping(value = "/department/company/{companyId}", method = RequestMethod.GET)
 	@ResponseBody
 	public Callable<String> getDepartmentsByCompany(@PathVariable long companyId,
-			HttpServletResponse response) {
+			@RequestParam(value = "modifiedSince", required = false) String modifiedSince,
+			HttpServletRequest request, HttpServletResponse response) {
 		return new Callable<String>() {
 			public String call() throws Exception {
-				String body = "";
+				String body = null;
 				try {
-					LOG.debug("servicing GET department/company/{}", companyId);
-					List<Department> list = departmentService.loadByCompany(companyId);
-					int count = (list == null) ? 0 : list.size();
-					LOG.debug("GET department/company/{} count = {}", companyId, count);
-					body = JsonUtil.createGson().toJson(list);
+					LOG.debug("servicing GET department/company/{}, modifiedSince = {}",
+							companyId, modifiedSince);
+					Date since = (modifiedSince == null) ? null
+							: JsonUtil.parseDate(modifiedSince);
+					ModifiedStamp stamp = departmentService.loadModifiedStampByCompany(companyId);
+					String etag = ConditionalGet.etag("department/company", companyId,
+							stamp.getCount(), stamp.getLastModifiedTime(), stamp.getVersionSum(),
+							stamp.getMaxId(), (since == null) ? -1 : since.getTime());
+					if (ConditionalGet.checkNotModified(request, response, etag, -1)) {
+						LOG.debug("GET department/company/{} not modified", companyId);
+						return body;
+					}
+					JsonListWriter<Department> list = new JsonListWriter<Department>(response,
+							Department.class);
+					list.beginArray();
+					if (since == null) {
+						departmentService.loadByCompany(companyId, list);
+					} else {
+						departmentService.loadModifiedSince(companyId, since, list);
+					}
+					list.endArray();
+					list.flush();
+					LOG.debug("GET department/company/{} count = {}", companyId,
+							list.getCount());
 				} catch (Exception ex) {
-					response.setStatus(HttpServletResponse.SC_FORBIDDEN);
-					body = ex.getLocalizedMessage();
-					LOG.warn("Error loading department/company/{}. {}", companyId, body);
+					LOG.warn("Error loading department/company/{}. {}", companyId,
+							ex.getLocalizedMessage());
 					LOG.debug("Load error stacktrace: ", ex);
+					int status = (ex instanceof IllegalArgumentException)
+							? HttpServletResponse.SC_BAD_REQUEST : HttpServletResponse.SC_FORBIDDEN;
+					body = JsonListWriter.error(response, status, ex);
 				}
 				return body;
 			}
@@ -98,10 +139,14 @@ public class DepartmentController {
 
 	/**
 	 * Fetch the instance of {@link net.bhira.sample.model.Department} represented by given
-	 * departmentId and return it as JSON object.
+	 * departmentId and return it as JSON object. The response carries an ETag derived from the
+	 * version and a Last-Modified header from the modified time of the department, and a
+	 * conditional request for an unchanged department is answered with 304 without serializing it.
 	 * 
 	 * @param departmentId
 	 *            the ID for {@link net.bhira.sample.model.Department}.
+	 * @param request
+	 *            the http request with the optional conditional headers.
 	 * @param response
 	 *            the http response to which the results will be written.
 	 * @return an instance of {@link net.bhira.sample.model.Department} as JSON.
@@ -109,7 +154,7 @@ public class DepartmentController {
 	@RequestMapping(value = "/department/{departmentId}", method = RequestMethod.GET)
 	@ResponseBody
 	public Callable<String> getDepartment(@PathVariable long departmentId,
-			HttpServletResponse response) {
+			HttpServletRequest request, HttpServletResponse response) {
 		return new Callable<String>() {
 			public String call() throws Exception {
 				String body = "";
@@ -119,8 +164,8 @@ public class DepartmentController {
 					LOG.debug("GET department/{}, found = {}", departmentId, department != null);
 					if (department == null) {
 						response.setStatus(HttpServletResponse.SC_NOT_FOUND);
-					} else {
-						body = JsonUtil.createGson().toJson(department);
+					} else if (!isNotModified(department, request, response)) {
+						body = JsonUtil.getGson().toJson(department);
 					}
 				} catch (Exception ex) {
 					response.setStatus(HttpServletResponse.SC_FORBIDDEN);
@@ -133,15 +178,63 @@ public class DepartmentController {
 		};
 	}
 
+	/**
+	 * Fetch the instances of {@link net.bhira.sample.model.Department} represented by the given
+	 * department IDs and return them as JSON array. The request body must be a JSON array of IDs.
+	 * IDs that are not found are skipped. At most {@value #MAX_BATCH_GET_SIZE} IDs are allowed,
+	 * larger requests are rejected with 400 (Bad Request).
+	 * 
+	 * @param request
+	 *            the http request containing JSON array of IDs in its body.
+	 * @param response
+	 *            the http response to which the results will be written.
+	 * @return an array of {@link net.bhira.sample.model.Department} instances as JSON.
+	 */
+	@RequestMapping(value = "/department/batch-get", method = RequestMethod.POST)
+	@ResponseBody
+	public Callable<String> getDepartments(HttpServletRequest request,
+			HttpServletResponse response) {
+		return new Callable<String>() {
+			public String call() throws Exception {
+				String body = "";
+				try {
+					LOG.debug("servicing POST department/batch-get");
+					Gson gson = JsonUtil.getGson();
+					List<Long> idList = JsonUtil.readIds(request.getReader(), MAX_BATCH_GET_SIZE);
+					List<Department> list = departmentService.loadAll(idList);
+					int count = (list == null) ? 0 : list.size();
+					LOG.debug("POST department/batch-get requested = {}, found = {}", idList.size(),
+							count);
+					body = gson.toJson(list);
+				} catch (Exception ex) {
+					if (ex instanceof JsonSyntaxException
+							|| ex instanceof IllegalArgumentException) {
+						response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+					} else {
+						response.setStatus(HttpServletResponse.SC_FORBIDDEN);
+					}
+					body = ex.getLocalizedMessage();
+					LOG.warn("Error loading departments. {}", body);
+					LOG.debug("Load error stacktrace: ", ex);
+				}
+				return body;
+			}
+		};
+	}
+
 	/**
 	 * Save the given instance of {@link net.bhira.sample.model.Department}. It will create a new
 	 * instance of the department does not exist, otherwise it will update the existing instance.
+	 * An existing department must carry the version it was loaded with, and if it was modified
+	 * since then the update is rejected with 409 (Conflict). The ID and the new version are
+	 * returned.
 	 * 
 	 * @param request
 	 *            the http request containing JSON payload in its body.
 	 * @param response
 	 *            the http response to which the results will be written.
-	 * @return the error message, if save was not successful.
+	 * @return the ID and version of the saved department as JSON, or the error message if save was
+	 *         not successful.
 	 */
 	@RequestMapping(value = "/department", method = RequestMethod.POST)
 	@ResponseBody
@@ -151,17 +244,20 @@ public class DepartmentController {
 				String body = "";
 				try {
 					LOG.debug("servicing POST department");
-					Gson gson = JsonUtil.createGson();
+					Gson gson = JsonUtil.getGson();
 					Department department = gson.fromJson(request.getReader(), Department.class);
 					LOG.debug("POST department received json = {}", gson.toJson(department));
 					departmentService.save(department);
 					HashMap<String, Long> map = new HashMap<String, Long>();
 					map.put("id", department.getId());
+					map.put("version", department.getVersion());
 					body = gson.toJson(map);
 					LOG.debug("POST department/ successful with return ID = {}", department.getId());
 				} catch (Exception ex) {
 					if (ex instanceof JsonSyntaxException) {
 						response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+					} else if (ex instanceof StaleObjectException) {
+						response.setStatus(HttpServletResponse.SC_CONFLICT);
 					} else {
 						response.setStatus(HttpServletResponse.SC_FORBIDDEN);
 					}
@@ -209,4 +305,26 @@ public class DepartmentController {
 		};
 	}
 
+	/**
+	 * Set the ETag and Last-Modified headers for the given department and check whether the client
+	 * already has this version of it. The ETag is derived from the version of the department, as
+	 * the modified time may not tell apart two updates within the same second.
+	 * 
+	 * @param department
+	 *            the instance of {@link net.bhira.sample.model.Department} being returned.
+	 * @param request
+	 *            the http request with the optional conditional headers.
+	 * @param response
+	 *            the http response on which the headers are set.
+	 * @return true if the response is a 304 (Not Modified) and no body must be written.
+	 */
+	private boolean isNotModified(Department department, HttpServletRequest request,
+			HttpServletResponse response) {
+		long modified = (department.getModified() == null) ? -1
+				: department.getModified().getTime();
+		String etag = ConditionalGet.etag("department", department.getId(),
+				department.getVersion());
+		return ConditionalGet.checkNotModified(request, response, etag, modified);
+	}
+
 }
\ No newline at end of file
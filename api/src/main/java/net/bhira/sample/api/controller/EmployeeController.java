@@ -23,25 +23,44 @@
  */
 package net.bhira.sample.api.controller;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Callable;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import net.bhira.sample.api.importer.EmployeeImporter;
+import net.bhira.sample.api.importer.ImportReport;
+import net.bhira.sample.api.jdbc.EmployeeProjection;
+import net.bhira.sample.api.jdbc.ModifiedStamp;
 import net.bhira.sample.api.service.EmployeeService;
+import net.bhira.sample.common.ConditionalGet;
 import net.bhira.sample.common.JsonUtil;
+import net.bhira.sample.common.PageCursor;
+import net.bhira.sample.common.exception.InvalidObjectException;
+import net.bhira.sample.common.exception.ObjectNotFoundException;
+import net.bhira.sample.common.exception.StaleObjectException;
 import net.bhira.sample.model.Employee;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.context.request.async.WebAsyncTask;
 
 import com.google.gson.Gson;
 import com.google.gson.JsonSyntaxException;
@@ -59,37 +78,127 @@ public class EmployeeController {
 	 */
 	private static final Logger LOG = LoggerFactory.getLogger(EmployeeController.class);
 
+	static final String DEFAULT_PAGE_SIZE = "100";
+	static final int MAX_PAGE_SIZE = 1000;
+	static final String DEFAULT_SEARCH_SIZE = "20";
+	static final int MAX_BATCH_GET_SIZE = 1000;
+	static final int MAX_REPORTS_SIZE = 1000;
+
 	@Autowired
 	EmployeeService employeeService;
 
+	@Autowired
+	EmployeeImporter employeeImporter;
+
+	@Value("${employee.import.timeoutMillis}")
+	long importTimeoutMillis;
+
+	@Autowired
+	@Qualifier("longTaskExecutor")
+	AsyncTaskExecutor longTaskExecutor;
+
 	/**
-	 * Fetch all the employees for the given company ID. It will return a light weight version of
-	 * {@link net.bhira.sample.model.Employee} model without the address and contactInfo objects.
+	 * Fetch a page of employees for the given company ID. It will return a light weight version of
+	 * {@link net.bhira.sample.model.Employee} model without the contactInfo object, with only the
+	 * fields listed in the "fields" parameter. Only the columns of these fields are read from the
+	 * database. The employees are ordered by ID and paged using keyset pagination. The response is
+	 * a JSON object with the "items" array and, if there may be more employees, the opaque "next"
+	 * cursor to be passed as "after" parameter for fetching the next page. The employees are
+	 * streamed to the response as they are read from the database. The first page carries an ETag
+	 * derived from the number, latest modified time, versions and highest ID of the employees of
+	 * the company, and a request with a matching "If-None-Match" header is answered with 304
+	 * without loading the page. With the "modifiedSince" parameter only the employees modified at
+	 * or after that time are returned, ordered by modified time and ID, and their modified time is
+	 * always included, so that a client can sync the changes since its last sync instead of
+	 * reloading the whole list. Deleted employees are not returned, they are followed with
+	 * GET /changes.
 	 * 
 	 * @param companyId
 	 *            the ID for {@link net.bhira.sample.model.Company}.
+	 * @param modifiedSince
+	 *            the earliest modified time of the employees in UTC, e.g. "2014-07-02T00:00:00Z",
+	 *            omit it for all the employees ordered by ID.
+	 * @param after
+	 *            the cursor returned with the previous page, omit it for the first page.
+	 * @param limit
+	 *            the maximum number of employees in the page, at most {@value #MAX_PAGE_SIZE}.
+	 * @param fields
+	 *            the comma separated list of employee fields to return, e.g. "name,title", or
+	 *            "all" for all the fields. The ID is always returned. Omit it for the compact
+	 *            default of id, companyId, departmentId, name, managerId and title.
+	 * @param request
+	 *            the http request with the optional conditional headers.
 	 * @param response
 	 *            the http response to which the results will be written.
-	 * @return an array of {@link net.bhira.sample.model.Employee} instances as JSON.
+	 * @return null once a page of {@link net.bhira.sample.model.Employee} instances is written to
+	 *         the response as JSON, or the error message.
 	 */
 	@RequestMapping(value = "/employee/company/{companyId}", method = RequestMethod.GET)
 	@ResponseBody
 	public Callable<String> getEmployeesByCompany(@PathVariable long companyId,
-			HttpServletResponse response) {
+			@RequestParam(value = "modifiedSince", required = false) String modifiedSince,
+			@RequestParam(value = "after", required = false) String after,
+			@RequestParam(value = "limit", defaultValue = DEFAULT_PAGE_SIZE) int limit,
+			@RequestParam(value = "fields", required = false) String fields,
+			HttpServletRequest request, HttpServletResponse response) {
 		return new Callable<String>() {
 			public String call() throws Exception {
-				String body = "";
+				String body = null;
 				try {
-					LOG.debug("servicing GET employee/company/{}", companyId);
-					List<Employee> list = employeeService.loadByCompany(companyId);
-					int count = (list == null) ? 0 : list.size();
-					LOG.debug("GET employee/company/{} count = {}", companyId, count);
-					body = JsonUtil.createGson().toJson(list);
+					LOG.debug("servicing GET employee/company/{}, modifiedSince = {}, after = {}, "
+							+ "limit = {}, fields = {}", companyId, modifiedSince, after, limit,
+							fields);
+					if (limit < 1 || limit > MAX_PAGE_SIZE) {
+						throw new IllegalArgumentException("Invalid limit " + limit);
+					}
+					EmployeeProjection projection = EmployeeProjection.parse(fields);
+					Date since = null;
+					long afterId = 0;
+					if (modifiedSince != null) {
+						// ordered by modified time, so the cursor holds the modified time and ID
+						since = JsonUtil.parseDate(modifiedSince);
+						projection = projection.with(EmployeeProjection.Field.MODIFIED);
+						if (after != null) {
+							long[] keys = PageCursor.decode(after, 2);
+							since = new Date(keys[0]);
+							afterId = keys[1];
+						}
+					} else if (after != null) {
+						afterId = PageCursor.decode(after, 1)[0];
+					}
+					// the stamp covers all the employees of the company, so only the first page is
+					// tagged, the next pages are read from their cursor at constant cost
+					if (after == null) {
+						ModifiedStamp stamp = employeeService
+								.loadModifiedStampByCompany(companyId);
+						String etag = ConditionalGet.etag("employee/company", companyId,
+								stamp.getCount(), stamp.getLastModifiedTime(),
+								stamp.getVersionSum(), stamp.getMaxId(),
+								(since == null) ? -1 : since.getTime(), limit,
+								projection.getColumns());
+						if (ConditionalGet.checkNotModified(request, response, etag, -1)) {
+							LOG.debug("GET employee/company/{} not modified", companyId);
+							return body;
+						}
+					}
+					JsonListWriter<Employee> list = new JsonListWriter<Employee>(response,
+							Employee.class, projection.getGson());
+					beginPage(list);
+					if (since == null) {
+						employeeService.loadByCompany(companyId, afterId, limit, projection, list);
+					} else {
+						employeeService.loadModifiedSince(companyId, since, afterId, limit,
+								projection, list);
+					}
+					endPage(list, limit, since != null);
+					LOG.debug("GET employee/company/{} count = {}", companyId, list.getCount());
 				} catch (Exception ex) {
-					response.setStatus(HttpServletResponse.SC_FORBIDDEN);
-					body = ex.getLocalizedMessage();
-					LOG.warn("Error loading employee/company/{}. {}", companyId, body);
+					LOG.warn("Error loading employee/company/{}. {}", companyId,
+							ex.getLocalizedMessage());
 					LOG.debug("Load error stacktrace: ", ex);
+					int status = (ex instanceof IllegalArgumentException)
+							? HttpServletResponse.SC_BAD_REQUEST : HttpServletResponse.SC_FORBIDDEN;
+					body = JsonListWriter.error(response, status, ex);
 				}
 				return body;
 			}
@@ -97,33 +206,81 @@ public class EmployeeController {
 	}
 
 	/**
-	 * Fetch all the employees for the given department ID. It will return a light weight version of
-	 * {@link net.bhira.sample.model.Employee} model without the address and contactInfo objects.
+	 * Fetch a page of employees for the given department ID. It will return a light weight version
+	 * of {@link net.bhira.sample.model.Employee} model without the contactInfo object, with only
+	 * the fields listed in the "fields" parameter. Only the columns of these fields are read from
+	 * the database. The employees are ordered by ID and paged using keyset pagination. The response
+	 * is a JSON object with the "items" array and, if there may be more employees, the opaque
+	 * "next" cursor to be passed as "after" parameter for fetching the next page. The employees are
+	 * streamed to the response as they are read from the database. The first page carries an ETag
+	 * derived from the number, latest modified time, versions and highest ID of the employees of
+	 * the department, and a request with a matching "If-None-Match" header is answered with 304
+	 * without loading the page.
 	 * 
 	 * @param departmentId
 	 *            the ID for {@link net.bhira.sample.model.Department}.
+	 * @param after
+	 *            the cursor returned with the previous page, omit it for the first page.
+	 * @param limit
+	 *            the maximum number of employees in the page, at most {@value #MAX_PAGE_SIZE}.
+	 * @param fields
+	 *            the comma separated list of employee fields to return, e.g. "name,title", or
+	 *            "all" for all the fields. The ID is always returned. Omit it for the compact
+	 *            default of id, companyId, departmentId, name, managerId and title.
+	 * @param request
+	 *            the http request with the optional conditional headers.
 	 * @param response
 	 *            the http response to which the results will be written.
-	 * @return an array of {@link net.bhira.sample.model.Employee} instances as JSON.
+	 * @return null once a page of {@link net.bhira.sample.model.Employee} instances is written to
+	 *         the response as JSON, or the error message.
 	 */
 	@RequestMapping(value = "/employee/department/{departmentId}", method = RequestMethod.GET)
 	@ResponseBody
 	public Callable<String> getEmployeesByDepartment(@PathVariable long departmentId,
-			HttpServletResponse response) {
+			@RequestParam(value = "after", required = false) String after,
+			@RequestParam(value = "limit", defaultValue = DEFAULT_PAGE_SIZE) int limit,
+			@RequestParam(value = "fields", required = false) String fields,
+			HttpServletRequest request, HttpServletResponse response) {
 		return new Callable<String>() {
 			public String call() throws Exception {
-				String body = "";
+				String body = null;
 				try {
-					LOG.debug("servicing GET employee/department/{}", departmentId);
-					List<Employee> list = employeeService.loadByDepartment(departmentId);
-					int count = (list == null) ? 0 : list.size();
-					LOG.debug("GET employee/department/{} count = {}", departmentId, count);
-					body = JsonUtil.createGson().toJson(list);
+					LOG.debug("servicing GET employee/department/{}, after = {}, limit = {}, "
+							+ "fields = {}", departmentId, after, limit, fields);
+					if (limit < 1 || limit > MAX_PAGE_SIZE) {
+						throw new IllegalArgumentException("Invalid limit " + limit);
+					}
+					long afterId = (after == null) ? 0 : PageCursor.decode(after, 1)[0];
+					EmployeeProjection projection = EmployeeProjection.parse(fields);
+					// the stamp covers all the employees of the department, so only the first page
+					// is tagged, the next pages are read from their cursor at constant cost
+					if (after == null) {
+						ModifiedStamp stamp = employeeService
+								.loadModifiedStampByDepartment(departmentId);
+						String etag = ConditionalGet.etag("employee/department", departmentId,
+								stamp.getCount(), stamp.getLastModifiedTime(),
+								stamp.getVersionSum(), stamp.getMaxId(), limit,
+								projection.getColumns());
+						if (ConditionalGet.checkNotModified(request, response, etag, -1)) {
+							LOG.debug("GET employee/department/{} not modified", departmentId);
+							return body;
+						}
+					}
+					JsonListWriter<Employee> list = new JsonListWriter<Employee>(response,
+							Employee.class, projection.getGson());
+					beginPage(list);
+					employeeService.loadByDepartment(departmentId, afterId, limit, projection,
+							list);
+					endPage(list, limit, false);
+					LOG.debug("GET employee/department/{} count = {}", departmentId,
+							list.getCount());
 				} catch (Exception ex) {
-					response.setStatus(HttpServletResponse.SC_FORBIDDEN);
-					body = ex.getLocalizedMessage();
-					LOG.warn("Error loading employee/department/{}. {}", departmentId, body);
+					LOG.warn("Error loading employee/department/{}. {}", departmentId,
+							ex.getLocalizedMessage());
 					LOG.debug("Load error stacktrace: ", ex);
+					int status = (ex instanceof IllegalArgumentException)
+							? HttpServletResponse.SC_BAD_REQUEST : HttpServletResponse.SC_FORBIDDEN;
+					body = JsonListWriter.error(response, status, ex);
 				}
 				return body;
 			}
@@ -132,17 +289,22 @@ public class EmployeeController {
 
 	/**
 	 * Fetch the instance of {@link net.bhira.sample.model.Employee} represented by given employeeId
-	 * and return it as JSON object.
+	 * and return it as JSON object. The response carries an ETag derived from the version and a
+	 * Last-Modified header from the modified time of the employee, and a conditional request for
+	 * an unchanged employee is answered with 304 without serializing it.
 	 * 
 	 * @param employeeId
 	 *            the ID for {@link net.bhira.sample.model.Employee}.
+	 * @param request
+	 *            the http request with the optional conditional headers.
 	 * @param response
 	 *            the http response to which the results will be written.
 	 * @return an instance of {@link net.bhira.sample.model.Employee} as JSON.
 	 */
 	@RequestMapping(value = "/employee/{employeeId}", method = RequestMethod.GET)
 	@ResponseBody
-	public Callable<String> getEmployee(@PathVariable long employeeId, HttpServletResponse response) {
+	public Callable<String> getEmployee(@PathVariable long employeeId, HttpServletRequest request,
+			HttpServletResponse response) {
 		return new Callable<String>() {
 			public String call() throws Exception {
 				String body = "";
@@ -152,8 +314,8 @@ public class EmployeeController {
 					LOG.debug("GET employee/{}, found = {}", employeeId, employee != null);
 					if (employee == null) {
 						response.setStatus(HttpServletResponse.SC_NOT_FOUND);
-					} else {
-						body = JsonUtil.createGson().toJson(employee);
+					} else if (!isNotModified(employee, request, response)) {
+						body = JsonUtil.getGson().toJson(employee);
 					}
 				} catch (Exception ex) {
 					response.setStatus(HttpServletResponse.SC_FORBIDDEN);
@@ -166,15 +328,210 @@ public class EmployeeController {
 		};
 	}
 
+	/**
+	 * Fetch the employees reporting to the given employee, directly or through other managers up
+	 * to the given depth, and return them as JSON array ordered by level. The reporting hierarchy
+	 * is served from an in-memory index, so no recursive queries are made. Like batch-get, at most
+	 * {@value #MAX_REPORTS_SIZE} employees are returned, a depth reaching more reports than that
+	 * is rejected with 400 (Bad Request) and a smaller depth must be requested.
+	 * 
+	 * @param employeeId
+	 *            the ID for the manager {@link net.bhira.sample.model.Employee}.
+	 * @param depth
+	 *            the number of levels to include, 1 for the direct reports only.
+	 * @param response
+	 *            the http response to which the results will be written.
+	 * @return an array of {@link net.bhira.sample.model.Employee} instances as JSON.
+	 */
+	@RequestMapping(value = "/employee/{employeeId}/reports", method = RequestMethod.GET)
+	@ResponseBody
+	public Callable<String> getReports(@PathVariable long employeeId,
+			@RequestParam(value = "depth", defaultValue = "1") int depth,
+			HttpServletResponse response) {
+		return new Callable<String>() {
+			public String call() throws Exception {
+				String body = "";
+				try {
+					LOG.debug("servicing GET employee/{}/reports, depth = {}", employeeId, depth);
+					if (depth < 1) {
+						throw new IllegalArgumentException("Invalid depth " + depth);
+					}
+					Employee employee = employeeService.load(employeeId);
+					if (employee == null) {
+						response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+					} else {
+						List<Long> ids = employeeService.loadReportIds(employee.getCompanyId(),
+								employeeId, depth);
+						if (ids.size() > MAX_REPORTS_SIZE) {
+							throw new IllegalArgumentException("Too many reports at depth " + depth
+									+ ", at most " + MAX_REPORTS_SIZE + " are allowed");
+						}
+						List<Employee> list = employeeService.loadAll(ids);
+						LOG.debug("GET employee/{}/reports count = {}", employeeId, list.size());
+						body = JsonUtil.getGson().toJson(list);
+					}
+				} catch (Exception ex) {
+					if (ex instanceof IllegalArgumentException) {
+						response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+					} else {
+						response.setStatus(HttpServletResponse.SC_FORBIDDEN);
+					}
+					body = ex.getLocalizedMessage();
+					LOG.warn("Error loading employee/{}/reports. {}", employeeId, body);
+					LOG.debug("Load error stacktrace: ", ex);
+				}
+				return body;
+			}
+		};
+	}
+
+	/**
+	 * Fetch the managers of the given employee, starting with its direct manager and ending with
+	 * the top of the hierarchy, and return them as JSON array.
+	 * 
+	 * @param employeeId
+	 *            the ID for {@link net.bhira.sample.model.Employee}.
+	 * @param response
+	 *            the http response to which the results will be written.
+	 * @return an array of {@link net.bhira.sample.model.Employee} instances as JSON.
+	 */
+	@RequestMapping(value = "/employee/{employeeId}/chain", method = RequestMethod.GET)
+	@ResponseBody
+	public Callable<String> getChain(@PathVariable long employeeId, HttpServletResponse response) {
+		return new Callable<String>() {
+			public String call() throws Exception {
+				String body = "";
+				try {
+					LOG.debug("servicing GET employee/{}/chain", employeeId);
+					Employee employee = employeeService.load(employeeId);
+					if (employee == null) {
+						response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+					} else {
+						List<Long> ids = employeeService.loadChainIds(employee.getCompanyId(),
+								employeeId);
+						List<Employee> list = employeeService.loadAll(ids);
+						LOG.debug("GET employee/{}/chain count = {}", employeeId, list.size());
+						body = JsonUtil.getGson().toJson(list);
+					}
+				} catch (Exception ex) {
+					response.setStatus(HttpServletResponse.SC_FORBIDDEN);
+					body = ex.getLocalizedMessage();
+					LOG.warn("Error loading employee/{}/chain. {}", employeeId, body);
+					LOG.debug("Load error stacktrace: ", ex);
+				}
+				return body;
+			}
+		};
+	}
+
+	/**
+	 * Search the employees of the given company by name and title and return them as JSON array,
+	 * best match first. Every word of the query must match a word of the name or title, either as
+	 * a whole word, as its prefix or with a typo or two. The names and titles are served from an
+	 * in-memory index, so no queries are made apart from loading the matching employees.
+	 * 
+	 * @param companyId
+	 *            the ID for {@link net.bhira.sample.model.Company}.
+	 * @param query
+	 *            the words to search for, e.g. "jo smi" or "enginer".
+	 * @param limit
+	 *            the maximum number of employees to return, at most {@value #MAX_PAGE_SIZE}.
+	 * @param response
+	 *            the http response to which the results will be written.
+	 * @return an array of {@link net.bhira.sample.model.Employee} instances as JSON.
+	 */
+	@RequestMapping(value = "/employee/search", method = RequestMethod.GET)
+	@ResponseBody
+	public Callable<String> searchEmployees(@RequestParam(value = "companyId") long companyId,
+			@RequestParam(value = "q") String query,
+			@RequestParam(value = "limit", defaultValue = DEFAULT_SEARCH_SIZE) int limit,
+			HttpServletResponse response) {
+		return new Callable<String>() {
+			public String call() throws Exception {
+				String body = "";
+				try {
+					LOG.debug("servicing GET employee/search, companyId = {}, q = {}", companyId,
+							query);
+					if (query.trim().isEmpty()) {
+						throw new IllegalArgumentException("Query is empty");
+					}
+					if (limit < 1 || limit > MAX_PAGE_SIZE) {
+						throw new IllegalArgumentException("Invalid limit " + limit);
+					}
+					List<Long> ids = employeeService.loadMatchingIds(companyId, query, limit);
+					List<Employee> list = employeeService.loadAll(ids);
+					LOG.debug("GET employee/search count = {}", list.size());
+					body = JsonUtil.getGson().toJson(list);
+				} catch (Exception ex) {
+					if (ex instanceof IllegalArgumentException) {
+						response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+					} else {
+						response.setStatus(HttpServletResponse.SC_FORBIDDEN);
+					}
+					body = ex.getLocalizedMessage();
+					LOG.warn("Error searching employees. {}", body);
+					LOG.debug("Search error stacktrace: ", ex);
+				}
+				return body;
+			}
+		};
+	}
+
+	/**
+	 * Fetch the instances of {@link net.bhira.sample.model.Employee} represented by the given
+	 * employee IDs and return them as JSON array. The request body must be a JSON array of IDs. IDs
+	 * that are not found are skipped. At most {@value #MAX_BATCH_GET_SIZE} IDs are allowed, larger
+	 * requests are rejected with 400 (Bad Request).
+	 * 
+	 * @param request
+	 *            the http request containing JSON array of IDs in its body.
+	 * @param response
+	 *            the http response to which the results will be written.
+	 * @return an array of {@link net.bhira.sample.model.Employee} instances as JSON.
+	 */
+	@RequestMapping(value = "/employee/batch-get", method = RequestMethod.POST)
+	@ResponseBody
+	public Callable<String> getEmployees(HttpServletRequest request, HttpServletResponse response) {
+		return new Callable<String>() {
+			public String call() throws Exception {
+				String body = "";
+				try {
+					LOG.debug("servicing POST employee/batch-get");
+					Gson gson = JsonUtil.getGson();
+					List<Long> idList = JsonUtil.readIds(request.getReader(), MAX_BATCH_GET_SIZE);
+					List<Employee> list = employeeService.loadAll(idList);
+					int count = (list == null) ? 0 : list.size();
+					LOG.debug("POST employee/batch-get requested = {}, found = {}", idList.size(),
+							count);
+					body = gson.toJson(list);
+				} catch (Exception ex) {
+					if (ex instanceof JsonSyntaxException
+							|| ex instanceof IllegalArgumentException) {
+						response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+					} else {
+						response.setStatus(HttpServletResponse.SC_FORBIDDEN);
+					}
+					body = ex.getLocalizedMessage();
+					LOG.warn("Error loading employees. {}", body);
+					LOG.debug("Load error stacktrace: ", ex);
+				}
+				return body;
+			}
+		};
+	}
+
 	/**
 	 * Save the given instance of {@link net.bhira.sample.model.Employee}. It will create a new
 	 * instance of the employee does not exist, otherwise it will update the existing instance.
+	 * An existing employee must carry the version it was loaded with, and if it was modified since
+	 * then the update is rejected with 409 (Conflict). The ID and the new version are returned.
 	 * 
 	 * @param request
 	 *            the http request containing JSON payload in its body.
 	 * @param response
 	 *            the http response to which the results will be written.
-	 * @return the error message, if save was not successful.
+	 * @return the ID and version of the saved employee as JSON, or the error message if save was
+	 *         not successful.
 	 */
 	@RequestMapping(value = "/employee", method = RequestMethod.POST)
 	@ResponseBody
@@ -184,17 +541,20 @@ public class EmployeeController {
 				String body = "";
 				try {
 					LOG.debug("servicing POST employee");
-					Gson gson = JsonUtil.createGson();
+					Gson gson = JsonUtil.getGson();
 					Employee employee = gson.fromJson(request.getReader(), Employee.class);
 					LOG.debug("POST employee received json = {}", gson.toJson(employee));
 					employeeService.save(employee);
 					HashMap<String, Long> map = new HashMap<String, Long>();
 					map.put("id", employee.getId());
+					map.put("version", employee.getVersion());
 					body = gson.toJson(map);
 					LOG.debug("POST employee/ successful with return ID = {}", employee.getId());
 				} catch (Exception ex) {
 					if (ex instanceof JsonSyntaxException) {
 						response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+					} else if (ex instanceof StaleObjectException) {
+						response.setStatus(HttpServletResponse.SC_CONFLICT);
 					} else {
 						response.setStatus(HttpServletResponse.SC_FORBIDDEN);
 					}
@@ -207,6 +567,151 @@ public class EmployeeController {
 		};
 	}
 
+	/**
+	 * Save the given array of {@link net.bhira.sample.model.Employee} instances in bulk. New
+	 * employees are created and existing employees are updated. Every employee is validated
+	 * individually and the valid ones are saved together in a single transaction using JDBC
+	 * batches. It returns a result for every element of the array in the same order, having
+	 * either the "id" and "version" of the saved employee or the "error" message. If saving the
+	 * valid employees fails, none of them is saved and the status is set like for a single
+	 * employee, i.e. 409 (Conflict) if any of the existing employees was modified since it was
+	 * loaded, else 403 (Forbidden), e.g. for an invalid reference.
+	 * 
+	 * @param request
+	 *            the http request containing JSON array payload in its body.
+	 * @param response
+	 *            the http response to which the results will be written.
+	 * @return an array of per employee results as JSON, or the error message if the payload could
+	 *         not be parsed.
+	 */
+	@RequestMapping(value = "/employee/bulk", method = RequestMethod.POST)
+	@ResponseBody
+	public Callable<String> saveEmployees(HttpServletRequest request,
+			HttpServletResponse response) {
+		return new Callable<String>() {
+			public String call() throws Exception {
+				String body = "";
+				try {
+					LOG.debug("servicing POST employee/bulk");
+					Gson gson = JsonUtil.getGson();
+					Employee[] employees = gson.fromJson(request.getReader(), Employee[].class);
+					int size = (employees == null) ? 0 : employees.length;
+
+					// validate each employee and collect the valid ones for saving
+					List<Map<String, Object>> results = new ArrayList<Map<String, Object>>(size);
+					List<Map<String, Object>> validResults = new ArrayList<Map<String, Object>>();
+					List<Employee> validEmployees = new ArrayList<Employee>();
+					for (int i = 0; i < size; i++) {
+						Map<String, Object> result = new LinkedHashMap<String, Object>();
+						result.put("index", i);
+						results.add(result);
+						try {
+							if (employees[i] == null) {
+								throw new InvalidObjectException("Employee object is null.");
+							}
+							employees[i].initForSave();
+							employees[i].validate();
+							validEmployees.add(employees[i]);
+							validResults.add(result);
+						} catch (InvalidObjectException ioe) {
+							result.put("error", ioe.getLocalizedMessage());
+						}
+					}
+
+					// save the valid employees, they either all succeed or all fail
+					if (!validEmployees.isEmpty()) {
+						try {
+							employeeService.saveAll(validEmployees);
+							for (int i = 0; i < validEmployees.size(); i++) {
+								validResults.get(i).put("id", validEmployees.get(i).getId());
+								validResults.get(i).put("version",
+										validEmployees.get(i).getVersion());
+							}
+						} catch (Exception ex) {
+							for (Map<String, Object> result : validResults) {
+								result.put("error", ex.getLocalizedMessage());
+							}
+							if (ex instanceof StaleObjectException) {
+								response.setStatus(HttpServletResponse.SC_CONFLICT);
+							} else {
+								response.setStatus(HttpServletResponse.SC_FORBIDDEN);
+							}
+							LOG.warn("Error saving employees in bulk. {}",
+									ex.getLocalizedMessage());
+							LOG.debug("Save error stacktrace: ", ex);
+						}
+					}
+					body = gson.toJson(results);
+					LOG.debug("POST employee/bulk received = {}, valid = {}", size,
+							validEmployees.size());
+				} catch (Exception ex) {
+					if (ex instanceof JsonSyntaxException) {
+						response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+					} else {
+						response.setStatus(HttpServletResponse.SC_FORBIDDEN);
+					}
+					body = ex.getLocalizedMessage();
+					LOG.warn("Error saving employees. {}", body);
+					LOG.debug("Save error stacktrace: ", ex);
+				}
+				return body;
+			}
+		};
+	}
+
+	/**
+	 * Import new {@link net.bhira.sample.model.Employee} instances of the given company from the
+	 * request body, which holds either newline delimited JSON, one employee per line, or comma
+	 * separated values with a header line if the content type is "text/csv". The body is read
+	 * incrementally and the employees are saved in chunks, each in its own transaction, see
+	 * {@link net.bhira.sample.api.importer.EmployeeImporter}. It returns the number of "imported"
+	 * and "failed" lines and the "errors" of the lines, each with its "line" number and "message".
+	 * The import runs on the executor of the long running requests, so it does not hold a thread
+	 * of the async request pool.
+	 * 
+	 * @param companyId
+	 *            the ID for {@link net.bhira.sample.model.Company} of the employees.
+	 * @param request
+	 *            the http request containing the employees in its body.
+	 * @param response
+	 *            the http response to which the report will be written.
+	 * @return the async task returning the report as JSON, or the error message.
+	 */
+	@RequestMapping(value = "/employee/import", method = RequestMethod.POST)
+	@ResponseBody
+	public WebAsyncTask<String> importEmployees(
+			@RequestParam(value = "companyId") long companyId, HttpServletRequest request,
+			HttpServletResponse response) {
+		Callable<String> importTask = new Callable<String>() {
+			public String call() throws Exception {
+				String body = "";
+				try {
+					LOG.debug("servicing POST employee/import?companyId={}", companyId);
+					String contentType = request.getContentType();
+					boolean csv = (contentType != null && contentType.startsWith("text/csv"));
+					ImportReport report = employeeImporter.importEmployees(companyId,
+							request.getReader(), csv);
+					body = JsonUtil.getGson().toJson(report);
+					LOG.debug("POST employee/import imported = {}, failed = {}",
+							report.getImported(), report.getFailed());
+				} catch (Exception ex) {
+					if (ex instanceof IllegalArgumentException) {
+						response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+					} else if (ex instanceof ObjectNotFoundException) {
+						response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+					} else {
+						response.setStatus(HttpServletResponse.SC_FORBIDDEN);
+					}
+					body = ex.getLocalizedMessage();
+					LOG.warn("Error importing employees. {}", body);
+					LOG.debug("Import error stacktrace: ", ex);
+				}
+				return body;
+			}
+		};
+		return new WebAsyncTask<String>(importTimeoutMillis, longTaskExecutor, importTask);
+	}
+
 	/**
 	 * Delete the instance of {@link net.bhira.sample.model.Employee} represented by given
 	 * employeeId. In case of an error return the error message.
@@ -242,4 +747,65 @@ public class EmployeeController {
 		};
 	}
 
+	/**
+	 * Start writing a page of employees as JSON object, followed by the "items" array to which
+	 * the employees are streamed.
+	 * 
+	 * @param list
+	 *            the writer to which the employees will be streamed.
+	 * @throws IOException
+	 *             if the JSON can not be written.
+	 */
+	private void beginPage(JsonListWriter<Employee> list) throws IOException {
+		list.getWriter().beginObject();
+		list.getWriter().name("items");
+		list.beginArray();
+	}
+
+	/**
+	 * Finish writing a page of employees. If the page is full, the cursor pointing to the last
+	 * employee is added as "next" property, as there may be more employees to fetch.
+	 * 
+	 * @param list
+	 *            the writer to which the employees were streamed.
+	 * @param limit
+	 *            the maximum number of employees in the page.
+	 * @param byModified
+	 *            true if the page is ordered by modified time and ID, false if ordered by ID.
+	 * @throws IOException
+	 *             if the JSON can not be written.
+	 */
+	private void endPage(JsonListWriter<Employee> list, int limit, boolean byModified)
+			throws IOException {
+		list.endArray();
+		if (list.getCount() >= limit) {
+			Employee last = list.getLast();
+			String next = byModified ? PageCursor.encode(last.getModified().getTime(),
+					last.getId()) : PageCursor.encode(last.getId());
+			list.getWriter().name("next").value(next);
+		}
+		list.getWriter().endObject();
+		list.flush();
+	}
+
+	/**
+	 * Set the ETag and Last-Modified headers for the given employee and check whether the client
+	 * already has this version of it. The ETag is derived from the version of the employee, as the
+	 * modified time may not tell apart two updates within the same second.
+	 * 
+	 * @param employee
+	 *            the instance of {@link net.bhira.sample.model.Employee} being returned.
+	 * @param request
+	 *            the http request with the optional conditional headers.
+	 * @param response
+	 *            the http response on which the headers are set.
+	 * @return true if the response is a 304 (Not Modified) and no body must be written.
+	 */
+	private boolean isNotModified(Employee employee, HttpServletRequest request,
+			HttpServletResponse response) {
+		long modified = (employee.getModified() == null) ? -1 : employee.getModified().getTime();
+		String etag = ConditionalGet.etag("employee", employee.getId(), employee.getVersion());
+		return ConditionalGet.checkNotModified(request, response, etag, modified);
+	}
+
 }
\ No newline at end of file
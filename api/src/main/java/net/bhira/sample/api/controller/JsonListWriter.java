@@ -0,0 +1,187 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Baldeep Hira
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.bhira.sample.api.controller;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+import javax.servlet.http.HttpServletResponse;
+
+import net.bhira.sample.common.JsonUtil;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Helper class used to write a list of model objects as a JSON array directly to the response
+ * output stream. Each object is serialized as soon as it is handed over, so neither the complete
+ * list nor the complete JSON string is held in memory and the first bytes reach the client while
+ * the remaining rows are still being read from the database.
+ * 
+ * @author Baldeep Hira
+ */
+public class JsonListWriter<T> implements Consumer<T> {
+
+	private final JsonWriter writer;
+	private final Gson gson;
+	private final Class<T> type;
+	private int count;
+	private T last;
+
+	/**
+	 * Constructor for JsonListWriter that writes to the output stream of the given response.
+	 * 
+	 * @param response
+	 *            the http response to which the JSON will be written.
+	 * @param type
+	 *            the class of model objects in the list.
+	 * @throws IOException
+	 *             if the response output stream can not be opened.
+	 */
+	public JsonListWriter(HttpServletResponse response, Class<T> type) throws IOException {
+		this(response, type, JsonUtil.getGson());
+	}
+
+	/**
+	 * Constructor for JsonListWriter that writes to the output stream of the given response using
+	 * the given Gson, e.g. one that serializes only some of the fields of the model objects.
+	 * 
+	 * @param response
+	 *            the http response to which the JSON will be written.
+	 * @param type
+	 *            the class of model objects in the list.
+	 * @param gson
+	 *            the Gson used to serialize the model objects.
+	 * @throws IOException
+	 *             if the response output stream can not be opened.
+	 */
+	public JsonListWriter(HttpServletResponse response, Class<T> type, Gson gson)
+			throws IOException {
+		this.writer = new JsonWriter(new BufferedWriter(new OutputStreamWriter(
+				response.getOutputStream(), StandardCharsets.UTF_8)));
+		this.gson = gson;
+		this.type = type;
+	}
+
+	/**
+	 * Get the underlying JSON writer, used for writing the JSON around the array.
+	 * 
+	 * @return the JSON writer.
+	 */
+	public JsonWriter getWriter() {
+		return writer;
+	}
+
+	/**
+	 * Start the JSON array.
+	 * 
+	 * @throws IOException
+	 *             if the JSON can not be written.
+	 */
+	public void beginArray() throws IOException {
+		writer.beginArray();
+	}
+
+	/**
+	 * Write the given model object as next element of the JSON array.
+	 * 
+	 * @param item
+	 *            the model object to write.
+	 */
+	@Override
+	public void accept(T item) {
+		gson.toJson(item, type, writer);
+		count++;
+		last = item;
+	}
+
+	/**
+	 * End the JSON array.
+	 * 
+	 * @throws IOException
+	 *             if the JSON can not be written.
+	 */
+	public void endArray() throws IOException {
+		writer.endArray();
+	}
+
+	/**
+	 * Flush the remaining JSON to the response.
+	 * 
+	 * @throws IOException
+	 *             if the JSON can not be written.
+	 */
+	public void flush() throws IOException {
+		writer.flush();
+	}
+
+	/**
+	 * Get the number of model objects written so far.
+	 * 
+	 * @return the number of model objects written.
+	 */
+	public int getCount() {
+		return count;
+	}
+
+	/**
+	 * Get the last model object written.
+	 * 
+	 * @return the last model object, or null if none were written.
+	 */
+	public T getLast() {
+		return last;
+	}
+
+	/**
+	 * Prepare the given response for reporting an error that happened while streaming a list. If
+	 * nothing has been sent to the client yet, the partially written JSON is discarded and the
+	 * given status is set, so the error message can be returned as response body. Once the
+	 * response is committed the status can not be changed anymore, in which case the exception is
+	 * rethrown so that the container aborts the response instead of completing a truncated JSON.
+	 * 
+	 * @param response
+	 *            the http response to which the list was being written.
+	 * @param status
+	 *            the http status code for the error.
+	 * @param ex
+	 *            the exception that interrupted the streaming.
+	 * @return the error message to be returned as response body.
+	 * @throws Exception
+	 *             the given exception, if the response is already committed.
+	 */
+	public static String error(HttpServletResponse response, int status, Exception ex)
+			throws Exception {
+		if (response.isCommitted()) {
+			throw ex;
+		}
+		response.resetBuffer();
+		response.setStatus(status);
+		return ex.getLocalizedMessage();
+	}
+
+}
@@ -0,0 +1,87 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Baldeep Hira
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.bhira.sample.api.controller;
+
+import java.io.StringWriter;
+import java.util.concurrent.Callable;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.exporter.common.TextFormat;
+
+/**
+ * Controller class for runtime metrics. It exposes all the metrics registered in the default
+ * prometheus {@link io.prometheus.client.CollectorRegistry}, e.g. the connection pool gauges, the
+ * connection acquire time histogram and the latency histograms of the endpoints, service methods
+ * and SQL statements, in the prometheus text exposition format.
+ * 
+ * @author Baldeep Hira
+ */
+@Controller("metricsController")
+public class MetricsController {
+
+	/**
+	 * private singleton instance of the SLF4J logger for this class.
+	 */
+	private static final Logger LOG = LoggerFactory.getLogger(MetricsController.class);
+
+	/**
+	 * Fetch the current snapshot of all the registered metrics.
+	 * 
+	 * @param response
+	 *            the http response to which the results will be written.
+	 * @return the metrics in prometheus text format.
+	 */
+	@RequestMapping(value = "/metrics", method = RequestMethod.GET, produces = TextFormat.CONTENT_TYPE_004)
+	@ResponseBody
+	public Callable<String> getMetrics(HttpServletResponse response) {
+		return new Callable<String>() {
+			public String call() throws Exception {
+				String body = "";
+				try {
+					LOG.debug("servicing GET metrics");
+					StringWriter writer = new StringWriter();
+					TextFormat.write004(writer,
+							CollectorRegistry.defaultRegistry.metricFamilySamples());
+					body = writer.toString();
+				} catch (Exception ex) {
+					response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+					body = ex.getLocalizedMessage();
+					LOG.warn("Error writing metrics. {}", body);
+					LOG.debug("Metrics error stacktrace: ", ex);
+				}
+				return body;
+			}
+		};
+	}
+
+}
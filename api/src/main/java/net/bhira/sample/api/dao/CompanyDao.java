@@ -23,11 +23,15 @@
  */
 package net.bhira.sample.api.dao;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
+import net.bhira.sample.api.jdbc.ModifiedStamp;
 import net.bhira.sample.common.exception.InvalidObjectException;
 import net.bhira.sample.common.exception.InvalidReferenceException;
 import net.bhira.sample.common.exception.ObjectNotFoundException;
+import net.bhira.sample.common.exception.StaleObjectException;
 import net.bhira.sample.model.Company;
 
 /**
@@ -50,10 +54,23 @@ public interface CompanyDao {
 	 */
 	public Company load(long companyId);
 
+	/**
+	 * Load the {@link net.bhira.sample.model.Company} instances, along with their contact info,
+	 * identified by the specified companyIds. The IDs are fetched in chunks using SQL "in (...)"
+	 * queries. IDs that are not found are skipped and duplicate IDs are returned only once.
+	 * 
+	 * @param companyIds
+	 *            the IDs of {@link net.bhira.sample.model.Company}.
+	 * @return List of {@link net.bhira.sample.model.Company} instances, in the order of the given
+	 *         IDs.
+	 */
+	public List<Company> loadAll(Collection<Long> companyIds);
+
 	/**
 	 * Save the specified {@link net.bhira.sample.model.Company} to repository. It will take care of
 	 * both insert and update scenarios. In case of insert the newly assigned ID is set back in the
-	 * passed company model.
+	 * passed company model. An update is only applied if the model carries the current version,
+	 * which is then incremented and set back in the passed model.
 	 * 
 	 * @param company
 	 *            an instance of {@link net.bhira.sample.model.Company}.
@@ -63,9 +80,11 @@ public interface CompanyDao {
 	 *             if the company instance being saved is invalid.
 	 * @throws InvalidReferenceException
 	 *             if the company instance being saved has invalid references.
+	 * @throws StaleObjectException
+	 *             if the company instance being updated was modified since it was loaded.
 	 */
 	public void save(Company company) throws ObjectNotFoundException, InvalidObjectException,
-			InvalidReferenceException;
+			InvalidReferenceException, StaleObjectException;
 
 	/**
 	 * Delete the instance of {@link net.bhira.sample.model.Company} identified by given companyId.
@@ -86,4 +105,39 @@ public interface CompanyDao {
 	 */
 	public List<Company> loadAll();
 
-}
\ No newline at end of file
+	/**
+	 * Load all the {@link net.bhira.sample.model.Company} instances from repository and hand them
+	 * over to the given consumer one at a time, as they are read. The rows are streamed and are
+	 * never collected in memory. It returns a shallow instance of Company class and does not load
+	 * the dependent objects like billingAddress, shippingAddress and contactInfo
+	 * 
+	 * @param consumer
+	 *            the consumer to which each {@link net.bhira.sample.model.Company} instance is
+	 *            handed over as soon as it is read.
+	 */
+	public void loadAll(Consumer<Company> consumer);
+
+	/**
+	 * Load a page of {@link net.bhira.sample.model.Company} instances, along with their contact
+	 * info, from repository ordered by ID. It uses keyset pagination, i.e. it returns the companies
+	 * with ID greater than the given afterId.
+	 * 
+	 * @param afterId
+	 *            the ID of the last company in the previous page, 0 for the first page.
+	 * @param limit
+	 *            the maximum number of companies to return.
+	 * @return List of {@link net.bhira.sample.model.Company} instances.
+	 */
+	public List<Company> loadPage(long afterId, int limit);
+
+	/**
+	 * Load the {@link net.bhira.sample.api.jdbc.ModifiedStamp} of all the
+	 * {@link net.bhira.sample.model.Company} instances, i.e. their number and latest modified
+	 * time. It changes whenever a company is inserted, updated or deleted, so it tags the version
+	 * of the list returned by {@link #loadAll(Consumer)} without loading it.
+	 * 
+	 * @return the modified stamp of all the companies.
+	 */
+	public ModifiedStamp loadModifiedStamp();
+
+}
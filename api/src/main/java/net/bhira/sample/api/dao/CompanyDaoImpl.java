@@ -28,23 +28,36 @@ import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 import javax.sql.DataSource;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
 
+import net.bhira.sample.api.jdbc.CompanyDetailRowMapper;
 import net.bhira.sample.api.jdbc.CompanyRowMapper;
+import net.bhira.sample.api.jdbc.ContactInfoRowMapper;
+import net.bhira.sample.api.jdbc.JdbcUtil;
+import net.bhira.sample.api.jdbc.ModelCallbackHandler;
+import net.bhira.sample.api.jdbc.ModifiedStamp;
 import net.bhira.sample.common.exception.InvalidObjectException;
 import net.bhira.sample.common.exception.InvalidReferenceException;
 import net.bhira.sample.common.exception.ObjectNotFoundException;
+import net.bhira.sample.common.exception.StaleObjectException;
 import net.bhira.sample.model.Company;
 
 /**
@@ -56,6 +69,7 @@ import net.bhira.sample.model.Company;
  * @author Baldeep Hira
  */
 @Repository("companyDao")
+@Profile("!memory")
 public class CompanyDaoImpl implements CompanyDao {
 
 	/**
@@ -63,18 +77,34 @@ public class CompanyDaoImpl implements CompanyDao {
 	 */
 	private static final Logger LOG = LoggerFactory.getLogger(CompanyDaoImpl.class);
 
-	private static final String SQL_LOAD_BY_ID = "select * from company where id = ?";
-	private static final String SQL_LOAD_ALL = "select * from company";
+	private static final String SQL_LOAD_DETAIL = "select "
+			+ JdbcUtil.qualify("t", CompanyRowMapper.COLUMNS) + ", "
+			+ ContactInfoRowMapper.JOIN_COLUMNS
+			+ " from company t left join company_cinfo r on r.companyid = t.id"
+			+ " left join contactinfo c on c.id = r.contactinfoid";
+	private static final String SQL_LOAD_BY_ID = SQL_LOAD_DETAIL + " where t.id = ?";
+	private static final String SQL_LOAD_BY_IDS = SQL_LOAD_DETAIL + " where t.id in (%s)";
+	private static final String SQL_LOAD_PAGE = SQL_LOAD_DETAIL
+			+ " where t.id > ? order by t.id limit ?";
+	private static final String SQL_LOAD_ALL = "select " + CompanyRowMapper.COLUMNS
+			+ " from company";
+	private static final String SQL_LOAD_STAMP = "select " + ModifiedStamp.COLUMNS
+			+ " from company";
 	private static final String SQL_INSERT = "insert into company"
 			+ " (name, industry, billingaddr, shippingaddr, created, modified, createdby, modifiedby)"
 			+ " values (?,?,?,?,?,?,?,?)";
 	private static final String SQL_UPDATE = "update company set name = ?, industry = ?, billingaddr = ?,"
-			+ "shippingaddr = ?, modified = ?, modifiedby = ? where id = ?";
+			+ "shippingaddr = ?, modified = ?, modifiedby = ?, version = version + 1"
+			+ " where id = ? and version = ?";
+	private static final String SQL_EXISTS = "select count(*) from company where id = ?";
 	private static final String SQL_DELETE = "delete from company where id = ?";
 	private static final String SQL_CINFO_REL_LOAD = "select contactinfoid from company_cinfo where companyid = ?";
 	private static final String SQL_CINFO_REL_INSERT = "insert into company_cinfo (companyid, contactinfoid) values (?,?)";
 	private static final String SQL_CINFO_REL_DELETE = "delete from company_cinfo where companyid = ?";
 
+	private static final RowMapper<Company> ROW_MAPPER = new CompanyRowMapper();
+	private static final RowMapper<Company> DETAIL_ROW_MAPPER = new CompanyDetailRowMapper();
+
 	@Autowired
 	DataSource dataSource;
 
@@ -90,21 +120,39 @@ public class CompanyDaoImpl implements CompanyDao {
 	@Override
 	public Company load(long companyId) {
 		List<Company> list = jdbcTemplate.query(SQL_LOAD_BY_ID, new Object[] { companyId },
-				new CompanyRowMapper());
+				DETAIL_ROW_MAPPER);
 		int count = (list == null) ? 0 : list.size();
 		LOG.debug("loaded company, count = {}, id = {}", count, companyId);
+		return (count == 0) ? null : list.get(0);
+	}
 
-		if (count > 0) {
-			Company company = list.get(0);
-			List<Long> cinfoIds = jdbcTemplate.queryForList(SQL_CINFO_REL_LOAD, Long.class,
-					new Object[] { companyId });
-			if (cinfoIds != null && !cinfoIds.isEmpty()) {
-				company.setContactInfo(contactInfoDao.load(cinfoIds.get(0)));
+	/**
+	 * @see net.bhira.sample.api.dao.CompanyDao#loadAll(java.util.Collection)
+	 */
+	@Override
+	public List<Company> loadAll(Collection<Long> companyIds) {
+		Map<Long, Company> map = new HashMap<Long, Company>();
+		List<List<Long>> chunks = JdbcUtil.partition(companyIds, JdbcUtil.MAX_IN_CLAUSE_SIZE);
+		for (List<Long> chunk : chunks) {
+			String sql = String.format(SQL_LOAD_BY_IDS, JdbcUtil.inClause(chunk.size()));
+			List<Company> list = jdbcTemplate.query(sql, chunk.toArray(), DETAIL_ROW_MAPPER);
+			for (Company company : list) {
+				map.put(company.getId(), company);
+			}
+		}
+		LOG.debug("loaded companys by ids, count = {}, chunks = {}", map.size(), chunks.size());
+
+		// return the instances in the order of the requested IDs
+		List<Company> result = new ArrayList<Company>(map.size());
+		for (List<Long> chunk : chunks) {
+			for (Long id : chunk) {
+				Company company = map.get(id);
+				if (company != null) {
+					result.add(company);
+				}
 			}
-			return company;
-		} else {
-			return null;
 		}
+		return result;
 	}
 
 	/**
@@ -112,7 +160,7 @@ public class CompanyDaoImpl implements CompanyDao {
 	 */
 	@Override
 	public void save(Company company) throws ObjectNotFoundException, InvalidObjectException,
-			InvalidReferenceException {
+			InvalidReferenceException, StaleObjectException {
 		if (company == null) {
 			throw new InvalidObjectException("Company object is null.");
 		}
@@ -150,16 +198,23 @@ public class CompanyDaoImpl implements CompanyDao {
 			// for existing company, construct SQL update statement
 			Object[] args = new Object[] { company.getName(), company.getIndustry(),
 					company.getBillingAddress(), company.getShippingAddress(),
-					company.getModified(), company.getModifiedBy(), company.getId() };
+					company.getModified(), company.getModifiedBy(), company.getId(),
+					company.getVersion() };
 			count = jdbcTemplate.update(SQL_UPDATE, args);
 			LOG.debug("updated company, count = {}, id = {}", count, company.getId());
 		}
 
-		// if insert/update has 0 count value, then throw exception
+		// if insert/update has 0 count value, then either the company does not exist or its
+		// version has moved on since it was loaded
 		if (count <= 0) {
+			if (!isNew && exists(company.getId())) {
+				throw new StaleObjectException("Company with ID " + company.getId()
+						+ " was modified since version " + company.getVersion() + ".");
+			}
 			throw new ObjectNotFoundException("Company with ID " + company.getId()
 					+ " was not found.");
 		}
+		company.setVersion(isNew ? 0 : company.getVersion() + 1);
 
 		// update dependent entries, as needed
 		if (isNew) {
@@ -200,6 +255,17 @@ public class CompanyDaoImpl implements CompanyDao {
 		}
 	}
 
+	/**
+	 * Check whether the company identified by the given ID exists in repository.
+	 * 
+	 * @param companyId
+	 *            the ID of {@link net.bhira.sample.model.Company}.
+	 * @return true if the company exists, else false.
+	 */
+	private boolean exists(long companyId) {
+		return jdbcTemplate.queryForObject(SQL_EXISTS, Integer.class, companyId) > 0;
+	}
+
 	/**
 	 * @see net.bhira.sample.api.dao.CompanyDao#delete(long)
 	 */
@@ -230,10 +296,42 @@ public class CompanyDaoImpl implements CompanyDao {
 	 */
 	@Override
 	public List<Company> loadAll() {
-		List<Company> list = jdbcTemplate.query(SQL_LOAD_ALL, new CompanyRowMapper());
+		List<Company> list = jdbcTemplate.query(SQL_LOAD_ALL, ROW_MAPPER);
 		int count = (list == null) ? 0 : list.size();
 		LOG.debug("loaded all companies, count = {}", count);
 		return list;
 	}
 
-}
\ No newline at end of file
+	/**
+	 * @see net.bhira.sample.api.dao.CompanyDao#loadAll(java.util.function.Consumer)
+	 */
+	@Override
+	public void loadAll(Consumer<Company> consumer) {
+		ModelCallbackHandler<Company> handler = new ModelCallbackHandler<Company>(
+				ROW_MAPPER, consumer);
+		jdbcTemplate.query(JdbcUtil.streaming(SQL_LOAD_ALL), handler);
+		LOG.debug("streamed all companies, count = {}", handler.getRowCount());
+	}
+
+	/**
+	 * @see net.bhira.sample.api.dao.CompanyDao#loadPage(long, int)
+	 */
+	@Override
+	public List<Company> loadPage(long afterId, int limit) {
+		List<Company> list = jdbcTemplate.query(SQL_LOAD_PAGE, DETAIL_ROW_MAPPER, afterId, limit);
+		LOG.debug("loaded company page, count = {}, afterId = {}", list.size(), afterId);
+		return list;
+	}
+
+	/**
+	 * @see net.bhira.sample.api.dao.CompanyDao#loadModifiedStamp()
+	 */
+	@Override
+	public ModifiedStamp loadModifiedStamp() {
+		ModifiedStamp stamp = jdbcTemplate.queryForObject(SQL_LOAD_STAMP, ModifiedStamp.ROW_MAPPER);
+		LOG.debug("loaded company stamp, count = {}, lastModified = {}", stamp.getCount(),
+				stamp.getLastModified());
+		return stamp;
+	}
+
+}
@@ -23,6 +23,9 @@
  */
 package net.bhira.sample.api.dao;
 
+import java.util.Collection;
+import java.util.List;
+
 import net.bhira.sample.model.ContactInfo;
 
 /**
@@ -53,6 +56,16 @@ public interface ContactInfoDao {
 	 */
 	public void save(ContactInfo contactInfo);
 
+	/**
+	 * Save the specified list of {@link net.bhira.sample.model.ContactInfo} to repository using
+	 * JDBC batches. It will take care of both insert and update scenarios. In case of insert the
+	 * newly assigned IDs are set back in the passed contactInfo models.
+	 * 
+	 * @param contactInfos
+	 *            the list of {@link net.bhira.sample.model.ContactInfo} instances.
+	 */
+	public void saveAll(List<ContactInfo> contactInfos);
+
 	/**
 	 * Delete the instance of {@link net.bhira.sample.model.ContactInfo} identified by given
 	 * contactInfoId. It will take care of deleting all dependent models.
@@ -63,4 +76,15 @@ public interface ContactInfoDao {
 	 */
 	public boolean delete(long contactInfoId);
 
+	/**
+	 * Delete the instances of {@link net.bhira.sample.model.ContactInfo} identified by given
+	 * contactInfoIds using set based deletes. The relationship entries referring to them must
+	 * have been deleted before.
+	 * 
+	 * @param contactInfoIds
+	 *            the IDs of {@link net.bhira.sample.model.ContactInfo}.
+	 * @return the number of contact info instances deleted.
+	 */
+	public int deleteAll(Collection<Long> contactInfoIds);
+
 }
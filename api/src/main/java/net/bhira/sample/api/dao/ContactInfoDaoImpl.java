@@ -25,8 +25,11 @@ package net.bhira.sample.api.dao;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 import javax.sql.DataSource;
@@ -34,13 +37,18 @@ import javax.sql.DataSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCallback;
 import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
 
 import net.bhira.sample.api.jdbc.ContactInfoRowMapper;
+import net.bhira.sample.api.jdbc.JdbcUtil;
 import net.bhira.sample.model.ContactInfo;
 
 /**
@@ -50,6 +58,7 @@ import net.bhira.sample.model.ContactInfo;
  * @author Baldeep Hira
  */
 @Repository("contactInfoDao")
+@Profile("!memory")
 public class ContactInfoDaoImpl implements ContactInfoDao {
 
 	/**
@@ -57,10 +66,14 @@ public class ContactInfoDaoImpl implements ContactInfoDao {
 	 */
 	private static final Logger LOG = LoggerFactory.getLogger(ContactInfoDaoImpl.class);
 
-	private static final String SQL_LOAD_BY_ID = "select * from contactinfo where id = ?";
+	private static final String SQL_LOAD_BY_ID = "select " + ContactInfoRowMapper.COLUMNS
+			+ " from contactinfo where id = ?";
 	private static final String SQL_INSERT = "insert into contactinfo (phone,fax,email,website) values (?,?,?,?)";
 	private static final String SQL_UPDATE = "update contactinfo set phone = ?, fax = ?, email = ?, website = ? where id = ?";
 	private static final String SQL_DELETE = "delete from contactinfo where id = ?";
+	private static final String SQL_DELETE_BY_IDS = "delete from contactinfo where id in (%s)";
+
+	private static final RowMapper<ContactInfo> ROW_MAPPER = new ContactInfoRowMapper();
 
 	@Autowired
 	DataSource dataSource;
@@ -68,13 +81,16 @@ public class ContactInfoDaoImpl implements ContactInfoDao {
 	@Autowired
 	JdbcTemplate jdbcTemplate;
 
+	@Value("${jdbc.batchSize}")
+	int batchSize;
+
 	/**
 	 * @see net.bhira.sample.api.dao.ContactInfoDao#load(long)
 	 */
 	@Override
 	public ContactInfo load(long contactInfoId) {
 		List<ContactInfo> list = jdbcTemplate.query(SQL_LOAD_BY_ID, new Object[] { contactInfoId },
-				new ContactInfoRowMapper());
+				ROW_MAPPER);
 		int count = (list == null) ? 0 : list.size();
 		LOG.debug("loaded contactInfo, count = {}, id = {}", count, contactInfoId);
 		return (count == 0) ? null : list.get(0);
@@ -119,6 +135,87 @@ public class ContactInfoDaoImpl implements ContactInfoDao {
 		}
 	}
 
+	/**
+	 * @see net.bhira.sample.api.dao.ContactInfoDao#saveAll(java.util.List)
+	 */
+	@Override
+	public void saveAll(List<ContactInfo> contactInfos) {
+		if (contactInfos == null || contactInfos.isEmpty()) {
+			return;
+		}
+
+		List<ContactInfo> inserts = new ArrayList<ContactInfo>();
+		List<Object[]> updateArgs = new ArrayList<Object[]>();
+		for (ContactInfo contactInfo : contactInfos) {
+			if (contactInfo == null) {
+				continue;
+			}
+			if (contactInfo.isNew()) {
+				inserts.add(contactInfo);
+			} else {
+				updateArgs.add(new Object[] { contactInfo.getPhone(), contactInfo.getFax(),
+						contactInfo.getEmail(), contactInfo.getWebsite(), contactInfo.getId() });
+			}
+		}
+
+		// insert new contact info in batches, fetching the generated IDs for each batch
+		for (int from = 0; from < inserts.size(); from += batchSize) {
+			insertBatch(inserts.subList(from, Math.min(from + batchSize, inserts.size())));
+		}
+
+		// update existing contact info in batches
+		for (int from = 0; from < updateArgs.size(); from += batchSize) {
+			jdbcTemplate.batchUpdate(SQL_UPDATE,
+					updateArgs.subList(from, Math.min(from + batchSize, updateArgs.size())));
+		}
+		LOG.debug("saved contactInfos, inserted = {}, updated = {}", inserts.size(),
+				updateArgs.size());
+	}
+
+	/**
+	 * Insert the given new contact info using a single JDBC batch and set the generated IDs back
+	 * in the contact info models.
+	 * 
+	 * @param contactInfos
+	 *            the list of new contact info.
+	 */
+	private void insertBatch(List<ContactInfo> contactInfos) {
+		jdbcTemplate.execute(new PreparedStatementCreator() {
+			public PreparedStatement createPreparedStatement(Connection connection)
+					throws SQLException {
+				return connection.prepareStatement(SQL_INSERT, Statement.RETURN_GENERATED_KEYS);
+			}
+		}, new PreparedStatementCallback<Object>() {
+			public Object doInPreparedStatement(PreparedStatement pstmt) throws SQLException {
+				for (ContactInfo contactInfo : contactInfos) {
+					pstmt.setString(1, contactInfo.getPhone());
+					pstmt.setString(2, contactInfo.getFax());
+					pstmt.setString(3, contactInfo.getEmail());
+					pstmt.setString(4, contactInfo.getWebsite());
+					pstmt.addBatch();
+				}
+				pstmt.executeBatch();
+
+				// generated keys are returned in the same order as the batched rows
+				int index = 0;
+				ResultSet keys = pstmt.getGeneratedKeys();
+				try {
+					while (keys.next() && index < contactInfos.size()) {
+						contactInfos.get(index++).setId(keys.getLong(1));
+					}
+				} finally {
+					keys.close();
+				}
+				if (index != contactInfos.size()) {
+					throw new SQLException("Expected " + contactInfos.size()
+							+ " generated keys for batch insert, but received " + index);
+				}
+				return null;
+			}
+		});
+		LOG.debug("inserted contactInfos, count = {}", contactInfos.size());
+	}
+
 	/**
 	 * @see net.bhira.sample.api.dao.ContactInfoDao#delete(long)
 	 */
@@ -129,4 +226,18 @@ public class ContactInfoDaoImpl implements ContactInfoDao {
 		return (count > 0);
 	}
 
+	/**
+	 * @see net.bhira.sample.api.dao.ContactInfoDao#deleteAll(java.util.Collection)
+	 */
+	@Override
+	public int deleteAll(Collection<Long> contactInfoIds) {
+		int count = 0;
+		for (List<Long> chunk : JdbcUtil.partition(contactInfoIds, JdbcUtil.MAX_IN_CLAUSE_SIZE)) {
+			String sql = String.format(SQL_DELETE_BY_IDS, JdbcUtil.inClause(chunk.size()));
+			count += jdbcTemplate.update(sql, chunk.toArray());
+		}
+		LOG.debug("deleted contactInfos, count = {}", count);
+		return count;
+	}
+
 }
\ No newline at end of file
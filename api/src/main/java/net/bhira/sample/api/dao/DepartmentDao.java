@@ -23,12 +23,17 @@
  */
 package net.bhira.sample.api.dao;
 
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.function.Consumer;
 
+import net.bhira.sample.api.jdbc.ModifiedStamp;
 import net.bhira.sample.common.exception.DuplicateNameException;
 import net.bhira.sample.common.exception.InvalidObjectException;
 import net.bhira.sample.common.exception.InvalidReferenceException;
 import net.bhira.sample.common.exception.ObjectNotFoundException;
+import net.bhira.sample.common.exception.StaleObjectException;
 import net.bhira.sample.model.Department;
 
 /**
@@ -51,10 +56,23 @@ public interface DepartmentDao {
 	 */
 	public Department load(long departmentId);
 
+	/**
+	 * Load the {@link net.bhira.sample.model.Department} instances, along with their contact info,
+	 * identified by the specified departmentIds. The IDs are fetched in chunks using SQL "in (...)"
+	 * queries. IDs that are not found are skipped and duplicate IDs are returned only once.
+	 * 
+	 * @param departmentIds
+	 *            the IDs of {@link net.bhira.sample.model.Department}.
+	 * @return List of {@link net.bhira.sample.model.Department} instances, in the order of the
+	 *         given IDs.
+	 */
+	public List<Department> loadAll(Collection<Long> departmentIds);
+
 	/**
 	 * Save the specified {@link net.bhira.sample.model.Department} to repository. It will take care
 	 * of both insert and update scenarios. In case of insert the newly assigned ID is set back in
-	 * the passed department model.
+	 * the passed department model. An update is only applied if the model carries the current
+	 * version, which is then incremented and set back in the passed model.
 	 * 
 	 * @param departmet
 	 *            an instance of {@link net.bhira.sample.model.Department}.
@@ -66,9 +84,11 @@ public interface DepartmentDao {
 	 *             if the department instance being saved is invalid.
 	 * @throws InvalidReferenceException
 	 *             if the department instance being saved has invalid references.
+	 * @throws StaleObjectException
+	 *             if the department instance being updated was modified since it was loaded.
 	 */
 	public void save(Department departmet) throws ObjectNotFoundException, DuplicateNameException,
-			InvalidObjectException, InvalidReferenceException;
+			InvalidObjectException, InvalidReferenceException, StaleObjectException;
 
 	/**
 	 * Delete the instance of {@link net.bhira.sample.model.Department} identified by given
@@ -80,6 +100,22 @@ public interface DepartmentDao {
 	 */
 	public boolean delete(long departmetId);
 
+	/**
+	 * Delete a chunk of the {@link net.bhira.sample.model.Department} instances of the given
+	 * companyId, i.e. the departments with the lowest IDs, along with their contact info and
+	 * relationship entries, using set based deletes. Calling it repeatedly until it returns 0
+	 * deletes all the departments of the company, one chunk per transaction. The employees of the
+	 * departments must have been deleted before.
+	 * 
+	 * @param companyId
+	 *            the ID of {@link net.bhira.sample.model.Company}.
+	 * @param limit
+	 *            the maximum number of departments to delete, at most
+	 *            {@link net.bhira.sample.api.jdbc.JdbcUtil#MAX_IN_CLAUSE_SIZE}.
+	 * @return the number of departments deleted, 0 if the company has no departments left.
+	 */
+	public int deleteByCompany(long companyId, int limit);
+
 	/**
 	 * Load all the {@link net.bhira.sample.model.Department} instances for the given companyId from
 	 * repository. It returns a shallow instance of Department class and does not load the dependent
@@ -91,4 +127,66 @@ public interface DepartmentDao {
 	 */
 	public List<Department> loadByCompany(long companyId);
 
-}
\ No newline at end of file
+	/**
+	 * Load all the {@link net.bhira.sample.model.Department} instances for the given companyId from
+	 * repository and hand them over to the given consumer one at a time, as they are read. The
+	 * rows are streamed and are never collected in memory. It returns a shallow instance of
+	 * Department class and does not load the dependent objects like contactInfo
+	 * 
+	 * @param companyId
+	 *            the ID of {@link net.bhira.sample.model.Company}.
+	 * @param consumer
+	 *            the consumer to which each {@link net.bhira.sample.model.Department} instance is
+	 *            handed over as soon as it is read.
+	 */
+	public void loadByCompany(long companyId, Consumer<Department> consumer);
+
+	/**
+	 * Load the {@link net.bhira.sample.model.Department} instances for the given companyId from
+	 * repository that were modified at or after the given time, ordered by modified time and ID,
+	 * and hand them over to the given consumer one at a time, as they are read. It returns a
+	 * shallow instance of Department class and does not load the dependent objects like
+	 * contactInfo. Deleted departments are not returned.
+	 * 
+	 * @param companyId
+	 *            the ID of {@link net.bhira.sample.model.Company}.
+	 * @param since
+	 *            the earliest modified time of the departments to return.
+	 * @param consumer
+	 *            the consumer to which each {@link net.bhira.sample.model.Department} instance is
+	 *            handed over as soon as it is read.
+	 */
+	public void loadModifiedSince(long companyId, Date since, Consumer<Department> consumer);
+
+	/**
+	 * Load the {@link net.bhira.sample.model.Department} instances for the given companyId, along
+	 * with their contact info, from repository ordered by ID and hand them over to the given
+	 * consumer one at a time, as they are read. The rows are streamed and are never collected in
+	 * memory. Only the departments with ID greater than the given afterId are loaded, so that an
+	 * interrupted read can be resumed.
+	 * 
+	 * @param companyId
+	 *            the ID of {@link net.bhira.sample.model.Company}.
+	 * @param afterId
+	 *            the ID of the last department read before, 0 to read all the departments.
+	 * @param consumer
+	 *            the consumer to which each {@link net.bhira.sample.model.Department} instance is
+	 *            handed over as soon as it is read.
+	 */
+	public void loadDetailsByCompany(long companyId, long afterId,
+			Consumer<Department> consumer);
+
+	/**
+	 * Load the {@link net.bhira.sample.api.jdbc.ModifiedStamp} of the
+	 * {@link net.bhira.sample.model.Department} instances for the given companyId, i.e. their
+	 * number and latest modified time. It changes whenever a department of the company is
+	 * inserted, updated or deleted, so it tags the version of the list returned by
+	 * {@link #loadByCompany(long, Consumer)} without loading it.
+	 * 
+	 * @param companyId
+	 *            the ID of {@link net.bhira.sample.model.Company}.
+	 * @return the modified stamp of the departments.
+	 */
+	public ModifiedStamp loadModifiedStampByCompany(long companyId);
+
+}
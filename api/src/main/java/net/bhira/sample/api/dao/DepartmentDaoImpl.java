@@ -28,25 +28,39 @@ import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 import javax.sql.DataSource;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
 
+import net.bhira.sample.api.jdbc.ContactInfoRowMapper;
+import net.bhira.sample.api.jdbc.DepartmentDetailRowMapper;
 import net.bhira.sample.api.jdbc.DepartmentRowMapper;
+import net.bhira.sample.api.jdbc.JdbcUtil;
+import net.bhira.sample.api.jdbc.ModelCallbackHandler;
+import net.bhira.sample.api.jdbc.ModifiedStamp;
 import net.bhira.sample.common.exception.DuplicateNameException;
 import net.bhira.sample.common.exception.InvalidObjectException;
 import net.bhira.sample.common.exception.InvalidReferenceException;
 import net.bhira.sample.common.exception.ObjectNotFoundException;
+import net.bhira.sample.common.exception.StaleObjectException;
 import net.bhira.sample.model.Department;
 
 /**
@@ -58,6 +72,7 @@ import net.bhira.sample.model.Department;
  * @author Baldeep Hira
  */
 @Repository("departmentDao")
+@Profile("!memory")
 public class DepartmentDaoImpl implements DepartmentDao {
 
 	/**
@@ -65,17 +80,42 @@ public class DepartmentDaoImpl implements DepartmentDao {
 	 */
 	private static final Logger LOG = LoggerFactory.getLogger(DepartmentDaoImpl.class);
 
-	private static final String SQL_LOAD_BY_ID = "select * from department where id = ?";
-	private static final String SQL_LOAD_BY_COMPANY = "select * from department where companyid = ?";
+	private static final String SQL_LOAD_DETAIL = "select "
+			+ JdbcUtil.qualify("t", DepartmentRowMapper.COLUMNS) + ", "
+			+ ContactInfoRowMapper.JOIN_COLUMNS
+			+ " from department t left join department_cinfo r on r.departmentid = t.id"
+			+ " left join contactinfo c on c.id = r.contactinfoid";
+	private static final String SQL_LOAD_BY_ID = SQL_LOAD_DETAIL + " where t.id = ?";
+	private static final String SQL_LOAD_BY_IDS = SQL_LOAD_DETAIL + " where t.id in (%s)";
+	private static final String SQL_LOAD_DETAILS_BY_COMPANY = SQL_LOAD_DETAIL
+			+ " where t.companyid = ? and t.id > ? order by t.id";
+	private static final String SQL_LOAD_BY_COMPANY = "select "
+			+ DepartmentRowMapper.COLUMNS + " from department where companyid = ?";
+	private static final String SQL_LOAD_MODIFIED_SINCE = "select " + DepartmentRowMapper.COLUMNS
+			+ " from department where companyid = ? and modified >= ? order by modified, id";
+	private static final String SQL_LOAD_STAMP_BY_COMPANY = "select " + ModifiedStamp.COLUMNS
+			+ " from department where companyid = ?";
 	private static final String SQL_INSERT = "insert into department"
 			+ " (companyid, name, billingaddr, shippingaddr, created, modified, createdby, modifiedby)"
 			+ " values (?,?,?,?,?,?,?,?)";
 	private static final String SQL_UPDATE = "update department set companyid = ?, name = ?, billingaddr = ?,"
-			+ "shippingaddr = ?, modified = ?, modifiedby = ? where id = ?";
+			+ "shippingaddr = ?, modified = ?, modifiedby = ?, version = version + 1"
+			+ " where id = ? and version = ?";
+	private static final String SQL_EXISTS = "select count(*) from department where id = ?";
 	private static final String SQL_DELETE = "delete from department where id = ?";
+	private static final String SQL_DELETE_BY_IDS = "delete from department where id in (%s)";
+	private static final String SQL_LOAD_IDS_BY_COMPANY = "select id from department"
+			+ " where companyid = ? order by id limit ?";
 	private static final String SQL_CINFO_REL_LOAD = "select contactinfoid from department_cinfo where departmentid = ?";
 	private static final String SQL_CINFO_REL_INSERT = "insert into department_cinfo (departmentid, contactinfoid) values (?,?)";
 	private static final String SQL_CINFO_REL_DELETE = "delete from department_cinfo where departmentid = ?";
+	private static final String SQL_CINFO_REL_LOAD_BY_IDS = "select contactinfoid"
+			+ " from department_cinfo where departmentid in (%s)";
+	private static final String SQL_CINFO_REL_DELETE_BY_IDS = "delete from department_cinfo"
+			+ " where departmentid in (%s)";
+
+	private static final RowMapper<Department> ROW_MAPPER = new DepartmentRowMapper();
+	private static final RowMapper<Department> DETAIL_ROW_MAPPER = new DepartmentDetailRowMapper();
 
 	@Autowired
 	DataSource dataSource;
@@ -92,21 +132,39 @@ public class DepartmentDaoImpl implements DepartmentDao {
 	@Override
 	public Department load(long departmentId) {
 		List<Department> list = jdbcTemplate.query(SQL_LOAD_BY_ID, new Object[] { departmentId },
-				new DepartmentRowMapper());
+				DETAIL_ROW_MAPPER);
 		int count = (list == null) ? 0 : list.size();
 		LOG.debug("loaded department, count = {}, id = {}", count, departmentId);
+		return (count == 0) ? null : list.get(0);
+	}
 
-		if (count > 0) {
-			Department department = list.get(0);
-			List<Long> cinfoIds = jdbcTemplate.queryForList(SQL_CINFO_REL_LOAD, Long.class,
-					new Object[] { departmentId });
-			if (cinfoIds != null && !cinfoIds.isEmpty()) {
-				department.setContactInfo(contactInfoDao.load(cinfoIds.get(0)));
+	/**
+	 * @see net.bhira.sample.api.dao.DepartmentDao#loadAll(java.util.Collection)
+	 */
+	@Override
+	public List<Department> loadAll(Collection<Long> departmentIds) {
+		Map<Long, Department> map = new HashMap<Long, Department>();
+		List<List<Long>> chunks = JdbcUtil.partition(departmentIds, JdbcUtil.MAX_IN_CLAUSE_SIZE);
+		for (List<Long> chunk : chunks) {
+			String sql = String.format(SQL_LOAD_BY_IDS, JdbcUtil.inClause(chunk.size()));
+			List<Department> list = jdbcTemplate.query(sql, chunk.toArray(), DETAIL_ROW_MAPPER);
+			for (Department department : list) {
+				map.put(department.getId(), department);
 			}
-			return department;
-		} else {
-			return null;
 		}
+		LOG.debug("loaded departments by ids, count = {}, chunks = {}", map.size(), chunks.size());
+
+		// return the instances in the order of the requested IDs
+		List<Department> result = new ArrayList<Department>(map.size());
+		for (List<Long> chunk : chunks) {
+			for (Long id : chunk) {
+				Department department = map.get(id);
+				if (department != null) {
+					result.add(department);
+				}
+			}
+		}
+		return result;
 	}
 
 	/**
@@ -114,7 +172,7 @@ public class DepartmentDaoImpl implements DepartmentDao {
 	 */
 	@Override
 	public void save(Department department) throws ObjectNotFoundException, DuplicateNameException,
-			InvalidObjectException, InvalidReferenceException {
+			InvalidObjectException, InvalidReferenceException, StaleObjectException {
 		try {
 			if (department == null) {
 				throw new InvalidObjectException("Department object is null.");
@@ -153,16 +211,23 @@ public class DepartmentDaoImpl implements DepartmentDao {
 				// for existing department, construct SQL update statement
 				Object[] args = new Object[] { department.getCompanyId(), department.getName(),
 						department.getBillingAddress(), department.getShippingAddress(),
-						department.getModified(), department.getModifiedBy(), department.getId() };
+						department.getModified(), department.getModifiedBy(), department.getId(),
+						department.getVersion() };
 				count = jdbcTemplate.update(SQL_UPDATE, args);
 				LOG.debug("updated department, count = {}, id = {}", count, department.getId());
 			}
 
-			// if insert/update has 0 count value, then rollback
+			// if insert/update has 0 count value, then either the department does not exist or its
+			// version has moved on since it was loaded
 			if (count <= 0) {
+				if (!isNew && exists(department.getId())) {
+					throw new StaleObjectException("Department with ID " + department.getId()
+							+ " was modified since version " + department.getVersion() + ".");
+				}
 				throw new ObjectNotFoundException("Department with ID " + department.getId()
 						+ " was not found.");
 			}
+			department.setVersion(isNew ? 0 : department.getVersion() + 1);
 
 			// update dependent entries, as needed
 			if (isNew) {
@@ -219,6 +284,17 @@ public class DepartmentDaoImpl implements DepartmentDao {
 		}
 	}
 
+	/**
+	 * Check whether the department identified by the given ID exists in repository.
+	 * 
+	 * @param departmentId
+	 *            the ID of {@link net.bhira.sample.model.Department}.
+	 * @return true if the department exists, else false.
+	 */
+	private boolean exists(long departmentId) {
+		return jdbcTemplate.queryForObject(SQL_EXISTS, Integer.class, departmentId) > 0;
+	}
+
 	/**
 	 * @see net.bhira.sample.api.dao.DepartmentDao#delete(long)
 	 */
@@ -243,16 +319,93 @@ public class DepartmentDaoImpl implements DepartmentDao {
 		return (count > 0);
 	}
 
+	/**
+	 * @see net.bhira.sample.api.dao.DepartmentDao#deleteByCompany(long, int)
+	 */
+	@Override
+	public int deleteByCompany(long companyId, int limit) {
+		List<Long> ids = jdbcTemplate.queryForList(SQL_LOAD_IDS_BY_COMPANY, Long.class, companyId,
+				Math.min(limit, JdbcUtil.MAX_IN_CLAUSE_SIZE));
+		if (ids.isEmpty()) {
+			return 0;
+		}
+		String in = JdbcUtil.inClause(ids.size());
+		Object[] args = ids.toArray();
+
+		// delete relationship entries & contact info entries, then the departments
+		List<Long> cinfoIds = jdbcTemplate.queryForList(
+				String.format(SQL_CINFO_REL_LOAD_BY_IDS, in), Long.class, args);
+		jdbcTemplate.update(String.format(SQL_CINFO_REL_DELETE_BY_IDS, in), args);
+		contactInfoDao.deleteAll(cinfoIds);
+		int count = jdbcTemplate.update(String.format(SQL_DELETE_BY_IDS, in), args);
+		LOG.debug("deleted departments by company, count = {}, companyId = {}", count, companyId);
+		return count;
+	}
+
 	/**
 	 * @see net.bhira.sample.api.dao.DepartmentDao#loadByCompany(long)
 	 */
 	@Override
 	public List<Department> loadByCompany(long companyId) {
 		List<Department> list = jdbcTemplate.query(SQL_LOAD_BY_COMPANY, new Object[] { companyId },
-				new DepartmentRowMapper());
+				ROW_MAPPER);
 		int count = (list == null) ? 0 : list.size();
 		LOG.debug("loaded departments by company, count = {}, companyId = {}", count, companyId);
 		return list;
 	}
 
-}
\ No newline at end of file
+	/**
+	 * @see net.bhira.sample.api.dao.DepartmentDao#loadByCompany(long,
+	 *      java.util.function.Consumer)
+	 */
+	@Override
+	public void loadByCompany(long companyId, Consumer<Department> consumer) {
+		ModelCallbackHandler<Department> handler = new ModelCallbackHandler<Department>(
+				ROW_MAPPER, consumer);
+		jdbcTemplate.query(JdbcUtil.streaming(SQL_LOAD_BY_COMPANY, companyId), handler);
+		LOG.debug("streamed departments by company, count = {}, companyId = {}",
+				handler.getRowCount(), companyId);
+	}
+
+	/**
+	 * @see net.bhira.sample.api.dao.DepartmentDao#loadModifiedSince(long, java.util.Date,
+	 *      java.util.function.Consumer)
+	 */
+	@Override
+	public void loadModifiedSince(long companyId, Date since, Consumer<Department> consumer) {
+		ModelCallbackHandler<Department> handler = new ModelCallbackHandler<Department>(
+				ROW_MAPPER, consumer);
+		jdbcTemplate.query(JdbcUtil.streaming(SQL_LOAD_MODIFIED_SINCE, companyId,
+				new Timestamp(since.getTime())), handler);
+		LOG.debug("streamed departments modified since, count = {}, companyId = {}, since = {}",
+				handler.getRowCount(), companyId, since);
+	}
+
+	/**
+	 * @see net.bhira.sample.api.dao.DepartmentDao#loadDetailsByCompany(long, long,
+	 *      java.util.function.Consumer)
+	 */
+	@Override
+	public void loadDetailsByCompany(long companyId, long afterId,
+			Consumer<Department> consumer) {
+		ModelCallbackHandler<Department> handler = new ModelCallbackHandler<Department>(
+				DETAIL_ROW_MAPPER, consumer);
+		jdbcTemplate.query(JdbcUtil.streaming(SQL_LOAD_DETAILS_BY_COMPANY, companyId, afterId),
+				handler);
+		LOG.debug("streamed department details by company, count = {}, companyId = {}, "
+				+ "afterId = {}", handler.getRowCount(), companyId, afterId);
+	}
+
+	/**
+	 * @see net.bhira.sample.api.dao.DepartmentDao#loadModifiedStampByCompany(long)
+	 */
+	@Override
+	public ModifiedStamp loadModifiedStampByCompany(long companyId) {
+		ModifiedStamp stamp = jdbcTemplate.queryForObject(SQL_LOAD_STAMP_BY_COMPANY,
+				new Object[] { companyId }, ModifiedStamp.ROW_MAPPER);
+		LOG.debug("loaded department stamp, count = {}, lastModified = {}", stamp.getCount(),
+				stamp.getLastModified());
+		return stamp;
+	}
+
+}
@@ -23,11 +23,19 @@
  */
 package net.bhira.sample.api.dao;
 
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
+import net.bhira.sample.api.jdbc.EmployeeProjection;
+import net.bhira.sample.api.jdbc.EmployeeStats;
+import net.bhira.sample.api.jdbc.ModifiedStamp;
 import net.bhira.sample.common.exception.InvalidObjectException;
 import net.bhira.sample.common.exception.InvalidReferenceException;
 import net.bhira.sample.common.exception.ObjectNotFoundException;
+import net.bhira.sample.common.exception.StaleObjectException;
 import net.bhira.sample.model.Employee;
 
 /**
@@ -50,10 +58,23 @@ public interface EmployeeDao {
 	 */
 	public Employee load(long employeeId);
 
+	/**
+	 * Load the {@link net.bhira.sample.model.Employee} instances, along with their contact info,
+	 * identified by the specified employeeIds. The IDs are fetched in chunks using SQL "in (...)"
+	 * queries. IDs that are not found are skipped and duplicate IDs are returned only once.
+	 * 
+	 * @param employeeIds
+	 *            the IDs of {@link net.bhira.sample.model.Employee}.
+	 * @return List of {@link net.bhira.sample.model.Employee} instances, in the order of the given
+	 *         IDs.
+	 */
+	public List<Employee> loadAll(Collection<Long> employeeIds);
+
 	/**
 	 * Save the specified {@link net.bhira.sample.model.Employee} to repository. It will take care
 	 * of both insert and update scenarios. In case of insert the newly assigned ID is set back in
-	 * the passed employee model.
+	 * the passed employee model. An update is only applied if the model carries the current
+	 * version, which is then incremented and set back in the passed model.
 	 * 
 	 * @param employee
 	 *            an instance of {@link net.bhira.sample.model.Employee}.
@@ -63,9 +84,50 @@ public interface EmployeeDao {
 	 *             if the department instance being saved is invalid.
 	 * @throws InvalidReferenceException
 	 *             if the department instance being saved has invalid references.
+	 * @throws StaleObjectException
+	 *             if the employee instance being updated was modified since it was loaded.
 	 */
 	public void save(Employee employee) throws ObjectNotFoundException, InvalidObjectException,
-			InvalidReferenceException;
+			InvalidReferenceException, StaleObjectException;
+
+	/**
+	 * Save the specified list of {@link net.bhira.sample.model.Employee} to repository using JDBC
+	 * batches of configurable size. New employees, their contact info and relationship entries are
+	 * inserted in batches and the newly assigned IDs are set back in the passed employee models.
+	 * Existing employees are updated in batches. All the employees are validated before any of them
+	 * is written. Updates are only applied if every model carries its current version, which is
+	 * then incremented and set back in the passed models.
+	 * 
+	 * @param employees
+	 *            the list of {@link net.bhira.sample.model.Employee} instances.
+	 * @throws ObjectNotFoundException
+	 *             if any of the employee instances being updated is not found in repository.
+	 * @throws InvalidObjectException
+	 *             if any of the employee instances being saved is invalid.
+	 * @throws InvalidReferenceException
+	 *             if any of the employee instances being saved has invalid references.
+	 * @throws StaleObjectException
+	 *             if any of the employee instances being updated was modified since it was loaded.
+	 */
+	public void saveAll(List<Employee> employees) throws ObjectNotFoundException,
+			InvalidObjectException, InvalidReferenceException, StaleObjectException;
+
+	/**
+	 * Set the manager of the {@link net.bhira.sample.model.Employee} instances of the given
+	 * companyId using JDBC batches of configurable size. Only the manager, modified fields and
+	 * version of the employees are written, which is cheaper than saving the complete models.
+	 * Employees that are not found in the company are skipped.
+	 * 
+	 * @param companyId
+	 *            the ID of {@link net.bhira.sample.model.Company} of the employees.
+	 * @param managerIds
+	 *            the map of employee ID to the ID of its manager, 0 to clear the manager.
+	 * @return List of the IDs of the employees updated, in the order of the map.
+	 * @throws InvalidReferenceException
+	 *             if any of the managers is not found in repository.
+	 */
+	public List<Long> updateManagers(long companyId, Map<Long, Long> managerIds)
+			throws InvalidReferenceException;
 
 	/**
 	 * Delete the instance of {@link net.bhira.sample.model.Employee} identified by given
@@ -77,6 +139,22 @@ public interface EmployeeDao {
 	 */
 	public boolean delete(long employeeId);
 
+	/**
+	 * Delete a chunk of the {@link net.bhira.sample.model.Employee} instances of the given
+	 * companyId, i.e. the employees with the lowest IDs, along with their contact info and
+	 * relationship entries, using set based deletes. The manager of the remaining employees of the
+	 * company reporting to a deleted employee is cleared. Calling it repeatedly until it returns 0
+	 * deletes all the employees of the company, one chunk per transaction.
+	 * 
+	 * @param companyId
+	 *            the ID of {@link net.bhira.sample.model.Company}.
+	 * @param limit
+	 *            the maximum number of employees to delete, at most
+	 *            {@link net.bhira.sample.api.jdbc.JdbcUtil#MAX_IN_CLAUSE_SIZE}.
+	 * @return the number of employees deleted, 0 if the company has no employees left.
+	 */
+	public int deleteByCompany(long companyId, int limit);
+
 	/**
 	 * Load all the {@link net.bhira.sample.model.Employee} instances for the given companyId from
 	 * repository. It returns a shallow instance of Employee class and does not load the dependent
@@ -99,4 +177,179 @@ public interface EmployeeDao {
 	 */
 	public List<Employee> loadByDepartment(long departmentId);
 
-}
\ No newline at end of file
+	/**
+	 * Load a page of {@link net.bhira.sample.model.Employee} instances for the given companyId
+	 * from repository, ordered by ID. It uses keyset pagination, i.e. it returns the employees
+	 * with ID greater than the given afterId, so that fetching any page costs the same index seek.
+	 * The rows are streamed to the given consumer and are never collected in memory. It returns a
+	 * shallow instance of Employee class with only the fields of the given projection, and does not
+	 * load the dependent objects like contactInfo.
+	 * 
+	 * @param companyId
+	 *            the ID of {@link net.bhira.sample.model.Company}.
+	 * @param afterId
+	 *            the ID of the last employee in the previous page, 0 for the first page.
+	 * @param limit
+	 *            the maximum number of employees to return.
+	 * @param projection
+	 *            the fields of the employees to load.
+	 * @param consumer
+	 *            the consumer to which each {@link net.bhira.sample.model.Employee} instance is
+	 *            handed over as soon as it is read.
+	 */
+	public void loadByCompany(long companyId, long afterId, int limit,
+			EmployeeProjection projection, Consumer<Employee> consumer);
+
+	/**
+	 * Load a page of {@link net.bhira.sample.model.Employee} instances for the given departmentId
+	 * from repository, ordered by ID. It uses keyset pagination, i.e. it returns the employees
+	 * with ID greater than the given afterId, so that fetching any page costs the same index seek.
+	 * The rows are streamed to the given consumer and are never collected in memory. It returns a
+	 * shallow instance of Employee class with only the fields of the given projection, and does not
+	 * load the dependent objects like contactInfo.
+	 * 
+	 * @param departmentId
+	 *            the ID of {@link net.bhira.sample.model.Department}.
+	 * @param afterId
+	 *            the ID of the last employee in the previous page, 0 for the first page.
+	 * @param limit
+	 *            the maximum number of employees to return.
+	 * @param projection
+	 *            the fields of the employees to load.
+	 * @param consumer
+	 *            the consumer to which each {@link net.bhira.sample.model.Employee} instance is
+	 *            handed over as soon as it is read.
+	 */
+	public void loadByDepartment(long departmentId, long afterId, int limit,
+			EmployeeProjection projection, Consumer<Employee> consumer);
+
+	/**
+	 * Load a page of {@link net.bhira.sample.model.Employee} instances for the given companyId
+	 * from repository that were modified at or after the given time, ordered by modified time and
+	 * ID. It uses keyset pagination on both, i.e. for the next page it returns the employees
+	 * modified after the last employee in the previous page, or at the same time with a greater ID.
+	 * The rows are streamed to the given consumer and are never collected in memory. It returns a
+	 * shallow instance of Employee class with only the fields of the given projection, and does not
+	 * load the dependent objects like contactInfo. Deleted employees are not returned.
+	 * 
+	 * @param companyId
+	 *            the ID of {@link net.bhira.sample.model.Company}.
+	 * @param since
+	 *            the earliest modified time for the first page, the modified time of the last
+	 *            employee in the previous page for the next pages.
+	 * @param afterId
+	 *            the ID of the last employee in the previous page, 0 for the first page.
+	 * @param limit
+	 *            the maximum number of employees to return.
+	 * @param projection
+	 *            the fields of the employees to load.
+	 * @param consumer
+	 *            the consumer to which each {@link net.bhira.sample.model.Employee} instance is
+	 *            handed over as soon as it is read.
+	 */
+	public void loadModifiedSince(long companyId, Date since, long afterId, int limit,
+			EmployeeProjection projection, Consumer<Employee> consumer);
+
+	/**
+	 * Load the {@link net.bhira.sample.model.Employee} instances for the given companyId, along
+	 * with their contact info, from repository ordered by ID and hand them over to the given
+	 * consumer one at a time, as they are read. The rows are streamed and are never collected in
+	 * memory. Only the employees with ID greater than the given afterId are loaded, so that an
+	 * interrupted read can be resumed.
+	 * 
+	 * @param companyId
+	 *            the ID of {@link net.bhira.sample.model.Company}.
+	 * @param afterId
+	 *            the ID of the last employee read before, 0 to read all the employees.
+	 * @param consumer
+	 *            the consumer to which each {@link net.bhira.sample.model.Employee} instance is
+	 *            handed over as soon as it is read.
+	 */
+	public void loadDetailsByCompany(long companyId, long afterId, Consumer<Employee> consumer);
+
+	/**
+	 * Load the IDs of the {@link net.bhira.sample.model.Employee} instances reporting to the given
+	 * employee, directly or through other managers up to the given depth. The reporting hierarchy
+	 * of the company is served from an in-memory index that is loaded on first use and kept up to
+	 * date by {@link #save(Employee)}, {@link #saveAll(List)} and {@link #delete(long)}.
+	 * 
+	 * @param companyId
+	 *            the ID of {@link net.bhira.sample.model.Company} of the employee.
+	 * @param employeeId
+	 *            the ID of the manager {@link net.bhira.sample.model.Employee}.
+	 * @param depth
+	 *            the number of levels to include, 1 for the direct reports only.
+	 * @return List of employee IDs, ordered by level.
+	 */
+	public List<Long> loadReportIds(long companyId, long employeeId, int depth);
+
+	/**
+	 * Load the IDs of the managers of the given {@link net.bhira.sample.model.Employee}, starting
+	 * with its direct manager and ending with the top of the hierarchy. The reporting hierarchy of
+	 * the company is served from the same in-memory index as
+	 * {@link #loadReportIds(long, long, int)}.
+	 * 
+	 * @param companyId
+	 *            the ID of {@link net.bhira.sample.model.Company} of the employee.
+	 * @param employeeId
+	 *            the ID of {@link net.bhira.sample.model.Employee}.
+	 * @return List of manager IDs.
+	 */
+	public List<Long> loadChainIds(long companyId, long employeeId);
+
+	/**
+	 * Load the IDs of the {@link net.bhira.sample.model.Employee} instances of the given company
+	 * whose name or title matches every word of the given query, as a whole word, as a prefix of a
+	 * word or with a typo or two, best match first. The names and titles of the company are
+	 * served from an in-memory index that is loaded on first use and kept up to date by
+	 * {@link #save(Employee)}, {@link #saveAll(List)} and {@link #delete(long)}.
+	 * 
+	 * @param companyId
+	 *            the ID of {@link net.bhira.sample.model.Company}.
+	 * @param query
+	 *            the words to search for.
+	 * @param limit
+	 *            the maximum number of IDs to return.
+	 * @return List of employee IDs, best match first.
+	 */
+	public List<Long> loadMatchingIds(long companyId, String query, int limit);
+
+	/**
+	 * Load the {@link net.bhira.sample.api.jdbc.ModifiedStamp} of the
+	 * {@link net.bhira.sample.model.Employee} instances for the given companyId, i.e. their number
+	 * and latest modified time. It changes whenever an employee of the company is inserted,
+	 * updated or deleted, so it tags the version of the pages returned by
+	 * {@link #loadByCompany(long, long, int, EmployeeProjection, Consumer)} without loading them.
+	 * 
+	 * @param companyId
+	 *            the ID of {@link net.bhira.sample.model.Company}.
+	 * @return the modified stamp of the employees.
+	 */
+	public ModifiedStamp loadModifiedStampByCompany(long companyId);
+
+	/**
+	 * Load the {@link net.bhira.sample.api.jdbc.EmployeeStats} of the given company, i.e. the
+	 * number of its employees broken down by sex, age band, title and department. The counts are
+	 * aggregated by the repository, so the employees themselves are not loaded.
+	 * 
+	 * @param companyId
+	 *            the ID of {@link net.bhira.sample.model.Company}.
+	 * @return the stats of the employees of the company.
+	 */
+	public EmployeeStats loadStatsByCompany(long companyId);
+
+	/**
+	 * Load the {@link net.bhira.sample.api.jdbc.ModifiedStamp} of the
+	 * {@link net.bhira.sample.model.Employee} instances for the given departmentId, i.e. their
+	 * number and latest modified time. It changes whenever an employee of the department is
+	 * inserted, updated or deleted, so it tags the version of the pages returned by
+	 * {@link #loadByDepartment(long, long, int, EmployeeProjection, Consumer)} without loading
+	 * them.
+	 * 
+	 * @param departmentId
+	 *            the ID of {@link net.bhira.sample.model.Department}.
+	 * @return the modified stamp of the employees.
+	 */
+	public ModifiedStamp loadModifiedStampByDepartment(long departmentId);
+
+}
@@ -26,27 +26,53 @@ package net.bhira.sample.api.dao;
 import java.sql.Connection;
 import java.sql.Date;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 import javax.sql.DataSource;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCallback;
 import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
 
+import net.bhira.sample.api.index.EmployeeDirectory;
+import net.bhira.sample.api.index.EmployeeDirectoryIndex;
+import net.bhira.sample.api.index.OrgChart;
+import net.bhira.sample.api.index.OrgChartIndex;
+import net.bhira.sample.api.jdbc.ContactInfoRowMapper;
+import net.bhira.sample.api.jdbc.EmployeeDetailRowMapper;
+import net.bhira.sample.api.jdbc.EmployeeProjection;
+import net.bhira.sample.api.jdbc.EmployeeStats;
 import net.bhira.sample.api.jdbc.EmployeeRowMapper;
+import net.bhira.sample.api.jdbc.JdbcUtil;
+import net.bhira.sample.api.jdbc.ModelCallbackHandler;
+import net.bhira.sample.api.jdbc.ModifiedStamp;
 import net.bhira.sample.common.exception.InvalidObjectException;
 import net.bhira.sample.common.exception.InvalidReferenceException;
 import net.bhira.sample.common.exception.ObjectNotFoundException;
+import net.bhira.sample.common.exception.StaleObjectException;
+import net.bhira.sample.model.ContactInfo;
 import net.bhira.sample.model.Employee;
 
 /**
@@ -58,6 +84,7 @@ import net.bhira.sample.model.Employee;
  * @author Baldeep Hira
  */
 @Repository("employeeDao")
+@Profile("!memory")
 public class EmployeeDaoImpl implements EmployeeDao {
 
 	/**
@@ -65,20 +92,73 @@ public class EmployeeDaoImpl implements EmployeeDao {
 	 */
 	private static final Logger LOG = LoggerFactory.getLogger(EmployeeDaoImpl.class);
 
-	private static final String SQL_LOAD_BY_ID = "select * from employee where id = ?";
-	private static final String SQL_LOAD_BY_COMPANY = "select * from employee where companyid = ?";
-	private static final String SQL_LOAD_BY_DEPARTMENT = "select * from employee where departmentid = ?";
+	private static final String SQL_LOAD_DETAIL = "select "
+			+ JdbcUtil.qualify("t", EmployeeRowMapper.COLUMNS) + ", "
+			+ ContactInfoRowMapper.JOIN_COLUMNS
+			+ " from employee t left join employee_cinfo r on r.employeeid = t.id"
+			+ " left join contactinfo c on c.id = r.contactinfoid";
+	private static final String SQL_LOAD_BY_ID = SQL_LOAD_DETAIL + " where t.id = ?";
+	private static final String SQL_LOAD_BY_IDS = SQL_LOAD_DETAIL + " where t.id in (%s)";
+	private static final String SQL_LOAD_DETAILS_BY_COMPANY = SQL_LOAD_DETAIL
+			+ " where t.companyid = ? and t.id > ? order by t.id";
+	private static final String SQL_LOAD_BY_COMPANY = "select "
+			+ EmployeeRowMapper.COLUMNS + " from employee where companyid = ?";
+	private static final String SQL_LOAD_BY_DEPARTMENT = "select "
+			+ EmployeeRowMapper.COLUMNS + " from employee where departmentid = ?";
+	private static final String SQL_LOAD_PAGE_BY_COMPANY = "select %s from employee"
+			+ " where companyid = ? and id > ? order by id limit ?";
+	private static final String SQL_LOAD_PAGE_BY_DEPARTMENT = "select %s from employee"
+			+ " where departmentid = ? and id > ? order by id limit ?";
+	private static final String SQL_LOAD_PAGE_MODIFIED_SINCE = "select %s from employee"
+			+ " where companyid = ? and modified >= ? and (modified > ? or id > ?)"
+			+ " order by modified, id limit ?";
+	private static final String SQL_LOAD_MANAGERS_BY_COMPANY = "select id, managerid from employee"
+			+ " where companyid = ?";
+	private static final String SQL_LOAD_NAMES_BY_COMPANY = "select id, name, title from employee"
+			+ " where companyid = ?";
+	private static final String SQL_LOAD_STAMP_BY_COMPANY = "select " + ModifiedStamp.COLUMNS
+			+ " from employee where companyid = ?";
+	private static final String SQL_LOAD_STAMP_BY_DEPARTMENT = "select " + ModifiedStamp.COLUMNS
+			+ " from employee where departmentid = ?";
+	private static final String SQL_STATS_BY_SEX = "select sex, count(*) from employee"
+			+ " where companyid = ? group by sex";
+	private static final String SQL_STATS_BY_DOB = "select dob, count(*) from employee"
+			+ " where companyid = ? group by dob";
+	private static final String SQL_STATS_BY_TITLE = "select title, count(*) from employee"
+			+ " where companyid = ? group by title order by count(*) desc, title";
+	private static final String SQL_STATS_BY_DEPARTMENT = "select e.departmentid, d.name,"
+			+ " count(*) from employee e left join department d on d.id = e.departmentid"
+			+ " where e.companyid = ? group by e.departmentid, d.name order by e.departmentid";
 	private static final String SQL_INSERT = "insert into employee"
 			+ " (companyid, departmentid, name, managerid, salutation, sex, dob,"
 			+ "  title, addr, created, modified, createdby, modifiedby)"
 			+ " values (?,?,?,?,?,?,?,?,?,?,?,?,?)";
 	private static final String SQL_UPDATE = "update employee set companyid = ?, departmentid = ?, name = ?, "
 			+ "managerid = ?, salutation = ?, sex = ?, dob = ?, title = ?, addr = ?, "
-			+ "modified = ?, modifiedby = ? where id = ?";
+			+ "modified = ?, modifiedby = ?, version = version + 1 where id = ? and version = ?";
+	private static final String SQL_UPDATE_MANAGER = "update employee set managerid = ?,"
+			+ " modified = ?, modifiedby = ?, version = version + 1 where id = ? and companyid = ?";
+	private static final String SQL_EXISTS = "select count(*) from employee where id = ?";
+	private static final String SQL_LOAD_COMPANY_IDS = "select id, companyid from employee"
+			+ " where id in (%s)";
 	private static final String SQL_DELETE = "delete from employee where id = ?";
+	private static final String SQL_DELETE_BY_IDS = "delete from employee where id in (%s)";
+	private static final String SQL_LOAD_IDS_BY_COMPANY = "select id from employee"
+			+ " where companyid = ? order by id limit ?";
+	private static final String SQL_LOAD_REPORT_IDS = "select id from employee"
+			+ " where companyid = ? and managerid in (%s)";
+	private static final String SQL_CLEAR_MANAGERS = "update employee set managerid = null"
+			+ " where id in (%s)";
 	private static final String SQL_CINFO_REL_LOAD = "select contactinfoid from employee_cinfo where employeeid = ?";
 	private static final String SQL_CINFO_REL_INSERT = "insert into employee_cinfo (employeeid, contactinfoid) values (?,?)";
 	private static final String SQL_CINFO_REL_DELETE = "delete from employee_cinfo where employeeid = ?";
+	private static final String SQL_CINFO_REL_LOAD_BY_IDS = "select contactinfoid"
+			+ " from employee_cinfo where employeeid in (%s)";
+	private static final String SQL_CINFO_REL_DELETE_BY_IDS = "delete from employee_cinfo"
+			+ " where employeeid in (%s)";
+
+	private static final RowMapper<Employee> ROW_MAPPER = new EmployeeRowMapper();
+	private static final RowMapper<Employee> DETAIL_ROW_MAPPER = new EmployeeDetailRowMapper();
 
 	@Autowired
 	DataSource dataSource;
@@ -89,27 +169,54 @@ public class EmployeeDaoImpl implements EmployeeDao {
 	@Autowired
 	ContactInfoDao contactInfoDao;
 
+	@Autowired
+	OrgChartIndex orgChartIndex;
+
+	@Autowired
+	EmployeeDirectoryIndex employeeDirectoryIndex;
+
+	@Value("${jdbc.batchSize}")
+	int batchSize;
+
 	/**
 	 * @see net.bhira.sample.api.dao.EmployeeDao#load(long)
 	 */
 	@Override
 	public Employee load(long employeeId) {
 		List<Employee> list = jdbcTemplate.query(SQL_LOAD_BY_ID, new Object[] { employeeId },
-				new EmployeeRowMapper());
+				DETAIL_ROW_MAPPER);
 		int count = (list == null) ? 0 : list.size();
 		LOG.debug("loaded employee, count = {}, id = {}", count, employeeId);
+		return (count == 0) ? null : list.get(0);
+	}
 
-		if (count > 0) {
-			Employee employee = list.get(0);
-			List<Long> cinfoIds = jdbcTemplate.queryForList(SQL_CINFO_REL_LOAD, Long.class,
-					new Object[] { employeeId });
-			if (cinfoIds != null && !cinfoIds.isEmpty()) {
-				employee.setContactInfo(contactInfoDao.load(cinfoIds.get(0)));
+	/**
+	 * @see net.bhira.sample.api.dao.EmployeeDao#loadAll(java.util.Collection)
+	 */
+	@Override
+	public List<Employee> loadAll(Collection<Long> employeeIds) {
+		Map<Long, Employee> map = new HashMap<Long, Employee>();
+		List<List<Long>> chunks = JdbcUtil.partition(employeeIds, JdbcUtil.MAX_IN_CLAUSE_SIZE);
+		for (List<Long> chunk : chunks) {
+			String sql = String.format(SQL_LOAD_BY_IDS, JdbcUtil.inClause(chunk.size()));
+			List<Employee> list = jdbcTemplate.query(sql, chunk.toArray(), DETAIL_ROW_MAPPER);
+			for (Employee employee : list) {
+				map.put(employee.getId(), employee);
 			}
-			return employee;
-		} else {
-			return null;
 		}
+		LOG.debug("loaded employees by ids, count = {}, chunks = {}", map.size(), chunks.size());
+
+		// return the instances in the order of the requested IDs
+		List<Employee> result = new ArrayList<Employee>(map.size());
+		for (List<Long> chunk : chunks) {
+			for (Long id : chunk) {
+				Employee employee = map.get(id);
+				if (employee != null) {
+					result.add(employee);
+				}
+			}
+		}
+		return result;
 	}
 
 	/**
@@ -117,7 +224,7 @@ public class EmployeeDaoImpl implements EmployeeDao {
 	 */
 	@Override
 	public void save(Employee employee) throws ObjectNotFoundException, InvalidObjectException,
-			InvalidReferenceException {
+			InvalidReferenceException, StaleObjectException {
 		try {
 			if (employee == null) {
 				throw new InvalidObjectException("Employee object is null.");
@@ -126,6 +233,7 @@ public class EmployeeDaoImpl implements EmployeeDao {
 			employee.initForSave();
 			employee.validate();
 			boolean isNew = employee.isNew();
+			long previousCompanyId = isNew ? 0 : getCompanyId(employee.getId());
 			int count = 0;
 
 			if (isNew) {
@@ -136,29 +244,7 @@ public class EmployeeDaoImpl implements EmployeeDao {
 							throws SQLException {
 						PreparedStatement pstmt = connection.prepareStatement(SQL_INSERT,
 								Statement.RETURN_GENERATED_KEYS);
-						pstmt.setLong(1, employee.getCompanyId());
-						if (employee.getDepartmentId() == 0) {
-							pstmt.setNull(2, java.sql.Types.BIGINT);
-						} else {
-							pstmt.setLong(2, employee.getDepartmentId());
-						}
-						pstmt.setString(3, employee.getName());
-						if (employee.getManagerId() == 0) {
-							pstmt.setNull(4, java.sql.Types.BIGINT);
-						} else {
-							pstmt.setLong(4, employee.getManagerId());
-						}
-						pstmt.setString(5, employee.getSalutation());
-						pstmt.setString(6, employee.getSex() == null ? null : employee.getSex()
-								.toString());
-						pstmt.setDate(7, employee.getDOB() == null ? null : new Date(employee
-								.getDOB().getTime()));
-						pstmt.setString(8, employee.getTitle());
-						pstmt.setString(9, employee.getAddress());
-						pstmt.setTimestamp(10, new Timestamp(employee.getCreated().getTime()));
-						pstmt.setTimestamp(11, new Timestamp(employee.getModified().getTime()));
-						pstmt.setString(12, employee.getCreatedBy());
-						pstmt.setString(13, employee.getModifiedBy());
+						setInsertParameters(pstmt, employee);
 						return pstmt;
 					}
 				}, keyHolder);
@@ -169,79 +255,400 @@ public class EmployeeDaoImpl implements EmployeeDao {
 
 			} else {
 				// for existing employee, construct SQL update statement
-				Long deptId = employee.getDepartmentId() == 0 ? null : employee.getDepartmentId();
-				Long mgrId = employee.getManagerId() == 0 ? null : employee.getManagerId();
-				String sex = employee.getSex() == null ? null : employee.getSex().toString();
-				Date dob = employee.getDOB() == null ? null : new Date(employee.getDOB().getTime());
-				Object[] args = new Object[] { employee.getCompanyId(), deptId, employee.getName(),
-						mgrId, employee.getSalutation(), sex, dob, employee.getTitle(),
-						employee.getAddress(), employee.getModified(), employee.getModifiedBy(),
-						employee.getId() };
-				count = jdbcTemplate.update(SQL_UPDATE, args);
+				count = jdbcTemplate.update(SQL_UPDATE, getUpdateParameters(employee));
 				LOG.debug("updated employee, count = {}, id = {}", count, employee.getId());
 			}
 
-			// if insert/update has 0 count value, then rollback
+			// if insert/update has 0 count value, then either the employee does not exist or its
+			// version has moved on since it was loaded
 			if (count <= 0) {
+				if (!isNew && exists(employee.getId())) {
+					throw new StaleObjectException("Employee with ID " + employee.getId()
+							+ " was modified since version " + employee.getVersion() + ".");
+				}
 				throw new ObjectNotFoundException("Employee with ID " + employee.getId()
 						+ " was not found.");
 			}
+			employee.setVersion(isNew ? 0 : employee.getVersion() + 1);
 
 			// update dependent entries, as needed
-			if (isNew) {
+			saveContactInfo(employee, isNew);
+			orgChartIndex.update(employee.getCompanyId(), previousCompanyId, employee.getId(),
+					employee.getManagerId());
+			employeeDirectoryIndex.update(employee.getCompanyId(), previousCompanyId,
+					employee.getId(), employee.getName(), employee.getTitle());
+
+		} catch (DataIntegrityViolationException dive) {
+			throw translate(dive);
+		}
+	}
+
+	/**
+	 * @see net.bhira.sample.api.dao.EmployeeDao#saveAll(java.util.List)
+	 */
+	@Override
+	public void saveAll(List<Employee> employees) throws ObjectNotFoundException,
+			InvalidObjectException, InvalidReferenceException, StaleObjectException {
+		try {
+			if (employees == null) {
+				throw new InvalidObjectException("Employee list is null.");
+			}
+
+			// validate all the employees before writing any of them
+			List<Employee> inserts = new ArrayList<Employee>();
+			List<Employee> updates = new ArrayList<Employee>();
+			for (Employee employee : employees) {
+				if (employee == null) {
+					throw new InvalidObjectException("Employee object is null.");
+				}
+				employee.initForSave();
+				employee.validate();
+				if (employee.isNew()) {
+					inserts.add(employee);
+				} else {
+					updates.add(employee);
+				}
+			}
 
-				// for new model if there is contact info, save it to contact info table and then
-				// add entry in relationship table
+			// insert new employees in batches, fetching the generated IDs for each batch
+			for (int from = 0; from < inserts.size(); from += batchSize) {
+				insertBatch(inserts.subList(from, Math.min(from + batchSize, inserts.size())));
+			}
+
+			// update existing employees in batches, after reading the company they are moved from
+			List<Long> updateIds = new ArrayList<Long>(updates.size());
+			for (Employee employee : updates) {
+				updateIds.add(employee.getId());
+			}
+			Map<Long, Long> previousCompanyIds = loadCompanyIds(updateIds);
+			for (int from = 0; from < updates.size(); from += batchSize) {
+				updateBatch(updates.subList(from, Math.min(from + batchSize, updates.size())));
+			}
+
+			// save contact info of new employees and their relationship entries in batches
+			List<ContactInfo> contactInfos = new ArrayList<ContactInfo>();
+			List<Object[]> relArgs = new ArrayList<Object[]>();
+			for (Employee employee : inserts) {
 				if (employee.getContactInfo() != null) {
+					contactInfos.add(employee.getContactInfo());
+				}
+			}
+			contactInfoDao.saveAll(contactInfos);
+			for (Employee employee : inserts) {
+				if (employee.getContactInfo() != null) {
+					relArgs.add(new Object[] { employee.getId(),
+							employee.getContactInfo().getId() });
+				}
+			}
+			for (int from = 0; from < relArgs.size(); from += batchSize) {
+				jdbcTemplate.batchUpdate(SQL_CINFO_REL_INSERT,
+						relArgs.subList(from, Math.min(from + batchSize, relArgs.size())));
+			}
+
+			// existing employees may or may not have a contact info entry, so sync them one by one
+			for (Employee employee : updates) {
+				saveContactInfo(employee, false);
+			}
+			for (Employee employee : employees) {
+				Long previous = previousCompanyIds.get(employee.getId());
+				long previousCompanyId = (previous == null) ? 0 : previous;
+				orgChartIndex.update(employee.getCompanyId(), previousCompanyId, employee.getId(),
+						employee.getManagerId());
+				employeeDirectoryIndex.update(employee.getCompanyId(), previousCompanyId,
+						employee.getId(), employee.getName(), employee.getTitle());
+			}
+			LOG.debug("saved employees, inserted = {}, updated = {}", inserts.size(),
+					updates.size());
+
+		} catch (DataIntegrityViolationException dive) {
+			throw translate(dive);
+		}
+	}
+
+	/**
+	 * Insert the given new employees using a single JDBC batch and set the generated IDs back in
+	 * the employee models.
+	 * 
+	 * @param employees
+	 *            the list of new employees.
+	 */
+	private void insertBatch(List<Employee> employees) {
+		jdbcTemplate.execute(new PreparedStatementCreator() {
+			public PreparedStatement createPreparedStatement(Connection connection)
+					throws SQLException {
+				return connection.prepareStatement(SQL_INSERT, Statement.RETURN_GENERATED_KEYS);
+			}
+		}, new PreparedStatementCallback<Object>() {
+			public Object doInPreparedStatement(PreparedStatement pstmt) throws SQLException {
+				for (Employee employee : employees) {
+					setInsertParameters(pstmt, employee);
+					pstmt.addBatch();
+				}
+				pstmt.executeBatch();
+
+				// generated keys are returned in the same order as the batched rows
+				int index = 0;
+				ResultSet keys = pstmt.getGeneratedKeys();
+				try {
+					while (keys.next() && index < employees.size()) {
+						employees.get(index++).setId(keys.getLong(1));
+					}
+				} finally {
+					keys.close();
+				}
+				if (index != employees.size()) {
+					throw new SQLException("Expected " + employees.size()
+							+ " generated keys for batch insert, but received " + index);
+				}
+				for (Employee employee : employees) {
+					employee.setVersion(0);
+				}
+				return null;
+			}
+		});
+		LOG.debug("inserted employees, count = {}", employees.size());
+	}
+
+	/**
+	 * Update the given existing employees using a single JDBC batch.
+	 * 
+	 * @param employees
+	 *            the list of existing employees.
+	 * @throws ObjectNotFoundException
+	 *             if any of the employees is not found in repository.
+	 * @throws StaleObjectException
+	 *             if any of the employees was modified since it was loaded.
+	 */
+	private void updateBatch(List<Employee> employees) throws ObjectNotFoundException,
+			StaleObjectException {
+		List<Object[]> args = new ArrayList<Object[]>(employees.size());
+		for (Employee employee : employees) {
+			args.add(getUpdateParameters(employee));
+		}
+		int[] counts = jdbcTemplate.batchUpdate(SQL_UPDATE, args);
+		for (int i = 0; i < counts.length; i++) {
+			if (counts[i] == 0) {
+				Employee employee = employees.get(i);
+				if (exists(employee.getId())) {
+					throw new StaleObjectException("Employee with ID " + employee.getId()
+							+ " was modified since version " + employee.getVersion() + ".");
+				}
+				throw new ObjectNotFoundException("Employee with ID " + employee.getId()
+						+ " was not found.");
+			}
+		}
+		for (Employee employee : employees) {
+			employee.setVersion(employee.getVersion() + 1);
+		}
+		LOG.debug("updated employees, count = {}", employees.size());
+	}
+
+	/**
+	 * Check whether the employee identified by the given ID exists in repository.
+	 * 
+	 * @param employeeId
+	 *            the ID of {@link net.bhira.sample.model.Employee}.
+	 * @return true if the employee exists, else false.
+	 */
+	private boolean exists(long employeeId) {
+		return jdbcTemplate.queryForObject(SQL_EXISTS, Integer.class, employeeId) > 0;
+	}
+
+	/**
+	 * Get the ID of the company of the employee identified by the given ID.
+	 * 
+	 * @param employeeId
+	 *            the ID of {@link net.bhira.sample.model.Employee}.
+	 * @return the ID of the company, 0 if the employee is not found.
+	 */
+	private long getCompanyId(long employeeId) {
+		Long companyId = loadCompanyIds(Collections.singletonList(employeeId)).get(employeeId);
+		return (companyId == null) ? 0 : companyId;
+	}
+
+	/**
+	 * Load the current company of the given employees, before they are updated or deleted, so
+	 * that only the indexes of their companies are updated.
+	 * 
+	 * @param employeeIds
+	 *            the IDs of {@link net.bhira.sample.model.Employee}.
+	 * @return the map of employee ID to company ID of the employees found.
+	 */
+	private Map<Long, Long> loadCompanyIds(Collection<Long> employeeIds) {
+		Map<Long, Long> companyIds = new HashMap<Long, Long>();
+		for (List<Long> chunk : JdbcUtil.partition(employeeIds, JdbcUtil.MAX_IN_CLAUSE_SIZE)) {
+			String sql = String.format(SQL_LOAD_COMPANY_IDS, JdbcUtil.inClause(chunk.size()));
+			jdbcTemplate.query(sql, chunk.toArray(), new RowCallbackHandler() {
+				@Override
+				public void processRow(ResultSet rs) throws SQLException {
+					companyIds.put(rs.getLong(1), rs.getLong(2));
+				}
+			});
+		}
+		return companyIds;
+	}
+
+	/**
+	 * Set the bind parameters of {@link #SQL_INSERT} for the given employee.
+	 * 
+	 * @param pstmt
+	 *            the prepared statement for SQL insert.
+	 * @param employee
+	 *            the employee being inserted.
+	 */
+	private void setInsertParameters(PreparedStatement pstmt, Employee employee)
+			throws SQLException {
+		pstmt.setLong(1, employee.getCompanyId());
+		if (employee.getDepartmentId() == 0) {
+			pstmt.setNull(2, java.sql.Types.BIGINT);
+		} else {
+			pstmt.setLong(2, employee.getDepartmentId());
+		}
+		pstmt.setString(3, employee.getName());
+		if (employee.getManagerId() == 0) {
+			pstmt.setNull(4, java.sql.Types.BIGINT);
+		} else {
+			pstmt.setLong(4, employee.getManagerId());
+		}
+		pstmt.setString(5, employee.getSalutation());
+		pstmt.setString(6, employee.getSex() == null ? null : employee.getSex().toString());
+		pstmt.setDate(7, employee.getDOB() == null ? null : new Date(employee.getDOB().getTime()));
+		pstmt.setString(8, employee.getTitle());
+		pstmt.setString(9, employee.getAddress());
+		pstmt.setTimestamp(10, new Timestamp(employee.getCreated().getTime()));
+		pstmt.setTimestamp(11, new Timestamp(employee.getModified().getTime()));
+		pstmt.setString(12, employee.getCreatedBy());
+		pstmt.setString(13, employee.getModifiedBy());
+	}
+
+	/**
+	 * Get the bind parameters of {@link #SQL_UPDATE} for the given employee.
+	 * 
+	 * @param employee
+	 *            the employee being updated.
+	 * @return the array of bind parameters.
+	 */
+	private Object[] getUpdateParameters(Employee employee) {
+		Long deptId = employee.getDepartmentId() == 0 ? null : employee.getDepartmentId();
+		Long mgrId = employee.getManagerId() == 0 ? null : employee.getManagerId();
+		String sex = employee.getSex() == null ? null : employee.getSex().toString();
+		Date dob = employee.getDOB() == null ? null : new Date(employee.getDOB().getTime());
+		return new Object[] { employee.getCompanyId(), deptId, employee.getName(), mgrId,
+				employee.getSalutation(), sex, dob, employee.getTitle(), employee.getAddress(),
+				employee.getModified(), employee.getModifiedBy(), employee.getId(),
+				employee.getVersion() };
+	}
+
+	/**
+	 * Save the contact info of the given employee, that has already been inserted or updated, and
+	 * keep the relationship table in sync.
+	 * 
+	 * @param employee
+	 *            the employee whose contact info is saved.
+	 * @param isNew
+	 *            true if the employee was just inserted.
+	 */
+	private void saveContactInfo(Employee employee, boolean isNew) {
+		if (isNew) {
+
+			// for new model if there is contact info, save it to contact info table and then
+			// add entry in relationship table
+			if (employee.getContactInfo() != null) {
+				contactInfoDao.save(employee.getContactInfo());
+				Object[] args = new Object[] { employee.getId(),
+						employee.getContactInfo().getId() };
+				jdbcTemplate.update(SQL_CINFO_REL_INSERT, args);
+			}
+
+		} else {
+			// for existing model, fetch contact info ID from relationship table
+			List<Long> cinfoIds = jdbcTemplate.queryForList(SQL_CINFO_REL_LOAD, Long.class,
+					new Object[] { employee.getId() });
+			Long cinfoId = (cinfoIds != null && !cinfoIds.isEmpty()) ? cinfoIds.get(0) : null;
+
+			if (employee.getContactInfo() == null) {
+				// clean up old contact info entry, if needed
+				if (cinfoId != null) {
+					jdbcTemplate.update(SQL_CINFO_REL_DELETE, new Object[] { employee.getId() });
+					contactInfoDao.delete(cinfoId);
+				}
+
+			} else {
+				// insert/update contact info entry
+				if (cinfoId != null) {
+					employee.getContactInfo().setId(cinfoId);
+					contactInfoDao.save(employee.getContactInfo());
+				} else {
 					contactInfoDao.save(employee.getContactInfo());
 					Object[] args = new Object[] { employee.getId(),
 							employee.getContactInfo().getId() };
 					jdbcTemplate.update(SQL_CINFO_REL_INSERT, args);
 				}
+			}
+		}
+	}
 
-			} else {
-				// for existing model, fetch contact info ID from relationship table
-				List<Long> cinfoIds = jdbcTemplate.queryForList(SQL_CINFO_REL_LOAD, Long.class,
-						new Object[] { employee.getId() });
-				Long cinfoId = (cinfoIds != null && !cinfoIds.isEmpty()) ? cinfoIds.get(0) : null;
-
-				if (employee.getContactInfo() == null) {
-					// clean up old contact info entry, if needed
-					if (cinfoId != null) {
-						jdbcTemplate
-								.update(SQL_CINFO_REL_DELETE, new Object[] { employee.getId() });
-						contactInfoDao.delete(cinfoId);
-					}
+	/**
+	 * Translate the constraint violations for employee table into an InvalidReferenceException
+	 * for the offending attribute.
+	 * 
+	 * @param dive
+	 *            the data integrity violation reported by the database.
+	 * @return the InvalidReferenceException to be thrown, if the violation is a known constraint.
+	 * @throws DataIntegrityViolationException
+	 *             the given exception, if it is not a known constraint violation.
+	 */
+	private InvalidReferenceException translate(DataIntegrityViolationException dive) {
+		String msg = dive.getMessage();
+		if (msg != null) {
+			if (msg.contains("fk_employee_compy")) {
+				return new InvalidReferenceException(
+						"Invalid reference for attribute 'companyId'", dive);
+			} else if (msg.contains("fk_employee_dept")) {
+				return new InvalidReferenceException(
+						"Invalid reference for attribute 'departmentId'", dive);
+			} else if (msg.contains("fk_employee_mgr")) {
+				return new InvalidReferenceException(
+						"Invalid reference for attribute 'managerId'", dive);
+			}
+		}
+		throw dive;
+	}
 
-				} else {
-					// insert/update contact info entry
-					if (cinfoId != null) {
-						employee.getContactInfo().setId(cinfoId);
-						contactInfoDao.save(employee.getContactInfo());
-					} else {
-						contactInfoDao.save(employee.getContactInfo());
-						Object[] args = new Object[] { employee.getId(),
-								employee.getContactInfo().getId() };
-						jdbcTemplate.update(SQL_CINFO_REL_INSERT, args);
+	/**
+	 * @see net.bhira.sample.api.dao.EmployeeDao#updateManagers(long, java.util.Map)
+	 */
+	@Override
+	public List<Long> updateManagers(long companyId, Map<Long, Long> managerIds)
+			throws InvalidReferenceException {
+		try {
+			Timestamp modified = new Timestamp(System.currentTimeMillis());
+			List<Long> ids = new ArrayList<Long>(managerIds.keySet());
+			List<Object[]> args = new ArrayList<Object[]>(ids.size());
+			for (Long id : ids) {
+				long managerId = managerIds.get(id);
+				args.add(new Object[] { managerId == 0 ? null : managerId, modified, "system", id,
+						companyId });
+			}
+
+			List<Long> updated = new ArrayList<Long>();
+			for (int from = 0; from < args.size(); from += batchSize) {
+				int to = Math.min(from + batchSize, args.size());
+				int[] counts = jdbcTemplate.batchUpdate(SQL_UPDATE_MANAGER, args.subList(from, to));
+				for (int i = 0; i < counts.length; i++) {
+					// employees that are not found in the company are skipped
+					if (counts[i] != 0) {
+						long id = ids.get(from + i);
+						orgChartIndex.update(companyId, companyId, id, managerIds.get(id));
+						updated.add(id);
 					}
 				}
 			}
+			LOG.debug("updated managers, count = {}, companyId = {}", updated.size(), companyId);
+			return updated;
 
 		} catch (DataIntegrityViolationException dive) {
-			String msg = dive.getMessage();
-			if (msg != null) {
-				if (msg.contains("fk_employee_compy")) {
-					throw new InvalidReferenceException(
-							"Invalid reference for attribute 'companyId'", dive);
-				} else if (msg.contains("fk_employee_dept")) {
-					throw new InvalidReferenceException(
-							"Invalid reference for attribute 'departmentId'", dive);
-				} else if (msg.contains("fk_employee_mgr")) {
-					throw new InvalidReferenceException(
-							"Invalid reference for attribute 'managerId'", dive);
-				}
-			}
-			throw dive;
+			throw translate(dive);
 		}
 	}
 
@@ -250,7 +657,8 @@ public class EmployeeDaoImpl implements EmployeeDao {
 	 */
 	@Override
 	public boolean delete(long employeeId) {
-		
+		long companyId = getCompanyId(employeeId);
+
 		// load ID from contact info relationship table
 		List<Long> cinfoIds = jdbcTemplate.queryForList(SQL_CINFO_REL_LOAD, Long.class,
 				new Object[] { employeeId });
@@ -265,17 +673,61 @@ public class EmployeeDaoImpl implements EmployeeDao {
 		// delete the row from employee table
 		int count = jdbcTemplate.update(SQL_DELETE, new Object[] { employeeId });
 		LOG.debug("deleted employee, count = {}, id = {}", count, employeeId);
+		if (count > 0) {
+			orgChartIndex.remove(companyId, employeeId);
+			employeeDirectoryIndex.remove(companyId, employeeId);
+		}
 
 		return (count > 0);
 	}
 
+	/**
+	 * @see net.bhira.sample.api.dao.EmployeeDao#deleteByCompany(long, int)
+	 */
+	@Override
+	public int deleteByCompany(long companyId, int limit) {
+		List<Long> ids = jdbcTemplate.queryForList(SQL_LOAD_IDS_BY_COMPANY, Long.class, companyId,
+				Math.min(limit, JdbcUtil.MAX_IN_CLAUSE_SIZE));
+		if (ids.isEmpty()) {
+			return 0;
+		}
+		String in = JdbcUtil.inClause(ids.size());
+		Object[] args = ids.toArray();
+
+		// clear the manager of every employee reporting to the chunk, including the ones within
+		// the chunk, as the foreign key is checked row by row while deleting
+		List<Object> reportArgs = new ArrayList<Object>(ids.size() + 1);
+		reportArgs.add(companyId);
+		reportArgs.addAll(ids);
+		List<Long> reportIds = jdbcTemplate.queryForList(String.format(SQL_LOAD_REPORT_IDS, in),
+				Long.class, reportArgs.toArray());
+		for (List<Long> chunk : JdbcUtil.partition(reportIds, JdbcUtil.MAX_IN_CLAUSE_SIZE)) {
+			String sql = String.format(SQL_CLEAR_MANAGERS, JdbcUtil.inClause(chunk.size()));
+			jdbcTemplate.update(sql, chunk.toArray());
+		}
+
+		// delete relationship entries & contact info entries, then the employees
+		List<Long> cinfoIds = jdbcTemplate.queryForList(
+				String.format(SQL_CINFO_REL_LOAD_BY_IDS, in), Long.class, args);
+		jdbcTemplate.update(String.format(SQL_CINFO_REL_DELETE_BY_IDS, in), args);
+		contactInfoDao.deleteAll(cinfoIds);
+		int count = jdbcTemplate.update(String.format(SQL_DELETE_BY_IDS, in), args);
+		LOG.debug("deleted employees by company, count = {}, companyId = {}, reports = {}", count,
+				companyId, reportIds.size());
+
+		// the whole chart and directory are dropped rather than updated employee by employee
+		orgChartIndex.invalidate(companyId);
+		employeeDirectoryIndex.invalidate(companyId);
+		return count;
+	}
+
 	/**
 	 * @see net.bhira.sample.api.dao.EmployeeDao#loadByCompany(long)
 	 */
 	@Override
 	public List<Employee> loadByCompany(long companyId) {
 		List<Employee> list = jdbcTemplate.query(SQL_LOAD_BY_COMPANY, new Object[] { companyId },
-				new EmployeeRowMapper());
+				ROW_MAPPER);
 		int count = (list == null) ? 0 : list.size();
 		LOG.debug("loaded employees by company, count = {}, companyId = {}", count, companyId);
 		return list;
@@ -287,11 +739,229 @@ public class EmployeeDaoImpl implements EmployeeDao {
 	@Override
 	public List<Employee> loadByDepartment(long departmentId) {
 		List<Employee> list = jdbcTemplate.query(SQL_LOAD_BY_DEPARTMENT,
-				new Object[] { departmentId }, new EmployeeRowMapper());
+				new Object[] { departmentId }, ROW_MAPPER);
 		int count = (list == null) ? 0 : list.size();
 		LOG.debug("loaded employees by department, count = {}, departmentId = {}", count,
 				departmentId);
 		return list;
 	}
 
-}
\ No newline at end of file
+	/**
+	 * @see net.bhira.sample.api.dao.EmployeeDao#loadByCompany(long, long, int,
+	 *      net.bhira.sample.api.jdbc.EmployeeProjection, java.util.function.Consumer)
+	 */
+	@Override
+	public void loadByCompany(long companyId, long afterId, int limit,
+			EmployeeProjection projection, Consumer<Employee> consumer) {
+		ModelCallbackHandler<Employee> handler = new ModelCallbackHandler<Employee>(
+				projection.getRowMapper(), consumer);
+		String sql = String.format(SQL_LOAD_PAGE_BY_COMPANY, projection.getColumns());
+		jdbcTemplate.query(JdbcUtil.streaming(sql, companyId, afterId, limit), handler);
+		LOG.debug("loaded employee page by company, count = {}, companyId = {}, afterId = {}",
+				handler.getRowCount(), companyId, afterId);
+	}
+
+	/**
+	 * @see net.bhira.sample.api.dao.EmployeeDao#loadByDepartment(long, long, int,
+	 *      net.bhira.sample.api.jdbc.EmployeeProjection, java.util.function.Consumer)
+	 */
+	@Override
+	public void loadByDepartment(long departmentId, long afterId, int limit,
+			EmployeeProjection projection, Consumer<Employee> consumer) {
+		ModelCallbackHandler<Employee> handler = new ModelCallbackHandler<Employee>(
+				projection.getRowMapper(), consumer);
+		String sql = String.format(SQL_LOAD_PAGE_BY_DEPARTMENT, projection.getColumns());
+		jdbcTemplate.query(JdbcUtil.streaming(sql, departmentId, afterId, limit), handler);
+		LOG.debug("loaded employee page by department, count = {}, departmentId = {}, "
+				+ "afterId = {}", handler.getRowCount(), departmentId, afterId);
+	}
+
+	/**
+	 * @see net.bhira.sample.api.dao.EmployeeDao#loadModifiedSince(long, java.util.Date, long,
+	 *      int, net.bhira.sample.api.jdbc.EmployeeProjection, java.util.function.Consumer)
+	 */
+	@Override
+	public void loadModifiedSince(long companyId, java.util.Date since, long afterId, int limit,
+			EmployeeProjection projection, Consumer<Employee> consumer) {
+		ModelCallbackHandler<Employee> handler = new ModelCallbackHandler<Employee>(
+				projection.getRowMapper(), consumer);
+		String sql = String.format(SQL_LOAD_PAGE_MODIFIED_SINCE, projection.getColumns());
+		Timestamp modified = new Timestamp(since.getTime());
+		jdbcTemplate.query(JdbcUtil.streaming(sql, companyId, modified, modified, afterId, limit),
+				handler);
+		LOG.debug("loaded employee page modified since, count = {}, companyId = {}, since = {}, "
+				+ "afterId = {}", handler.getRowCount(), companyId, since, afterId);
+	}
+
+	/**
+	 * @see net.bhira.sample.api.dao.EmployeeDao#loadDetailsByCompany(long, long,
+	 *      java.util.function.Consumer)
+	 */
+	@Override
+	public void loadDetailsByCompany(long companyId, long afterId, Consumer<Employee> consumer) {
+		ModelCallbackHandler<Employee> handler = new ModelCallbackHandler<Employee>(
+				DETAIL_ROW_MAPPER, consumer);
+		jdbcTemplate.query(JdbcUtil.streaming(SQL_LOAD_DETAILS_BY_COMPANY, companyId, afterId),
+				handler);
+		LOG.debug("streamed employee details by company, count = {}, companyId = {}, "
+				+ "afterId = {}", handler.getRowCount(), companyId, afterId);
+	}
+
+	/**
+	 * @see net.bhira.sample.api.dao.EmployeeDao#loadReportIds(long, long, int)
+	 */
+	@Override
+	public List<Long> loadReportIds(long companyId, long employeeId, int depth) {
+		List<Long> list = getOrgChart(companyId).getReports(employeeId, depth);
+		LOG.debug("loaded report ids, count = {}, id = {}, depth = {}", list.size(), employeeId,
+				depth);
+		return list;
+	}
+
+	/**
+	 * @see net.bhira.sample.api.dao.EmployeeDao#loadChainIds(long, long)
+	 */
+	@Override
+	public List<Long> loadChainIds(long companyId, long employeeId) {
+		List<Long> list = getOrgChart(companyId).getChain(employeeId);
+		LOG.debug("loaded manager chain ids, count = {}, id = {}", list.size(), employeeId);
+		return list;
+	}
+
+	/**
+	 * @see net.bhira.sample.api.dao.EmployeeDao#loadMatchingIds(long, java.lang.String, int)
+	 */
+	@Override
+	public List<Long> loadMatchingIds(long companyId, String query, int limit) {
+		List<Long> list = getDirectory(companyId).search(query, limit);
+		LOG.debug("loaded matching ids, count = {}, companyId = {}, query = {}", list.size(),
+				companyId, query);
+		return list;
+	}
+
+	/**
+	 * Get the org chart of the given company from the index, loading the manager of every
+	 * employee of the company if the chart is not indexed yet.
+	 * 
+	 * @param companyId
+	 *            the ID of the company.
+	 * @return the org chart of the company.
+	 */
+	private OrgChart getOrgChart(long companyId) {
+		return orgChartIndex.getChart(companyId, new Function<Long, Map<Long, Long>>() {
+			@Override
+			public Map<Long, Long> apply(Long id) {
+				Map<Long, Long> managers = new HashMap<Long, Long>();
+				jdbcTemplate.query(JdbcUtil.streaming(SQL_LOAD_MANAGERS_BY_COMPANY, id),
+						new RowCallbackHandler() {
+							@Override
+							public void processRow(ResultSet rs) throws SQLException {
+								// getLong returns 0 for null managerid
+								managers.put(rs.getLong("id"), rs.getLong("managerid"));
+							}
+						});
+				LOG.debug("loaded managers by company, count = {}, companyId = {}",
+						managers.size(), id);
+				return managers;
+			}
+		});
+	}
+
+	/**
+	 * Get the employee directory of the given company from the index, loading the name and title
+	 * of every employee of the company if the directory is not indexed yet.
+	 * 
+	 * @param companyId
+	 *            the ID of the company.
+	 * @return the employee directory of the company.
+	 */
+	private EmployeeDirectory getDirectory(long companyId) {
+		return employeeDirectoryIndex.getDirectory(companyId,
+				new Function<Long, List<Employee>>() {
+					@Override
+					public List<Employee> apply(Long id) {
+						List<Employee> employees = new ArrayList<Employee>();
+						jdbcTemplate.query(JdbcUtil.streaming(SQL_LOAD_NAMES_BY_COMPANY, id),
+								new RowCallbackHandler() {
+									@Override
+									public void processRow(ResultSet rs) throws SQLException {
+										Employee employee = new Employee();
+										employee.setId(rs.getLong("id"));
+										employee.setName(rs.getString("name"));
+										employee.setTitle(rs.getString("title"));
+										employees.add(employee);
+									}
+								});
+						LOG.debug("loaded names by company, count = {}, companyId = {}",
+								employees.size(), id);
+						return employees;
+					}
+				});
+	}
+
+	/**
+	 * @see net.bhira.sample.api.dao.EmployeeDao#loadModifiedStampByCompany(long)
+	 */
+	@Override
+	public ModifiedStamp loadModifiedStampByCompany(long companyId) {
+		ModifiedStamp stamp = jdbcTemplate.queryForObject(SQL_LOAD_STAMP_BY_COMPANY,
+				new Object[] { companyId }, ModifiedStamp.ROW_MAPPER);
+		LOG.debug("loaded employee stamp, count = {}, lastModified = {}", stamp.getCount(),
+				stamp.getLastModified());
+		return stamp;
+	}
+
+	/**
+	 * @see net.bhira.sample.api.dao.EmployeeDao#loadStatsByCompany(long)
+	 */
+	@Override
+	public EmployeeStats loadStatsByCompany(long companyId) {
+		EmployeeStats stats = new EmployeeStats(companyId, new java.util.Date());
+		java.util.Date[] cutoffs = EmployeeStats.getAgeCutoffs(stats.getComputed());
+		jdbcTemplate.query(SQL_STATS_BY_SEX, new Object[] { companyId }, new RowCallbackHandler() {
+			@Override
+			public void processRow(ResultSet rs) throws SQLException {
+				stats.addSex(rs.getString(1), rs.getLong(2));
+				stats.setHeadcount(stats.getHeadcount() + rs.getLong(2));
+			}
+		});
+		// ages change daily, so the rows are grouped by date of birth and banded here
+		jdbcTemplate.query(SQL_STATS_BY_DOB, new Object[] { companyId }, new RowCallbackHandler() {
+			@Override
+			public void processRow(ResultSet rs) throws SQLException {
+				stats.addAgeBand(EmployeeStats.getAgeBand(rs.getDate(1), cutoffs), rs.getLong(2));
+			}
+		});
+		jdbcTemplate.query(SQL_STATS_BY_TITLE, new Object[] { companyId },
+				new RowCallbackHandler() {
+					@Override
+					public void processRow(ResultSet rs) throws SQLException {
+						stats.addTitle(rs.getString(1), rs.getLong(2));
+					}
+				});
+		jdbcTemplate.query(SQL_STATS_BY_DEPARTMENT, new Object[] { companyId },
+				new RowCallbackHandler() {
+					@Override
+					public void processRow(ResultSet rs) throws SQLException {
+						// getLong returns 0 for null departmentid
+						stats.addDepartment(rs.getLong(1), rs.getString(2), rs.getLong(3));
+					}
+				});
+		LOG.debug("loaded employee stats, headcount = {}, companyId = {}", stats.getHeadcount(),
+				companyId);
+		return stats;
+	}
+
+	/**
+	 * @see net.bhira.sample.api.dao.EmployeeDao#loadModifiedStampByDepartment(long)
+	 */
+	@Override
+	public ModifiedStamp loadModifiedStampByDepartment(long departmentId) {
+		ModifiedStamp stamp = jdbcTemplate.queryForObject(SQL_LOAD_STAMP_BY_DEPARTMENT,
+				new Object[] { departmentId }, ModifiedStamp.ROW_MAPPER);
+		LOG.debug("loaded employee stamp, count = {}, lastModified = {}", stamp.getCount(),
+				stamp.getLastModified());
+		return stamp;
+	}
+
+}
@@ -0,0 +1,258 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Baldeep Hira
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.bhira.sample.api.exporter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import net.bhira.sample.api.service.CompanyService;
+import net.bhira.sample.api.service.DepartmentService;
+import net.bhira.sample.api.service.EmployeeService;
+import net.bhira.sample.model.BaseModel;
+import net.bhira.sample.model.Company;
+import net.bhira.sample.model.Department;
+import net.bhira.sample.model.Employee;
+
+/**
+ * Exporter of the complete data of a company, i.e. the company followed by all its departments
+ * and all its employees, each along with its contact info. The departments and employees are
+ * ordered by ID and streamed from forward only database cursors straight to the
+ * {@link net.bhira.sample.api.exporter.ExportWriter}, so the memory used does not depend on the
+ * size of the company. Every type is read in its own read only transaction.
+ * <p>
+ * An interrupted export is resumed by passing the type and ID of the last record received, in the
+ * form "type:id", e.g. "employee:1234". The export then continues with the next record, in the
+ * same order.
+ * 
+ * @author Baldeep Hira
+ */
+@Component("companyExporter")
+public class CompanyExporter {
+
+	/**
+	 * private singleton instance of the SLF4J logger for this class.
+	 */
+	private static final Logger LOG = LoggerFactory.getLogger(CompanyExporter.class);
+
+	/**
+	 * Type of the company records.
+	 */
+	public static final String COMPANY = "company";
+
+	/**
+	 * Type of the department records.
+	 */
+	public static final String DEPARTMENT = "department";
+
+	/**
+	 * Type of the employee records.
+	 */
+	public static final String EMPLOYEE = "employee";
+
+	/**
+	 * Types of the records, in the order they are exported.
+	 */
+	private static final List<String> TYPES = Arrays.asList(COMPANY, DEPARTMENT, EMPLOYEE);
+
+	/**
+	 * Number of companies loaded at a time by {@link #exportAll(long, String, ExportWriter)}.
+	 */
+	static final int COMPANY_PAGE_SIZE = 100;
+
+	@Autowired
+	CompanyService companyService;
+
+	@Autowired
+	DepartmentService departmentService;
+
+	@Autowired
+	EmployeeService employeeService;
+
+	/**
+	 * Export the given company along with its departments and employees.
+	 * 
+	 * @param companyId
+	 *            the ID of {@link net.bhira.sample.model.Company}.
+	 * @param after
+	 *            the type and ID of the last record received, e.g. "employee:1234", or null to
+	 *            export the complete company.
+	 * @param writer
+	 *            the writer to which the records are written.
+	 * @return false if the company is not found, else true.
+	 * @throws IOException
+	 *             if the records can not be written.
+	 * @throws IllegalArgumentException
+	 *             if the after parameter is malformed.
+	 */
+	public boolean export(long companyId, String after, ExportWriter writer) throws IOException {
+		long[] position = parse(after);
+		Company company = companyService.load(companyId);
+		if (company == null) {
+			return false;
+		}
+		export(company, (int) position[0], position[1], writer);
+		return true;
+	}
+
+	/**
+	 * Export all the companies, ordered by ID, each along with its departments and employees.
+	 * 
+	 * @param fromCompanyId
+	 *            the ID of {@link net.bhira.sample.model.Company} to start with, 0 to start with
+	 *            the first company.
+	 * @param after
+	 *            the type and ID of the last record of the start company received, e.g.
+	 *            "employee:1234", or null to export the complete start company.
+	 * @param writer
+	 *            the writer to which the records are written.
+	 * @throws IOException
+	 *             if the records can not be written.
+	 * @throws IllegalArgumentException
+	 *             if the after parameter is malformed or given without a start company.
+	 */
+	public void exportAll(long fromCompanyId, String after, ExportWriter writer)
+			throws IOException {
+		long[] position = parse(after);
+		if (fromCompanyId <= 0 && after != null) {
+			throw new IllegalArgumentException("The start company is missing for position '"
+					+ after + "'");
+		}
+
+		// companies are read a page at a time, as the departments and employees of a company are
+		// streamed on their own connection
+		long afterId = Math.max(fromCompanyId - 1, 0);
+		List<Company> page;
+		do {
+			page = companyService.loadPage(afterId, COMPANY_PAGE_SIZE);
+			for (Company company : page) {
+				if (company.getId() == fromCompanyId) {
+					export(company, (int) position[0], position[1], writer);
+				} else {
+					export(company, -1, 0, writer);
+				}
+				afterId = company.getId();
+			}
+		} while (page.size() == COMPANY_PAGE_SIZE);
+	}
+
+	/**
+	 * Export the given company, starting after the given position.
+	 * 
+	 * @param company
+	 *            the company to export.
+	 * @param type
+	 *            the index in {@link #TYPES} of the type of the last record received, -1 to
+	 *            export the complete company.
+	 * @param afterId
+	 *            the ID of the last record received.
+	 * @param writer
+	 *            the writer to which the records are written.
+	 * @throws IOException
+	 *             if the records can not be written.
+	 */
+	private void export(Company company, int type, long afterId, ExportWriter writer)
+			throws IOException {
+		long companyId = company.getId();
+		long count = writer.getCount();
+		try {
+			if (type < 0) {
+				writer.write(COMPANY, company);
+			}
+			if (type <= 1) {
+				departmentService.loadDetailsByCompany(companyId, (type == 1) ? afterId : 0,
+						new Consumer<Department>() {
+							@Override
+							public void accept(Department department) {
+								write(writer, DEPARTMENT, department);
+							}
+						});
+			}
+			employeeService.loadDetailsByCompany(companyId, (type == 2) ? afterId : 0,
+					new Consumer<Employee>() {
+						@Override
+						public void accept(Employee employee) {
+							write(writer, EMPLOYEE, employee);
+						}
+					});
+		} catch (UncheckedIOException ex) {
+			throw ex.getCause();
+		}
+		writer.flush();
+		LOG.debug("exported company, id = {}, records = {}", companyId, writer.getCount() - count);
+	}
+
+	/**
+	 * Write the given department or employee, that is handed over by a database cursor.
+	 * 
+	 * @param writer
+	 *            the writer to which the record is written.
+	 * @param type
+	 *            the type of the record.
+	 * @param model
+	 *            the model to write.
+	 * @throws UncheckedIOException
+	 *             if the record can not be written, which stops the cursor.
+	 */
+	private static void write(ExportWriter writer, String type, BaseModel model) {
+		try {
+			writer.write(type, model);
+		} catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+	}
+
+	/**
+	 * Parse the position of the last record received.
+	 * 
+	 * @param after
+	 *            the type and ID of the last record received, e.g. "employee:1234", or null.
+	 * @return the index in {@link #TYPES} of the type, -1 if there is no position, and the ID.
+	 * @throws IllegalArgumentException
+	 *             if the position is malformed.
+	 */
+	private static long[] parse(String after) {
+		if (after == null) {
+			return new long[] { -1, 0 };
+		}
+		int separator = after.indexOf(':');
+		int type = (separator < 0) ? -1 : TYPES.indexOf(after.substring(0, separator));
+		if (type < 0) {
+			throw new IllegalArgumentException("Invalid export position '" + after + "'");
+		}
+		try {
+			return new long[] { type, Long.parseLong(after.substring(separator + 1)) };
+		} catch (NumberFormatException nfe) {
+			throw new IllegalArgumentException("Invalid export position '" + after + "'", nfe);
+		}
+	}
+
+}
@@ -0,0 +1,174 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Baldeep Hira
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.bhira.sample.api.exporter;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import net.bhira.sample.common.CsvWriter;
+import net.bhira.sample.common.JsonUtil;
+import net.bhira.sample.model.BaseModel;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+/**
+ * Writer of the records exported by {@link net.bhira.sample.api.exporter.CompanyExporter}, either
+ * as newline delimited JSON or as comma separated values. Each record is a model tagged with its
+ * "type". In JSON, a record is the JSON of the model, with the "type" as first attribute. In CSV,
+ * the models of all the types share the columns {@link #COLUMNS} of the header record, a column
+ * that does not apply to the type of a record is left empty, and the contact info is flattened
+ * into the phone, fax, email and website columns.
+ * 
+ * @author Baldeep Hira
+ */
+public class ExportWriter implements Flushable {
+
+	/**
+	 * Format writing newline delimited JSON.
+	 */
+	public static final String NDJSON = "ndjson";
+
+	/**
+	 * Format writing comma separated values.
+	 */
+	public static final String CSV = "csv";
+
+	/**
+	 * CSV columns, the union of the attributes of company, department and employee.
+	 */
+	public static final List<String> COLUMNS = Arrays.asList("type", "id", "companyId",
+			"departmentId", "managerId", "name", "industry", "salutation", "sex", "dob", "title",
+			"address", "billingAddress", "shippingAddress", "phone", "fax", "email", "website",
+			"created", "createdBy", "modified", "modifiedBy", "version");
+
+	private static final String CONTACT_INFO = "contactInfo";
+
+	private final Writer writer;
+	private final CsvWriter csvWriter;
+	private final Gson gson = JsonUtil.getGson();
+	private long count;
+
+	/**
+	 * Constructor for ExportWriter.
+	 * 
+	 * @param writer
+	 *            the writer to which the records are written.
+	 * @param format
+	 *            the format of the records, {@link #NDJSON} or {@link #CSV}.
+	 * @throws IllegalArgumentException
+	 *             if the format is not known.
+	 */
+	public ExportWriter(Writer writer, String format) {
+		getContentType(format);
+		this.writer = writer;
+		this.csvWriter = CSV.equals(format) ? new CsvWriter(writer) : null;
+	}
+
+	/**
+	 * Get the content type of the given format.
+	 * 
+	 * @param format
+	 *            the format of the records, {@link #NDJSON} or {@link #CSV}.
+	 * @return the content type to be set on the response.
+	 * @throws IllegalArgumentException
+	 *             if the format is not known.
+	 */
+	public static String getContentType(String format) {
+		if (NDJSON.equals(format)) {
+			return "application/x-ndjson";
+		} else if (CSV.equals(format)) {
+			return "text/csv";
+		}
+		throw new IllegalArgumentException("Invalid export format '" + format + "'");
+	}
+
+	/**
+	 * Write the given model as a record of the given type. The CSV header record is written before
+	 * the first record.
+	 * 
+	 * @param type
+	 *            the type of the model.
+	 * @param model
+	 *            the model to write.
+	 * @throws IOException
+	 *             if the record can not be written.
+	 */
+	public void write(String type, BaseModel model) throws IOException {
+		JsonObject json = gson.toJsonTree(model).getAsJsonObject();
+		if (csvWriter == null) {
+			JsonObject record = new JsonObject();
+			record.addProperty("type", type);
+			for (Map.Entry<String, JsonElement> entry : json.entrySet()) {
+				record.add(entry.getKey(), entry.getValue());
+			}
+			gson.toJson(record, writer);
+			writer.write('\n');
+
+		} else {
+			if (count == 0) {
+				csvWriter.writeRecord(COLUMNS);
+			}
+			JsonElement contactInfo = json.get(CONTACT_INFO);
+			List<String> fields = new ArrayList<String>(COLUMNS.size());
+			fields.add(type);
+			for (String column : COLUMNS.subList(1, COLUMNS.size())) {
+				JsonElement value = json.get(column);
+				if (value == null && contactInfo != null && contactInfo.isJsonObject()) {
+					value = contactInfo.getAsJsonObject().get(column);
+				}
+				fields.add((value == null || value.isJsonNull()) ? null : value.getAsString());
+			}
+			csvWriter.writeRecord(fields);
+		}
+		count++;
+	}
+
+	/**
+	 * Flush the records written so far to the underlying writer.
+	 * 
+	 * @throws IOException
+	 *             if the writer can not be flushed.
+	 */
+	@Override
+	public void flush() throws IOException {
+		writer.flush();
+	}
+
+	/**
+	 * Get the number of records written so far.
+	 * 
+	 * @return the number of records.
+	 */
+	public long getCount() {
+		return count;
+	}
+
+}
@@ -0,0 +1,510 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Baldeep Hira
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.bhira.sample.api.importer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import net.bhira.sample.api.service.CompanyService;
+import net.bhira.sample.api.service.EmployeeService;
+import net.bhira.sample.common.CsvReader;
+import net.bhira.sample.common.JsonUtil;
+import net.bhira.sample.common.exception.InvalidObjectException;
+import net.bhira.sample.common.exception.ObjectNotFoundException;
+import net.bhira.sample.model.Employee;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ * Importer of new {@link net.bhira.sample.model.Employee} instances from a stream of newline
+ * delimited JSON or comma separated values. The stream is read one record at a time and the
+ * employees are validated in parallel and saved in chunks, each in its own transaction, so that
+ * neither the memory nor the transaction size grows with the size of the stream. A chunk that
+ * fails is saved again one employee at a time to tell the failing records from the good ones.
+ * <p>
+ * A JSON line holds an employee like the payload of POST /employee does. The first CSV record is
+ * a header naming the columns, which are the employee attributes {@link #COLUMNS} and the
+ * contact info attributes {@link #CONTACT_INFO_COLUMNS}. In both formats, a record may be named
+ * by a "ref" and refer to its manager by the "managerRef" of another record, which may come
+ * further down the stream. These managers are set in a second pass, once all the employees have
+ * been inserted.
+ * 
+ * @author Baldeep Hira
+ */
+@Component("employeeImporter")
+public class EmployeeImporter {
+
+	/**
+	 * private singleton instance of the SLF4J logger for this class.
+	 */
+	private static final Logger LOG = LoggerFactory.getLogger(EmployeeImporter.class);
+
+	/**
+	 * Attribute naming a record within the imported stream.
+	 */
+	public static final String REF = "ref";
+
+	/**
+	 * Attribute referring to the record of the manager within the imported stream.
+	 */
+	public static final String MANAGER_REF = "managerRef";
+
+	/**
+	 * CSV columns holding the attributes of the employee.
+	 */
+	public static final List<String> COLUMNS = Arrays.asList(REF, MANAGER_REF, "name",
+			"departmentId", "managerId", "salutation", "sex", "dob", "title", "address");
+
+	/**
+	 * CSV columns holding the attributes of the contact info of the employee.
+	 */
+	public static final List<String> CONTACT_INFO_COLUMNS = Arrays.asList("phone", "fax",
+			"email", "website");
+
+	@Autowired
+	CompanyService companyService;
+
+	@Autowired
+	EmployeeService employeeService;
+
+	@Value("${employee.import.chunkSize}")
+	int chunkSize;
+
+	@Value("${employee.import.maxErrors}")
+	int maxErrors;
+
+	/**
+	 * Import the employees of the given company from the given stream. Every record is either
+	 * imported or reported as failed along with its line number. The stream is read up to its end
+	 * or up to the first malformed CSV record, as the rest of the stream can not be split into
+	 * records reliably.
+	 * 
+	 * @param companyId
+	 *            the ID of {@link net.bhira.sample.model.Company} of the employees.
+	 * @param reader
+	 *            the reader of the stream.
+	 * @param csv
+	 *            true if the stream holds comma separated values, false if it holds newline
+	 *            delimited JSON.
+	 * @return the report of the import.
+	 * @throws ObjectNotFoundException
+	 *             if the company is not found in repository.
+	 * @throws IllegalArgumentException
+	 *             if the CSV header has an unknown or duplicate column.
+	 */
+	public ImportReport importEmployees(long companyId, Reader reader, boolean csv)
+			throws ObjectNotFoundException {
+		if (companyService.load(companyId) == null) {
+			throw new ObjectNotFoundException("Company with ID " + companyId + " was not found.");
+		}
+
+		ImportReport report = new ImportReport(maxErrors);
+		RecordReader records = csv ? new CsvRecordReader(reader) : new JsonRecordReader(reader);
+		Set<String> refs = new HashSet<String>();
+		Map<String, Long> refIds = new HashMap<String, Long>();
+		List<Record> managed = new ArrayList<Record>();
+		List<Record> chunk = new ArrayList<Record>(chunkSize);
+		while (true) {
+			Record record;
+			try {
+				record = records.read();
+			} catch (IOException ioe) {
+				report.addFailed(records.getLineNumber(), ioe.getLocalizedMessage());
+				break;
+			}
+			if (record == null) {
+				break;
+			}
+			prepare(record, companyId, refs);
+			chunk.add(record);
+			if (chunk.size() >= chunkSize) {
+				save(chunk, report, refIds, managed);
+				chunk.clear();
+			}
+		}
+		save(chunk, report, refIds, managed);
+
+		// all the employees are inserted, so the references to managers can be resolved
+		List<Record> batch = new ArrayList<Record>();
+		for (Record record : managed) {
+			Long managerId = refIds.get(record.managerRef);
+			if (managerId == null) {
+				report.addError(record.line, "Employee with ID " + record.id
+						+ " was imported without manager, as the manager reference '"
+						+ record.managerRef + "' "
+						+ (refs.contains(record.managerRef) ? "was not imported." : "is unknown."));
+				continue;
+			}
+			record.managerId = managerId;
+			batch.add(record);
+			if (batch.size() >= chunkSize) {
+				updateManagers(companyId, batch, report);
+				batch.clear();
+			}
+		}
+		updateManagers(companyId, batch, report);
+
+		LOG.debug("imported employees, companyId = {}, imported = {}, failed = {}", companyId,
+				report.getImported(), report.getFailed());
+		return report;
+	}
+
+	/**
+	 * Check the given record, that has just been read, before it is saved and set the company of
+	 * its employee. Only new employees of the given company are imported.
+	 * 
+	 * @param record
+	 *            the record to check.
+	 * @param companyId
+	 *            the ID of {@link net.bhira.sample.model.Company} of the employees.
+	 * @param refs
+	 *            the references of the records read so far.
+	 */
+	private void prepare(Record record, long companyId, Set<String> refs) {
+		if (record.error != null) {
+			return;
+		}
+		Employee employee = record.employee;
+		if (record.ref != null && !refs.add(record.ref)) {
+			record.error = "Duplicate reference '" + record.ref + "'.";
+		} else if (employee == null) {
+			record.error = "Employee object is null.";
+		} else if (!employee.isNew()) {
+			record.error = "Employee with ID " + employee.getId() + " is not new.";
+		} else if (employee.getCompanyId() != 0 && employee.getCompanyId() != companyId) {
+			record.error = "Employee belongs to company with ID " + employee.getCompanyId()
+					+ ", instead of " + companyId + ".";
+		} else if (record.managerRef != null && employee.getManagerId() != 0) {
+			record.error = "Only one of the attributes 'managerId' and 'managerRef' can be set.";
+		} else {
+			employee.setCompanyId(companyId);
+		}
+	}
+
+	/**
+	 * Validate and save the given chunk of records in a single transaction. If that fails, the
+	 * records are saved one at a time to find the failing ones.
+	 * 
+	 * @param chunk
+	 *            the chunk of records.
+	 * @param report
+	 *            the report to which the imported and failed records are added.
+	 * @param refIds
+	 *            the map of reference to ID of the imported employees, to which the imported
+	 *            records are added.
+	 * @param managed
+	 *            the list of imported records referring to a manager, to which the imported
+	 *            records are added.
+	 */
+	private void save(List<Record> chunk, ImportReport report, Map<String, Long> refIds,
+			List<Record> managed) {
+		// the records are independent of each other, so they are validated in parallel
+		chunk.parallelStream().forEach(new Consumer<Record>() {
+			@Override
+			public void accept(Record record) {
+				if (record.error == null) {
+					try {
+						record.employee.initForSave();
+						record.employee.validate();
+					} catch (InvalidObjectException ioe) {
+						record.error = ioe.getLocalizedMessage();
+					}
+				}
+			}
+		});
+
+		List<Record> valid = new ArrayList<Record>(chunk.size());
+		List<Employee> employees = new ArrayList<Employee>(chunk.size());
+		for (Record record : chunk) {
+			if (record.error == null) {
+				valid.add(record);
+				employees.add(record.employee);
+			}
+		}
+		if (!employees.isEmpty()) {
+			try {
+				employeeService.saveAll(employees);
+			} catch (Exception ex) {
+				LOG.debug("Error saving chunk of employees, saving one at a time. {}",
+						ex.getLocalizedMessage());
+				for (Record record : valid) {
+					// the IDs assigned by the failed chunk were rolled back
+					record.employee.setId(0);
+					record.employee.setVersion(0);
+					if (record.employee.getContactInfo() != null) {
+						record.employee.getContactInfo().setId(0);
+					}
+					try {
+						employeeService.save(record.employee);
+					} catch (Exception e) {
+						record.error = e.getLocalizedMessage();
+					}
+				}
+			}
+		}
+
+		for (Record record : chunk) {
+			if (record.error != null) {
+				report.addFailed(record.line, record.error);
+				continue;
+			}
+			report.addImported();
+			record.id = record.employee.getId();
+			record.employee = null;
+			if (record.ref != null) {
+				refIds.put(record.ref, record.id);
+			}
+			if (record.managerRef != null) {
+				managed.add(record);
+			}
+		}
+	}
+
+	/**
+	 * Set the resolved managers of the given batch of imported records in a single transaction.
+	 * 
+	 * @param companyId
+	 *            the ID of {@link net.bhira.sample.model.Company} of the employees.
+	 * @param batch
+	 *            the batch of imported records, with their manager resolved.
+	 * @param report
+	 *            the report to which the errors are added.
+	 */
+	private void updateManagers(long companyId, List<Record> batch, ImportReport report) {
+		if (batch.isEmpty()) {
+			return;
+		}
+		Map<Long, Long> managerIds = new LinkedHashMap<Long, Long>();
+		for (Record record : batch) {
+			managerIds.put(record.id, record.managerId);
+		}
+		try {
+			employeeService.updateManagers(companyId, managerIds);
+		} catch (Exception ex) {
+			LOG.debug("Error updating managers of imported employees. {}",
+					ex.getLocalizedMessage());
+			for (Record record : batch) {
+				report.addError(record.line, "Employee with ID " + record.id
+						+ " was imported without manager. " + ex.getLocalizedMessage());
+			}
+		}
+	}
+
+	/**
+	 * Record of the imported stream, holding either the employee read from it or the error.
+	 */
+	private static class Record {
+		final long line;
+		Employee employee;
+		String ref;
+		String managerRef;
+		String error;
+		long id;
+		long managerId;
+
+		Record(long line) {
+			this.line = line;
+		}
+	}
+
+	/**
+	 * Reader of the records of the imported stream.
+	 */
+	private interface RecordReader {
+
+		/**
+		 * Read the next record. A record that is read but can not be converted into an employee
+		 * is returned with its error.
+		 * 
+		 * @return the next record, or null if there are no more records.
+		 * @throws IOException
+		 *             if the stream can not be read or is malformed.
+		 */
+		Record read() throws IOException;
+
+		/**
+		 * @return the line number at which the record last read, or failed to be read, starts.
+		 */
+		long getLineNumber();
+	}
+
+	/**
+	 * Reader of newline delimited JSON, one employee per line. Blank lines are skipped.
+	 */
+	private static class JsonRecordReader implements RecordReader {
+
+		private final BufferedReader reader;
+		private final JsonParser parser = new JsonParser();
+		private final Gson gson = JsonUtil.getGson();
+		private long line;
+
+		JsonRecordReader(Reader reader) {
+			this.reader = (reader instanceof BufferedReader) ? (BufferedReader) reader
+					: new BufferedReader(reader);
+		}
+
+		@Override
+		public Record read() throws IOException {
+			String text;
+			do {
+				line++;
+				text = reader.readLine();
+				if (text == null) {
+					return null;
+				}
+			} while (text.trim().isEmpty());
+
+			Record record = new Record(line);
+			try {
+				JsonObject json = parser.parse(text).getAsJsonObject();
+				record.ref = remove(json, REF);
+				record.managerRef = remove(json, MANAGER_REF);
+				record.employee = gson.fromJson(json, Employee.class);
+			} catch (RuntimeException ex) {
+				// malformed JSON or JSON that is not an employee
+				record.error = ex.getLocalizedMessage();
+			}
+			return record;
+		}
+
+		@Override
+		public long getLineNumber() {
+			return line;
+		}
+
+		private static String remove(JsonObject json, String name) {
+			JsonElement element = json.remove(name);
+			return (element == null || element.isJsonNull()) ? null : element.getAsString();
+		}
+	}
+
+	/**
+	 * Reader of comma separated values with a header record. Empty fields are skipped.
+	 */
+	private static class CsvRecordReader implements RecordReader {
+
+		private static final Map<String, String> NAMES = new HashMap<String, String>();
+
+		static {
+			for (String column : COLUMNS) {
+				NAMES.put(column.toLowerCase(), column);
+			}
+			for (String column : CONTACT_INFO_COLUMNS) {
+				NAMES.put(column.toLowerCase(), column);
+			}
+		}
+
+		private final CsvReader reader;
+		private final Gson gson = JsonUtil.getGson();
+		private List<String> columns;
+
+		CsvRecordReader(Reader reader) {
+			this.reader = new CsvReader(reader);
+		}
+
+		@Override
+		public Record read() throws IOException {
+			if (columns == null) {
+				List<String> header = reader.readRecord();
+				if (header == null) {
+					return null;
+				}
+				columns = new ArrayList<String>(header.size());
+				for (String column : header) {
+					String name = NAMES.get(column.trim().toLowerCase());
+					if (name == null || columns.contains(name)) {
+						throw new IllegalArgumentException("Unknown or duplicate column '"
+								+ column + "' in CSV header.");
+					}
+					columns.add(name);
+				}
+			}
+
+			List<String> fields = reader.readRecord();
+			if (fields == null) {
+				return null;
+			}
+			Record record = new Record(reader.getLineNumber());
+			if (fields.size() != columns.size()) {
+				record.error = "Expected " + columns.size() + " fields, but found "
+						+ fields.size() + ".";
+				return record;
+			}
+
+			JsonObject json = new JsonObject();
+			JsonObject contactInfo = null;
+			for (int i = 0; i < fields.size(); i++) {
+				String column = columns.get(i);
+				String value = fields.get(i);
+				if (value.isEmpty()) {
+					continue;
+				} else if (REF.equals(column)) {
+					record.ref = value;
+				} else if (MANAGER_REF.equals(column)) {
+					record.managerRef = value;
+				} else if (CONTACT_INFO_COLUMNS.contains(column)) {
+					if (contactInfo == null) {
+						contactInfo = new JsonObject();
+						json.add("contactInfo", contactInfo);
+					}
+					contactInfo.addProperty(column, value);
+				} else {
+					json.addProperty(column, value);
+				}
+			}
+			try {
+				record.employee = gson.fromJson(json, Employee.class);
+			} catch (RuntimeException ex) {
+				// values that can not be converted, e.g. a malformed number or date
+				record.error = ex.getLocalizedMessage();
+			}
+			return record;
+		}
+
+		@Override
+		public long getLineNumber() {
+			return reader.getLineNumber();
+		}
+	}
+
+}
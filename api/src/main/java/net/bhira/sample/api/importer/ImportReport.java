@@ -0,0 +1,146 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Baldeep Hira
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.bhira.sample.api.importer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Result of importing employees with {@link net.bhira.sample.api.importer.EmployeeImporter}. It
+ * counts the imported and failed lines and keeps the errors of the lines, up to a configurable
+ * maximum. An employee whose manager reference could not be resolved is imported without manager,
+ * so it is counted as imported and also has an error.
+ * 
+ * @author Baldeep Hira
+ */
+public class ImportReport {
+
+	private int imported;
+	private int failed;
+	private final List<LineError> errors = new ArrayList<LineError>();
+	private final transient int maxErrors;
+
+	/**
+	 * Constructor for ImportReport.
+	 * 
+	 * @param maxErrors
+	 *            the maximum number of errors kept, further errors are only counted.
+	 */
+	public ImportReport(int maxErrors) {
+		this.maxErrors = maxErrors;
+	}
+
+	/**
+	 * Count an imported line.
+	 */
+	void addImported() {
+		imported++;
+	}
+
+	/**
+	 * Count a failed line and keep its error.
+	 * 
+	 * @param line
+	 *            the line number at which the failed record starts.
+	 * @param message
+	 *            the error message.
+	 */
+	void addFailed(long line, String message) {
+		failed++;
+		addError(line, message);
+	}
+
+	/**
+	 * Keep the error of a line, if the maximum number of errors is not reached yet.
+	 * 
+	 * @param line
+	 *            the line number at which the record starts.
+	 * @param message
+	 *            the error message.
+	 */
+	void addError(long line, String message) {
+		if (errors.size() < maxErrors) {
+			errors.add(new LineError(line, message));
+		}
+	}
+
+	/**
+	 * @return the number of imported employees.
+	 */
+	public int getImported() {
+		return imported;
+	}
+
+	/**
+	 * @return the number of lines that could not be imported.
+	 */
+	public int getFailed() {
+		return failed;
+	}
+
+	/**
+	 * @return the list of line errors, the errors of manager references come last.
+	 */
+	public List<LineError> getErrors() {
+		return errors;
+	}
+
+	/**
+	 * Error of a single line of the imported file.
+	 */
+	public static class LineError {
+
+		private final long line;
+		private final String message;
+
+		/**
+		 * Constructor for LineError.
+		 * 
+		 * @param line
+		 *            the line number at which the record starts.
+		 * @param message
+		 *            the error message.
+		 */
+		public LineError(long line, String message) {
+			this.line = line;
+			this.message = message;
+		}
+
+		/**
+		 * @return the line number at which the record starts.
+		 */
+		public long getLine() {
+			return line;
+		}
+
+		/**
+		 * @return the error message.
+		 */
+		public String getMessage() {
+			return message;
+		}
+
+	}
+
+}
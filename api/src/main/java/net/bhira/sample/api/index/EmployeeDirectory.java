@@ -0,0 +1,655 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Baldeep Hira
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.bhira.sample.api.index;
+
+import java.text.Normalizer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+import net.bhira.sample.model.Employee;
+
+/**
+ * In-memory search directory of the employees of a single company, over their names and titles.
+ * The distinct words of all the names and titles form a sorted vocabulary, in which every word
+ * has an ordinal and keeps the employees having it in their name and in their title, sorted by
+ * ID. A query word is first matched against the vocabulary, as a whole word, as a prefix of
+ * words, or with a typo or two through a trigram index over the vocabulary, so the costly
+ * matching is done once per distinct word rather than once per employee. The employees of the
+ * most selective query word are then scored against all the query words with plain array reads:
+ * an exact word scores higher than a prefix, which scores higher than a match with typos, and a
+ * match on the name counts twice as much as a match on the title. Case and accents are ignored.
+ * 
+ * @author Baldeep Hira
+ */
+public class EmployeeDirectory {
+
+	private static final int GRAM_LENGTH = 3;
+	private static final String GRAM_PADDING = "$$";
+
+	private static final int NAME_WEIGHT = 2;
+	private static final int TITLE_WEIGHT = 1;
+	private static final int EXACT_SCORE = 4;
+	private static final int PREFIX_SCORE = 3;
+	private static final int TYPO_SCORE = 2;
+	private static final int TYPO_PREFIX_SCORE = 1;
+
+	private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+	private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+	private static final Comparator<Hit> RANKING = new Comparator<Hit>() {
+		@Override
+		public int compare(Hit h1, Hit h2) {
+			if (h1.score != h2.score) {
+				return (h1.score > h2.score) ? -1 : 1;
+			}
+			if (h1.entry.length != h2.entry.length) {
+				return (h1.entry.length < h2.entry.length) ? -1 : 1;
+			}
+			return Long.compare(h1.entry.id, h2.entry.id);
+		}
+	};
+
+	private static final Comparator<Entry> BY_ID = new Comparator<Entry>() {
+		@Override
+		public int compare(Entry e1, Entry e2) {
+			return Long.compare(e1.id, e2.id);
+		}
+	};
+
+	private final Map<Long, Entry> entries = new HashMap<Long, Entry>();
+	private final NavigableMap<String, Term> vocabulary = new TreeMap<String, Term>();
+	private final List<Term> terms = new ArrayList<Term>();
+	private final Deque<Integer> freeOrdinals = new ArrayDeque<Integer>();
+	private final Map<String, Set<Term>> grams = new HashMap<String, Set<Term>>();
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	/**
+	 * Constructor for EmployeeDirectory.
+	 * 
+	 * @param employees
+	 *            the employees of the company, only their ID, name and title are used.
+	 */
+	public EmployeeDirectory(List<Employee> employees) {
+		for (Employee employee : employees) {
+			add(employee.getId(), employee.getName(), employee.getTitle(), false);
+		}
+		for (Term term : vocabulary.values()) {
+			term.names.sort();
+			term.titles.sort();
+		}
+	}
+
+	/**
+	 * Search the employees whose name or title matches every word of the given query, as a whole
+	 * word, as a prefix of a word or with a typo or two, and return the best ones first. Employees
+	 * with the same score are ordered by the length of their name, as the query covers more of a
+	 * shorter name, and then by ID.
+	 * 
+	 * @param query
+	 *            the words to search for.
+	 * @param limit
+	 *            the maximum number of employees to return.
+	 * @return List of employee IDs, best match first.
+	 */
+	public List<Long> search(String query, int limit) {
+		List<String> words = split(query);
+		if (words.isEmpty() || limit <= 0) {
+			return Collections.emptyList();
+		}
+
+		lock.readLock().lock();
+		try {
+			// match every query word against the vocabulary, and drive the search with the one
+			// matching the fewest employees
+			List<Match> matches = new ArrayList<Match>();
+			Match driver = null;
+			for (String word : words) {
+				Match match = match(word);
+				if (match.terms.isEmpty()) {
+					return Collections.emptyList();
+				}
+				if (driver == null || match.size < driver.size) {
+					driver = match;
+				}
+				matches.add(match);
+			}
+
+			// keep the best hits in a heap with the worst of them on top, an employee having
+			// several words matched by the driver is only scored with the first of them
+			PriorityQueue<Hit> best = new PriorityQueue<Hit>(limit + 1,
+					Collections.reverseOrder(RANKING));
+			for (Term term : driver.terms) {
+				for (int i = 0; i < term.names.size; i++) {
+					Entry entry = term.names.entries[i];
+					int first = first(entry, driver);
+					if (first < entry.nameTerms.length
+							&& entry.nameTerms[first] == term.ordinal) {
+						collect(entry, matches, best, limit);
+					}
+				}
+				for (int i = 0; i < term.titles.size; i++) {
+					Entry entry = term.titles.entries[i];
+					int first = first(entry, driver) - entry.nameTerms.length;
+					if (first >= 0 && entry.titleTerms[first] == term.ordinal) {
+						collect(entry, matches, best, limit);
+					}
+				}
+			}
+
+			List<Hit> ranked = new ArrayList<Hit>(best);
+			Collections.sort(ranked, RANKING);
+			List<Long> result = new ArrayList<Long>(ranked.size());
+			for (Hit hit : ranked) {
+				result.add(hit.entry.id);
+			}
+			return result;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Add the given employee to the directory or replace its name and title.
+	 * 
+	 * @param employeeId
+	 *            the ID of the employee.
+	 * @param name
+	 *            the name of the employee.
+	 * @param title
+	 *            the title of the employee, may be null.
+	 */
+	public void put(long employeeId, String name, String title) {
+		lock.writeLock().lock();
+		try {
+			delete(employeeId);
+			add(employeeId, name, title, true);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Remove the given employee from the directory.
+	 * 
+	 * @param employeeId
+	 *            the ID of the employee.
+	 */
+	public void remove(long employeeId) {
+		lock.writeLock().lock();
+		try {
+			delete(employeeId);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Get the number of employees in the directory.
+	 * 
+	 * @return the number of employees.
+	 */
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return entries.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Get the number of distinct words in the vocabulary.
+	 * 
+	 * @return the number of words.
+	 */
+	int getWordCount() {
+		lock.readLock().lock();
+		try {
+			return vocabulary.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Get the number of ordinals given out to the words, including the ones freed by the words no
+	 * employee has anymore, which are given to the next new words.
+	 * 
+	 * @return the number of ordinals.
+	 */
+	int getOrdinalCount() {
+		lock.readLock().lock();
+		try {
+			return terms.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Add the given employee to the vocabulary. The entries are inserted in order of ID, unless
+	 * they are appended in bulk and sorted afterwards.
+	 */
+	private void add(long employeeId, String name, String title, boolean sorted) {
+		Set<String> nameWords = new LinkedHashSet<String>(split(name));
+		Set<String> titleWords = new LinkedHashSet<String>(split(title));
+		Entry entry = new Entry(employeeId, name, nameWords.size(), titleWords.size());
+		entries.put(employeeId, entry);
+		int i = 0;
+		for (String word : nameWords) {
+			Term term = term(word);
+			entry.nameTerms[i++] = term.ordinal;
+			term.names.add(entry, sorted);
+		}
+		i = 0;
+		for (String word : titleWords) {
+			Term term = term(word);
+			entry.titleTerms[i++] = term.ordinal;
+			term.titles.add(entry, sorted);
+		}
+	}
+
+	private void delete(long employeeId) {
+		Entry entry = entries.remove(employeeId);
+		if (entry == null) {
+			return;
+		}
+		for (int ordinal : entry.nameTerms) {
+			Term term = terms.get(ordinal);
+			term.names.remove(employeeId);
+			prune(term);
+		}
+		for (int ordinal : entry.titleTerms) {
+			Term term = terms.get(ordinal);
+			term.titles.remove(employeeId);
+			prune(term);
+		}
+	}
+
+	/**
+	 * Get the term of the given word, adding the word to the vocabulary if it is new.
+	 */
+	private Term term(String word) {
+		Term term = vocabulary.get(word);
+		if (term != null) {
+			return term;
+		}
+		if (freeOrdinals.isEmpty()) {
+			term = new Term(word, terms.size());
+			terms.add(term);
+		} else {
+			term = new Term(word, freeOrdinals.pop());
+			terms.set(term.ordinal, term);
+		}
+		vocabulary.put(word, term);
+		for (String gram : grams(word)) {
+			Set<Term> gramTerms = grams.get(gram);
+			if (gramTerms == null) {
+				gramTerms = new HashSet<Term>();
+				grams.put(gram, gramTerms);
+			}
+			gramTerms.add(term);
+		}
+		return term;
+	}
+
+	/**
+	 * Remove the given term from the vocabulary if no employee has its word anymore.
+	 */
+	private void prune(Term term) {
+		if (term.names.size > 0 || term.titles.size > 0) {
+			return;
+		}
+		vocabulary.remove(term.word);
+		terms.set(term.ordinal, null);
+		freeOrdinals.push(term.ordinal);
+		for (String gram : grams(term.word)) {
+			Set<Term> gramTerms = grams.get(gram);
+			if (gramTerms != null) {
+				gramTerms.remove(term);
+				if (gramTerms.isEmpty()) {
+					grams.remove(gram);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Get the terms of the vocabulary matching the given query word, along with their scores.
+	 */
+	private Match match(String query) {
+		Match match = new Match(terms.size());
+		for (Term term : vocabulary.subMap(query, true, query + Character.MAX_VALUE, false)
+				.values()) {
+			match.add(term, term.word.equals(query) ? EXACT_SCORE : PREFIX_SCORE);
+		}
+
+		int maxEdits = maxEdits(query);
+		if (maxEdits == 0) {
+			return match;
+		}
+
+		// a typo changes at most GRAM_LENGTH trigrams per edit, so a term needs to share the
+		// other trigrams of the query word to be within reach
+		Set<String> queryGrams = grams(query);
+		int minHits = Math.max(1, queryGrams.size() - GRAM_LENGTH * maxEdits);
+		int[] hits = new int[terms.size()];
+		List<Term> candidates = new ArrayList<Term>();
+		for (String gram : queryGrams) {
+			Set<Term> gramTerms = grams.get(gram);
+			if (gramTerms != null) {
+				for (Term term : gramTerms) {
+					if (++hits[term.ordinal] == minHits) {
+						candidates.add(term);
+					}
+				}
+			}
+		}
+		for (Term term : candidates) {
+			if (match.scores[term.ordinal] > 0) {
+				continue;
+			}
+			String word = term.word;
+			if (Math.abs(word.length() - query.length()) <= maxEdits
+					&& distance(query, word, false) <= maxEdits) {
+				match.add(term, TYPO_SCORE);
+			} else if (word.length() > query.length() && distance(query, word, true) <= maxEdits) {
+				match.add(term, TYPO_PREFIX_SCORE);
+			}
+		}
+		return match;
+	}
+
+	/**
+	 * Get the position of the first word of the given entry matched by the given query word,
+	 * counting the words of the name first and then the words of the title.
+	 */
+	private static int first(Entry entry, Match match) {
+		for (int i = 0; i < entry.nameTerms.length; i++) {
+			if (match.scores[entry.nameTerms[i]] > 0) {
+				return i;
+			}
+		}
+		for (int i = 0; i < entry.titleTerms.length; i++) {
+			if (match.scores[entry.titleTerms[i]] > 0) {
+				return entry.nameTerms.length + i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Score the given entry and add it to the given heap of best hits, if it ranks among them.
+	 */
+	private static void collect(Entry entry, List<Match> matches, PriorityQueue<Hit> best,
+			int limit) {
+		int score = score(entry, matches);
+		if (score == 0 || (best.size() == limit && score < best.peek().score)) {
+			return;
+		}
+		best.add(new Hit(entry, score));
+		if (best.size() > limit) {
+			best.poll();
+		}
+	}
+
+	/**
+	 * Score the given entry against the matches of the query words. Every query word must match
+	 * the name or the title, otherwise the score is 0.
+	 */
+	private static int score(Entry entry, List<Match> matches) {
+		int total = 0;
+		for (Match match : matches) {
+			int score = Math.max(NAME_WEIGHT * score(entry.nameTerms, match),
+					TITLE_WEIGHT * score(entry.titleTerms, match));
+			if (score == 0) {
+				return 0;
+			}
+			total += score;
+		}
+		return total;
+	}
+
+	private static int score(int[] ordinals, Match match) {
+		int best = 0;
+		for (int ordinal : ordinals) {
+			best = Math.max(best, match.scores[ordinal]);
+		}
+		return best;
+	}
+
+	/**
+	 * Get the number of typos tolerated in the given query word, short words must match exactly.
+	 */
+	private static int maxEdits(String query) {
+		return (query.length() < 4) ? 0 : (query.length() < 8) ? 1 : 2;
+	}
+
+	/**
+	 * Get the edit distance between the given query word and word, counting insertions, deletions,
+	 * substitutions and transpositions of adjacent characters. For a prefix match it is the
+	 * distance to the closest prefix of the word.
+	 */
+	private static int distance(String query, String word, boolean prefix) {
+		int n = query.length();
+		int m = word.length();
+		int[][] d = new int[n + 1][m + 1];
+		for (int i = 0; i <= n; i++) {
+			d[i][0] = i;
+		}
+		for (int j = 0; j <= m; j++) {
+			d[0][j] = j;
+		}
+		for (int i = 1; i <= n; i++) {
+			for (int j = 1; j <= m; j++) {
+				int cost = (query.charAt(i - 1) == word.charAt(j - 1)) ? 0 : 1;
+				int value = Math.min(Math.min(d[i - 1][j] + 1, d[i][j - 1] + 1),
+						d[i - 1][j - 1] + cost);
+				if (i > 1 && j > 1 && query.charAt(i - 1) == word.charAt(j - 2)
+						&& query.charAt(i - 2) == word.charAt(j - 1)) {
+					value = Math.min(value, d[i - 2][j - 2] + 1);
+				}
+				d[i][j] = value;
+			}
+		}
+		if (!prefix) {
+			return d[n][m];
+		}
+		int min = d[n][0];
+		for (int j = 1; j <= m; j++) {
+			min = Math.min(min, d[n][j]);
+		}
+		return min;
+	}
+
+	/**
+	 * Split the given text into lower case words without accents.
+	 */
+	private static List<String> split(String text) {
+		List<String> words = new ArrayList<String>();
+		if (text == null) {
+			return words;
+		}
+		String plain = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD))
+				.replaceAll("");
+		for (String word : SEPARATORS.split(plain.toLowerCase(Locale.ROOT))) {
+			if (!word.isEmpty()) {
+				words.add(word);
+			}
+		}
+		return words;
+	}
+
+	/**
+	 * Get the trigrams of the given word, padded at the start so that the trigrams of a prefix
+	 * are a subset of the trigrams of the word.
+	 */
+	private static Set<String> grams(String word) {
+		String padded = GRAM_PADDING + word;
+		Set<String> grams = new HashSet<String>();
+		for (int i = 0; i + GRAM_LENGTH <= padded.length(); i++) {
+			grams.add(padded.substring(i, i + GRAM_LENGTH));
+		}
+		return grams;
+	}
+
+	/**
+	 * An employee of the directory, with the ordinals of the distinct words of its name and
+	 * title.
+	 */
+	private static final class Entry {
+		private final long id;
+		private final int length;
+		private final int[] nameTerms;
+		private final int[] titleTerms;
+
+		private Entry(long id, String name, int nameCount, int titleCount) {
+			this.id = id;
+			this.length = (name == null) ? 0 : name.length();
+			this.nameTerms = new int[nameCount];
+			this.titleTerms = new int[titleCount];
+		}
+	}
+
+	/**
+	 * A word of the vocabulary, along with the employees having it in their name and title.
+	 */
+	private static final class Term {
+		private final String word;
+		private final int ordinal;
+		private final Posting names = new Posting();
+		private final Posting titles = new Posting();
+
+		private Term(String word, int ordinal) {
+			this.word = word;
+			this.ordinal = ordinal;
+		}
+	}
+
+	/**
+	 * Growable array of entries, kept sorted by employee ID so that an entry is found with a
+	 * binary search.
+	 */
+	private static final class Posting {
+		private Entry[] entries = new Entry[2];
+		private int size;
+
+		private void add(Entry entry, boolean sorted) {
+			int index = sorted ? find(entry.id) : -(size + 1);
+			if (index >= 0) {
+				return;
+			}
+			index = -(index + 1);
+			if (size == entries.length) {
+				entries = Arrays.copyOf(entries, size * 2);
+			}
+			System.arraycopy(entries, index, entries, index + 1, size - index);
+			entries[index] = entry;
+			size++;
+		}
+
+		private void remove(long id) {
+			int index = find(id);
+			if (index >= 0) {
+				System.arraycopy(entries, index + 1, entries, index, size - index - 1);
+				entries[--size] = null;
+			}
+		}
+
+		private void sort() {
+			Arrays.sort(entries, 0, size, BY_ID);
+		}
+
+		/**
+		 * Binary search for the entry of the given ID, returning its index if found, otherwise
+		 * (-(insertion point) - 1) like {@link Arrays#binarySearch(long[], long)}.
+		 */
+		private int find(long id) {
+			int low = 0;
+			int high = size - 1;
+			while (low <= high) {
+				int mid = (low + high) >>> 1;
+				long midId = entries[mid].id;
+				if (midId < id) {
+					low = mid + 1;
+				} else if (midId > id) {
+					high = mid - 1;
+				} else {
+					return mid;
+				}
+			}
+			return -(low + 1);
+		}
+	}
+
+	/**
+	 * The terms matched by a query word, with the score of every term indexed by its ordinal.
+	 */
+	private static final class Match {
+		private final byte[] scores;
+		private final List<Term> terms = new ArrayList<Term>();
+		private long size;
+
+		private Match(int ordinals) {
+			this.scores = new byte[ordinals];
+		}
+
+		private void add(Term term, int score) {
+			scores[term.ordinal] = (byte) score;
+			terms.add(term);
+			size += term.names.size + term.titles.size;
+		}
+	}
+
+	/**
+	 * An entry matching the query, along with its score.
+	 */
+	private static final class Hit {
+		private final Entry entry;
+		private final int score;
+
+		private Hit(Entry entry, int score) {
+			this.entry = entry;
+			this.score = score;
+		}
+	}
+
+}
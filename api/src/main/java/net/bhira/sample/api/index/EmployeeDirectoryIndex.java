@@ -0,0 +1,177 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Baldeep Hira
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.bhira.sample.api.index;
+
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import net.bhira.sample.model.Employee;
+
+/**
+ * Index of the {@link EmployeeDirectory} of every company, keyed by company ID. Like
+ * {@link OrgChartIndex}, a directory is loaded on first use, outside of the index, and then kept
+ * up to date by the employee DAO, which reports every saved and deleted employee along with its
+ * company, and the changes made in a transaction are applied after it commits. At most
+ * {@link #MAXIMUM_SIZE} directories are kept, and directories not used for
+ * {@link #EXPIRE_MINUTES} minutes are dropped, see {@link IndexCache}.
+ * 
+ * @author Baldeep Hira
+ */
+@Component("employeeDirectoryIndex")
+public class EmployeeDirectoryIndex {
+
+	/**
+	 * private singleton instance of the SLF4J logger for this class.
+	 */
+	private static final Logger LOG = LoggerFactory.getLogger(EmployeeDirectoryIndex.class);
+
+	static final long MAXIMUM_SIZE = 1000;
+	static final long EXPIRE_MINUTES = 60;
+
+	private final IndexCache<EmployeeDirectory> directories;
+
+	/**
+	 * Constructor for EmployeeDirectoryIndex.
+	 */
+	public EmployeeDirectoryIndex() {
+		this(MAXIMUM_SIZE);
+	}
+
+	EmployeeDirectoryIndex(long maximumSize) {
+		this.directories = new IndexCache<EmployeeDirectory>(maximumSize, EXPIRE_MINUTES);
+	}
+
+	/**
+	 * Get the directory of the given company, loading it with the given loader if it is not
+	 * indexed yet.
+	 * 
+	 * @param companyId
+	 *            the ID of the company.
+	 * @param loader
+	 *            the function returning the ID, name and title of every employee of a company.
+	 * @return the directory of the company.
+	 */
+	public EmployeeDirectory getDirectory(long companyId,
+			Function<Long, List<Employee>> loader) {
+		return directories.get(companyId, new Function<Long, EmployeeDirectory>() {
+			@Override
+			public EmployeeDirectory apply(Long id) {
+				EmployeeDirectory directory = new EmployeeDirectory(loader.apply(id));
+				LOG.debug("indexed employee directory, companyId = {}, size = {}", id,
+						directory.size());
+				return directory;
+			}
+		});
+	}
+
+	/**
+	 * Record that the given employee was saved with the given company, name and title. If the
+	 * employee moved from another company, it is removed from the directory of that company.
+	 * 
+	 * @param companyId
+	 *            the ID of the company of the employee.
+	 * @param previousCompanyId
+	 *            the ID of the company of the employee before the save, 0 for a new employee.
+	 * @param employeeId
+	 *            the ID of the employee.
+	 * @param name
+	 *            the name of the employee.
+	 * @param title
+	 *            the title of the employee, may be null.
+	 */
+	public void update(long companyId, long previousCompanyId, long employeeId, String name,
+			String title) {
+		IndexUtil.afterCommit(new Runnable() {
+			@Override
+			public void run() {
+				if (previousCompanyId != 0 && previousCompanyId != companyId) {
+					directories.apply(previousCompanyId, remover(employeeId));
+				}
+				directories.apply(companyId, new Consumer<EmployeeDirectory>() {
+					@Override
+					public void accept(EmployeeDirectory directory) {
+						directory.put(employeeId, name, title);
+					}
+				});
+			}
+		});
+	}
+
+	/**
+	 * Record that the given employee was deleted.
+	 * 
+	 * @param companyId
+	 *            the ID of the company of the employee.
+	 * @param employeeId
+	 *            the ID of the employee.
+	 */
+	public void remove(long companyId, long employeeId) {
+		IndexUtil.afterCommit(new Runnable() {
+			@Override
+			public void run() {
+				directories.apply(companyId, remover(employeeId));
+			}
+		});
+	}
+
+	/**
+	 * Drop the directory of the given company once the current transaction commits, e.g. when
+	 * its employees are purged. It is loaded again on next use.
+	 * 
+	 * @param companyId
+	 *            the ID of the company.
+	 */
+	public void invalidate(long companyId) {
+		IndexUtil.afterCommit(new Runnable() {
+			@Override
+			public void run() {
+				directories.invalidate(companyId);
+			}
+		});
+	}
+
+	/**
+	 * Get the number of directories in the index.
+	 * 
+	 * @return the number of directories.
+	 */
+	long size() {
+		return directories.size();
+	}
+
+	private static Consumer<EmployeeDirectory> remover(long employeeId) {
+		return new Consumer<EmployeeDirectory>() {
+			@Override
+			public void accept(EmployeeDirectory directory) {
+				directory.remove(employeeId);
+			}
+		};
+	}
+
+}
@@ -0,0 +1,185 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Baldeep Hira
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.bhira.sample.api.index;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * Bounded cache of the in-memory index of every company, keyed by company ID, shared by
+ * {@link OrgChartIndex} and {@link EmployeeDirectoryIndex}. The index of a company is loaded
+ * outside of the cache, so that the long read of a large company does not block the other
+ * companies, and concurrent requests for the same company wait for a single load. The changes
+ * reported while an index is being loaded are queued and applied on top of it once it is loaded.
+ * Indexes are evicted once the cache is full or when they have not been used for a while, they
+ * are loaded again on next use.
+ * 
+ * @param <T>
+ *            the type of the index of a company.
+ * @author Baldeep Hira
+ */
+final class IndexCache<T> {
+
+	private final Cache<Long, Slot<T>> slots;
+
+	/**
+	 * Constructor for IndexCache.
+	 * 
+	 * @param maximumSize
+	 *            the maximum number of companies indexed.
+	 * @param expireAfterAccessMinutes
+	 *            the number of minutes after which an unused index is evicted.
+	 */
+	IndexCache(long maximumSize, long expireAfterAccessMinutes) {
+		this.slots = Caffeine.newBuilder().maximumSize(maximumSize)
+				.expireAfterAccess(expireAfterAccessMinutes, TimeUnit.MINUTES).build();
+	}
+
+	/**
+	 * Get the index of the given company, loading it with the given loader if it is not cached.
+	 * 
+	 * @param companyId
+	 *            the ID of the company.
+	 * @param loader
+	 *            the function loading the index of a company.
+	 * @return the index of the company.
+	 */
+	T get(long companyId, Function<Long, T> loader) {
+		Slot<T> slot = slots.getIfPresent(companyId);
+		if (slot == null) {
+			Slot<T> created = new Slot<T>();
+			slot = slots.asMap().putIfAbsent(companyId, created);
+			if (slot == null) {
+				try {
+					created.loaded(loader.apply(companyId));
+				} catch (RuntimeException | Error ex) {
+					slots.asMap().remove(companyId, created);
+					created.failed(ex);
+					throw ex;
+				}
+				return created.index;
+			}
+		}
+		return slot.await();
+	}
+
+	/**
+	 * Apply the given change to the index of the given company, if it is cached. The change is
+	 * queued if the index is being loaded.
+	 * 
+	 * @param companyId
+	 *            the ID of the company.
+	 * @param change
+	 *            the change to the index.
+	 */
+	void apply(long companyId, Consumer<T> change) {
+		Slot<T> slot = slots.asMap().get(companyId);
+		if (slot != null) {
+			slot.apply(change);
+		}
+	}
+
+	/**
+	 * Drop the index of the given company, it is loaded again on next use.
+	 * 
+	 * @param companyId
+	 *            the ID of the company.
+	 */
+	void invalidate(long companyId) {
+		slots.invalidate(companyId);
+	}
+
+	/**
+	 * Get the number of companies in the cache, including the ones being loaded.
+	 * 
+	 * @return the number of companies.
+	 */
+	long size() {
+		slots.cleanUp();
+		return slots.estimatedSize();
+	}
+
+	/**
+	 * The index of a company, along with the changes queued while it is being loaded.
+	 */
+	private static final class Slot<T> {
+		private T index;
+		private Throwable failure;
+		private List<Consumer<T>> pending = new ArrayList<Consumer<T>>();
+
+		private synchronized void loaded(T loaded) {
+			for (Consumer<T> change : pending) {
+				change.accept(loaded);
+			}
+			pending = null;
+			index = loaded;
+			notifyAll();
+		}
+
+		private synchronized void failed(Throwable ex) {
+			pending = null;
+			failure = ex;
+			notifyAll();
+		}
+
+		private synchronized T await() {
+			boolean interrupted = false;
+			while (index == null && failure == null) {
+				try {
+					wait();
+				} catch (InterruptedException ex) {
+					interrupted = true;
+				}
+			}
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+			if (index == null) {
+				throw new IllegalStateException("Loading the index failed", failure);
+			}
+			return index;
+		}
+
+		private void apply(Consumer<T> change) {
+			T current;
+			synchronized (this) {
+				if (index == null) {
+					if (pending != null) {
+						pending.add(change);
+					}
+					return;
+				}
+				current = index;
+			}
+			change.accept(current);
+		}
+	}
+
+}
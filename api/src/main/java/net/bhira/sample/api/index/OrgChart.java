@@ -0,0 +1,209 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Baldeep Hira
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.bhira.sample.api.index;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory reporting hierarchy of the employees of a single company. It keeps the manager of
+ * every employee and the direct reports of every manager, so that reporting chains and subtrees
+ * are walked in memory instead of loading the employees level by level from the database. A
+ * manager ID of 0 means the employee has no manager.
+ * 
+ * @author Baldeep Hira
+ */
+public class OrgChart {
+
+	private static final List<Long> NO_REPORTS = Collections.emptyList();
+
+	private final Map<Long, Long> managers;
+	private final Map<Long, List<Long>> reports = new HashMap<Long, List<Long>>();
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	/**
+	 * Constructor for OrgChart.
+	 * 
+	 * @param managers
+	 *            the manager ID of every employee of the company, keyed by employee ID.
+	 */
+	public OrgChart(Map<Long, Long> managers) {
+		this.managers = new HashMap<Long, Long>(managers);
+		for (Map.Entry<Long, Long> entry : this.managers.entrySet()) {
+			addReport(entry.getValue(), entry.getKey());
+		}
+	}
+
+	/**
+	 * Get the IDs of the employees reporting to the given employee, directly or through other
+	 * managers up to the given depth. The IDs are ordered by level, i.e. the direct reports come
+	 * first.
+	 * 
+	 * @param employeeId
+	 *            the ID of the manager.
+	 * @param depth
+	 *            the number of levels to include, 1 for the direct reports only.
+	 * @return List of employee IDs.
+	 */
+	public List<Long> getReports(long employeeId, int depth) {
+		lock.readLock().lock();
+		try {
+			List<Long> result = new ArrayList<Long>();
+			Set<Long> visited = new HashSet<Long>();
+			visited.add(employeeId);
+			int from = 0;
+			List<Long> level = getDirectReports(employeeId);
+			for (int i = 0; i < depth && !level.isEmpty(); i++) {
+				for (Long id : level) {
+					// guard against cycles in inconsistent data
+					if (visited.add(id)) {
+						result.add(id);
+					}
+				}
+				List<Long> next = new ArrayList<Long>();
+				for (int j = from; j < result.size(); j++) {
+					next.addAll(getDirectReports(result.get(j)));
+				}
+				from = result.size();
+				level = next;
+			}
+			return result;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Get the IDs of the managers of the given employee, starting with its direct manager and
+	 * ending with the top of the hierarchy.
+	 * 
+	 * @param employeeId
+	 *            the ID of the employee.
+	 * @return List of manager IDs.
+	 */
+	public List<Long> getChain(long employeeId) {
+		lock.readLock().lock();
+		try {
+			List<Long> result = new ArrayList<Long>();
+			Set<Long> visited = new HashSet<Long>();
+			visited.add(employeeId);
+			Long managerId = managers.get(employeeId);
+			while (managerId != null && managerId != 0 && visited.add(managerId)) {
+				result.add(managerId);
+				managerId = managers.get(managerId);
+			}
+			return result;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Add the given employee to the chart or move it under its new manager.
+	 * 
+	 * @param employeeId
+	 *            the ID of the employee.
+	 * @param managerId
+	 *            the ID of the manager, 0 if the employee has no manager.
+	 */
+	public void put(long employeeId, long managerId) {
+		lock.writeLock().lock();
+		try {
+			Long previous = managers.put(employeeId, managerId);
+			if (previous != null) {
+				removeReport(previous, employeeId);
+			}
+			addReport(managerId, employeeId);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Remove the given employee from the chart.
+	 * 
+	 * @param employeeId
+	 *            the ID of the employee.
+	 */
+	public void remove(long employeeId) {
+		lock.writeLock().lock();
+		try {
+			Long previous = managers.remove(employeeId);
+			if (previous != null) {
+				removeReport(previous, employeeId);
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Get the number of employees in the chart.
+	 * 
+	 * @return the number of employees.
+	 */
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return managers.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private List<Long> getDirectReports(long managerId) {
+		List<Long> list = reports.get(managerId);
+		return (list == null) ? NO_REPORTS : list;
+	}
+
+	private void addReport(long managerId, long employeeId) {
+		if (managerId == 0) {
+			return;
+		}
+		List<Long> list = reports.get(managerId);
+		if (list == null) {
+			list = new ArrayList<Long>();
+			reports.put(managerId, list);
+		}
+		list.add(employeeId);
+	}
+
+	private void removeReport(long managerId, long employeeId) {
+		List<Long> list = reports.get(managerId);
+		if (list != null) {
+			list.remove(Long.valueOf(employeeId));
+			if (list.isEmpty()) {
+				reports.remove(managerId);
+			}
+		}
+	}
+
+}
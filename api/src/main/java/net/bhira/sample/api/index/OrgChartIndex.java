@@ -0,0 +1,174 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Baldeep Hira
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.bhira.sample.api.index;
+
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Index of the {@link OrgChart} of every company, keyed by company ID. A chart is loaded on first
+ * use and then kept up to date by the employee DAO, which reports every saved and deleted
+ * employee along with its company, so that a change only touches the charts of the companies of
+ * the employee. Changes made in a transaction are applied after it commits, so rolled back
+ * changes never reach the index. A chart is loaded outside of the index, and the changes
+ * committed while it is being loaded are applied on top of the loaded chart. At most
+ * {@link #MAXIMUM_SIZE} charts are kept, and charts not used for {@link #EXPIRE_MINUTES} minutes
+ * are dropped, see {@link IndexCache}.
+ * 
+ * @author Baldeep Hira
+ */
+@Component("orgChartIndex")
+public class OrgChartIndex {
+
+	/**
+	 * private singleton instance of the SLF4J logger for this class.
+	 */
+	private static final Logger LOG = LoggerFactory.getLogger(OrgChartIndex.class);
+
+	static final long MAXIMUM_SIZE = 1000;
+	static final long EXPIRE_MINUTES = 60;
+
+	private final IndexCache<OrgChart> charts;
+
+	/**
+	 * Constructor for OrgChartIndex.
+	 */
+	public OrgChartIndex() {
+		this(MAXIMUM_SIZE);
+	}
+
+	OrgChartIndex(long maximumSize) {
+		this.charts = new IndexCache<OrgChart>(maximumSize, EXPIRE_MINUTES);
+	}
+
+	/**
+	 * Get the chart of the given company, loading it with the given loader if it is not indexed
+	 * yet.
+	 * 
+	 * @param companyId
+	 *            the ID of the company.
+	 * @param loader
+	 *            the function returning the manager ID of every employee of a company, keyed by
+	 *            employee ID.
+	 * @return the chart of the company.
+	 */
+	public OrgChart getChart(long companyId, Function<Long, Map<Long, Long>> loader) {
+		return charts.get(companyId, new Function<Long, OrgChart>() {
+			@Override
+			public OrgChart apply(Long id) {
+				OrgChart chart = new OrgChart(loader.apply(id));
+				LOG.debug("indexed org chart, companyId = {}, size = {}", id, chart.size());
+				return chart;
+			}
+		});
+	}
+
+	/**
+	 * Record that the given employee was saved with the given company and manager. If the
+	 * employee moved from another company, it is removed from the chart of that company.
+	 * 
+	 * @param companyId
+	 *            the ID of the company of the employee.
+	 * @param previousCompanyId
+	 *            the ID of the company of the employee before the save, 0 for a new employee.
+	 * @param employeeId
+	 *            the ID of the employee.
+	 * @param managerId
+	 *            the ID of the manager, 0 if the employee has no manager.
+	 */
+	public void update(long companyId, long previousCompanyId, long employeeId,
+			long managerId) {
+		IndexUtil.afterCommit(new Runnable() {
+			@Override
+			public void run() {
+				if (previousCompanyId != 0 && previousCompanyId != companyId) {
+					charts.apply(previousCompanyId, remover(employeeId));
+				}
+				charts.apply(companyId, new Consumer<OrgChart>() {
+					@Override
+					public void accept(OrgChart chart) {
+						chart.put(employeeId, managerId);
+					}
+				});
+			}
+		});
+	}
+
+	/**
+	 * Record that the given employee was deleted.
+	 * 
+	 * @param companyId
+	 *            the ID of the company of the employee.
+	 * @param employeeId
+	 *            the ID of the employee.
+	 */
+	public void remove(long companyId, long employeeId) {
+		IndexUtil.afterCommit(new Runnable() {
+			@Override
+			public void run() {
+				charts.apply(companyId, remover(employeeId));
+			}
+		});
+	}
+
+	/**
+	 * Drop the chart of the given company once the current transaction commits, e.g. when its
+	 * employees are purged. It is loaded again on next use.
+	 * 
+	 * @param companyId
+	 *            the ID of the company.
+	 */
+	public void invalidate(long companyId) {
+		IndexUtil.afterCommit(new Runnable() {
+			@Override
+			public void run() {
+				charts.invalidate(companyId);
+			}
+		});
+	}
+
+	/**
+	 * Get the number of charts in the index.
+	 * 
+	 * @return the number of charts.
+	 */
+	long size() {
+		return charts.size();
+	}
+
+	private static Consumer<OrgChart> remover(long employeeId) {
+		return new Consumer<OrgChart>() {
+			@Override
+			public void accept(OrgChart chart) {
+				chart.remove(employeeId);
+			}
+		};
+	}
+
+}
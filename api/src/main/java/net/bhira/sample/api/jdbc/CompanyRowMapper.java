@@ -32,12 +32,24 @@ import net.bhira.sample.model.Company;
 
 /**
  * Helper class used to map a single row in jdbc ResultSet to {@link net.bhira.sample.model.Company}
- * object.
+ * object. The columns are read by index, so the query must select the company columns as listed in
+ * {@link #COLUMNS}. The mapper is stateless and a single instance can be shared by all queries.
  * 
  * @author Baldeep Hira
  */
 public class CompanyRowMapper implements RowMapper<Company> {
 
+	/**
+	 * Select list for company columns, in the order expected by this mapper.
+	 */
+	public static final String COLUMNS = "id, name, industry, billingaddr, shippingaddr,"
+			+ " created, modified, createdby, modifiedby, version";
+
+	/**
+	 * Number of columns in {@link #COLUMNS}, i.e. the index of the last column read by this mapper.
+	 */
+	public static final int COLUMN_COUNT = 10;
+
 	/**
 	 * Constructor for CompanyRowMapper that creates an instance of
 	 * {@link net.bhira.sample.model.Company} from row represented by rowNum in the given ResultSet.
@@ -50,15 +62,16 @@ public class CompanyRowMapper implements RowMapper<Company> {
 	@Override
 	public Company mapRow(ResultSet rs, int rowNum) throws SQLException {
 		Company company = new Company();
-		company.setId(rs.getLong("id"));
-		company.setName(rs.getString("name"));
-		company.setIndustry(rs.getString("industry"));
-		company.setBillingAddress(rs.getString("billingaddr"));
-		company.setShippingAddress(rs.getString("shippingaddr"));
-		company.setCreated(rs.getTimestamp("created"));
-		company.setModified(rs.getTimestamp("modified"));
-		company.setCreatedBy(rs.getString("createdby"));
-		company.setModifiedBy(rs.getString("modifiedby"));
+		company.setId(rs.getLong(1));
+		company.setName(rs.getString(2));
+		company.setIndustry(rs.getString(3));
+		company.setBillingAddress(rs.getString(4));
+		company.setShippingAddress(rs.getString(5));
+		company.setCreated(rs.getTimestamp(6));
+		company.setModified(rs.getTimestamp(7));
+		company.setCreatedBy(rs.getString(8));
+		company.setModifiedBy(rs.getString(9));
+		company.setVersion(rs.getLong(10));
 		return company;
 	}
 
@@ -32,12 +32,47 @@ import org.springframework.jdbc.core.RowMapper;
 
 /**
  * Helper class used to map a single row in jdbc ResultSet to
- * {@link net.bhira.sample.model.ContactInfo} object.
+ * {@link net.bhira.sample.model.ContactInfo} object. The columns are read by index, so the query
+ * must select the contact info columns as listed in {@link #COLUMNS}, or {@link #JOIN_COLUMNS}
+ * after the columns of the owning entity. The mapper is stateless and a single instance can be
+ * shared by all queries.
  * 
  * @author Baldeep Hira
  */
 public class ContactInfoRowMapper implements RowMapper<ContactInfo> {
 
+	/**
+	 * Select list for contact info columns, in the order expected by this mapper.
+	 */
+	public static final String COLUMNS = "id, phone, fax, email, website";
+
+	/**
+	 * Select list for contact info columns when joined with the owning entity. The query must
+	 * alias the contactinfo table as "c".
+	 */
+	public static final String JOIN_COLUMNS = "c.id, c.phone, c.fax, c.email, c.website";
+
+	private final int offset;
+
+	/**
+	 * Default constructor for ContactInfoRowMapper that maps the columns of contactinfo table.
+	 */
+	public ContactInfoRowMapper() {
+		this(0);
+	}
+
+	/**
+	 * Constructor for ContactInfoRowMapper that maps contactinfo columns selected after the given
+	 * number of columns of the owning entity. If the id column is null, e.g. no row matched the
+	 * outer join, the mapper returns null.
+	 * 
+	 * @param offset
+	 *            the number of columns preceding the contact info columns.
+	 */
+	public ContactInfoRowMapper(int offset) {
+		this.offset = offset;
+	}
+
 	/**
 	 * Constructor for ContactInfoRowMapper that creates an instance of
 	 * {@link net.bhira.sample.model.ContactInfo} from row represented by rowNum in the given
@@ -50,12 +85,16 @@ public class ContactInfoRowMapper implements RowMapper<ContactInfo> {
 	 */
 	@Override
 	public ContactInfo mapRow(ResultSet rs, int rowNum) throws SQLException {
+		long id = rs.getLong(offset + 1);
+		if (rs.wasNull()) {
+			return null;
+		}
 		ContactInfo contactInfo = new ContactInfo();
-		contactInfo.setId(rs.getLong("id"));
-		contactInfo.setPhone(rs.getString("phone"));
-		contactInfo.setFax(rs.getString("fax"));
-		contactInfo.setEmail(rs.getString("email"));
-		contactInfo.setWebsite(rs.getString("website"));
+		contactInfo.setId(id);
+		contactInfo.setPhone(rs.getString(offset + 2));
+		contactInfo.setFax(rs.getString(offset + 3));
+		contactInfo.setEmail(rs.getString(offset + 4));
+		contactInfo.setWebsite(rs.getString(offset + 5));
 		return contactInfo;
 	}
 
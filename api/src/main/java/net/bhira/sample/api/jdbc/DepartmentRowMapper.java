@@ -32,12 +32,25 @@ import net.bhira.sample.model.Department;
 
 /**
  * Helper class used to map a single row in jdbc ResultSet to
- * {@link net.bhira.sample.model.Department} object.
+ * {@link net.bhira.sample.model.Department} object. The columns are read by index, so the query
+ * must select the department columns as listed in {@link #COLUMNS}. The mapper is stateless and a
+ * single instance can be shared by all queries.
  * 
  * @author Baldeep Hira
  */
 public class DepartmentRowMapper implements RowMapper<Department> {
 
+	/**
+	 * Select list for department columns, in the order expected by this mapper.
+	 */
+	public static final String COLUMNS = "id, companyid, name, billingaddr, shippingaddr,"
+			+ " created, modified, createdby, modifiedby, version";
+
+	/**
+	 * Number of columns in {@link #COLUMNS}, i.e. the index of the last column read by this mapper.
+	 */
+	public static final int COLUMN_COUNT = 10;
+
 	/**
 	 * Constructor for DepartmentRowMapper that creates an instance of
 	 * {@link net.bhira.sample.model.Department} from row represented by rowNum in the given
@@ -51,15 +64,16 @@ public class DepartmentRowMapper implements RowMapper<Department> {
 	@Override
 	public Department mapRow(ResultSet rs, int rowNum) throws SQLException {
 		Department department = new Department();
-		department.setId(rs.getLong("id"));
-		department.setCompanyId(rs.getLong("companyid"));
-		department.setName(rs.getString("name"));
-		department.setBillingAddress(rs.getString("billingaddr"));
-		department.setShippingAddress(rs.getString("shippingaddr"));
-		department.setCreated(rs.getTimestamp("created"));
-		department.setModified(rs.getTimestamp("modified"));
-		department.setCreatedBy(rs.getString("createdby"));
-		department.setModifiedBy(rs.getString("modifiedby"));
+		department.setId(rs.getLong(1));
+		department.setCompanyId(rs.getLong(2));
+		department.setName(rs.getString(3));
+		department.setBillingAddress(rs.getString(4));
+		department.setShippingAddress(rs.getString(5));
+		department.setCreated(rs.getTimestamp(6));
+		department.setModified(rs.getTimestamp(7));
+		department.setCreatedBy(rs.getString(8));
+		department.setModifiedBy(rs.getString(9));
+		department.setVersion(rs.getLong(10));
 		return department;
 	}
 
@@ -0,0 +1,61 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Baldeep Hira
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.bhira.sample.api.jdbc;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import net.bhira.sample.model.Employee;
+
+/**
+ * Helper class used to map a single row in jdbc ResultSet to
+ * {@link net.bhira.sample.model.Employee} object along with its
+ * {@link net.bhira.sample.model.ContactInfo}. The row is expected to be the result of employee
+ * columns selected as {@link EmployeeRowMapper#COLUMNS}, followed by the contact info columns outer
+ * joined as {@link ContactInfoRowMapper#JOIN_COLUMNS}.
+ * 
+ * @author Baldeep Hira
+ */
+public class EmployeeDetailRowMapper extends EmployeeRowMapper {
+
+	private final ContactInfoRowMapper contactInfoRowMapper = new ContactInfoRowMapper(
+			COLUMN_COUNT);
+
+	/**
+	 * Create an instance of {@link net.bhira.sample.model.Employee} along with its contact info
+	 * from row represented by rowNum in the given ResultSet.
+	 * 
+	 * @param rs
+	 *            an instance of ResultSet to be processed.
+	 * @param rowNum
+	 *            integer representing the row number in ResultSet.
+	 */
+	@Override
+	public Employee mapRow(ResultSet rs, int rowNum) throws SQLException {
+		Employee employee = super.mapRow(rs, rowNum);
+		employee.setContactInfo(contactInfoRowMapper.mapRow(rs, rowNum));
+		return employee;
+	}
+
+}
\ No newline at end of file
@@ -0,0 +1,390 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Baldeep Hira
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.bhira.sample.api.jdbc;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.jdbc.core.RowMapper;
+
+import com.google.gson.Gson;
+
+import net.bhira.sample.common.JsonUtil;
+import net.bhira.sample.model.Employee;
+
+/**
+ * Projection of the {@link net.bhira.sample.model.Employee} fields returned by the employee list
+ * endpoints. A projection selects only the columns of its fields from the employee table, maps
+ * them into shallow Employee instances and provides the Gson that serializes only these fields. The
+ * employee ID is always part of a projection, as it is used for paging.
+ * <p>
+ * Projections are immutable and the parsed projections are cached, so the select list, the row
+ * mapper and the Gson are created once per distinct set of fields.
+ * 
+ * @author Baldeep Hira
+ */
+public final class EmployeeProjection {
+
+	/**
+	 * Fields of {@link net.bhira.sample.model.Employee} that can be projected, along with their
+	 * JSON property name and their column in the employee table.
+	 */
+	public enum Field {
+		ID("id", "id"),
+		COMPANY_ID("companyId", "companyid"),
+		DEPARTMENT_ID("departmentId", "departmentid"),
+		NAME("name", "name"),
+		MANAGER_ID("managerId", "managerid"),
+		SALUTATION("salutation", "salutation"),
+		DOB("dob", "dob"),
+		TITLE("title", "title"),
+		SEX("sex", "sex"),
+		ADDRESS("address", "addr"),
+		CREATED("created", "created"),
+		MODIFIED("modified", "modified"),
+		CREATED_BY("createdBy", "createdby"),
+		MODIFIED_BY("modifiedBy", "modifiedby"),
+		VERSION("version", "version");
+
+		private final String property;
+		private final String column;
+
+		private Field(String property, String column) {
+			this.property = property;
+			this.column = column;
+		}
+
+		/**
+		 * @return the JSON property name of the field.
+		 */
+		public String getProperty() {
+			return property;
+		}
+
+		/**
+		 * @return the column of the field in the employee table.
+		 */
+		public String getColumn() {
+			return column;
+		}
+
+		/**
+		 * Find the field with the given JSON property name.
+		 * 
+		 * @param property
+		 *            the JSON property name, e.g. "companyId".
+		 * @return the field.
+		 * @throws IllegalArgumentException
+		 *             if there is no such field.
+		 */
+		public static Field forProperty(String property) {
+			for (Field field : values()) {
+				if (field.property.equals(property)) {
+					return field;
+				}
+			}
+			throw new IllegalArgumentException("Invalid field " + property);
+		}
+	}
+
+	/**
+	 * Projection with all the fields, i.e. the shallow Employee without contact info.
+	 */
+	public static final EmployeeProjection ALL = new EmployeeProjection(EnumSet.allOf(Field.class));
+
+	/**
+	 * Compact projection used by default, without the address, date of birth and audit fields.
+	 */
+	public static final EmployeeProjection COMPACT = new EmployeeProjection(EnumSet.of(Field.ID,
+			Field.COMPANY_ID, Field.DEPARTMENT_ID, Field.NAME, Field.MANAGER_ID, Field.TITLE));
+
+	/**
+	 * Value of the fields parameter that selects {@link #ALL} fields.
+	 */
+	public static final String ALL_FIELDS = "all";
+
+	private static final int MAX_CACHED_PROJECTIONS = 1000;
+	private static final ConcurrentMap<Set<Field>, EmployeeProjection> CACHE =
+			new ConcurrentHashMap<Set<Field>, EmployeeProjection>();
+
+	static {
+		CACHE.put(ALL.fields, ALL);
+		CACHE.put(COMPACT.fields, COMPACT);
+	}
+
+	private final Set<Field> fields;
+	private final Field[] order;
+	private final String columns;
+	private final Gson gson;
+	private final RowMapper<Employee> rowMapper;
+
+	private EmployeeProjection(EnumSet<Field> fields) {
+		this.fields = Collections.unmodifiableSet(fields);
+		this.order = fields.toArray(new Field[fields.size()]);
+		List<String> properties = new ArrayList<String>(order.length);
+		StringBuilder sb = new StringBuilder();
+		for (Field field : order) {
+			if (sb.length() > 0) {
+				sb.append(", ");
+			}
+			sb.append(field.column);
+			properties.add(field.property);
+		}
+		this.columns = sb.toString();
+		this.gson = (fields.size() == Field.values().length) ? JsonUtil.getGson()
+				: JsonUtil.createGson(Employee.class, properties);
+		this.rowMapper = new ProjectionRowMapper(order);
+	}
+
+	/**
+	 * Parse the projection from the given comma separated list of JSON property names, e.g.
+	 * "name,title". The ID is added if it is not listed.
+	 * 
+	 * @param fieldList
+	 *            the list of property names, {@link #ALL_FIELDS} for all the fields, or null or
+	 *            empty for the {@link #COMPACT} projection.
+	 * @return the projection.
+	 * @throws IllegalArgumentException
+	 *             if any of the names is not a field of the employee.
+	 */
+	public static EmployeeProjection parse(String fieldList) {
+		if (fieldList == null || fieldList.trim().isEmpty()) {
+			return COMPACT;
+		}
+		if (ALL_FIELDS.equals(fieldList.trim())) {
+			return ALL;
+		}
+
+		EnumSet<Field> fields = EnumSet.of(Field.ID);
+		for (String property : fieldList.split(",")) {
+			fields.add(Field.forProperty(property.trim()));
+		}
+		return forFields(fields);
+	}
+
+	/**
+	 * Get the projection with the fields of this projection and the given field.
+	 * 
+	 * @param field
+	 *            the field to add.
+	 * @return the projection including the given field.
+	 */
+	public EmployeeProjection with(Field field) {
+		if (fields.contains(field)) {
+			return this;
+		}
+		EnumSet<Field> more = EnumSet.copyOf(fields);
+		more.add(field);
+		return forFields(more);
+	}
+
+	private static EmployeeProjection forFields(EnumSet<Field> fields) {
+		EmployeeProjection projection = CACHE.get(fields);
+		if (projection == null) {
+			projection = new EmployeeProjection(fields);
+			// the cache is bounded as every combination of fields is a distinct projection
+			if (CACHE.size() < MAX_CACHED_PROJECTIONS) {
+				EmployeeProjection existing = CACHE.putIfAbsent(projection.fields, projection);
+				projection = (existing == null) ? projection : existing;
+			}
+		}
+		return projection;
+	}
+
+	/**
+	 * @return the unmodifiable set of projected fields.
+	 */
+	public Set<Field> getFields() {
+		return fields;
+	}
+
+	/**
+	 * @return the select list of the projected columns, in the order expected by the row mapper.
+	 */
+	public String getColumns() {
+		return columns;
+	}
+
+	/**
+	 * @return the row mapper for rows selected with {@link #getColumns()}.
+	 */
+	public RowMapper<Employee> getRowMapper() {
+		return rowMapper;
+	}
+
+	/**
+	 * @return the Gson that serializes only the projected fields of an Employee.
+	 */
+	public Gson getGson() {
+		return gson;
+	}
+
+	/**
+	 * Copy the projected fields of the given employee into a new instance, the other fields are
+	 * left unset as if they had not been selected. It is used by storage engines that do not read
+	 * the employees with {@link #getRowMapper()}.
+	 * 
+	 * @param source
+	 *            the employee to copy from.
+	 * @return the projected copy of the employee.
+	 */
+	public Employee project(Employee source) {
+		Employee employee = new Employee();
+		for (Field field : fields) {
+			switch (field) {
+			case ID:
+				employee.setId(source.getId());
+				break;
+			case COMPANY_ID:
+				employee.setCompanyId(source.getCompanyId());
+				break;
+			case DEPARTMENT_ID:
+				employee.setDepartmentId(source.getDepartmentId());
+				break;
+			case NAME:
+				employee.setName(source.getName());
+				break;
+			case MANAGER_ID:
+				employee.setManagerId(source.getManagerId());
+				break;
+			case SALUTATION:
+				employee.setSalutation(source.getSalutation());
+				break;
+			case DOB:
+				employee.setDOB(copy(source.getDOB()));
+				break;
+			case TITLE:
+				employee.setTitle(source.getTitle());
+				break;
+			case SEX:
+				employee.setSex(source.getSex());
+				break;
+			case ADDRESS:
+				employee.setAddress(source.getAddress());
+				break;
+			case CREATED:
+				employee.setCreated(copy(source.getCreated()));
+				break;
+			case MODIFIED:
+				employee.setModified(copy(source.getModified()));
+				break;
+			case CREATED_BY:
+				employee.setCreatedBy(source.getCreatedBy());
+				break;
+			case MODIFIED_BY:
+				employee.setModifiedBy(source.getModifiedBy());
+				break;
+			case VERSION:
+				employee.setVersion(source.getVersion());
+				break;
+			}
+		}
+		return employee;
+	}
+
+	private static Date copy(Date date) {
+		return (date == null) ? null : new Date(date.getTime());
+	}
+
+	/**
+	 * Row mapper that reads the projected columns by index.
+	 */
+	private static class ProjectionRowMapper implements RowMapper<Employee> {
+
+		private final Field[] order;
+
+		ProjectionRowMapper(Field[] order) {
+			this.order = order;
+		}
+
+		@Override
+		public Employee mapRow(ResultSet rs, int rowNum) throws SQLException {
+			Employee employee = new Employee();
+			for (int i = 0; i < order.length; i++) {
+				int index = i + 1;
+				switch (order[i]) {
+				case ID:
+					employee.setId(rs.getLong(index));
+					break;
+				case COMPANY_ID:
+					employee.setCompanyId(rs.getLong(index));
+					break;
+				case DEPARTMENT_ID:
+					employee.setDepartmentId(rs.getLong(index));
+					break;
+				case NAME:
+					employee.setName(rs.getString(index));
+					break;
+				case MANAGER_ID:
+					employee.setManagerId(rs.getLong(index));
+					break;
+				case SALUTATION:
+					employee.setSalutation(rs.getString(index));
+					break;
+				case DOB:
+					employee.setDOB(rs.getDate(index));
+					break;
+				case TITLE:
+					employee.setTitle(rs.getString(index));
+					break;
+				case SEX:
+					String sex = rs.getString(index);
+					if (sex != null) {
+						employee.setSex(Employee.Sex.valueOf(sex));
+					}
+					break;
+				case ADDRESS:
+					employee.setAddress(rs.getString(index));
+					break;
+				case CREATED:
+					employee.setCreated(rs.getTimestamp(index));
+					break;
+				case MODIFIED:
+					employee.setModified(rs.getTimestamp(index));
+					break;
+				case CREATED_BY:
+					employee.setCreatedBy(rs.getString(index));
+					break;
+				case MODIFIED_BY:
+					employee.setModifiedBy(rs.getString(index));
+					break;
+				case VERSION:
+					employee.setVersion(rs.getLong(index));
+					break;
+				}
+			}
+			return employee;
+		}
+
+	}
+
+}
@@ -32,12 +32,26 @@ import net.bhira.sample.model.Employee;
 
 /**
  * Helper class used to map a single row in jdbc ResultSet to
- * {@link net.bhira.sample.model.Employee} object.
+ * {@link net.bhira.sample.model.Employee} object. The columns are read by index, so the query must
+ * select the employee columns as listed in {@link #COLUMNS}. The mapper is stateless and a single
+ * instance can be shared by all queries.
  * 
  * @author Baldeep Hira
  */
 public class EmployeeRowMapper implements RowMapper<Employee> {
 
+	/**
+	 * Select list for employee columns, in the order expected by this mapper.
+	 */
+	public static final String COLUMNS = "id, companyid, departmentid, name, managerid,"
+			+ " salutation, dob, title, sex, addr, created, modified, createdby, modifiedby,"
+			+ " version";
+
+	/**
+	 * Number of columns in {@link #COLUMNS}, i.e. the index of the last column read by this mapper.
+	 */
+	public static final int COLUMN_COUNT = 15;
+
 	/**
 	 * Constructor for EmployeeRowMapper that creates an instance of
 	 * {@link net.bhira.sample.model.Employee} from row represented by rowNum in the given
@@ -51,25 +65,26 @@ public class EmployeeRowMapper implements RowMapper<Employee> {
 	@Override
 	public Employee mapRow(ResultSet rs, int rowNum) throws SQLException {
 		Employee employee = new Employee();
-		employee.setId(rs.getLong("id"));
-		employee.setCompanyId(rs.getLong("companyid"));
-		employee.setDepartmentId(rs.getLong("departmentid"));
-		employee.setName(rs.getString("name"));
-		employee.setManagerId(rs.getLong("managerid"));
-		employee.setSalutation(rs.getString("salutation"));
-		employee.setDOB(rs.getDate("dob"));
-		employee.setTitle(rs.getString("title"));
+		employee.setId(rs.getLong(1));
+		employee.setCompanyId(rs.getLong(2));
+		employee.setDepartmentId(rs.getLong(3));
+		employee.setName(rs.getString(4));
+		employee.setManagerId(rs.getLong(5));
+		employee.setSalutation(rs.getString(6));
+		employee.setDOB(rs.getDate(7));
+		employee.setTitle(rs.getString(8));
 
-		String sex = rs.getString("sex");
+		String sex = rs.getString(9);
 		if (sex != null) {
 			employee.setSex(Employee.Sex.valueOf(sex));
 		}
 
-		employee.setAddress(rs.getString("addr"));
-		employee.setCreated(rs.getTimestamp("created"));
-		employee.setModified(rs.getTimestamp("modified"));
-		employee.setCreatedBy(rs.getString("createdby"));
-		employee.setModifiedBy(rs.getString("modifiedby"));
+		employee.setAddress(rs.getString(10));
+		employee.setCreated(rs.getTimestamp(11));
+		employee.setModified(rs.getTimestamp(12));
+		employee.setCreatedBy(rs.getString(13));
+		employee.setModifiedBy(rs.getString(14));
+		employee.setVersion(rs.getLong(15));
 		return employee;
 	}
 
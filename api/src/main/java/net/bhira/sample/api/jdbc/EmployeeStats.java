@@ -0,0 +1,272 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Baldeep Hira
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.bhira.sample.api.jdbc;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.bhira.sample.model.Employee;
+
+/**
+ * Headcount of the employees of a company, broken down by sex, age band, title and department,
+ * as of the time it was computed. Employees without a sex, date of birth or title are counted
+ * under {@link #UNKNOWN}, and employees without a department under department ID 0. The titles
+ * are ordered by their count, most common first.
+ * 
+ * @author Baldeep Hira
+ */
+public class EmployeeStats {
+
+	/**
+	 * Key of the employees for whom the counted attribute is not set.
+	 */
+	public static final String UNKNOWN = "unknown";
+
+	private static final int[] AGE_LIMITS = { 25, 35, 45, 55, 65 };
+	private static final String[] AGE_BANDS = { "under 25", "25-34", "35-44", "45-54", "55-64",
+			"65 and over" };
+
+	private final long companyId;
+	private final Date computed;
+	private long headcount;
+	private final Map<String, Long> bySex = new LinkedHashMap<String, Long>();
+	private final Map<String, Long> byAge = new LinkedHashMap<String, Long>();
+	private final Map<String, Long> byTitle = new LinkedHashMap<String, Long>();
+	private final List<DepartmentCount> byDepartment = new ArrayList<DepartmentCount>();
+
+	/**
+	 * Constructor for EmployeeStats, with all the counts set to 0.
+	 * 
+	 * @param companyId
+	 *            the ID of the company.
+	 * @param computed
+	 *            the time the stats are computed at, which the ages are based on.
+	 */
+	public EmployeeStats(long companyId, Date computed) {
+		this.companyId = companyId;
+		this.computed = computed;
+		for (Employee.Sex sex : Employee.Sex.values()) {
+			bySex.put(sex.name(), 0L);
+		}
+		bySex.put(UNKNOWN, 0L);
+		for (String band : AGE_BANDS) {
+			byAge.put(band, 0L);
+		}
+		byAge.put(UNKNOWN, 0L);
+	}
+
+	/**
+	 * Get the dates of birth separating the age bands as of the given time. The employees born
+	 * after the first date are in the first band, and the employees born on or before the last
+	 * date are in the last band.
+	 * 
+	 * @param computed
+	 *            the time the ages are based on.
+	 * @return the dates of birth separating the age bands, latest first.
+	 */
+	public static Date[] getAgeCutoffs(Date computed) {
+		Date[] cutoffs = new Date[AGE_LIMITS.length];
+		for (int i = 0; i < AGE_LIMITS.length; i++) {
+			Calendar calendar = Calendar.getInstance();
+			calendar.setTime(computed);
+			calendar.add(Calendar.YEAR, -AGE_LIMITS[i]);
+			cutoffs[i] = calendar.getTime();
+		}
+		return cutoffs;
+	}
+
+	/**
+	 * Get the age band of the given date of birth.
+	 * 
+	 * @param dob
+	 *            the date of birth, may be null.
+	 * @param cutoffs
+	 *            the dates of birth separating the age bands, see {@link #getAgeCutoffs(Date)}.
+	 * @return the index of the age band, or -1 if the date of birth is null.
+	 */
+	public static int getAgeBand(Date dob, Date[] cutoffs) {
+		if (dob == null) {
+			return -1;
+		}
+		int band = 0;
+		while (band < cutoffs.length && !dob.after(cutoffs[band])) {
+			band++;
+		}
+		return band;
+	}
+
+	/**
+	 * Add to the count of the given sex.
+	 * 
+	 * @param sex
+	 *            the name of {@link net.bhira.sample.model.Employee.Sex}, null if not set.
+	 * @param count
+	 *            the number of employees to add.
+	 */
+	public void addSex(String sex, long count) {
+		add(bySex, (sex == null) ? UNKNOWN : sex, count);
+	}
+
+	/**
+	 * Add to the count of the given age band.
+	 * 
+	 * @param band
+	 *            the index of the age band, -1 if the date of birth is not set.
+	 * @param count
+	 *            the number of employees to add.
+	 */
+	public void addAgeBand(int band, long count) {
+		add(byAge, (band < 0) ? UNKNOWN : AGE_BANDS[band], count);
+	}
+
+	/**
+	 * Add to the count of the given title. The titles should be added with the most common first.
+	 * 
+	 * @param title
+	 *            the title, null if not set.
+	 * @param count
+	 *            the number of employees to add.
+	 */
+	public void addTitle(String title, long count) {
+		add(byTitle, (title == null) ? UNKNOWN : title, count);
+	}
+
+	/**
+	 * Add the count of the given department.
+	 * 
+	 * @param departmentId
+	 *            the ID of the department, 0 for the employees without a department.
+	 * @param name
+	 *            the name of the department, null for the employees without a department.
+	 * @param count
+	 *            the number of employees in the department.
+	 */
+	public void addDepartment(long departmentId, String name, long count) {
+		byDepartment.add(new DepartmentCount(departmentId, name, count));
+	}
+
+	/**
+	 * @return the ID of the company.
+	 */
+	public long getCompanyId() {
+		return companyId;
+	}
+
+	/**
+	 * @return the time the stats were computed at.
+	 */
+	public Date getComputed() {
+		return computed;
+	}
+
+	/**
+	 * @return the number of employees of the company.
+	 */
+	public long getHeadcount() {
+		return headcount;
+	}
+
+	/**
+	 * @param headcount
+	 *            the number of employees of the company.
+	 */
+	public void setHeadcount(long headcount) {
+		this.headcount = headcount;
+	}
+
+	/**
+	 * @return the number of employees by sex.
+	 */
+	public Map<String, Long> getBySex() {
+		return Collections.unmodifiableMap(bySex);
+	}
+
+	/**
+	 * @return the number of employees by age band, youngest first.
+	 */
+	public Map<String, Long> getByAge() {
+		return Collections.unmodifiableMap(byAge);
+	}
+
+	/**
+	 * @return the number of employees by title, most common first.
+	 */
+	public Map<String, Long> getByTitle() {
+		return Collections.unmodifiableMap(byTitle);
+	}
+
+	/**
+	 * @return the number of employees by department.
+	 */
+	public List<DepartmentCount> getByDepartment() {
+		return Collections.unmodifiableList(byDepartment);
+	}
+
+	private static void add(Map<String, Long> counts, String key, long count) {
+		Long current = counts.get(key);
+		counts.put(key, (current == null) ? count : current + count);
+	}
+
+	/**
+	 * Number of employees in a department.
+	 */
+	public static class DepartmentCount {
+		private final long departmentId;
+		private final String name;
+		private final long count;
+
+		DepartmentCount(long departmentId, String name, long count) {
+			this.departmentId = departmentId;
+			this.name = name;
+			this.count = count;
+		}
+
+		/**
+		 * @return the ID of the department, 0 for the employees without a department.
+		 */
+		public long getDepartmentId() {
+			return departmentId;
+		}
+
+		/**
+		 * @return the name of the department, null for the employees without a department.
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * @return the number of employees in the department.
+		 */
+		public long getCount() {
+			return count;
+		}
+	}
+
+}
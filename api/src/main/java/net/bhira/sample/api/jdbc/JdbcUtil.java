@@ -0,0 +1,175 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Baldeep Hira
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.bhira.sample.api.jdbc;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.SqlProvider;
+
+/**
+ * Class providing some JDBC utilities used by the DAO classes.
+ * 
+ * @author Baldeep Hira
+ */
+public class JdbcUtil {
+
+	/**
+	 * Maximum number of bind parameters used in a single SQL "in (...)" clause. Larger collections
+	 * of IDs are split into chunks of this size.
+	 */
+	public static final int MAX_IN_CLAUSE_SIZE = 500;
+
+	/**
+	 * Create the comma separated list of bind parameter place holders to be used in a SQL
+	 * "in (...)" clause.
+	 * 
+	 * @param count
+	 *            the number of bind parameters.
+	 * @return the place holder list e.g. "?,?,?" for count of 3.
+	 */
+	public static String inClause(int count) {
+		if (count <= 0) {
+			throw new IllegalArgumentException("Invalid bind parameter count " + count);
+		}
+		char[] chars = new char[count * 2 - 1];
+		Arrays.fill(chars, ',');
+		for (int i = 0; i < chars.length; i += 2) {
+			chars[i] = '?';
+		}
+		return new String(chars);
+	}
+
+	/**
+	 * Qualify each column in the given comma separated select list with the given table alias.
+	 *
+	 * @param alias
+	 *            the table alias.
+	 * @param columns
+	 *            the select list, e.g. "id, name".
+	 * @return the qualified select list e.g. "t.id, t.name" for alias "t".
+	 */
+	public static String qualify(String alias, String columns) {
+		StringBuilder sb = new StringBuilder(columns.length() * 2);
+		for (String column : columns.split(",")) {
+			if (sb.length() > 0) {
+				sb.append(", ");
+			}
+			sb.append(alias).append('.').append(column.trim());
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Split the given IDs into chunks of at most the given size. Null and duplicate IDs are
+	 * dropped, while the order of the first occurrence of each ID is retained.
+	 * 
+	 * @param ids
+	 *            the collection of IDs.
+	 * @param size
+	 *            the maximum size of each chunk.
+	 * @return the list of chunks, an empty list if there are no IDs.
+	 */
+	public static List<List<Long>> partition(Collection<Long> ids, int size) {
+		List<List<Long>> chunks = new ArrayList<List<Long>>();
+		if (ids == null || ids.isEmpty()) {
+			return chunks;
+		}
+
+		LinkedHashSet<Long> distinct = new LinkedHashSet<Long>(ids);
+		distinct.remove(null);
+		List<Long> chunk = null;
+		for (Long id : distinct) {
+			if (chunk == null || chunk.size() == size) {
+				chunk = new ArrayList<Long>(Math.min(size, distinct.size()));
+				chunks.add(chunk);
+			}
+			chunk.add(id);
+		}
+		return chunks;
+	}
+
+	/**
+	 * Create a {@link org.springframework.jdbc.core.PreparedStatementCreator} for a read only,
+	 * forward only query whose rows are streamed from the database one at a time, instead of the
+	 * driver reading the complete result into memory. The rows must be consumed without issuing
+	 * other statements on the same connection.
+	 * 
+	 * @param sql
+	 *            the SQL query.
+	 * @param args
+	 *            the bind parameters for the query.
+	 * @return the prepared statement creator.
+	 */
+	public static PreparedStatementCreator streaming(String sql, Object... args) {
+		return new StreamingStatementCreator(sql, args);
+	}
+
+	/**
+	 * Prepared statement creator used for streaming queries.
+	 */
+	private static class StreamingStatementCreator implements PreparedStatementCreator,
+			SqlProvider, SqlArgumentsProvider {
+
+		private final String sql;
+		private final Object[] args;
+
+		StreamingStatementCreator(String sql, Object[] args) {
+			this.sql = sql;
+			this.args = args;
+		}
+
+		@Override
+		public PreparedStatement createPreparedStatement(Connection connection)
+				throws SQLException {
+			PreparedStatement pstmt = connection.prepareStatement(sql,
+					ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+			// MySQL driver streams the rows only for this special fetch size value
+			pstmt.setFetchSize(Integer.MIN_VALUE);
+			new ArgumentPreparedStatementSetter(args).setValues(pstmt);
+			return pstmt;
+		}
+
+		@Override
+		public String getSql() {
+			return sql;
+		}
+
+		@Override
+		public Object[] getSqlArguments() {
+			return args;
+		}
+
+	}
+
+}
@@ -0,0 +1,76 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Baldeep Hira
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.bhira.sample.api.jdbc;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.function.Consumer;
+
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+
+/**
+ * Helper class used to map each row in jdbc ResultSet to a model object using the given
+ * {@link org.springframework.jdbc.core.RowMapper} and hand it over to a consumer as soon as it is
+ * read. Unlike a query returning a List, the rows are never collected in memory.
+ * 
+ * @author Baldeep Hira
+ */
+public class ModelCallbackHandler<T> implements RowCallbackHandler {
+
+	private final RowMapper<T> rowMapper;
+	private final Consumer<T> consumer;
+	private int rowCount;
+
+	/**
+	 * Constructor for ModelCallbackHandler.
+	 * 
+	 * @param rowMapper
+	 *            the row mapper used to map each row to model object.
+	 * @param consumer
+	 *            the consumer to which each model object is handed over.
+	 */
+	public ModelCallbackHandler(RowMapper<T> rowMapper, Consumer<T> consumer) {
+		this.rowMapper = rowMapper;
+		this.consumer = consumer;
+	}
+
+	/**
+	 * @see org.springframework.jdbc.core.RowCallbackHandler#processRow(java.sql.ResultSet)
+	 */
+	@Override
+	public void processRow(ResultSet rs) throws SQLException {
+		consumer.accept(rowMapper.mapRow(rs, rowCount++));
+	}
+
+	/**
+	 * Get the number of rows processed so far.
+	 * 
+	 * @return the number of rows processed.
+	 */
+	public int getRowCount() {
+		return rowCount;
+	}
+
+}
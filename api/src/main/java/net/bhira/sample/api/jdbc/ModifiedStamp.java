@@ -0,0 +1,121 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Baldeep Hira
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.bhira.sample.api.jdbc;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Date;
+
+import org.springframework.jdbc.core.RowMapper;
+
+/**
+ * Summary of the modifications of a list of models, i.e. the number of models in the list, the
+ * latest modified time among them, the sum of their versions and the highest ID. The modified time
+ * only has a precision of seconds, but every update increments the version of a model and every
+ * insert takes a higher ID, so any insert, update or delete of a model in the list changes the
+ * summary, even within the same second. It can be used to tag the version of the list without
+ * loading it.
+ * 
+ * @author Baldeep Hira
+ */
+public class ModifiedStamp {
+
+	/**
+	 * Select list for the summary of the selected rows, in the order expected by
+	 * {@link #ROW_MAPPER}.
+	 */
+	public static final String COLUMNS = "count(*), max(modified), coalesce(sum(version), 0), "
+			+ "coalesce(max(id), 0)";
+
+	/**
+	 * Row mapper for rows selected with {@link #COLUMNS}.
+	 */
+	public static final RowMapper<ModifiedStamp> ROW_MAPPER = new RowMapper<ModifiedStamp>() {
+		@Override
+		public ModifiedStamp mapRow(ResultSet rs, int rowNum) throws SQLException {
+			return new ModifiedStamp(rs.getLong(1), rs.getTimestamp(2), rs.getLong(3),
+					rs.getLong(4));
+		}
+	};
+
+	private final long count;
+	private final Date lastModified;
+	private final long versionSum;
+	private final long maxId;
+
+	/**
+	 * Constructor for ModifiedStamp.
+	 * 
+	 * @param count
+	 *            the number of models.
+	 * @param lastModified
+	 *            the latest modified time of the models, null if there are none.
+	 * @param versionSum
+	 *            the sum of the versions of the models, 0 if there are none.
+	 * @param maxId
+	 *            the highest ID of the models, 0 if there are none.
+	 */
+	public ModifiedStamp(long count, Date lastModified, long versionSum, long maxId) {
+		this.count = count;
+		this.lastModified = lastModified;
+		this.versionSum = versionSum;
+		this.maxId = maxId;
+	}
+
+	/**
+	 * @return the number of models.
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * @return the latest modified time of the models, null if there are none.
+	 */
+	public Date getLastModified() {
+		return lastModified;
+	}
+
+	/**
+	 * @return the latest modified time of the models in milliseconds, 0 if there are none.
+	 */
+	public long getLastModifiedTime() {
+		return (lastModified == null) ? 0 : lastModified.getTime();
+	}
+
+	/**
+	 * @return the sum of the versions of the models, 0 if there are none.
+	 */
+	public long getVersionSum() {
+		return versionSum;
+	}
+
+	/**
+	 * @return the highest ID of the models, 0 if there are none.
+	 */
+	public long getMaxId() {
+		return maxId;
+	}
+
+}
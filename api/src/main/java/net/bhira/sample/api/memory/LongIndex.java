@@ -0,0 +1,143 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Baldeep Hira
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.bhira.sample.api.memory;
+
+import java.util.Collections;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Secondary index of an in-memory table, mapping a key, e.g. the company ID of employees, to the
+ * IDs of the rows having that key. The IDs of each key are kept sorted, so that a page of rows
+ * after a given ID is read straight off the index. A key of 0 means there is no reference, and
+ * such rows are not indexed.
+ * <p>
+ * The index can be read concurrently, but it must only be modified while holding the write lock
+ * of {@link MemoryStore}.
+ * 
+ * @author Baldeep Hira
+ */
+public class LongIndex {
+
+	private static final NavigableSet<Long> NO_IDS = Collections
+			.unmodifiableNavigableSet(new ConcurrentSkipListSet<Long>());
+
+	private final ConcurrentMap<Long, NavigableSet<Long>> entries =
+			new ConcurrentHashMap<Long, NavigableSet<Long>>();
+
+	/**
+	 * Add the given row ID under the given key.
+	 * 
+	 * @param key
+	 *            the indexed key.
+	 * @param id
+	 *            the ID of the row.
+	 */
+	public void add(long key, long id) {
+		if (key == 0) {
+			return;
+		}
+		NavigableSet<Long> ids = entries.get(key);
+		if (ids == null) {
+			ids = new ConcurrentSkipListSet<Long>();
+			entries.put(key, ids);
+		}
+		ids.add(id);
+	}
+
+	/**
+	 * Remove the given row ID from the given key.
+	 * 
+	 * @param key
+	 *            the indexed key.
+	 * @param id
+	 *            the ID of the row.
+	 */
+	public void remove(long key, long id) {
+		NavigableSet<Long> ids = entries.get(key);
+		if (ids != null) {
+			ids.remove(id);
+			if (ids.isEmpty()) {
+				entries.remove(key);
+			}
+		}
+	}
+
+	/**
+	 * Move the given row ID from the old key to the new key.
+	 * 
+	 * @param oldKey
+	 *            the key the row was indexed under.
+	 * @param newKey
+	 *            the key the row is indexed under from now on.
+	 * @param id
+	 *            the ID of the row.
+	 */
+	public void move(long oldKey, long newKey, long id) {
+		if (oldKey != newKey) {
+			remove(oldKey, id);
+			add(newKey, id);
+		}
+	}
+
+	/**
+	 * Get the IDs of the rows having the given key.
+	 * 
+	 * @param key
+	 *            the indexed key.
+	 * @return the unmodifiable set of row IDs in ascending order, empty if there are none.
+	 */
+	public NavigableSet<Long> get(long key) {
+		NavigableSet<Long> ids = entries.get(key);
+		return (ids == null) ? NO_IDS : Collections.unmodifiableNavigableSet(ids);
+	}
+
+	/**
+	 * Get the IDs of the rows having the given key that are greater than the given ID.
+	 * 
+	 * @param key
+	 *            the indexed key.
+	 * @param afterId
+	 *            the exclusive lower bound of the row IDs.
+	 * @return the unmodifiable set of row IDs in ascending order, empty if there are none.
+	 */
+	public NavigableSet<Long> tail(long key, long afterId) {
+		return get(key).tailSet(afterId, false);
+	}
+
+	/**
+	 * Check whether any row has the given key.
+	 * 
+	 * @param key
+	 *            the indexed key.
+	 * @return true if at least one row ID is indexed under the key.
+	 */
+	public boolean contains(long key) {
+		NavigableSet<Long> ids = entries.get(key);
+		return ids != null && !ids.isEmpty();
+	}
+
+}
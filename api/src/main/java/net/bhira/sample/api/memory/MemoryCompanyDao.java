@@ -0,0 +1,237 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Baldeep Hira
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.bhira.sample.api.memory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Repository;
+
+import net.bhira.sample.api.dao.CompanyDao;
+import net.bhira.sample.api.jdbc.ModifiedStamp;
+import net.bhira.sample.common.exception.InvalidObjectException;
+import net.bhira.sample.common.exception.InvalidReferenceException;
+import net.bhira.sample.common.exception.ObjectNotFoundException;
+import net.bhira.sample.common.exception.StaleObjectException;
+import net.bhira.sample.model.Company;
+
+/**
+ * In-memory implementation for Company DAO, used when the "memory" profile is active. It has the
+ * same semantics as {@link net.bhira.sample.api.dao.CompanyDaoImpl}, including the foreign key
+ * checks of the database schema.
+ * 
+ * @author Baldeep Hira
+ */
+@Repository("companyDao")
+@Profile("memory")
+public class MemoryCompanyDao implements CompanyDao {
+
+	/**
+	 * private singleton instance of the SLF4J logger for this class.
+	 */
+	private static final Logger LOG = LoggerFactory.getLogger(MemoryCompanyDao.class);
+
+	@Autowired
+	MemoryStore store;
+
+	@Autowired
+	MemoryContactInfoDao contactInfoDao;
+
+	/**
+	 * @see net.bhira.sample.api.dao.CompanyDao#load(long)
+	 */
+	@Override
+	public Company load(long companyId) {
+		Company company = store.companies.get(companyId);
+		LOG.debug("loaded company, found = {}, id = {}", company != null, companyId);
+		if (company == null) {
+			return null;
+		}
+		company = copy(company);
+		company.setContactInfo(contactInfoDao.loadRelated(store.companyContactInfos, companyId));
+		return company;
+	}
+
+	/**
+	 * @see net.bhira.sample.api.dao.CompanyDao#loadAll(java.util.Collection)
+	 */
+	@Override
+	public List<Company> loadAll(Collection<Long> companyIds) {
+		List<Company> result = new ArrayList<Company>();
+		if (companyIds == null) {
+			return result;
+		}
+		for (Long id : new LinkedHashSet<Long>(companyIds)) {
+			Company company = (id == null) ? null : load(id);
+			if (company != null) {
+				result.add(company);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @see net.bhira.sample.api.dao.CompanyDao#save(net.bhira.sample.model.Company)
+	 */
+	@Override
+	public void save(Company company) throws ObjectNotFoundException, InvalidObjectException,
+			InvalidReferenceException, StaleObjectException {
+		if (company == null) {
+			throw new InvalidObjectException("Company object is null.");
+		}
+
+		company.initForSave();
+		company.validate();
+		boolean isNew = company.isNew();
+
+		store.lock();
+		try {
+			Company row = copy(company);
+			if (isNew) {
+				company.setId(store.companySequence.incrementAndGet());
+				row.setId(company.getId());
+				row.setVersion(0);
+			} else {
+				Company current = store.companies.get(company.getId());
+				MemoryStore.checkVersion("Company", current, company);
+				row.setCreated(current.getCreated());
+				row.setCreatedBy(current.getCreatedBy());
+				row.setVersion(current.getVersion() + 1);
+			}
+			store.companies.put(row.getId(), row);
+			company.setVersion(row.getVersion());
+			LOG.debug("saved company, isNew = {}, id = {}", isNew, company.getId());
+
+			contactInfoDao.saveRelated(store.companyContactInfos, company.getId(),
+					company.getContactInfo());
+		} finally {
+			store.unlock();
+		}
+	}
+
+	/**
+	 * @see net.bhira.sample.api.dao.CompanyDao#delete(long)
+	 */
+	@Override
+	public boolean delete(long companyId) {
+		store.lock();
+		try {
+			if (store.departmentsByCompany.contains(companyId)) {
+				throw new DataIntegrityViolationException("Cannot delete company " + companyId
+						+ ", it is referenced by fk_department_compy");
+			}
+			if (store.employeesByCompany.contains(companyId)) {
+				throw new DataIntegrityViolationException("Cannot delete company " + companyId
+						+ ", it is referenced by fk_employee_compy");
+			}
+
+			contactInfoDao.deleteRelated(store.companyContactInfos, companyId);
+			boolean found = store.companies.remove(companyId) != null;
+			LOG.debug("deleted company, found = {}, id = {}", found, companyId);
+			return found;
+		} finally {
+			store.unlock();
+		}
+	}
+
+	/**
+	 * @see net.bhira.sample.api.dao.CompanyDao#loadAll()
+	 */
+	@Override
+	public List<Company> loadAll() {
+		List<Company> list = new ArrayList<Company>();
+		for (Company company : store.companies.values()) {
+			list.add(copy(company));
+		}
+		LOG.debug("loaded all companies, count = {}", list.size());
+		return list;
+	}
+
+	/**
+	 * @see net.bhira.sample.api.dao.CompanyDao#loadAll(java.util.function.Consumer)
+	 */
+	@Override
+	public void loadAll(Consumer<Company> consumer) {
+		int count = 0;
+		for (Company company : store.companies.values()) {
+			consumer.accept(copy(company));
+			count++;
+		}
+		LOG.debug("streamed all companies, count = {}", count);
+	}
+
+	/**
+	 * @see net.bhira.sample.api.dao.CompanyDao#loadPage(long, int)
+	 */
+	@Override
+	public List<Company> loadPage(long afterId, int limit) {
+		List<Company> list = new ArrayList<Company>();
+		for (Long id : store.companies.tailMap(afterId, false).keySet()) {
+			if (list.size() >= limit) {
+				break;
+			}
+			Company company = load(id);
+			if (company != null) {
+				list.add(company);
+			}
+		}
+		LOG.debug("loaded company page, count = {}, afterId = {}", list.size(), afterId);
+		return list;
+	}
+
+	/**
+	 * @see net.bhira.sample.api.dao.CompanyDao#loadModifiedStamp()
+	 */
+	@Override
+	public ModifiedStamp loadModifiedStamp() {
+		ModifiedStamp stamp = MemoryStore.stamp(store.companies.keySet(), store.companies);
+		LOG.debug("loaded company stamp, count = {}, lastModified = {}", stamp.getCount(),
+				stamp.getLastModified());
+		return stamp;
+	}
+
+	/**
+	 * Copy the given company without its contact info.
+	 * 
+	 * @param source
+	 *            the company to copy.
+	 * @return the shallow copy of the company.
+	 */
+	private static Company copy(Company source) {
+		Company company = MemoryStore.copyBase(source, new Company());
+		company.setIndustry(source.getIndustry());
+		company.setBillingAddress(source.getBillingAddress());
+		company.setShippingAddress(source.getShippingAddress());
+		return company;
+	}
+
+}
@@ -0,0 +1,201 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Baldeep Hira
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.bhira.sample.api.memory;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import net.bhira.sample.api.dao.ContactInfoDao;
+import net.bhira.sample.model.ContactInfo;
+
+/**
+ * In-memory implementation for ContactInfo DAO, used when the "memory" profile is active. Besides
+ * the CRUD operations of {@link net.bhira.sample.api.dao.ContactInfoDao}, it keeps the
+ * relationship tables of {@link MemoryStore} in sync for the other in-memory DAOs.
+ * 
+ * @author Baldeep Hira
+ */
+@Repository("contactInfoDao")
+@Profile("memory")
+public class MemoryContactInfoDao implements ContactInfoDao {
+
+	/**
+	 * private singleton instance of the SLF4J logger for this class.
+	 */
+	private static final Logger LOG = LoggerFactory.getLogger(MemoryContactInfoDao.class);
+
+	@Autowired
+	MemoryStore store;
+
+	/**
+	 * @see net.bhira.sample.api.dao.ContactInfoDao#load(long)
+	 */
+	@Override
+	public ContactInfo load(long contactInfoId) {
+		ContactInfo contactInfo = store.contactInfos.get(contactInfoId);
+		LOG.debug("loaded contactInfo, found = {}, id = {}", contactInfo != null, contactInfoId);
+		return (contactInfo == null) ? null : copy(contactInfo);
+	}
+
+	/**
+	 * @see net.bhira.sample.api.dao.ContactInfoDao#save(net.bhira.sample.model.ContactInfo)
+	 */
+	@Override
+	public void save(ContactInfo contactInfo) {
+		if (contactInfo == null) {
+			return;
+		}
+
+		if (contactInfo.isNew()) {
+			contactInfo.setId(store.contactInfoSequence.incrementAndGet());
+			store.contactInfos.put(contactInfo.getId(), copy(contactInfo));
+			LOG.debug("inserted contactInfo, id = {}", contactInfo.getId());
+		} else {
+			// like an SQL update, an unknown ID is silently ignored
+			ContactInfo previous = store.contactInfos.replace(contactInfo.getId(),
+					copy(contactInfo));
+			boolean found = (previous != null);
+			LOG.debug("updated contactInfo, found = {}, id = {}", found, contactInfo.getId());
+		}
+	}
+
+	/**
+	 * @see net.bhira.sample.api.dao.ContactInfoDao#saveAll(java.util.List)
+	 */
+	@Override
+	public void saveAll(List<ContactInfo> contactInfos) {
+		if (contactInfos == null) {
+			return;
+		}
+		for (ContactInfo contactInfo : contactInfos) {
+			save(contactInfo);
+		}
+	}
+
+	/**
+	 * @see net.bhira.sample.api.dao.ContactInfoDao#delete(long)
+	 */
+	@Override
+	public boolean delete(long contactInfoId) {
+		boolean found = store.contactInfos.remove(contactInfoId) != null;
+		LOG.debug("deleted contactInfo, found = {}, id = {}", found, contactInfoId);
+		return found;
+	}
+
+	/**
+	 * @see net.bhira.sample.api.dao.ContactInfoDao#deleteAll(java.util.Collection)
+	 */
+	@Override
+	public int deleteAll(Collection<Long> contactInfoIds) {
+		int count = 0;
+		if (contactInfoIds != null) {
+			for (Long id : new HashSet<Long>(contactInfoIds)) {
+				if (id != null && store.contactInfos.remove(id) != null) {
+					count++;
+				}
+			}
+		}
+		LOG.debug("deleted contactInfos, count = {}", count);
+		return count;
+	}
+
+	/**
+	 * Load the contact info of the given owner, i.e. a company, department or employee.
+	 * 
+	 * @param relation
+	 *            the relationship table of the owner, from {@link MemoryStore}.
+	 * @param ownerId
+	 *            the ID of the owner.
+	 * @return the contact info, null if the owner has none.
+	 */
+	ContactInfo loadRelated(ConcurrentMap<Long, Long> relation, long ownerId) {
+		Long cinfoId = relation.get(ownerId);
+		return (cinfoId == null) ? null : load(cinfoId);
+	}
+
+	/**
+	 * Save the contact info of the given owner, that has already been inserted or updated, and
+	 * keep the relationship table in sync. The existing contact info of the owner is updated,
+	 * replaced or deleted, as needed.
+	 * 
+	 * @param relation
+	 *            the relationship table of the owner, from {@link MemoryStore}.
+	 * @param ownerId
+	 *            the ID of the owner.
+	 * @param contactInfo
+	 *            the contact info of the owner, null if it has none.
+	 */
+	void saveRelated(ConcurrentMap<Long, Long> relation, long ownerId, ContactInfo contactInfo) {
+		Long cinfoId = relation.get(ownerId);
+		if (contactInfo == null) {
+			// clean up old contact info entry, if needed
+			if (cinfoId != null) {
+				relation.remove(ownerId);
+				delete(cinfoId);
+			}
+
+		} else if (cinfoId != null) {
+			contactInfo.setId(cinfoId);
+			save(contactInfo);
+
+		} else {
+			save(contactInfo);
+			relation.put(ownerId, contactInfo.getId());
+		}
+	}
+
+	/**
+	 * Delete the contact info of the given owner along with its relationship entry.
+	 * 
+	 * @param relation
+	 *            the relationship table of the owner, from {@link MemoryStore}.
+	 * @param ownerId
+	 *            the ID of the owner.
+	 */
+	void deleteRelated(ConcurrentMap<Long, Long> relation, long ownerId) {
+		Long cinfoId = relation.remove(ownerId);
+		if (cinfoId != null) {
+			delete(cinfoId);
+		}
+	}
+
+	private static ContactInfo copy(ContactInfo source) {
+		ContactInfo contactInfo = new ContactInfo();
+		contactInfo.setId(source.getId());
+		contactInfo.setPhone(source.getPhone());
+		contactInfo.setFax(source.getFax());
+		contactInfo.setEmail(source.getEmail());
+		contactInfo.setWebsite(source.getWebsite());
+		return contactInfo;
+	}
+
+}
@@ -0,0 +1,328 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Baldeep Hira
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.bhira.sample.api.memory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Repository;
+
+import net.bhira.sample.api.dao.DepartmentDao;
+import net.bhira.sample.api.jdbc.ModifiedStamp;
+import net.bhira.sample.common.exception.DuplicateNameException;
+import net.bhira.sample.common.exception.InvalidObjectException;
+import net.bhira.sample.common.exception.InvalidReferenceException;
+import net.bhira.sample.common.exception.ObjectNotFoundException;
+import net.bhira.sample.common.exception.StaleObjectException;
+import net.bhira.sample.model.Department;
+
+/**
+ * In-memory implementation for Department DAO, used when the "memory" profile is active. It has
+ * the same semantics as {@link net.bhira.sample.api.dao.DepartmentDaoImpl}, including the foreign
+ * key checks and the case insensitive unique department name per company of the database schema.
+ * 
+ * @author Baldeep Hira
+ */
+@Repository("departmentDao")
+@Profile("memory")
+public class MemoryDepartmentDao implements DepartmentDao {
+
+	/**
+	 * private singleton instance of the SLF4J logger for this class.
+	 */
+	private static final Logger LOG = LoggerFactory.getLogger(MemoryDepartmentDao.class);
+
+	@Autowired
+	MemoryStore store;
+
+	@Autowired
+	MemoryContactInfoDao contactInfoDao;
+
+	/**
+	 * @see net.bhira.sample.api.dao.DepartmentDao#load(long)
+	 */
+	@Override
+	public Department load(long departmentId) {
+		Department department = store.departments.get(departmentId);
+		LOG.debug("loaded department, found = {}, id = {}", department != null, departmentId);
+		if (department == null) {
+			return null;
+		}
+		department = copy(department);
+		department.setContactInfo(contactInfoDao.loadRelated(store.departmentContactInfos,
+				departmentId));
+		return department;
+	}
+
+	/**
+	 * @see net.bhira.sample.api.dao.DepartmentDao#loadAll(java.util.Collection)
+	 */
+	@Override
+	public List<Department> loadAll(Collection<Long> departmentIds) {
+		List<Department> result = new ArrayList<Department>();
+		if (departmentIds == null) {
+			return result;
+		}
+		for (Long id : new LinkedHashSet<Long>(departmentIds)) {
+			Department department = (id == null) ? null : load(id);
+			if (department != null) {
+				result.add(department);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @see net.bhira.sample.api.dao.DepartmentDao#save(net.bhira.sample.model.Department)
+	 */
+	@Override
+	public void save(Department department) throws ObjectNotFoundException, DuplicateNameException,
+			InvalidObjectException, InvalidReferenceException, StaleObjectException {
+		if (department == null) {
+			throw new InvalidObjectException("Department object is null.");
+		}
+
+		department.initForSave();
+		department.validate();
+		boolean isNew = department.isNew();
+
+		store.lock();
+		try {
+			Department current = null;
+			if (!isNew) {
+				current = store.departments.get(department.getId());
+				MemoryStore.checkVersion("Department", current, department);
+			}
+			if (!store.companies.containsKey(department.getCompanyId())) {
+				throw new InvalidReferenceException("Invalid reference for attribute 'companyId'");
+			}
+			for (Long id : store.departmentsByCompany.get(department.getCompanyId())) {
+				Department other = store.departments.get(id);
+				if (other != null && id != department.getId()
+						&& other.getName().equalsIgnoreCase(department.getName())) {
+					throw new DuplicateNameException("Duplicate department name "
+							+ department.getName());
+				}
+			}
+
+			Department row = copy(department);
+			if (isNew) {
+				department.setId(store.departmentSequence.incrementAndGet());
+				row.setId(department.getId());
+				row.setVersion(0);
+				store.departments.put(row.getId(), row);
+				store.departmentsByCompany.add(row.getCompanyId(), row.getId());
+			} else {
+				row.setCreated(current.getCreated());
+				row.setCreatedBy(current.getCreatedBy());
+				row.setVersion(current.getVersion() + 1);
+				store.departments.put(row.getId(), row);
+				store.departmentsByCompany.move(current.getCompanyId(), row.getCompanyId(),
+						row.getId());
+			}
+			department.setVersion(row.getVersion());
+			LOG.debug("saved department, isNew = {}, id = {}", isNew, department.getId());
+
+			contactInfoDao.saveRelated(store.departmentContactInfos, department.getId(),
+					department.getContactInfo());
+		} finally {
+			store.unlock();
+		}
+	}
+
+	/**
+	 * @see net.bhira.sample.api.dao.DepartmentDao#delete(long)
+	 */
+	@Override
+	public boolean delete(long departmentId) {
+		store.lock();
+		try {
+			if (store.employeesByDepartment.contains(departmentId)) {
+				throw new DataIntegrityViolationException("Cannot delete department "
+						+ departmentId + ", it is referenced by fk_employee_dept");
+			}
+
+			contactInfoDao.deleteRelated(store.departmentContactInfos, departmentId);
+			Department department = store.departments.remove(departmentId);
+			if (department != null) {
+				store.departmentsByCompany.remove(department.getCompanyId(), departmentId);
+			}
+			LOG.debug("deleted department, found = {}, id = {}", department != null,
+					departmentId);
+			return (department != null);
+		} finally {
+			store.unlock();
+		}
+	}
+
+	/**
+	 * @see net.bhira.sample.api.dao.DepartmentDao#deleteByCompany(long, int)
+	 */
+	@Override
+	public int deleteByCompany(long companyId, int limit) {
+		store.lock();
+		try {
+			List<Long> ids = new ArrayList<Long>();
+			for (Long id : store.departmentsByCompany.get(companyId)) {
+				if (ids.size() >= limit) {
+					break;
+				}
+				if (store.employeesByDepartment.contains(id)) {
+					throw new DataIntegrityViolationException("Cannot delete department " + id
+							+ ", it is referenced by fk_employee_dept");
+				}
+				ids.add(id);
+			}
+
+			for (Long id : ids) {
+				contactInfoDao.deleteRelated(store.departmentContactInfos, id);
+				store.departments.remove(id);
+				store.departmentsByCompany.remove(companyId, id);
+			}
+			LOG.debug("deleted departments by company, count = {}, companyId = {}", ids.size(),
+					companyId);
+			return ids.size();
+		} finally {
+			store.unlock();
+		}
+	}
+
+	/**
+	 * @see net.bhira.sample.api.dao.DepartmentDao#loadByCompany(long)
+	 */
+	@Override
+	public List<Department> loadByCompany(long companyId) {
+		List<Department> list = new ArrayList<Department>();
+		loadByCompany(companyId, new Consumer<Department>() {
+			@Override
+			public void accept(Department department) {
+				list.add(department);
+			}
+		});
+		return list;
+	}
+
+	/**
+	 * @see net.bhira.sample.api.dao.DepartmentDao#loadByCompany(long,
+	 *      java.util.function.Consumer)
+	 */
+	@Override
+	public void loadByCompany(long companyId, Consumer<Department> consumer) {
+		int count = 0;
+		for (Long id : store.departmentsByCompany.get(companyId)) {
+			Department department = store.departments.get(id);
+			if (department != null) {
+				consumer.accept(copy(department));
+				count++;
+			}
+		}
+		LOG.debug("loaded departments by company, count = {}, companyId = {}", count, companyId);
+	}
+
+	/**
+	 * @see net.bhira.sample.api.dao.DepartmentDao#loadModifiedSince(long, java.util.Date,
+	 *      java.util.function.Consumer)
+	 */
+	@Override
+	public void loadModifiedSince(long companyId, Date since, Consumer<Department> consumer) {
+		// there is no index on the modified time, so the departments of the company are scanned
+		List<Department> modified = new ArrayList<Department>();
+		for (Long id : store.departmentsByCompany.get(companyId)) {
+			Department department = store.departments.get(id);
+			if (department != null && department.getModified().getTime() >= since.getTime()) {
+				modified.add(department);
+			}
+		}
+		Collections.sort(modified, new Comparator<Department>() {
+			@Override
+			public int compare(Department d1, Department d2) {
+				int diff = Long.compare(d1.getModified().getTime(), d2.getModified().getTime());
+				return (diff != 0) ? diff : Long.compare(d1.getId(), d2.getId());
+			}
+		});
+		for (Department department : modified) {
+			consumer.accept(copy(department));
+		}
+		LOG.debug("loaded departments modified since, count = {}, companyId = {}, since = {}",
+				modified.size(), companyId, since);
+	}
+
+	/**
+	 * @see net.bhira.sample.api.dao.DepartmentDao#loadDetailsByCompany(long, long,
+	 *      java.util.function.Consumer)
+	 */
+	@Override
+	public void loadDetailsByCompany(long companyId, long afterId,
+			Consumer<Department> consumer) {
+		int count = 0;
+		for (Long id : store.departmentsByCompany.tail(companyId, afterId)) {
+			Department department = load(id);
+			if (department != null) {
+				consumer.accept(department);
+				count++;
+			}
+		}
+		LOG.debug("streamed department details by company, count = {}, companyId = {}, "
+				+ "afterId = {}", count, companyId, afterId);
+	}
+
+	/**
+	 * @see net.bhira.sample.api.dao.DepartmentDao#loadModifiedStampByCompany(long)
+	 */
+	@Override
+	public ModifiedStamp loadModifiedStampByCompany(long companyId) {
+		ModifiedStamp stamp = MemoryStore.stamp(store.departmentsByCompany.get(companyId),
+				store.departments);
+		LOG.debug("loaded department stamp, count = {}, lastModified = {}", stamp.getCount(),
+				stamp.getLastModified());
+		return stamp;
+	}
+
+	/**
+	 * Copy the given department without its contact info.
+	 * 
+	 * @param source
+	 *            the department to copy.
+	 * @return the shallow copy of the department.
+	 */
+	private static Department copy(Department source) {
+		Department department = MemoryStore.copyBase(source, new Department());
+		department.setCompanyId(source.getCompanyId());
+		department.setBillingAddress(source.getBillingAddress());
+		department.setShippingAddress(source.getShippingAddress());
+		return department;
+	}
+
+}
@@ -0,0 +1,723 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Baldeep Hira
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.bhira.sample.api.memory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Repository;
+
+import net.bhira.sample.api.dao.EmployeeDao;
+import net.bhira.sample.api.index.EmployeeDirectory;
+import net.bhira.sample.api.index.EmployeeDirectoryIndex;
+import net.bhira.sample.api.index.OrgChart;
+import net.bhira.sample.api.index.OrgChartIndex;
+import net.bhira.sample.api.jdbc.EmployeeProjection;
+import net.bhira.sample.api.jdbc.EmployeeStats;
+import net.bhira.sample.api.jdbc.ModifiedStamp;
+import net.bhira.sample.common.exception.InvalidObjectException;
+import net.bhira.sample.common.exception.InvalidReferenceException;
+import net.bhira.sample.common.exception.ObjectNotFoundException;
+import net.bhira.sample.common.exception.StaleObjectException;
+import net.bhira.sample.model.Department;
+import net.bhira.sample.model.Employee;
+
+/**
+ * In-memory implementation for Employee DAO, used when the "memory" profile is active. It has the
+ * same semantics as {@link net.bhira.sample.api.dao.EmployeeDaoImpl}, including the foreign key
+ * checks of the database schema. The employees of a company or department are read off the
+ * secondary indexes of {@link MemoryStore}, which also feed the reporting hierarchy of
+ * {@link net.bhira.sample.api.index.OrgChartIndex} and the search directory of
+ * {@link net.bhira.sample.api.index.EmployeeDirectoryIndex}.
+ * 
+ * @author Baldeep Hira
+ */
+@Repository("employeeDao")
+@Profile("memory")
+public class MemoryEmployeeDao implements EmployeeDao {
+
+	/**
+	 * private singleton instance of the SLF4J logger for this class.
+	 */
+	private static final Logger LOG = LoggerFactory.getLogger(MemoryEmployeeDao.class);
+
+	/**
+	 * order of the employees modified since a given time, by modified time and ID.
+	 */
+	private static final Comparator<Employee> BY_MODIFIED = new Comparator<Employee>() {
+		@Override
+		public int compare(Employee e1, Employee e2) {
+			int diff = Long.compare(e1.getModified().getTime(), e2.getModified().getTime());
+			return (diff != 0) ? diff : Long.compare(e1.getId(), e2.getId());
+		}
+	};
+
+	@Autowired
+	MemoryStore store;
+
+	@Autowired
+	MemoryContactInfoDao contactInfoDao;
+
+	@Autowired
+	OrgChartIndex orgChartIndex;
+
+	@Autowired
+	EmployeeDirectoryIndex employeeDirectoryIndex;
+
+	/**
+	 * @see net.bhira.sample.api.dao.EmployeeDao#load(long)
+	 */
+	@Override
+	public Employee load(long employeeId) {
+		Employee employee = store.employees.get(employeeId);
+		LOG.debug("loaded employee, found = {}, id = {}", employee != null, employeeId);
+		if (employee == null) {
+			return null;
+		}
+		employee = copy(employee);
+		employee.setContactInfo(contactInfoDao.loadRelated(store.employeeContactInfos,
+				employeeId));
+		return employee;
+	}
+
+	/**
+	 * @see net.bhira.sample.api.dao.EmployeeDao#loadAll(java.util.Collection)
+	 */
+	@Override
+	public List<Employee> loadAll(Collection<Long> employeeIds) {
+		List<Employee> result = new ArrayList<Employee>();
+		if (employeeIds == null) {
+			return result;
+		}
+		for (Long id : new LinkedHashSet<Long>(employeeIds)) {
+			Employee employee = (id == null) ? null : load(id);
+			if (employee != null) {
+				result.add(employee);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @see net.bhira.sample.api.dao.EmployeeDao#save(net.bhira.sample.model.Employee)
+	 */
+	@Override
+	public void save(Employee employee) throws ObjectNotFoundException, InvalidObjectException,
+			InvalidReferenceException, StaleObjectException {
+		if (employee == null) {
+			throw new InvalidObjectException("Employee object is null.");
+		}
+
+		employee.initForSave();
+		employee.validate();
+
+		store.lock();
+		try {
+			Employee current = null;
+			if (!employee.isNew()) {
+				current = store.employees.get(employee.getId());
+				MemoryStore.checkVersion("Employee", current, employee);
+			}
+			checkReferences(employee);
+			put(employee, current);
+		} finally {
+			store.unlock();
+		}
+	}
+
+	/**
+	 * @see net.bhira.sample.api.dao.EmployeeDao#saveAll(java.util.List)
+	 */
+	@Override
+	public void saveAll(List<Employee> employees) throws ObjectNotFoundException,
+			InvalidObjectException, InvalidReferenceException, StaleObjectException {
+		if (employees == null) {
+			throw new InvalidObjectException("Employee list is null.");
+		}
+
+		// validate all the employees before writing any of them
+		for (Employee employee : employees) {
+			if (employee == null) {
+				throw new InvalidObjectException("Employee object is null.");
+			}
+			employee.initForSave();
+			employee.validate();
+		}
+
+		store.lock();
+		try {
+			// check versions and references of all the employees before writing any of them, an
+			// employee updated twice is stale the second time, as its version has moved on
+			Map<Long, Long> versions = new HashMap<Long, Long>();
+			int inserted = 0;
+			for (Employee employee : employees) {
+				if (employee.isNew()) {
+					inserted++;
+				} else {
+					Employee current = store.employees.get(employee.getId());
+					Long version = versions.get(employee.getId());
+					if (version != null) {
+						current = copy(current);
+						current.setVersion(version + 1);
+					}
+					MemoryStore.checkVersion("Employee", current, employee);
+					versions.put(employee.getId(), current.getVersion());
+				}
+				checkReferences(employee);
+			}
+
+			for (Employee employee : employees) {
+				put(employee, employee.isNew() ? null : store.employees.get(employee.getId()));
+			}
+			LOG.debug("saved employees, inserted = {}, updated = {}", inserted,
+					employees.size() - inserted);
+		} finally {
+			store.unlock();
+		}
+	}
+
+	/**
+	 * Check that the company, department and manager referenced by the given employee exist.
+	 * 
+	 * @param employee
+	 *            the employee being saved.
+	 * @throws InvalidReferenceException
+	 *             if any of the references does not exist.
+	 */
+	private void checkReferences(Employee employee) throws InvalidReferenceException {
+		if (!store.companies.containsKey(employee.getCompanyId())) {
+			throw new InvalidReferenceException("Invalid reference for attribute 'companyId'");
+		}
+		if (employee.getDepartmentId() != 0
+				&& !store.departments.containsKey(employee.getDepartmentId())) {
+			throw new InvalidReferenceException("Invalid reference for attribute 'departmentId'");
+		}
+		if (employee.getManagerId() != 0 && employee.getManagerId() != employee.getId()
+				&& !store.employees.containsKey(employee.getManagerId())) {
+			throw new InvalidReferenceException("Invalid reference for attribute 'managerId'");
+		}
+	}
+
+	/**
+	 * Write the given employee, that has already been checked, along with its contact info and
+	 * update the secondary indexes. The newly assigned ID and the new version are set back in the
+	 * passed employee model.
+	 * 
+	 * @param employee
+	 *            the employee being saved.
+	 * @param current
+	 *            the current row of the employee, null if the employee is new.
+	 */
+	private void put(Employee employee, Employee current) {
+		boolean isNew = (current == null);
+		Employee row = copy(employee);
+		if (isNew) {
+			employee.setId(store.employeeSequence.incrementAndGet());
+			row.setId(employee.getId());
+			row.setVersion(0);
+		} else {
+			row.setCreated(current.getCreated());
+			row.setCreatedBy(current.getCreatedBy());
+			row.setVersion(current.getVersion() + 1);
+		}
+		store.employees.put(row.getId(), row);
+		employee.setVersion(row.getVersion());
+
+		long id = row.getId();
+		if (isNew) {
+			store.employeesByCompany.add(row.getCompanyId(), id);
+			store.employeesByDepartment.add(row.getDepartmentId(), id);
+			store.employeesByManager.add(row.getManagerId(), id);
+		} else {
+			store.employeesByCompany.move(current.getCompanyId(), row.getCompanyId(), id);
+			store.employeesByDepartment.move(current.getDepartmentId(), row.getDepartmentId(), id);
+			store.employeesByManager.move(current.getManagerId(), row.getManagerId(), id);
+		}
+		LOG.debug("saved employee, isNew = {}, id = {}", isNew, id);
+
+		contactInfoDao.saveRelated(store.employeeContactInfos, id, employee.getContactInfo());
+		long previousCompanyId = isNew ? 0 : current.getCompanyId();
+		orgChartIndex.update(row.getCompanyId(), previousCompanyId, id, row.getManagerId());
+		employeeDirectoryIndex.update(row.getCompanyId(), previousCompanyId, id, row.getName(),
+				row.getTitle());
+	}
+
+	/**
+	 * @see net.bhira.sample.api.dao.EmployeeDao#updateManagers(long, java.util.Map)
+	 */
+	@Override
+	public List<Long> updateManagers(long companyId, Map<Long, Long> managerIds)
+			throws InvalidReferenceException {
+		store.lock();
+		try {
+			// check all the managers before writing any of the employees
+			for (Long managerId : managerIds.values()) {
+				if (managerId != 0 && !store.employees.containsKey(managerId)) {
+					throw new InvalidReferenceException(
+							"Invalid reference for attribute 'managerId'");
+				}
+			}
+
+			Date modified = new Date();
+			List<Long> updated = new ArrayList<Long>();
+			for (Map.Entry<Long, Long> entry : managerIds.entrySet()) {
+				// employees that are not found in the company are skipped
+				Employee current = store.employees.get(entry.getKey());
+				if (current == null || current.getCompanyId() != companyId) {
+					continue;
+				}
+				Employee row = copy(current);
+				row.setManagerId(entry.getValue());
+				row.setModified(modified);
+				row.setModifiedBy("system");
+				row.setVersion(current.getVersion() + 1);
+				store.employees.put(row.getId(), row);
+				store.employeesByManager.move(current.getManagerId(), row.getManagerId(),
+						row.getId());
+				orgChartIndex.update(companyId, companyId, row.getId(), row.getManagerId());
+				updated.add(row.getId());
+			}
+			LOG.debug("updated managers, count = {}, companyId = {}", updated.size(), companyId);
+			return updated;
+		} finally {
+			store.unlock();
+		}
+	}
+
+	/**
+	 * @see net.bhira.sample.api.dao.EmployeeDao#delete(long)
+	 */
+	@Override
+	public boolean delete(long employeeId) {
+		store.lock();
+		try {
+			for (Long id : store.employeesByManager.get(employeeId)) {
+				if (id != employeeId) {
+					throw new DataIntegrityViolationException("Cannot delete employee "
+							+ employeeId + ", it is referenced by fk_employee_mgr");
+				}
+			}
+
+			contactInfoDao.deleteRelated(store.employeeContactInfos, employeeId);
+			Employee employee = store.employees.remove(employeeId);
+			if (employee != null) {
+				store.employeesByCompany.remove(employee.getCompanyId(), employeeId);
+				store.employeesByDepartment.remove(employee.getDepartmentId(), employeeId);
+				store.employeesByManager.remove(employee.getManagerId(), employeeId);
+				orgChartIndex.remove(employee.getCompanyId(), employeeId);
+				employeeDirectoryIndex.remove(employee.getCompanyId(), employeeId);
+			}
+			LOG.debug("deleted employee, found = {}, id = {}", employee != null, employeeId);
+			return (employee != null);
+		} finally {
+			store.unlock();
+		}
+	}
+
+	/**
+	 * @see net.bhira.sample.api.dao.EmployeeDao#deleteByCompany(long, int)
+	 */
+	@Override
+	public int deleteByCompany(long companyId, int limit) {
+		store.lock();
+		try {
+			Set<Long> ids = new LinkedHashSet<Long>();
+			for (Long id : store.employeesByCompany.get(companyId)) {
+				if (ids.size() >= limit) {
+					break;
+				}
+				ids.add(id);
+			}
+
+			// clear the manager of the remaining employees of the company reporting to the chunk,
+			// reports from other companies violate the foreign key like they do in the database
+			List<Employee> reports = new ArrayList<Employee>();
+			for (Long id : ids) {
+				for (Long reportId : store.employeesByManager.get(id)) {
+					Employee report = store.employees.get(reportId);
+					if (report == null || ids.contains(reportId)) {
+						continue;
+					}
+					if (report.getCompanyId() != companyId) {
+						throw new DataIntegrityViolationException("Cannot delete employee " + id
+								+ ", it is referenced by fk_employee_mgr");
+					}
+					reports.add(report);
+				}
+			}
+			for (Employee report : reports) {
+				Employee row = copy(report);
+				row.setManagerId(0);
+				store.employees.put(row.getId(), row);
+				store.employeesByManager.remove(report.getManagerId(), row.getId());
+			}
+
+			for (Long id : ids) {
+				contactInfoDao.deleteRelated(store.employeeContactInfos, id);
+				Employee employee = store.employees.remove(id);
+				store.employeesByCompany.remove(companyId, id);
+				store.employeesByDepartment.remove(employee.getDepartmentId(), id);
+				store.employeesByManager.remove(employee.getManagerId(), id);
+			}
+
+			// the whole chart and directory are dropped rather than updated employee by employee
+			orgChartIndex.invalidate(companyId);
+			employeeDirectoryIndex.invalidate(companyId);
+			LOG.debug("deleted employees by company, count = {}, companyId = {}, reports = {}",
+					ids.size(), companyId, reports.size());
+			return ids.size();
+		} finally {
+			store.unlock();
+		}
+	}
+
+	/**
+	 * @see net.bhira.sample.api.dao.EmployeeDao#loadByCompany(long)
+	 */
+	@Override
+	public List<Employee> loadByCompany(long companyId) {
+		List<Employee> list = collect(store.employeesByCompany.get(companyId));
+		LOG.debug("loaded employees by company, count = {}, companyId = {}", list.size(),
+				companyId);
+		return list;
+	}
+
+	/**
+	 * @see net.bhira.sample.api.dao.EmployeeDao#loadByDepartment(long)
+	 */
+	@Override
+	public List<Employee> loadByDepartment(long departmentId) {
+		List<Employee> list = collect(store.employeesByDepartment.get(departmentId));
+		LOG.debug("loaded employees by department, count = {}, departmentId = {}", list.size(),
+				departmentId);
+		return list;
+	}
+
+	/**
+	 * @see net.bhira.sample.api.dao.EmployeeDao#loadByCompany(long, long, int,
+	 *      net.bhira.sample.api.jdbc.EmployeeProjection, java.util.function.Consumer)
+	 */
+	@Override
+	public void loadByCompany(long companyId, long afterId, int limit,
+			EmployeeProjection projection, Consumer<Employee> consumer) {
+		int count = page(store.employeesByCompany.tail(companyId, afterId), limit, projection,
+				consumer);
+		LOG.debug("loaded employee page by company, count = {}, companyId = {}, afterId = {}",
+				count, companyId, afterId);
+	}
+
+	/**
+	 * @see net.bhira.sample.api.dao.EmployeeDao#loadByDepartment(long, long, int,
+	 *      net.bhira.sample.api.jdbc.EmployeeProjection, java.util.function.Consumer)
+	 */
+	@Override
+	public void loadByDepartment(long departmentId, long afterId, int limit,
+			EmployeeProjection projection, Consumer<Employee> consumer) {
+		int count = page(store.employeesByDepartment.tail(departmentId, afterId), limit,
+				projection, consumer);
+		LOG.debug("loaded employee page by department, count = {}, departmentId = {}, "
+				+ "afterId = {}", count, departmentId, afterId);
+	}
+
+	/**
+	 * @see net.bhira.sample.api.dao.EmployeeDao#loadModifiedSince(long, java.util.Date, long,
+	 *      int, net.bhira.sample.api.jdbc.EmployeeProjection, java.util.function.Consumer)
+	 */
+	@Override
+	public void loadModifiedSince(long companyId, Date since, long afterId, int limit,
+			EmployeeProjection projection, Consumer<Employee> consumer) {
+		// there is no index on the modified time, so the employees of the company are scanned
+		List<Employee> modified = new ArrayList<Employee>();
+		for (Long id : store.employeesByCompany.get(companyId)) {
+			Employee employee = store.employees.get(id);
+			if (employee != null) {
+				long time = employee.getModified().getTime();
+				if (time > since.getTime() || (time == since.getTime() && id > afterId)) {
+					modified.add(employee);
+				}
+			}
+		}
+		Collections.sort(modified, BY_MODIFIED);
+		int count = Math.min(limit, modified.size());
+		for (Employee employee : modified.subList(0, count)) {
+			consumer.accept(projection.project(employee));
+		}
+		LOG.debug("loaded employee page modified since, count = {}, companyId = {}, since = {}, "
+				+ "afterId = {}", count, companyId, since, afterId);
+	}
+
+	/**
+	 * @see net.bhira.sample.api.dao.EmployeeDao#loadDetailsByCompany(long, long,
+	 *      java.util.function.Consumer)
+	 */
+	@Override
+	public void loadDetailsByCompany(long companyId, long afterId, Consumer<Employee> consumer) {
+		int count = 0;
+		for (Long id : store.employeesByCompany.tail(companyId, afterId)) {
+			Employee employee = load(id);
+			if (employee != null) {
+				consumer.accept(employee);
+				count++;
+			}
+		}
+		LOG.debug("streamed employee details by company, count = {}, companyId = {}, "
+				+ "afterId = {}", count, companyId, afterId);
+	}
+
+	/**
+	 * @see net.bhira.sample.api.dao.EmployeeDao#loadReportIds(long, long, int)
+	 */
+	@Override
+	public List<Long> loadReportIds(long companyId, long employeeId, int depth) {
+		List<Long> list = getOrgChart(companyId).getReports(employeeId, depth);
+		LOG.debug("loaded report ids, count = {}, id = {}, depth = {}", list.size(), employeeId,
+				depth);
+		return list;
+	}
+
+	/**
+	 * @see net.bhira.sample.api.dao.EmployeeDao#loadChainIds(long, long)
+	 */
+	@Override
+	public List<Long> loadChainIds(long companyId, long employeeId) {
+		List<Long> list = getOrgChart(companyId).getChain(employeeId);
+		LOG.debug("loaded manager chain ids, count = {}, id = {}", list.size(), employeeId);
+		return list;
+	}
+
+	/**
+	 * @see net.bhira.sample.api.dao.EmployeeDao#loadMatchingIds(long, java.lang.String, int)
+	 */
+	@Override
+	public List<Long> loadMatchingIds(long companyId, String query, int limit) {
+		List<Long> list = getDirectory(companyId).search(query, limit);
+		LOG.debug("loaded matching ids, count = {}, companyId = {}, query = {}", list.size(),
+				companyId, query);
+		return list;
+	}
+
+	/**
+	 * Get the org chart of the given company from the index, reading the manager of every
+	 * employee of the company off the company index if the chart is not indexed yet.
+	 * 
+	 * @param companyId
+	 *            the ID of the company.
+	 * @return the org chart of the company.
+	 */
+	private OrgChart getOrgChart(long companyId) {
+		return orgChartIndex.getChart(companyId, new Function<Long, Map<Long, Long>>() {
+			@Override
+			public Map<Long, Long> apply(Long id) {
+				Map<Long, Long> managers = new HashMap<Long, Long>();
+				for (Long employeeId : store.employeesByCompany.get(id)) {
+					Employee employee = store.employees.get(employeeId);
+					if (employee != null) {
+						managers.put(employeeId, employee.getManagerId());
+					}
+				}
+				return managers;
+			}
+		});
+	}
+
+	/**
+	 * Get the employee directory of the given company from the index, reading the name and title
+	 * of every employee of the company off the company index if the directory is not indexed
+	 * yet.
+	 * 
+	 * @param companyId
+	 *            the ID of the company.
+	 * @return the employee directory of the company.
+	 */
+	private EmployeeDirectory getDirectory(long companyId) {
+		return employeeDirectoryIndex.getDirectory(companyId,
+				new Function<Long, List<Employee>>() {
+					@Override
+					public List<Employee> apply(Long id) {
+						List<Employee> employees = new ArrayList<Employee>();
+						for (Long employeeId : store.employeesByCompany.get(id)) {
+							Employee employee = store.employees.get(employeeId);
+							if (employee != null) {
+								employees.add(employee);
+							}
+						}
+						return employees;
+					}
+				});
+	}
+
+	/**
+	 * @see net.bhira.sample.api.dao.EmployeeDao#loadModifiedStampByCompany(long)
+	 */
+	@Override
+	public ModifiedStamp loadModifiedStampByCompany(long companyId) {
+		ModifiedStamp stamp = MemoryStore.stamp(store.employeesByCompany.get(companyId),
+				store.employees);
+		LOG.debug("loaded employee stamp, count = {}, lastModified = {}", stamp.getCount(),
+				stamp.getLastModified());
+		return stamp;
+	}
+
+	/**
+	 * @see net.bhira.sample.api.dao.EmployeeDao#loadStatsByCompany(long)
+	 */
+	@Override
+	public EmployeeStats loadStatsByCompany(long companyId) {
+		EmployeeStats stats = new EmployeeStats(companyId, new Date());
+		Date[] cutoffs = EmployeeStats.getAgeCutoffs(stats.getComputed());
+		Map<String, Long> titles = new HashMap<String, Long>();
+		Map<Long, Long> departments = new TreeMap<Long, Long>();
+		for (Long id : store.employeesByCompany.get(companyId)) {
+			Employee employee = store.employees.get(id);
+			if (employee == null) {
+				continue;
+			}
+			stats.setHeadcount(stats.getHeadcount() + 1);
+			stats.addSex((employee.getSex() == null) ? null : employee.getSex().name(), 1);
+			stats.addAgeBand(EmployeeStats.getAgeBand(employee.getDOB(), cutoffs), 1);
+			increment(titles, employee.getTitle());
+			increment(departments, employee.getDepartmentId());
+		}
+
+		// most common titles first, like the database query
+		List<Map.Entry<String, Long>> titleCounts = new ArrayList<Map.Entry<String, Long>>(
+				titles.entrySet());
+		Collections.sort(titleCounts, new Comparator<Map.Entry<String, Long>>() {
+			@Override
+			public int compare(Map.Entry<String, Long> e1, Map.Entry<String, Long> e2) {
+				int diff = e2.getValue().compareTo(e1.getValue());
+				if (diff != 0) {
+					return diff;
+				} else if (e1.getKey() == null || e2.getKey() == null) {
+					return (e1.getKey() == null) ? ((e2.getKey() == null) ? 0 : -1) : 1;
+				}
+				return e1.getKey().compareTo(e2.getKey());
+			}
+		});
+		for (Map.Entry<String, Long> entry : titleCounts) {
+			stats.addTitle(entry.getKey(), entry.getValue());
+		}
+		for (Map.Entry<Long, Long> entry : departments.entrySet()) {
+			Department department = store.departments.get(entry.getKey());
+			stats.addDepartment(entry.getKey(),
+					(department == null) ? null : department.getName(), entry.getValue());
+		}
+		LOG.debug("loaded employee stats, headcount = {}, companyId = {}", stats.getHeadcount(),
+				companyId);
+		return stats;
+	}
+
+	private static <K> void increment(Map<K, Long> counts, K key) {
+		Long count = counts.get(key);
+		counts.put(key, (count == null) ? 1 : count + 1);
+	}
+
+	/**
+	 * @see net.bhira.sample.api.dao.EmployeeDao#loadModifiedStampByDepartment(long)
+	 */
+	@Override
+	public ModifiedStamp loadModifiedStampByDepartment(long departmentId) {
+		ModifiedStamp stamp = MemoryStore.stamp(store.employeesByDepartment.get(departmentId),
+				store.employees);
+		LOG.debug("loaded employee stamp, count = {}, lastModified = {}", stamp.getCount(),
+				stamp.getLastModified());
+		return stamp;
+	}
+
+	/**
+	 * Copy the employees with the given IDs, skipping the ones deleted in the meantime.
+	 * 
+	 * @param ids
+	 *            the IDs of the employees.
+	 * @return the list of shallow copies of the employees.
+	 */
+	private List<Employee> collect(Iterable<Long> ids) {
+		List<Employee> list = new ArrayList<Employee>();
+		for (Long id : ids) {
+			Employee employee = store.employees.get(id);
+			if (employee != null) {
+				list.add(copy(employee));
+			}
+		}
+		return list;
+	}
+
+	/**
+	 * Hand over the projected copies of the employees with the given IDs to the consumer, up to
+	 * the given limit.
+	 * 
+	 * @param ids
+	 *            the IDs of the employees, in ascending order.
+	 * @param limit
+	 *            the maximum number of employees.
+	 * @param projection
+	 *            the fields of the employees to copy.
+	 * @param consumer
+	 *            the consumer of the employees.
+	 * @return the number of employees handed over.
+	 */
+	private int page(Iterable<Long> ids, int limit, EmployeeProjection projection,
+			Consumer<Employee> consumer) {
+		int count = 0;
+		for (Long id : ids) {
+			if (count >= limit) {
+				break;
+			}
+			Employee employee = store.employees.get(id);
+			if (employee != null) {
+				consumer.accept(projection.project(employee));
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Copy the given employee without its contact info.
+	 * 
+	 * @param source
+	 *            the employee to copy.
+	 * @return the shallow copy of the employee.
+	 */
+	private static Employee copy(Employee source) {
+		return EmployeeProjection.ALL.project(source);
+	}
+
+}
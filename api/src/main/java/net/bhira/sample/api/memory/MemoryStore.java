@@ -0,0 +1,192 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Baldeep Hira
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.bhira.sample.api.memory;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import net.bhira.sample.api.jdbc.ModifiedStamp;
+import net.bhira.sample.common.exception.ObjectNotFoundException;
+import net.bhira.sample.common.exception.StaleObjectException;
+import net.bhira.sample.model.BaseModel;
+import net.bhira.sample.model.Company;
+import net.bhira.sample.model.ContactInfo;
+import net.bhira.sample.model.Department;
+import net.bhira.sample.model.Employee;
+
+/**
+ * Tables, sequences and secondary indexes of the in-memory storage engine, which is used instead
+ * of the database when the "memory" profile is active. Each table maps a row ID to a private
+ * copy of the model, so that callers never share instances with the store, and the relationship
+ * tables map the ID of a company, department or employee to the ID of its contact info.
+ * <p>
+ * Rows are read without locking. Writes are serialized by a single lock, as the referential
+ * checks of one DAO read the tables of the others, which makes every DAO call atomic. There is
+ * no undo log though, so rolling back a transaction does not revert the DAO calls that already
+ * completed in it.
+ * 
+ * @author Baldeep Hira
+ */
+@Component("memoryStore")
+@Profile("memory")
+public class MemoryStore {
+
+	final ConcurrentNavigableMap<Long, Company> companies =
+			new ConcurrentSkipListMap<Long, Company>();
+	final ConcurrentNavigableMap<Long, Department> departments =
+			new ConcurrentSkipListMap<Long, Department>();
+	final ConcurrentNavigableMap<Long, Employee> employees =
+			new ConcurrentSkipListMap<Long, Employee>();
+	final ConcurrentNavigableMap<Long, ContactInfo> contactInfos =
+			new ConcurrentSkipListMap<Long, ContactInfo>();
+
+	final ConcurrentMap<Long, Long> companyContactInfos = new ConcurrentHashMap<Long, Long>();
+	final ConcurrentMap<Long, Long> departmentContactInfos = new ConcurrentHashMap<Long, Long>();
+	final ConcurrentMap<Long, Long> employeeContactInfos = new ConcurrentHashMap<Long, Long>();
+
+	final LongIndex departmentsByCompany = new LongIndex();
+	final LongIndex employeesByCompany = new LongIndex();
+	final LongIndex employeesByDepartment = new LongIndex();
+	final LongIndex employeesByManager = new LongIndex();
+
+	final AtomicLong companySequence = new AtomicLong();
+	final AtomicLong departmentSequence = new AtomicLong();
+	final AtomicLong employeeSequence = new AtomicLong();
+	final AtomicLong contactInfoSequence = new AtomicLong();
+
+	private final ReentrantLock writeLock = new ReentrantLock();
+
+	/**
+	 * Acquire the write lock of the store. It must be released with {@link #unlock()} in a finally
+	 * block.
+	 */
+	void lock() {
+		writeLock.lock();
+	}
+
+	/**
+	 * Release the write lock of the store.
+	 */
+	void unlock() {
+		writeLock.unlock();
+	}
+
+	/**
+	 * Compute the {@link net.bhira.sample.api.jdbc.ModifiedStamp} of the given rows of a table,
+	 * i.e. their number, latest modified time, sum of versions and highest ID.
+	 * 
+	 * @param ids
+	 *            the IDs of the rows.
+	 * @param table
+	 *            the table holding the rows.
+	 * @return the modified stamp of the rows.
+	 */
+	static ModifiedStamp stamp(Iterable<Long> ids, Map<Long, ? extends BaseModel> table) {
+		long count = 0;
+		Date lastModified = null;
+		long versionSum = 0;
+		long maxId = 0;
+		for (Long id : ids) {
+			BaseModel model = table.get(id);
+			if (model == null) {
+				continue;
+			}
+			count++;
+			if (lastModified == null || model.getModified().after(lastModified)) {
+				lastModified = model.getModified();
+			}
+			versionSum += model.getVersion();
+			maxId = Math.max(maxId, id);
+		}
+		return new ModifiedStamp(count, copy(lastModified), versionSum, maxId);
+	}
+
+	/**
+	 * Check that the row being updated exists and carries the version of the given model.
+	 * 
+	 * @param type
+	 *            the model name used in the messages, e.g. "Company".
+	 * @param current
+	 *            the current row, null if there is no such row.
+	 * @param model
+	 *            the model being updated.
+	 * @throws ObjectNotFoundException
+	 *             if there is no current row.
+	 * @throws StaleObjectException
+	 *             if the version of the current row has moved on since the model was loaded.
+	 */
+	static void checkVersion(String type, BaseModel current, BaseModel model)
+			throws ObjectNotFoundException, StaleObjectException {
+		if (current == null) {
+			throw new ObjectNotFoundException(type + " with ID " + model.getId()
+					+ " was not found.");
+		}
+		if (current.getVersion() != model.getVersion()) {
+			throw new StaleObjectException(type + " with ID " + model.getId()
+					+ " was modified since version " + model.getVersion() + ".");
+		}
+	}
+
+	/**
+	 * Copy the attributes of {@link net.bhira.sample.model.BaseModel} from the source model to the
+	 * target model.
+	 * 
+	 * @param source
+	 *            the model to copy from.
+	 * @param target
+	 *            the model to copy to.
+	 * @return the target model.
+	 */
+	static <T extends BaseModel> T copyBase(BaseModel source, T target) {
+		target.setId(source.getId());
+		target.setName(source.getName());
+		target.setCreated(copy(source.getCreated()));
+		target.setModified(copy(source.getModified()));
+		target.setCreatedBy(source.getCreatedBy());
+		target.setModifiedBy(source.getModifiedBy());
+		target.setVersion(source.getVersion());
+		return target;
+	}
+
+	/**
+	 * Copy the given date, as dates are mutable.
+	 * 
+	 * @param date
+	 *            the date to copy.
+	 * @return the copy of the date, null if the date is null.
+	 */
+	static Date copy(Date date) {
+		return (date == null) ? null : new Date(date.getTime());
+	}
+
+}
@@ -0,0 +1,92 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Baldeep Hira
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.bhira.sample.api.memory;
+
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Transaction manager used along with the in-memory DAOs of the "memory" profile. It does not
+ * hold any resources, as each call to {@link MemoryStore} is atomic on its own, but it keeps the
+ * transaction boundaries of the service layer, so that transaction synchronizations, e.g. the
+ * after commit updates of {@link net.bhira.sample.api.index.OrgChartIndex}, run as they do with
+ * the JDBC transaction manager. Rolling back a transaction does not revert the DAO calls made
+ * in it. The service methods stay atomic nonetheless, as each of them makes a single DAO write
+ * and the DAOs check all the rows of a call before writing any of them, while the purge and the
+ * import run a transaction per chunk.
+ * 
+ * @author Baldeep Hira
+ */
+public class MemoryTransactionManager extends AbstractPlatformTransactionManager {
+
+	private static final long serialVersionUID = 1L;
+
+	@Override
+	protected Object doGetTransaction() {
+		return new Object();
+	}
+
+	@Override
+	protected boolean isExistingTransaction(Object transaction) {
+		return TransactionSynchronizationManager.hasResource(this);
+	}
+
+	@Override
+	protected void doBegin(Object transaction, TransactionDefinition definition) {
+		TransactionSynchronizationManager.bindResource(this, transaction);
+	}
+
+	@Override
+	protected Object doSuspend(Object transaction) {
+		return TransactionSynchronizationManager.unbindResource(this);
+	}
+
+	@Override
+	protected void doResume(Object transaction, Object suspendedResources) {
+		TransactionSynchronizationManager.bindResource(this, suspendedResources);
+	}
+
+	@Override
+	protected void doCommit(DefaultTransactionStatus status) {
+		// nothing to commit, the changes have already been applied to the store
+	}
+
+	@Override
+	protected void doRollback(DefaultTransactionStatus status) {
+		// nothing to roll back, the store does not keep an undo log
+	}
+
+	@Override
+	protected void doSetRollbackOnly(DefaultTransactionStatus status) {
+		// a participating transaction failed, there is nothing to mark though
+	}
+
+	@Override
+	protected void doCleanupAfterCompletion(Object transaction) {
+		TransactionSynchronizationManager.unbindResourceIfPossible(this);
+	}
+
+}
@@ -0,0 +1,107 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Baldeep Hira
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.bhira.sample.api.metrics;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+/**
+ * Connection pool metrics tracker factory that remembers, per thread, how long the last
+ * connection borrowed by the thread waited in the pool, and passes all the measurements on to a
+ * delegate factory. The pool records the wait on the borrowing thread, so the statements executed
+ * on that connection can report the wait, e.g. in the slow statement log.
+ * 
+ * @author Baldeep Hira
+ */
+public class ConnectionWaitTrackerFactory implements MetricsTrackerFactory {
+
+	private static final ThreadLocal<long[]> LAST_WAIT = new ThreadLocal<long[]>() {
+		@Override
+		protected long[] initialValue() {
+			return new long[1];
+		}
+	};
+
+	private MetricsTrackerFactory delegate;
+
+	/**
+	 * Get the time the last connection borrowed by the current thread waited in the pool.
+	 * 
+	 * @return the wait in nanoseconds, 0 if the thread has not borrowed a connection.
+	 */
+	public static long getLastWaitNanos() {
+		return LAST_WAIT.get()[0];
+	}
+
+	/**
+	 * @see com.zaxxer.hikari.metrics.MetricsTrackerFactory#create(java.lang.String,
+	 *      com.zaxxer.hikari.metrics.PoolStats)
+	 */
+	@Override
+	public IMetricsTracker create(String poolName, PoolStats poolStats) {
+		IMetricsTracker tracker = (delegate == null) ? new IMetricsTracker() {
+		} : delegate.create(poolName, poolStats);
+		return new IMetricsTracker() {
+			@Override
+			public void recordConnectionCreatedMillis(long connectionCreatedMillis) {
+				tracker.recordConnectionCreatedMillis(connectionCreatedMillis);
+			}
+
+			@Override
+			public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+				LAST_WAIT.get()[0] = elapsedAcquiredNanos;
+				tracker.recordConnectionAcquiredNanos(elapsedAcquiredNanos);
+			}
+
+			@Override
+			public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+				tracker.recordConnectionUsageMillis(elapsedBorrowedMillis);
+			}
+
+			@Override
+			public void recordConnectionTimeout() {
+				tracker.recordConnectionTimeout();
+			}
+
+			@Override
+			public void close() {
+				tracker.close();
+			}
+		};
+	}
+
+	// -------------------------GETTERS AND SETTERS-------------------------
+
+	/**
+	 * Set the factory to which all the measurements are passed on, e.g. the prometheus factory.
+	 * 
+	 * @param delegate
+	 *            the delegate metrics tracker factory.
+	 */
+	public void setDelegate(MetricsTrackerFactory delegate) {
+		this.delegate = delegate;
+	}
+
+}
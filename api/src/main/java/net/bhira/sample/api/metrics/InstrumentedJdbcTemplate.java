@@ -0,0 +1,580 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Baldeep Hira
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.bhira.sample.api.metrics;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.ColumnMapRowMapper;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCallback;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapperResultSetExtractor;
+import org.springframework.jdbc.core.SqlProvider;
+import org.springframework.jdbc.core.StatementCallback;
+import org.springframework.stereotype.Repository;
+
+import io.prometheus.client.Counter;
+import io.prometheus.client.Histogram;
+import net.bhira.sample.api.jdbc.SqlArgumentsProvider;
+
+/**
+ * JdbcTemplate that publishes the latency, the number of rows and the number of failures of every
+ * SQL statement to prometheus. Statements are identified by the name of the SQL_* constant they
+ * were built from, e.g. "EmployeeDaoImpl.SQL_LOAD_BY_ID". The constants are collected from the
+ * {@link org.springframework.stereotype.Repository} beans once the application context is
+ * refreshed. Parameter lists of variable length, e.g. "in (?,?,?)", are matched against the "in
+ * (%s)" templates, and queries with a variable select list against the "select %s from" templates.
+ * Statements that do not match any constant are published as "other".
+ * <p>
+ * The number of rows is the number of rows read by a query, or the update count of an update or
+ * batch update.
+ * <p>
+ * Statements slower than the configured threshold are logged along with their bound parameters,
+ * number of rows and the time their connection waited in the pool, and are kept in a
+ * {@link SlowStatementLog}. The parameters can be redacted, and the query plan of slow queries can
+ * be captured with EXPLAIN. The parameters are known for statements built from SQL and arguments,
+ * and for statement creators implementing {@link SqlArgumentsProvider}.
+ * 
+ * @author Baldeep Hira
+ */
+public class InstrumentedJdbcTemplate extends JdbcTemplate
+		implements ApplicationListener<ContextRefreshedEvent> {
+
+	/**
+	 * private singleton instance of the SLF4J logger for this class.
+	 */
+	private static final Logger LOG = LoggerFactory.getLogger(InstrumentedJdbcTemplate.class);
+
+	private static final String OTHER = "other";
+	private static final String REDACTED = "?";
+	private static final int MAX_PARAMETER_LENGTH = 100;
+	private static final int MAX_CACHED_STATEMENTS = 10000;
+	private static final Pattern PARAMETER_LIST = Pattern
+			.compile("\\((\\s*\\?\\s*,)*\\s*\\?\\s*\\)");
+	private static final Pattern SELECT_LIST = Pattern.compile("^select .+? from ");
+
+	private static final Histogram DURATION = MetricsUtil
+			.latencyHistogram("sql_statement_duration_seconds",
+					"Time spent executing SQL statements, including reading the rows.")
+			.labelNames("statement").register();
+	private static final Counter ROWS = Counter.build().name("sql_statement_rows_total")
+			.help("Number of rows read or updated by SQL statements.").labelNames("statement")
+			.register();
+	private static final Counter ERRORS = Counter.build().name("sql_statement_errors_total")
+			.help("Number of SQL statements that failed.").labelNames("statement").register();
+
+	/**
+	 * Bind parameters of the statement about to be executed by the current thread, handed over
+	 * from {@link #newArgPreparedStatementSetter(Object[])} to the execute methods.
+	 */
+	private static final ThreadLocal<Object[]> PENDING_ARGS = new ThreadLocal<Object[]>();
+
+	private volatile Map<String, String> names = Collections.emptyMap();
+	private final ConcurrentMap<String, StatementMetrics> metrics =
+			new ConcurrentHashMap<String, StatementMetrics>();
+	private boolean enabled = true;
+	private long slowThresholdNanos;
+	private boolean redactParameters = true;
+	private boolean explain;
+	private SlowStatementLog slowStatementLog;
+
+	/**
+	 * Collect the SQL_* constants of the repository beans, once all the beans are created.
+	 * 
+	 * @see org.springframework.context.ApplicationListener#
+	 *      onApplicationEvent(org.springframework.context.ApplicationEvent)
+	 */
+	@Override
+	public void onApplicationEvent(ContextRefreshedEvent event) {
+		Map<String, String> map = new HashMap<String, String>();
+		Map<String, Object> daos = event.getApplicationContext().getBeansWithAnnotation(
+				Repository.class);
+		for (Object dao : daos.values()) {
+			Class<?> type = AopUtils.getTargetClass(dao);
+			for (Field field : type.getDeclaredFields()) {
+				int modifiers = field.getModifiers();
+				if (Modifier.isStatic(modifiers) && field.getType() == String.class
+						&& field.getName().startsWith("SQL_")) {
+					try {
+						field.setAccessible(true);
+						String sql = ((String) field.get(null)).replace("%s", "?");
+						map.put(normalize(sql), type.getSimpleName() + "." + field.getName());
+					} catch (IllegalAccessException iae) {
+						LOG.warn("Unable to read {}.{}", type.getName(), field.getName());
+					}
+				}
+			}
+		}
+		names = map;
+		metrics.clear();
+		LOG.info("collected sql statement names, count = {}", map.size());
+	}
+
+	/**
+	 * @see org.springframework.jdbc.core.JdbcTemplate#
+	 *      execute(org.springframework.jdbc.core.PreparedStatementCreator,
+	 *      org.springframework.jdbc.core.PreparedStatementCallback)
+	 */
+	@Override
+	public <T> T execute(PreparedStatementCreator psc, PreparedStatementCallback<T> action)
+			throws DataAccessException {
+		Object[] args = PENDING_ARGS.get();
+		if (args != null) {
+			PENDING_ARGS.remove();
+		} else if (psc instanceof SqlArgumentsProvider) {
+			args = ((SqlArgumentsProvider) psc).getSqlArguments();
+		}
+		if (!enabled && slowThresholdNanos <= 0) {
+			return super.execute(psc, action);
+		}
+		String sql = getSql(psc);
+		SqlCapture capture = null;
+		if (sql == null) {
+			// e.g. statements returning generated keys, the SQL is only known once prepared
+			capture = new SqlCapture(psc);
+		}
+		long start = System.nanoTime();
+		T result = null;
+		boolean failed = true;
+		try {
+			result = super.execute((capture == null) ? psc : capture, action);
+			failed = false;
+			return result;
+		} finally {
+			record((capture == null) ? sql : capture.sql, args, start, result, failed);
+		}
+	}
+
+	/**
+	 * @see org.springframework.jdbc.core.JdbcTemplate#
+	 *      execute(org.springframework.jdbc.core.StatementCallback)
+	 */
+	@Override
+	public <T> T execute(StatementCallback<T> action) throws DataAccessException {
+		if (!enabled && slowThresholdNanos <= 0) {
+			return super.execute(action);
+		}
+		long start = System.nanoTime();
+		T result = null;
+		boolean failed = true;
+		try {
+			result = super.execute(action);
+			failed = false;
+			return result;
+		} finally {
+			record(getSql(action), null, start, result, failed);
+		}
+	}
+
+	/**
+	 * @see org.springframework.jdbc.core.JdbcTemplate#
+	 *      query(org.springframework.jdbc.core.PreparedStatementCreator,
+	 *      org.springframework.jdbc.core.RowCallbackHandler)
+	 */
+	@Override
+	public void query(PreparedStatementCreator psc, RowCallbackHandler rch)
+			throws DataAccessException {
+		query(psc, new RowCountingExtractor(rch));
+	}
+
+	/**
+	 * @see org.springframework.jdbc.core.JdbcTemplate#query(java.lang.String,
+	 *      org.springframework.jdbc.core.PreparedStatementSetter,
+	 *      org.springframework.jdbc.core.RowCallbackHandler)
+	 */
+	@Override
+	public void query(String sql, PreparedStatementSetter pss, RowCallbackHandler rch)
+			throws DataAccessException {
+		query(sql, pss, new RowCountingExtractor(rch));
+	}
+
+	/**
+	 * @see org.springframework.jdbc.core.JdbcTemplate#query(java.lang.String,
+	 *      org.springframework.jdbc.core.RowCallbackHandler)
+	 */
+	@Override
+	public void query(String sql, RowCallbackHandler rch) throws DataAccessException {
+		query(sql, new RowCountingExtractor(rch));
+	}
+
+	/**
+	 * Remember the arguments of the statement about to be executed, so that they can be logged if
+	 * the statement is slow.
+	 * 
+	 * @see org.springframework.jdbc.core.JdbcTemplate#
+	 *      newArgPreparedStatementSetter(java.lang.Object[])
+	 */
+	@Override
+	protected PreparedStatementSetter newArgPreparedStatementSetter(Object[] args) {
+		if (slowThresholdNanos > 0) {
+			PENDING_ARGS.set(args);
+		}
+		return super.newArgPreparedStatementSetter(args);
+	}
+
+	/**
+	 * Record the execution of the given SQL statement.
+	 * 
+	 * @param sql
+	 *            the SQL statement, null if unknown.
+	 * @param args
+	 *            the bind parameters of the statement, null if unknown.
+	 * @param start
+	 *            the start time as returned by {@link System#nanoTime()}.
+	 * @param result
+	 *            the result of the statement.
+	 * @param failed
+	 *            true if the statement failed.
+	 */
+	private void record(String sql, Object[] args, long start, Object result, boolean failed) {
+		long elapsed = System.nanoTime() - start;
+		StatementMetrics statementMetrics = getMetrics(sql);
+		long rows = failed ? 0 : countRows(result);
+		if (enabled) {
+			statementMetrics.duration.observe(elapsed / 1e9);
+			if (failed) {
+				statementMetrics.errors.inc();
+			} else if (rows > 0) {
+				statementMetrics.rows.inc(rows);
+			}
+		}
+		if (slowThresholdNanos > 0 && elapsed >= slowThresholdNanos) {
+			logSlowStatement(statementMetrics.name, sql, args, rows, failed, elapsed);
+		}
+	}
+
+	/**
+	 * Log the given slow statement and add it to the slow statement log, along with its query plan
+	 * if enabled.
+	 * 
+	 * @param name
+	 *            the name of the statement.
+	 * @param sql
+	 *            the SQL statement, null if unknown.
+	 * @param args
+	 *            the bind parameters of the statement, null if unknown.
+	 * @param rows
+	 *            the number of rows read or updated.
+	 * @param failed
+	 *            true if the statement failed.
+	 * @param elapsed
+	 *            the time spent executing the statement in nanoseconds.
+	 */
+	private void logSlowStatement(String name, String sql, Object[] args, long rows,
+			boolean failed, long elapsed) {
+		List<String> parameters = formatParameters(args);
+		double elapsedMillis = elapsed / 1e6;
+		double waitMillis = ConnectionWaitTrackerFactory.getLastWaitNanos() / 1e6;
+		LOG.warn("slow sql statement {}, elapsed = {} ms, rows = {}, failed = {}, "
+				+ "connectionWait = {} ms, parameters = {}", name, elapsedMillis, rows, failed,
+				waitMillis, parameters);
+		if (slowStatementLog == null) {
+			return;
+		}
+		SlowStatement entry = new SlowStatement(name, sql, parameters, rows, failed,
+				elapsedMillis, waitMillis);
+		if (explain && !failed && sql != null && args != null
+				&& sql.trim().toLowerCase(Locale.ENGLISH).startsWith("select")) {
+			entry.setPlan(explain(sql, args));
+		}
+		slowStatementLog.add(entry);
+	}
+
+	/**
+	 * Get the query plan of the given query, using the same connection as the query itself. The
+	 * plan is read without going through the instrumentation of this template.
+	 * 
+	 * @param sql
+	 *            the SQL query.
+	 * @param args
+	 *            the bind parameters of the query.
+	 * @return the rows returned by EXPLAIN, or null if the plan could not be read.
+	 */
+	private List<Map<String, Object>> explain(String sql, Object[] args) {
+		try {
+			return super.execute(new ConnectionCallback<List<Map<String, Object>>>() {
+				@Override
+				public List<Map<String, Object>> doInConnection(Connection connection)
+						throws SQLException {
+					PreparedStatement pstmt = connection.prepareStatement("explain " + sql);
+					try {
+						new ArgumentPreparedStatementSetter(args).setValues(pstmt);
+						ResultSet rs = pstmt.executeQuery();
+						try {
+							return new RowMapperResultSetExtractor<Map<String, Object>>(
+									new ColumnMapRowMapper()).extractData(rs);
+						} finally {
+							rs.close();
+						}
+					} finally {
+						pstmt.close();
+					}
+				}
+			});
+		} catch (DataAccessException dae) {
+			LOG.debug("Unable to explain slow statement. {}", dae.getLocalizedMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Format the given bind parameters for logging, masking them if redaction is enabled and
+	 * truncating long values.
+	 * 
+	 * @param args
+	 *            the bind parameters, null if unknown.
+	 * @return the formatted parameters, or null if unknown.
+	 */
+	private List<String> formatParameters(Object[] args) {
+		if (args == null) {
+			return null;
+		}
+		List<String> parameters = new ArrayList<String>(args.length);
+		for (Object arg : args) {
+			String value;
+			if (arg == null) {
+				value = "null";
+			} else if (redactParameters) {
+				value = REDACTED;
+			} else {
+				value = String.valueOf(arg);
+				if (value.length() > MAX_PARAMETER_LENGTH) {
+					value = value.substring(0, MAX_PARAMETER_LENGTH) + "...";
+				}
+			}
+			parameters.add(value);
+		}
+		return parameters;
+	}
+
+	private StatementMetrics getMetrics(String sql) {
+		String key = (sql == null) ? "" : sql;
+		StatementMetrics statementMetrics = metrics.get(key);
+		if (statementMetrics == null) {
+			String name = (sql == null) ? null : names.get(normalize(sql));
+			if (name == null && sql != null) {
+				// e.g. projections, selecting the columns of the requested fields only
+				String template = SELECT_LIST.matcher(sql).replaceFirst("select ? from ");
+				name = names.get(normalize(template));
+			}
+			statementMetrics = new StatementMetrics((name == null) ? OTHER : name);
+			// the cache is bounded in case statements are built with literal values
+			if (metrics.size() < MAX_CACHED_STATEMENTS) {
+				metrics.putIfAbsent(key, statementMetrics);
+			}
+		}
+		return statementMetrics;
+	}
+
+	private static String normalize(String sql) {
+		return PARAMETER_LIST.matcher(sql).replaceAll("(?)");
+	}
+
+	private static String getSql(Object sqlProvider) {
+		return (sqlProvider instanceof SqlProvider) ? ((SqlProvider) sqlProvider).getSql() : null;
+	}
+
+	private static long countRows(Object result) {
+		if (result instanceof Collection) {
+			return ((Collection<?>) result).size();
+		} else if (result instanceof Integer) {
+			return (Integer) result;
+		} else if (result instanceof int[]) {
+			long rows = 0;
+			for (int count : (int[]) result) {
+				// a batched statement may succeed without reporting its count
+				rows += (count == java.sql.Statement.SUCCESS_NO_INFO) ? 1 : Math.max(count, 0);
+			}
+			return rows;
+		}
+		return 0;
+	}
+
+	/**
+	 * Metric children of a single SQL statement, cached to avoid resolving the statement name and
+	 * the label lookups on every execution.
+	 */
+	private static class StatementMetrics {
+
+		final String name;
+		final Histogram.Child duration;
+		final Counter.Child rows;
+		final Counter.Child errors;
+
+		StatementMetrics(String name) {
+			this.name = name;
+			this.duration = DURATION.labels(name);
+			this.rows = ROWS.labels(name);
+			this.errors = ERRORS.labels(name);
+		}
+
+	}
+
+	/**
+	 * Result set extractor that hands over every row to a row callback handler and returns the
+	 * number of rows, so that the rows of streamed queries are counted too.
+	 */
+	private static class RowCountingExtractor implements ResultSetExtractor<Integer> {
+
+		private final RowCallbackHandler rch;
+
+		RowCountingExtractor(RowCallbackHandler rch) {
+			this.rch = rch;
+		}
+
+		@Override
+		public Integer extractData(ResultSet rs) throws SQLException {
+			int count = 0;
+			while (rs.next()) {
+				rch.processRow(rs);
+				count++;
+			}
+			return count;
+		}
+
+	}
+
+	/**
+	 * Prepared statement creator that records the SQL of a statement created by a creator that
+	 * does not expose its SQL.
+	 */
+	private static class SqlCapture implements PreparedStatementCreator {
+
+		private final PreparedStatementCreator psc;
+		private String sql;
+
+		SqlCapture(PreparedStatementCreator psc) {
+			this.psc = psc;
+		}
+
+		@Override
+		public PreparedStatement createPreparedStatement(Connection connection)
+				throws SQLException {
+			Connection capturing = (Connection) Proxy.newProxyInstance(
+					SqlCapture.class.getClassLoader(), new Class<?>[] { Connection.class },
+					new InvocationHandler() {
+						@Override
+						public Object invoke(Object proxy, Method method, Object[] args)
+								throws Throwable {
+							if ("prepareStatement".equals(method.getName())) {
+								sql = (String) args[0];
+							}
+							try {
+								return method.invoke(connection, args);
+							} catch (InvocationTargetException ite) {
+								throw ite.getTargetException();
+							}
+						}
+					});
+			return psc.createPreparedStatement(capturing);
+		}
+
+	}
+
+	// -------------------------GETTERS AND SETTERS-------------------------
+
+	/**
+	 * Enable or disable recording of the SQL metrics.
+	 * 
+	 * @param enabled
+	 *            true to record the metrics.
+	 */
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	/**
+	 * Set the threshold above which statements are logged as slow, 0 to disable the slow
+	 * statement log.
+	 * 
+	 * @param slowThresholdMillis
+	 *            the threshold in milliseconds.
+	 */
+	public void setSlowThresholdMillis(long slowThresholdMillis) {
+		this.slowThresholdNanos = slowThresholdMillis * 1000000L;
+	}
+
+	/**
+	 * Set whether the bind parameters of slow statements are masked, as they may contain personal
+	 * data. Null values are never masked.
+	 * 
+	 * @param redactParameters
+	 *            true to mask the parameters.
+	 */
+	public void setRedactParameters(boolean redactParameters) {
+		this.redactParameters = redactParameters;
+	}
+
+	/**
+	 * Set whether the query plan of slow queries is captured with EXPLAIN. It costs one more round
+	 * trip for every slow query.
+	 * 
+	 * @param explain
+	 *            true to capture the query plans.
+	 */
+	public void setExplain(boolean explain) {
+		this.explain = explain;
+	}
+
+	/**
+	 * Set the log in which the slow statements are kept.
+	 * 
+	 * @param slowStatementLog
+	 *            the slow statement log.
+	 */
+	public void setSlowStatementLog(SlowStatementLog slowStatementLog) {
+		this.slowStatementLog = slowStatementLog;
+	}
+
+}
@@ -0,0 +1,74 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Baldeep Hira
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.bhira.sample.api.metrics;
+
+import io.prometheus.client.Histogram;
+
+/**
+ * Utility class for the prometheus metrics published by the application.
+ * 
+ * @author Baldeep Hira
+ */
+public class MetricsUtil {
+
+	/**
+	 * Bucket boundaries, in seconds, for latency histograms. The boundaries grow exponentially
+	 * from 100 microseconds to about 13 seconds, so that the relative error of the estimated
+	 * quantiles is the same at every magnitude.
+	 */
+	public static final double[] LATENCY_BUCKETS = exponentialBuckets(0.0001, 2, 18);
+
+	/**
+	 * Create a builder for a latency histogram using {@link #LATENCY_BUCKETS}.
+	 * 
+	 * @param name
+	 *            the name of the histogram.
+	 * @param help
+	 *            the description of the histogram.
+	 * @return the histogram builder.
+	 */
+	public static Histogram.Builder latencyHistogram(String name, String help) {
+		return Histogram.build().name(name).help(help).buckets(LATENCY_BUCKETS);
+	}
+
+	/**
+	 * Get the time elapsed since the given start time in seconds.
+	 * 
+	 * @param startNanos
+	 *            the start time as returned by {@link System#nanoTime()}.
+	 * @return the elapsed time in seconds.
+	 */
+	public static double secondsSince(long startNanos) {
+		return (System.nanoTime() - startNanos) / 1e9;
+	}
+
+	private static double[] exponentialBuckets(double start, double factor, int count) {
+		double[] buckets = new double[count];
+		for (int i = 0; i < count; i++) {
+			buckets[i] = start * Math.pow(factor, i);
+		}
+		return buckets;
+	}
+
+}
@@ -0,0 +1,116 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Baldeep Hira
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.bhira.sample.api.metrics;
+
+import java.util.concurrent.Callable;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.async.CallableProcessingInterceptorAdapter;
+
+import io.prometheus.client.Histogram;
+import net.bhira.sample.api.async.ConcurrencyLimitInterceptor;
+
+/**
+ * Interceptor for the Callables returned by the controllers that publishes the latency of every
+ * request to prometheus, by endpoint and http status. An endpoint is identified by http method and
+ * request mapping pattern, e.g. "GET /employee/{employeeId}". The latency covers the complete
+ * async processing of the request, i.e. the wait for an executor thread, the Callable and writing
+ * the response. The wait for an executor thread is published on its own too.
+ * 
+ * @author Baldeep Hira
+ */
+public class RequestMetricsInterceptor extends CallableProcessingInterceptorAdapter {
+
+	private static final String ATTR_STARTED = RequestMetricsInterceptor.class.getName()
+			+ ".started";
+
+	private static final Histogram DURATION = MetricsUtil
+			.latencyHistogram("http_request_duration_seconds",
+					"Time from accepting a request until its response is complete.")
+			.labelNames("endpoint", "status").register();
+	private static final Histogram QUEUE_WAIT = MetricsUtil
+			.latencyHistogram("async_queue_wait_seconds",
+					"Time from accepting a request until its Callable starts executing.")
+			.labelNames("endpoint").register();
+
+	private boolean enabled = true;
+
+	/**
+	 * @see org.springframework.web.context.request.async.CallableProcessingInterceptorAdapter#
+	 *      beforeConcurrentHandling(org.springframework.web.context.request.NativeWebRequest,
+	 *      java.util.concurrent.Callable)
+	 */
+	@Override
+	public <T> void beforeConcurrentHandling(NativeWebRequest request, Callable<T> task) {
+		if (enabled) {
+			request.setAttribute(ATTR_STARTED, System.nanoTime(), RequestAttributes.SCOPE_REQUEST);
+		}
+	}
+
+	/**
+	 * @see org.springframework.web.context.request.async.CallableProcessingInterceptorAdapter#
+	 *      preProcess(org.springframework.web.context.request.NativeWebRequest,
+	 *      java.util.concurrent.Callable)
+	 */
+	@Override
+	public <T> void preProcess(NativeWebRequest request, Callable<T> task) {
+		Long started = (Long) request.getAttribute(ATTR_STARTED, RequestAttributes.SCOPE_REQUEST);
+		if (started != null) {
+			QUEUE_WAIT.labels(ConcurrencyLimitInterceptor.getEndpoint(request))
+					.observe(MetricsUtil.secondsSince(started));
+		}
+	}
+
+	/**
+	 * @see org.springframework.web.context.request.async.CallableProcessingInterceptorAdapter#
+	 *      afterCompletion(org.springframework.web.context.request.NativeWebRequest,
+	 *      java.util.concurrent.Callable)
+	 */
+	@Override
+	public <T> void afterCompletion(NativeWebRequest request, Callable<T> task) {
+		Long started = (Long) request.getAttribute(ATTR_STARTED, RequestAttributes.SCOPE_REQUEST);
+		if (started != null) {
+			HttpServletResponse response = request.getNativeResponse(HttpServletResponse.class);
+			String status = (response == null) ? "" : String.valueOf(response.getStatus());
+			DURATION.labels(ConcurrencyLimitInterceptor.getEndpoint(request), status)
+					.observe(MetricsUtil.secondsSince(started));
+		}
+	}
+
+	// -------------------------GETTERS AND SETTERS-------------------------
+
+	/**
+	 * Enable or disable recording of the request metrics.
+	 * 
+	 * @param enabled
+	 *            true to record the metrics.
+	 */
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+}
@@ -0,0 +1,122 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Baldeep Hira
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.bhira.sample.api.metrics;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.reflect.MethodSignature;
+
+import io.prometheus.client.Counter;
+import io.prometheus.client.Histogram;
+
+/**
+ * Around advice for the service operations that publishes the latency of every service method,
+ * including its transaction, and the number of calls that failed, to prometheus. It is applied
+ * to the same pointcut as the transactional advice in spring.xml.
+ * 
+ * @author Baldeep Hira
+ */
+public class ServiceMetricsAspect {
+
+	private static final Histogram DURATION = MetricsUtil
+			.latencyHistogram("service_method_duration_seconds",
+					"Time spent in service methods, including the transaction.")
+			.labelNames("service", "method").register();
+	private static final Counter ERRORS = Counter.build().name("service_method_errors_total")
+			.help("Number of service method calls that threw an exception.")
+			.labelNames("service", "method").register();
+
+	private final ConcurrentMap<Method, MethodMetrics> metrics =
+			new ConcurrentHashMap<Method, MethodMetrics>();
+	private boolean enabled = true;
+
+	/**
+	 * Invoke the given service operation and record its latency.
+	 * 
+	 * @param pjp
+	 *            the service operation being invoked.
+	 * @return the result of the service operation.
+	 * @throws Throwable
+	 *             the exception thrown by the service operation.
+	 */
+	public Object time(ProceedingJoinPoint pjp) throws Throwable {
+		if (!enabled) {
+			return pjp.proceed();
+		}
+		MethodMetrics methodMetrics = getMetrics(pjp);
+		long start = System.nanoTime();
+		try {
+			return pjp.proceed();
+		} catch (Throwable t) {
+			methodMetrics.errors.inc();
+			throw t;
+		} finally {
+			methodMetrics.duration.observe(MetricsUtil.secondsSince(start));
+		}
+	}
+
+	private MethodMetrics getMetrics(ProceedingJoinPoint pjp) {
+		Method method = ((MethodSignature) pjp.getSignature()).getMethod();
+		MethodMetrics methodMetrics = metrics.get(method);
+		if (methodMetrics == null) {
+			String service = method.getDeclaringClass().getSimpleName();
+			methodMetrics = new MethodMetrics(DURATION.labels(service, method.getName()),
+					ERRORS.labels(service, method.getName()));
+			metrics.putIfAbsent(method, methodMetrics);
+		}
+		return methodMetrics;
+	}
+
+	/**
+	 * Metric children of a single service method, cached to avoid the label lookups on every
+	 * call.
+	 */
+	private static class MethodMetrics {
+
+		final Histogram.Child duration;
+		final Counter.Child errors;
+
+		MethodMetrics(Histogram.Child duration, Counter.Child errors) {
+			this.duration = duration;
+			this.errors = errors;
+		}
+
+	}
+
+	// -------------------------GETTERS AND SETTERS-------------------------
+
+	/**
+	 * Enable or disable recording of the service metrics.
+	 * 
+	 * @param enabled
+	 *            true to record the metrics.
+	 */
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+}
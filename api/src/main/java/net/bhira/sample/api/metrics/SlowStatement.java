@@ -0,0 +1,171 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Baldeep Hira
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.bhira.sample.api.metrics;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A single execution of a SQL statement that exceeded the slow statement threshold, as kept in
+ * the {@link SlowStatementLog}.
+ * 
+ * @author Baldeep Hira
+ */
+public class SlowStatement {
+
+	private Date executed;
+	private String statement;
+	private String sql;
+	private List<String> parameters;
+	private long rows;
+	private boolean failed;
+	private double elapsedMillis;
+	private double connectionWaitMillis;
+	private List<Map<String, Object>> plan;
+
+	/**
+	 * Constructor for SlowStatement.
+	 * 
+	 * @param statement
+	 *            the name of the statement, i.e. its SQL_* constant.
+	 * @param sql
+	 *            the SQL of the statement.
+	 * @param parameters
+	 *            the bind parameters, possibly redacted, or null if unknown.
+	 * @param rows
+	 *            the number of rows read or updated.
+	 * @param failed
+	 *            true if the statement failed.
+	 * @param elapsedMillis
+	 *            the time spent executing the statement.
+	 * @param connectionWaitMillis
+	 *            the time the connection of the statement waited in the pool.
+	 */
+	public SlowStatement(String statement, String sql, List<String> parameters, long rows,
+			boolean failed, double elapsedMillis, double connectionWaitMillis) {
+		this.executed = new Date();
+		this.statement = statement;
+		this.sql = sql;
+		this.parameters = parameters;
+		this.rows = rows;
+		this.failed = failed;
+		this.elapsedMillis = elapsedMillis;
+		this.connectionWaitMillis = connectionWaitMillis;
+	}
+
+	// -------------------------GETTERS AND SETTERS-------------------------
+
+	/**
+	 * Get the time at which the statement completed.
+	 * 
+	 * @return the time at which the statement completed.
+	 */
+	public Date getExecuted() {
+		return executed;
+	}
+
+	/**
+	 * Get the name of the statement, i.e. its SQL_* constant.
+	 * 
+	 * @return the name of the statement, i.e. its SQL_* constant.
+	 */
+	public String getStatement() {
+		return statement;
+	}
+
+	/**
+	 * Get the SQL of the statement.
+	 * 
+	 * @return the SQL of the statement.
+	 */
+	public String getSql() {
+		return sql;
+	}
+
+	/**
+	 * Get the bind parameters, possibly redacted, or null if unknown.
+	 * 
+	 * @return the bind parameters, possibly redacted, or null if unknown.
+	 */
+	public List<String> getParameters() {
+		return parameters;
+	}
+
+	/**
+	 * Get the number of rows read or updated by the statement.
+	 * 
+	 * @return the number of rows read or updated by the statement.
+	 */
+	public long getRows() {
+		return rows;
+	}
+
+	/**
+	 * Check if the statement failed.
+	 * 
+	 * @return true if the statement failed.
+	 */
+	public boolean isFailed() {
+		return failed;
+	}
+
+	/**
+	 * Get the time spent executing the statement in milliseconds.
+	 * 
+	 * @return the time spent executing the statement in milliseconds.
+	 */
+	public double getElapsedMillis() {
+		return elapsedMillis;
+	}
+
+	/**
+	 * Get the time the connection of the statement waited in the pool in milliseconds.
+	 * 
+	 * @return the time the connection of the statement waited in the pool in milliseconds.
+	 */
+	public double getConnectionWaitMillis() {
+		return connectionWaitMillis;
+	}
+
+	/**
+	 * Get the query plan of the statement, or null if not captured.
+	 * 
+	 * @return the query plan of the statement, or null if not captured.
+	 */
+	public List<Map<String, Object>> getPlan() {
+		return plan;
+	}
+
+	/**
+	 * Set the query plan of the statement.
+	 * 
+	 * @param plan
+	 *            the rows returned by EXPLAIN for the statement.
+	 */
+	public void setPlan(List<Map<String, Object>> plan) {
+		this.plan = plan;
+	}
+
+}
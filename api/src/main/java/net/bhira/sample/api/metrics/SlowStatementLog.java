@@ -0,0 +1,89 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Baldeep Hira
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.bhira.sample.api.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ring buffer of the most recent slow SQL statements. Once full, every new statement replaces the
+ * oldest one, so the memory used is bounded by the capacity.
+ * 
+ * @author Baldeep Hira
+ */
+public class SlowStatementLog {
+
+	private final SlowStatement[] entries;
+	private int next;
+	private long total;
+
+	/**
+	 * Constructor for SlowStatementLog.
+	 * 
+	 * @param capacity
+	 *            the maximum number of statements kept.
+	 */
+	public SlowStatementLog(int capacity) {
+		this.entries = new SlowStatement[Math.max(capacity, 1)];
+	}
+
+	/**
+	 * Add the given slow statement, replacing the oldest one if the log is full.
+	 * 
+	 * @param entry
+	 *            the slow statement.
+	 */
+	public synchronized void add(SlowStatement entry) {
+		entries[next] = entry;
+		next = (next + 1) % entries.length;
+		total++;
+	}
+
+	/**
+	 * Get the statements in the log, most recent first.
+	 * 
+	 * @return List of slow statements.
+	 */
+	public synchronized List<SlowStatement> getEntries() {
+		List<SlowStatement> list = new ArrayList<SlowStatement>(entries.length);
+		for (int i = 1; i <= entries.length; i++) {
+			SlowStatement entry = entries[(next - i + entries.length) % entries.length];
+			if (entry == null) {
+				break;
+			}
+			list.add(entry);
+		}
+		return list;
+	}
+
+	/**
+	 * Get the number of slow statements added since startup, including those already replaced.
+	 * 
+	 * @return the total number of slow statements.
+	 */
+	public synchronized long getTotal() {
+		return total;
+	}
+
+}
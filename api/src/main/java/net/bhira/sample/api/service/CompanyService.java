@@ -23,11 +23,15 @@
  */
 package net.bhira.sample.api.service;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
+import net.bhira.sample.api.jdbc.ModifiedStamp;
 import net.bhira.sample.common.exception.InvalidObjectException;
 import net.bhira.sample.common.exception.InvalidReferenceException;
 import net.bhira.sample.common.exception.ObjectNotFoundException;
+import net.bhira.sample.common.exception.StaleObjectException;
 import net.bhira.sample.model.Company;
 
 /**
@@ -48,10 +52,23 @@ public interface CompanyService {
 	 */
 	public Company load(long companyId);
 
+	/**
+	 * Load the {@link net.bhira.sample.model.Company} instances, along with their contact info,
+	 * identified by the specified companyIds. IDs that are not found are skipped and duplicate
+	 * IDs are returned only once.
+	 * 
+	 * @param companyIds
+	 *            the IDs of {@link net.bhira.sample.model.Company}.
+	 * @return List of {@link net.bhira.sample.model.Company} instances, in the order of the given
+	 *         IDs.
+	 */
+	public List<Company> loadAll(Collection<Long> companyIds);
+
 	/**
 	 * Save the specified {@link net.bhira.sample.model.Company} to repository. It will take care of
 	 * both insert and update scenarios. In case of insert the newly assigned ID is set back in the
-	 * passed company model.
+	 * passed company model. An update is only applied if the model carries the current version,
+	 * which is then incremented and set back in the passed model.
 	 * 
 	 * @param company
 	 *            an instance of {@link net.bhira.sample.model.Company}.
@@ -61,9 +78,11 @@ public interface CompanyService {
 	 *             if the company instance being saved is invalid.
 	 * @throws InvalidReferenceException
 	 *             if the company instance being saved has invalid references.
+	 * @throws StaleObjectException
+	 *             if the company instance being updated was modified since it was loaded.
 	 */
 	public void save(Company company) throws ObjectNotFoundException, InvalidObjectException,
-			InvalidReferenceException;
+			InvalidReferenceException, StaleObjectException;
 
 	/**
 	 * Delete the instance of {@link net.bhira.sample.model.Company} identified by given companyId.
@@ -75,6 +94,22 @@ public interface CompanyService {
 	 */
 	public boolean delete(long companyId);
 
+	/**
+	 * Delete the instance of {@link net.bhira.sample.model.Company} identified by given companyId
+	 * along with all its employees and departments, their contact info and relationship entries.
+	 * The employees and departments are deleted in chunks, each in its own transaction, so that
+	 * purging a large company neither holds long running locks nor builds up a huge undo log.
+	 * The progress is handed over to the given consumer before the first and after every chunk.
+	 * If a chunk fails, the chunks deleted before stay deleted and the purge can be repeated.
+	 * 
+	 * @param companyId
+	 *            the ID of {@link net.bhira.sample.model.Company}.
+	 * @param progress
+	 *            the consumer to which the {@link PurgeProgress} is reported.
+	 * @return true if the company was deleted, false if it was not found.
+	 */
+	public boolean purge(long companyId, Consumer<PurgeProgress> progress);
+
 	/**
 	 * Load all the {@link net.bhira.sample.model.Company} instances from repository. It returns a
 	 * shallow instance of Company class and does not load the dependent objects like
@@ -83,4 +118,40 @@ public interface CompanyService {
 	 * @return List of {@link net.bhira.sample.model.Company} instances.
 	 */
 	public List<Company> loadAll();
-}
\ No newline at end of file
+
+	/**
+	 * Load all the {@link net.bhira.sample.model.Company} instances from repository and hand them
+	 * over to the given consumer one at a time, as they are read. The rows are streamed and are
+	 * never collected in memory. It returns a shallow instance of Company class and does not load
+	 * the dependent objects like billingAddress, shippingAddress and contactInfo
+	 * 
+	 * @param consumer
+	 *            the consumer to which each {@link net.bhira.sample.model.Company} instance is
+	 *            handed over as soon as it is read.
+	 */
+	public void loadAll(Consumer<Company> consumer);
+
+	/**
+	 * Load a page of {@link net.bhira.sample.model.Company} instances, along with their contact
+	 * info, from repository ordered by ID. It uses keyset pagination, i.e. it returns the companies
+	 * with ID greater than the given afterId.
+	 * 
+	 * @param afterId
+	 *            the ID of the last company in the previous page, 0 for the first page.
+	 * @param limit
+	 *            the maximum number of companies to return.
+	 * @return List of {@link net.bhira.sample.model.Company} instances.
+	 */
+	public List<Company> loadPage(long afterId, int limit);
+
+	/**
+	 * Load the {@link net.bhira.sample.api.jdbc.ModifiedStamp} of all the
+	 * {@link net.bhira.sample.model.Company} instances, i.e. their number and latest modified
+	 * time. It changes whenever a company is inserted, updated or deleted, so it tags the version
+	 * of the list returned by {@link #loadAll(Consumer)} without loading it.
+	 * 
+	 * @return the modified stamp of all the companies.
+	 */
+	public ModifiedStamp loadModifiedStamp();
+
+}
@@ -23,29 +23,65 @@
  */
 package net.bhira.sample.api.service;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import net.bhira.sample.api.change.ChangeEvent;
+import net.bhira.sample.api.change.ChangeFeed;
 import net.bhira.sample.api.dao.CompanyDao;
+import net.bhira.sample.api.dao.DepartmentDao;
+import net.bhira.sample.api.dao.EmployeeDao;
+import net.bhira.sample.api.jdbc.ModifiedStamp;
 import net.bhira.sample.common.exception.InvalidObjectException;
 import net.bhira.sample.common.exception.InvalidReferenceException;
 import net.bhira.sample.common.exception.ObjectNotFoundException;
+import net.bhira.sample.common.exception.StaleObjectException;
 import net.bhira.sample.model.Company;
 
 /**
  * Implementation of {@link net.bhira.sample.api.service.CompanyService}. It provides CRUD
- * operations for {@link net.bhira.sample.model.Company}.
+ * operations for {@link net.bhira.sample.model.Company}. Changes are published to the
+ * {@link net.bhira.sample.api.change.ChangeFeed} when they commit.
  * 
  * @author Baldeep Hira
  */
 @Service("companyService")
 public class CompanyServiceImpl implements CompanyService {
 
+	/**
+	 * private singleton instance of the SLF4J logger for this class.
+	 */
+	private static final Logger LOG = LoggerFactory.getLogger(CompanyServiceImpl.class);
+
 	@Autowired
 	CompanyDao companyDao;
 
+	@Autowired
+	DepartmentDao departmentDao;
+
+	@Autowired
+	EmployeeDao employeeDao;
+
+	@Autowired
+	PlatformTransactionManager transactionManager;
+
+	@Autowired
+	ChangeFeed changeFeed;
+
+	@Value("${company.purge.chunkSize}")
+	int purgeChunkSize;
+
 	/**
 	 * @see net.bhira.sample.api.service.CompanyService#load(long)
 	 */
@@ -54,13 +90,23 @@ public class CompanyServiceImpl implements CompanyService {
 		return companyDao.load(companyId);
 	}
 
+	/**
+	 * @see net.bhira.sample.api.service.CompanyService#loadAll(java.util.Collection)
+	 */
+	@Override
+	public List<Company> loadAll(Collection<Long> companyIds) {
+		return companyDao.loadAll(companyIds);
+	}
+
 	/**
 	 * @see net.bhira.sample.api.service.CompanyService#save(net.bhira.sample.model.Company)
 	 */
 	@Override
 	public void save(Company company) throws ObjectNotFoundException, InvalidObjectException,
-			InvalidReferenceException {
+			InvalidReferenceException, StaleObjectException {
+		String action = company.isNew() ? ChangeEvent.CREATE : ChangeEvent.UPDATE;
 		companyDao.save(company);
+		changeFeed.publish(action, ChangeEvent.COMPANY, company.getId(), company.getId());
 	}
 
 	/**
@@ -68,7 +114,70 @@ public class CompanyServiceImpl implements CompanyService {
 	 */
 	@Override
 	public boolean delete(long companyId) {
-		return companyDao.delete(companyId);
+		boolean found = companyDao.delete(companyId);
+		if (found) {
+			changeFeed.publish(ChangeEvent.DELETE, ChangeEvent.COMPANY, companyId, companyId);
+		}
+		return found;
+	}
+
+	/**
+	 * @see net.bhira.sample.api.service.CompanyService#purge(long,
+	 *      java.util.function.Consumer)
+	 */
+	@Override
+	public boolean purge(long companyId, Consumer<PurgeProgress> progress) {
+		if (companyDao.load(companyId) == null) {
+			return false;
+		}
+		TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+		// employees first, as they refer to the departments
+		long total = employeeDao.loadModifiedStampByCompany(companyId).getCount();
+		long deleted = 0;
+		progress.accept(new PurgeProgress(companyId, PurgeProgress.EMPLOYEES, deleted, total));
+		int count;
+		while ((count = transaction.execute(new TransactionCallback<Integer>() {
+			@Override
+			public Integer doInTransaction(TransactionStatus status) {
+				return employeeDao.deleteByCompany(companyId, purgeChunkSize);
+			}
+		})) > 0) {
+			deleted += count;
+			progress.accept(new PurgeProgress(companyId, PurgeProgress.EMPLOYEES, deleted, total));
+		}
+		LOG.debug("purged employees, count = {}, companyId = {}", deleted, companyId);
+
+		total = departmentDao.loadModifiedStampByCompany(companyId).getCount();
+		deleted = 0;
+		progress.accept(new PurgeProgress(companyId, PurgeProgress.DEPARTMENTS, deleted, total));
+		while ((count = transaction.execute(new TransactionCallback<Integer>() {
+			@Override
+			public Integer doInTransaction(TransactionStatus status) {
+				return departmentDao.deleteByCompany(companyId, purgeChunkSize);
+			}
+		})) > 0) {
+			deleted += count;
+			progress.accept(new PurgeProgress(companyId, PurgeProgress.DEPARTMENTS, deleted,
+					total));
+		}
+		LOG.debug("purged departments, count = {}, companyId = {}", deleted, companyId);
+
+		boolean found = transaction.execute(new TransactionCallback<Boolean>() {
+			@Override
+			public Boolean doInTransaction(TransactionStatus status) {
+				boolean found = companyDao.delete(companyId);
+				if (found) {
+					// the delete of the company stands for its purged departments and employees
+					changeFeed.publish(ChangeEvent.DELETE, ChangeEvent.COMPANY, companyId,
+							companyId);
+				}
+				return found;
+			}
+		});
+		progress.accept(new PurgeProgress(companyId, PurgeProgress.COMPANY, found ? 1 : 0, 1));
+		LOG.debug("purged company, found = {}, companyId = {}", found, companyId);
+		return found;
 	}
 
 	/**
@@ -79,4 +188,28 @@ public class CompanyServiceImpl implements CompanyService {
 		return companyDao.loadAll();
 	}
 
-}
\ No newline at end of file
+	/**
+	 * @see net.bhira.sample.api.service.CompanyService#loadAll(java.util.function.Consumer)
+	 */
+	@Override
+	public void loadAll(Consumer<Company> consumer) {
+		companyDao.loadAll(consumer);
+	}
+
+	/**
+	 * @see net.bhira.sample.api.service.CompanyService#loadPage(long, int)
+	 */
+	@Override
+	public List<Company> loadPage(long afterId, int limit) {
+		return companyDao.loadPage(afterId, limit);
+	}
+
+	/**
+	 * @see net.bhira.sample.api.service.CompanyService#loadModifiedStamp()
+	 */
+	@Override
+	public ModifiedStamp loadModifiedStamp() {
+		return companyDao.loadModifiedStamp();
+	}
+
+}
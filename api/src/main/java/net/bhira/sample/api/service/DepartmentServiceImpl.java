@@ -23,21 +23,29 @@
  */
 package net.bhira.sample.api.service;
 
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.function.Consumer;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import net.bhira.sample.api.change.ChangeEvent;
+import net.bhira.sample.api.change.ChangeFeed;
 import net.bhira.sample.api.dao.DepartmentDao;
+import net.bhira.sample.api.jdbc.ModifiedStamp;
 import net.bhira.sample.common.exception.DuplicateNameException;
 import net.bhira.sample.common.exception.InvalidObjectException;
 import net.bhira.sample.common.exception.InvalidReferenceException;
 import net.bhira.sample.common.exception.ObjectNotFoundException;
+import net.bhira.sample.common.exception.StaleObjectException;
 import net.bhira.sample.model.Department;
 
 /**
  * Implementation of {@link net.bhira.sample.api.service.DepartmentService}. It provides CRUD
- * operations for {@link net.bhira.sample.model.Department}.
+ * operations for {@link net.bhira.sample.model.Department}. Changes are published to the
+ * {@link net.bhira.sample.api.change.ChangeFeed} when they commit.
  * 
  * @author Baldeep Hira
  */
@@ -47,6 +55,9 @@ public class DepartmentServiceImpl implements DepartmentService {
 	@Autowired
 	DepartmentDao departmentDao;
 
+	@Autowired
+	ChangeFeed changeFeed;
+
 	/**
 	 * @see net.bhira.sample.api.service.DepartmentService#load(long)
 	 */
@@ -55,13 +66,24 @@ public class DepartmentServiceImpl implements DepartmentService {
 		return departmentDao.load(departmentId);
 	}
 
+	/**
+	 * @see net.bhira.sample.api.service.DepartmentService#loadAll(java.util.Collection)
+	 */
+	@Override
+	public List<Department> loadAll(Collection<Long> departmentIds) {
+		return departmentDao.loadAll(departmentIds);
+	}
+
 	/**
 	 * @see net.bhira.sample.api.service.DepartmentService#save(net.bhira.sample.model.Department)
 	 */
 	@Override
 	public void save(Department department) throws ObjectNotFoundException, DuplicateNameException,
-			InvalidObjectException, InvalidReferenceException {
+			InvalidObjectException, InvalidReferenceException, StaleObjectException {
+		String action = department.isNew() ? ChangeEvent.CREATE : ChangeEvent.UPDATE;
 		departmentDao.save(department);
+		changeFeed.publish(action, ChangeEvent.DEPARTMENT, department.getId(),
+				department.getCompanyId());
 	}
 
 	/**
@@ -69,7 +91,13 @@ public class DepartmentServiceImpl implements DepartmentService {
 	 */
 	@Override
 	public boolean delete(long departmentId) {
-		return departmentDao.delete(departmentId);
+		Department department = departmentDao.load(departmentId);
+		boolean found = departmentDao.delete(departmentId);
+		if (found && department != null) {
+			changeFeed.publish(ChangeEvent.DELETE, ChangeEvent.DEPARTMENT, departmentId,
+					department.getCompanyId());
+		}
+		return found;
 	}
 
 	/**
@@ -80,4 +108,40 @@ public class DepartmentServiceImpl implements DepartmentService {
 		return departmentDao.loadByCompany(companyId);
 	}
 
-}
\ No newline at end of file
+	/**
+	 * @see net.bhira.sample.api.service.DepartmentService#loadByCompany(long,
+	 *      java.util.function.Consumer)
+	 */
+	@Override
+	public void loadByCompany(long companyId, Consumer<Department> consumer) {
+		departmentDao.loadByCompany(companyId, consumer);
+	}
+
+	/**
+	 * @see net.bhira.sample.api.service.DepartmentService#loadModifiedSince(long,
+	 *      java.util.Date, java.util.function.Consumer)
+	 */
+	@Override
+	public void loadModifiedSince(long companyId, Date since, Consumer<Department> consumer) {
+		departmentDao.loadModifiedSince(companyId, since, consumer);
+	}
+
+	/**
+	 * @see net.bhira.sample.api.service.DepartmentService#loadDetailsByCompany(long, long,
+	 *      java.util.function.Consumer)
+	 */
+	@Override
+	public void loadDetailsByCompany(long companyId, long afterId,
+			Consumer<Department> consumer) {
+		departmentDao.loadDetailsByCompany(companyId, afterId, consumer);
+	}
+
+	/**
+	 * @see net.bhira.sample.api.service.DepartmentService#loadModifiedStampByCompany(long)
+	 */
+	@Override
+	public ModifiedStamp loadModifiedStampByCompany(long companyId) {
+		return departmentDao.loadModifiedStampByCompany(companyId);
+	}
+
+}
@@ -23,20 +23,32 @@
  */
 package net.bhira.sample.api.service;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import net.bhira.sample.api.change.ChangeEvent;
+import net.bhira.sample.api.change.ChangeFeed;
 import net.bhira.sample.api.dao.EmployeeDao;
+import net.bhira.sample.api.jdbc.EmployeeProjection;
+import net.bhira.sample.api.jdbc.EmployeeStats;
+import net.bhira.sample.api.jdbc.ModifiedStamp;
 import net.bhira.sample.common.exception.InvalidObjectException;
 import net.bhira.sample.common.exception.InvalidReferenceException;
 import net.bhira.sample.common.exception.ObjectNotFoundException;
+import net.bhira.sample.common.exception.StaleObjectException;
 import net.bhira.sample.model.Employee;
 
 /**
  * Implementation of {@link net.bhira.sample.api.service.EmployeeService}. It provides CRUD
- * operations for {@link net.bhira.sample.model.Employee}.
+ * operations for {@link net.bhira.sample.model.Employee}. Changes are published to the
+ * {@link net.bhira.sample.api.change.ChangeFeed} when they commit.
  * 
  * @author Baldeep Hira
  */
@@ -46,6 +58,9 @@ public class EmployeeServiceImpl implements EmployeeService {
 	@Autowired
 	EmployeeDao employeeDao;
 
+	@Autowired
+	ChangeFeed changeFeed;
+
 	/**
 	 * @see net.bhira.sample.api.service.EmployeeService#load(long)
 	 */
@@ -54,13 +69,56 @@ public class EmployeeServiceImpl implements EmployeeService {
 		return employeeDao.load(employeeId);
 	}
 
+	/**
+	 * @see net.bhira.sample.api.service.EmployeeService#loadAll(java.util.Collection)
+	 */
+	@Override
+	public List<Employee> loadAll(Collection<Long> employeeIds) {
+		return employeeDao.loadAll(employeeIds);
+	}
+
 	/**
 	 * @see net.bhira.sample.api.service.EmployeeService#save(net.bhira.sample.model.Employee)
 	 */
 	@Override
 	public void save(Employee employee) throws ObjectNotFoundException, InvalidObjectException,
-			InvalidReferenceException {
+			InvalidReferenceException, StaleObjectException {
+		String action = employee.isNew() ? ChangeEvent.CREATE : ChangeEvent.UPDATE;
 		employeeDao.save(employee);
+		changeFeed.publish(action, ChangeEvent.EMPLOYEE, employee.getId(),
+				employee.getCompanyId());
+	}
+
+	/**
+	 * @see net.bhira.sample.api.service.EmployeeService#saveAll(java.util.List)
+	 */
+	@Override
+	public void saveAll(List<Employee> employees) throws ObjectNotFoundException,
+			InvalidObjectException, InvalidReferenceException, StaleObjectException {
+		List<String> actions = new ArrayList<String>(employees.size());
+		for (Employee employee : employees) {
+			actions.add(employee.isNew() ? ChangeEvent.CREATE : ChangeEvent.UPDATE);
+		}
+		employeeDao.saveAll(employees);
+		for (int i = 0; i < employees.size(); i++) {
+			Employee employee = employees.get(i);
+			changeFeed.publish(actions.get(i), ChangeEvent.EMPLOYEE, employee.getId(),
+					employee.getCompanyId());
+		}
+	}
+
+	/**
+	 * @see net.bhira.sample.api.service.EmployeeService#updateManagers(long, java.util.Map)
+	 */
+	@Override
+	public int updateManagers(long companyId, Map<Long, Long> managerIds)
+			throws InvalidReferenceException {
+		// only the employees found in the company are updated, and published
+		List<Long> updated = employeeDao.updateManagers(companyId, managerIds);
+		for (Long employeeId : updated) {
+			changeFeed.publish(ChangeEvent.UPDATE, ChangeEvent.EMPLOYEE, employeeId, companyId);
+		}
+		return updated.size();
 	}
 
 	/**
@@ -68,7 +126,13 @@ public class EmployeeServiceImpl implements EmployeeService {
 	 */
 	@Override
 	public boolean delete(long employeeId) {
-		return employeeDao.delete(employeeId);
+		Employee employee = employeeDao.load(employeeId);
+		boolean found = employeeDao.delete(employeeId);
+		if (found && employee != null) {
+			changeFeed.publish(ChangeEvent.DELETE, ChangeEvent.EMPLOYEE, employeeId,
+					employee.getCompanyId());
+		}
+		return found;
 	}
 
 	/**
@@ -87,4 +151,92 @@ public class EmployeeServiceImpl implements EmployeeService {
 		return employeeDao.loadByDepartment(departmentId);
 	}
 
-}
\ No newline at end of file
+	/**
+	 * @see net.bhira.sample.api.service.EmployeeService#loadByCompany(long, long, int,
+	 *      net.bhira.sample.api.jdbc.EmployeeProjection, java.util.function.Consumer)
+	 */
+	@Override
+	public void loadByCompany(long companyId, long afterId, int limit,
+			EmployeeProjection projection, Consumer<Employee> consumer) {
+		employeeDao.loadByCompany(companyId, afterId, limit, projection, consumer);
+	}
+
+	/**
+	 * @see net.bhira.sample.api.service.EmployeeService#loadByDepartment(long, long, int,
+	 *      net.bhira.sample.api.jdbc.EmployeeProjection, java.util.function.Consumer)
+	 */
+	@Override
+	public void loadByDepartment(long departmentId, long afterId, int limit,
+			EmployeeProjection projection, Consumer<Employee> consumer) {
+		employeeDao.loadByDepartment(departmentId, afterId, limit, projection, consumer);
+	}
+
+	/**
+	 * @see net.bhira.sample.api.service.EmployeeService#loadModifiedSince(long, java.util.Date,
+	 *      long, int, net.bhira.sample.api.jdbc.EmployeeProjection, java.util.function.Consumer)
+	 */
+	@Override
+	public void loadModifiedSince(long companyId, Date since, long afterId, int limit,
+			EmployeeProjection projection, Consumer<Employee> consumer) {
+		employeeDao.loadModifiedSince(companyId, since, afterId, limit, projection, consumer);
+	}
+
+	/**
+	 * @see net.bhira.sample.api.service.EmployeeService#loadDetailsByCompany(long, long,
+	 *      java.util.function.Consumer)
+	 */
+	@Override
+	public void loadDetailsByCompany(long companyId, long afterId, Consumer<Employee> consumer) {
+		employeeDao.loadDetailsByCompany(companyId, afterId, consumer);
+	}
+
+	/**
+	 * @see net.bhira.sample.api.service.EmployeeService#loadReportIds(long, long, int)
+	 */
+	@Override
+	public List<Long> loadReportIds(long companyId, long employeeId, int depth) {
+		return employeeDao.loadReportIds(companyId, employeeId, depth);
+	}
+
+	/**
+	 * @see net.bhira.sample.api.service.EmployeeService#loadChainIds(long, long)
+	 */
+	@Override
+	public List<Long> loadChainIds(long companyId, long employeeId) {
+		return employeeDao.loadChainIds(companyId, employeeId);
+	}
+
+	/**
+	 * @see net.bhira.sample.api.service.EmployeeService#loadMatchingIds(long, java.lang.String,
+	 *      int)
+	 */
+	@Override
+	public List<Long> loadMatchingIds(long companyId, String query, int limit) {
+		return employeeDao.loadMatchingIds(companyId, query, limit);
+	}
+
+	/**
+	 * @see net.bhira.sample.api.service.EmployeeService#loadModifiedStampByCompany(long)
+	 */
+	@Override
+	public ModifiedStamp loadModifiedStampByCompany(long companyId) {
+		return employeeDao.loadModifiedStampByCompany(companyId);
+	}
+
+	/**
+	 * @see net.bhira.sample.api.service.EmployeeService#loadStatsByCompany(long)
+	 */
+	@Override
+	public EmployeeStats loadStatsByCompany(long companyId) {
+		return employeeDao.loadStatsByCompany(companyId);
+	}
+
+	/**
+	 * @see net.bhira.sample.api.service.EmployeeService#loadModifiedStampByDepartment(long)
+	 */
+	@Override
+	public ModifiedStamp loadModifiedStampByDepartment(long departmentId) {
+		return employeeDao.loadModifiedStampByDepartment(departmentId);
+	}
+
+}
@@ -0,0 +1,104 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Baldeep Hira
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.bhira.sample.api.service;
+
+/**
+ * Progress of purging a company, reported by
+ * {@link net.bhira.sample.api.service.CompanyService#purge(long, java.util.function.Consumer)}
+ * after each chunk. The employees are purged first, then the departments and finally the company
+ * itself, and the counts refer to the current phase.
+ * 
+ * @author Baldeep Hira
+ */
+public class PurgeProgress {
+
+	/**
+	 * Phase deleting the employees of the company.
+	 */
+	public static final String EMPLOYEES = "employees";
+
+	/**
+	 * Phase deleting the departments of the company.
+	 */
+	public static final String DEPARTMENTS = "departments";
+
+	/**
+	 * Last phase deleting the company itself.
+	 */
+	public static final String COMPANY = "company";
+
+	private final long companyId;
+	private final String phase;
+	private final long deleted;
+	private final long total;
+
+	/**
+	 * Constructor for PurgeProgress.
+	 * 
+	 * @param companyId
+	 *            the ID of the company being purged.
+	 * @param phase
+	 *            the current phase, one of {@link #EMPLOYEES}, {@link #DEPARTMENTS} or
+	 *            {@link #COMPANY}.
+	 * @param deleted
+	 *            the number of models deleted so far in the phase.
+	 * @param total
+	 *            the number of models to delete in the phase, as counted when it started.
+	 */
+	public PurgeProgress(long companyId, String phase, long deleted, long total) {
+		this.companyId = companyId;
+		this.phase = phase;
+		this.deleted = deleted;
+		this.total = total;
+	}
+
+	/**
+	 * @return the ID of the company being purged.
+	 */
+	public long getCompanyId() {
+		return companyId;
+	}
+
+	/**
+	 * @return the current phase.
+	 */
+	public String getPhase() {
+		return phase;
+	}
+
+	/**
+	 * @return the number of models deleted so far in the phase.
+	 */
+	public long getDeleted() {
+		return deleted;
+	}
+
+	/**
+	 * @return the number of models to delete in the phase, as counted when it started.
+	 */
+	public long getTotal() {
+		return total;
+	}
+
+}
@@ -25,6 +25,7 @@ create table company (
     modified        datetime not null,
     createdby       varchar(100) not null,
     modifiedby      varchar(100) not null,
+    version         bigint unsigned not null default 0,
     primary key (id)
 ) engine=InnoDB, default character set utf8, collate utf8_general_ci;
 
@@ -46,11 +47,13 @@ create table department (
     modified        datetime not null,
     createdby       varchar(100) not null,
     modifiedby      varchar(100) not null,
+    version         bigint unsigned not null default 0,
     primary key (id),
     unique key uq_department (companyid, name),
     constraint fk_department_compy foreign key (companyid) references company(id)
 ) engine=InnoDB, default character set utf8, collate utf8_general_ci;
 create index idx_department on department(companyid);
+create index idx_department_modified on department(companyid, modified, id);
 
 create table department_cinfo (
     departmentid    bigint unsigned not null unique,
@@ -75,12 +78,15 @@ create table employee (
     modified        datetime not null,
     createdby       varchar(100) not null,
     modifiedby      varchar(100) not null,
+    version         bigint unsigned not null default 0,
     primary key (id),
     constraint fk_employee_compy foreign key (companyid) references company(id),
     constraint fk_employee_dept foreign key (departmentid) references department(id),
     constraint fk_employee_mgr foreign key (managerid) references employee(id)
 ) engine=InnoDB, default character set utf8, collate utf8_general_ci;
-create index idx_employee on employee(companyid);
+create index idx_employee on employee(companyid, id);
+create index idx_employee_dept on employee(departmentid, id);
+create index idx_employee_modified on employee(companyid, modified, id);
 
 create table employee_cinfo (
     employeeid      bigint unsigned not null unique,
@@ -0,0 +1,131 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Baldeep Hira
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.bhira.sample.api.cache;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import net.bhira.sample.model.Company;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * JUnit test class for EntityCache.
+ * 
+ * @author Baldeep Hira
+ */
+public class EntityCacheTest {
+
+	private EntityCache<Company> cache;
+	private AtomicInteger loads;
+	private Function<Collection<Long>, List<Company>> loader;
+
+	@Before
+	public void setUp() {
+		cache = new EntityCache<Company>("test", 100, 60);
+		loads = new AtomicInteger();
+		// companies 1 to 9 exist, named after their ID
+		loader = new Function<Collection<Long>, List<Company>>() {
+			@Override
+			public List<Company> apply(Collection<Long> ids) {
+				loads.incrementAndGet();
+				List<Company> companies = new ArrayList<Company>();
+				for (Long id : ids) {
+					if (id < 10) {
+						companies.add(company(id, "C" + id));
+					}
+				}
+				return companies;
+			}
+		};
+	}
+
+	/**
+	 * Test method for
+	 * {@link net.bhira.sample.api.cache.EntityCache#getAll(Collection, Function)}.
+	 */
+	@Test
+	public void testGetAll() {
+		Company cached = company(2, "cached");
+		assertSame(cached, cache.get(2, new Function<Long, Company>() {
+			@Override
+			public Company apply(Long id) {
+				return cached;
+			}
+		}));
+
+		List<Company> companies = cache.getAll(Arrays.asList(3L, 2L, null, 3L, 10L, 1L), loader);
+		assertEquals(3, companies.size());
+		assertEquals("C3", companies.get(0).getName());
+		assertSame(cached, companies.get(1));
+		assertEquals("C1", companies.get(2).getName());
+		assertEquals(1, loads.get());
+
+		// nothing to load when all are cached
+		assertEquals(Arrays.asList(cached), cache.getAll(Arrays.asList(2L), loader));
+		assertEquals(1, loads.get());
+	}
+
+	/**
+	 * Test that the objects loaded in bulk are not cached, so that an invalidate racing with the
+	 * bulk load cannot be undone by the rows it read before.
+	 */
+	@Test
+	public void testGetAllDoesNotCache() {
+		Company stale = company(1, "stale");
+		List<Company> companies = cache.getAll(Arrays.asList(1L),
+				new Function<Collection<Long>, List<Company>>() {
+					@Override
+					public List<Company> apply(Collection<Long> ids) {
+						// the row is updated and invalidated after it was read
+						cache.invalidate(1);
+						return Arrays.asList(stale);
+					}
+				});
+		assertEquals(Arrays.asList(stale), companies);
+
+		Company fresh = cache.get(1, new Function<Long, Company>() {
+			@Override
+			public Company apply(Long id) {
+				return company(1, "fresh");
+			}
+		});
+		assertEquals("fresh", fresh.getName());
+	}
+
+	private static Company company(long id, String name) {
+		Company company = new Company();
+		company.setId(id);
+		company.setName(name);
+		return company;
+	}
+
+}
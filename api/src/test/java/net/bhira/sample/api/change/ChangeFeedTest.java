@@ -0,0 +1,205 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Baldeep Hira
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.bhira.sample.api.change;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.bhira.sample.api.memory.MemoryTransactionManager;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * JUnit test class for ChangeFeed.
+ * 
+ * @author Baldeep Hira
+ */
+public class ChangeFeedTest {
+
+	private static final int CAPACITY = 4;
+
+	private ChangeFeed feed;
+	private long startSeq;
+
+	@Before
+	public void setUp() {
+		feed = new ChangeFeed(CAPACITY);
+		startSeq = feed.getLastSeq();
+	}
+
+	/**
+	 * Test method for
+	 * {@link net.bhira.sample.api.change.ChangeFeed#read(long, long, int, java.util.List)}.
+	 */
+	@Test
+	public void testRead() {
+		feed.publish(ChangeEvent.CREATE, ChangeEvent.COMPANY, 1, 1);
+		feed.publish(ChangeEvent.CREATE, ChangeEvent.COMPANY, 2, 2);
+		feed.publish(ChangeEvent.UPDATE, ChangeEvent.COMPANY, 1, 1);
+		assertEquals(startSeq + 3, feed.getLastSeq());
+
+		List<ChangeEvent> changes = new ArrayList<ChangeEvent>();
+		assertEquals(startSeq + 3, feed.read(startSeq, 0, 10, changes));
+		assertEquals(3, changes.size());
+		assertChange(changes.get(0), startSeq + 1, ChangeEvent.CREATE, 1);
+		assertChange(changes.get(2), startSeq + 3, ChangeEvent.UPDATE, 1);
+
+		// the limit stops the read, the next read continues from there
+		changes.clear();
+		assertEquals(startSeq + 2, feed.read(startSeq, 0, 2, changes));
+		assertEquals(2, changes.size());
+		changes.clear();
+		assertEquals(startSeq + 3, feed.read(startSeq + 2, 0, 2, changes));
+		assertEquals(1, changes.size());
+
+		// the changes of other companies are skipped, but read past
+		changes.clear();
+		assertEquals(startSeq + 3, feed.read(startSeq + 1, 1, 10, changes));
+		assertEquals(1, changes.size());
+		assertChange(changes.get(0), startSeq + 3, ChangeEvent.UPDATE, 1);
+		changes.clear();
+		assertEquals(startSeq + 3, feed.read(startSeq + 2, 2, 10, changes));
+		assertTrue(changes.isEmpty());
+	}
+
+	/**
+	 * Test that a reset is read when the changes after the sequence number are not kept, and that
+	 * the buffer keeps the last changes once it wraps around.
+	 */
+	@Test
+	public void testReset() {
+		List<ChangeEvent> changes = new ArrayList<ChangeEvent>();
+		assertEquals(startSeq, feed.read(-1, 0, 10, changes));
+		assertEquals(1, changes.size());
+		assertChange(changes.get(0), startSeq, ChangeEvent.RESET, 0);
+
+		for (int i = 1; i <= CAPACITY + 2; i++) {
+			feed.publish(ChangeEvent.CREATE, ChangeEvent.EMPLOYEE, i, 1);
+		}
+		long lastSeq = feed.getLastSeq();
+		assertEquals(startSeq + CAPACITY + 2, lastSeq);
+
+		// the oldest kept change follows lastSeq - CAPACITY
+		changes.clear();
+		assertEquals(lastSeq, feed.read(lastSeq - CAPACITY, 0, 10, changes));
+		assertEquals(CAPACITY, changes.size());
+		for (int i = 0; i < CAPACITY; i++) {
+			assertChange(changes.get(i), lastSeq - CAPACITY + 1 + i, ChangeEvent.CREATE, 1);
+			assertEquals(3 + i, changes.get(i).getId());
+		}
+
+		// the changes after startSeq were overwritten
+		changes.clear();
+		assertEquals(lastSeq, feed.read(startSeq, 0, 10, changes));
+		assertEquals(1, changes.size());
+		assertChange(changes.get(0), lastSeq, ChangeEvent.RESET, 0);
+
+		// a sequence number ahead of the feed, e.g. of another server, gets a reset too
+		changes.clear();
+		assertEquals(lastSeq, feed.read(lastSeq + 10, 1, 10, changes));
+		assertChange(changes.get(0), lastSeq, ChangeEvent.RESET, 1);
+	}
+
+	/**
+	 * Test that the changes of a transaction are published when it commits, and never if it is
+	 * rolled back.
+	 */
+	@Test
+	public void testTransaction() {
+		TransactionTemplate transactionTemplate = new TransactionTemplate(
+				new MemoryTransactionManager());
+		transactionTemplate.execute(new TransactionCallbackWithoutResult() {
+			@Override
+			protected void doInTransactionWithoutResult(TransactionStatus status) {
+				feed.publish(ChangeEvent.CREATE, ChangeEvent.COMPANY, 1, 1);
+				feed.publish(ChangeEvent.CREATE, ChangeEvent.DEPARTMENT, 2, 1);
+				assertEquals(startSeq, feed.getLastSeq());
+			}
+		});
+		assertEquals(startSeq + 2, feed.getLastSeq());
+
+		transactionTemplate.execute(new TransactionCallbackWithoutResult() {
+			@Override
+			protected void doInTransactionWithoutResult(TransactionStatus status) {
+				feed.publish(ChangeEvent.DELETE, ChangeEvent.COMPANY, 1, 1);
+				status.setRollbackOnly();
+			}
+		});
+		assertEquals(startSeq + 2, feed.getLastSeq());
+
+		List<ChangeEvent> changes = new ArrayList<ChangeEvent>();
+		feed.read(startSeq, 0, 10, changes);
+		assertEquals(2, changes.size());
+		assertEquals(ChangeEvent.DEPARTMENT, changes.get(1).getEntity());
+	}
+
+	/**
+	 * Test method for
+	 * {@link net.bhira.sample.api.change.ChangeFeed#await(long, java.lang.Runnable)} and
+	 * {@link net.bhira.sample.api.change.ChangeFeed#cancel(java.lang.Runnable)}.
+	 */
+	@Test
+	public void testAwait() {
+		AtomicInteger runs = new AtomicInteger();
+		Runnable listener = new Runnable() {
+			@Override
+			public void run() {
+				runs.incrementAndGet();
+			}
+		};
+
+		// a reader behind the feed reads right away
+		feed.publish(ChangeEvent.CREATE, ChangeEvent.COMPANY, 1, 1);
+		assertFalse(feed.await(startSeq, listener));
+
+		// the listener is run once, by the next publish
+		assertTrue(feed.await(feed.getLastSeq(), listener));
+		feed.publish(ChangeEvent.UPDATE, ChangeEvent.COMPANY, 1, 1);
+		assertEquals(1, runs.get());
+		feed.publish(ChangeEvent.UPDATE, ChangeEvent.COMPANY, 1, 1);
+		assertEquals(1, runs.get());
+
+		// a cancelled listener is not run
+		assertTrue(feed.await(feed.getLastSeq(), listener));
+		feed.cancel(listener);
+		feed.publish(ChangeEvent.DELETE, ChangeEvent.COMPANY, 1, 1);
+		assertEquals(1, runs.get());
+	}
+
+	private static void assertChange(ChangeEvent change, long seq, String action,
+			long companyId) {
+		assertEquals(seq, change.getSeq());
+		assertEquals(action, change.getAction());
+		assertEquals(companyId, change.getCompanyId());
+		assertNotNull(change.getTime());
+	}
+
+}
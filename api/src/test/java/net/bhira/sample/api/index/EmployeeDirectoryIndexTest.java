@@ -0,0 +1,165 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Baldeep Hira
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.bhira.sample.api.index;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import net.bhira.sample.api.memory.MemoryTransactionManager;
+import net.bhira.sample.model.Employee;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * JUnit test class for EmployeeDirectoryIndex.
+ * 
+ * @author Baldeep Hira
+ */
+public class EmployeeDirectoryIndexTest {
+
+	private EmployeeDirectoryIndex index;
+	private AtomicInteger loads;
+	private Function<Long, List<Employee>> loader;
+	private TransactionTemplate transactionTemplate;
+
+	@Before
+	public void setUp() {
+		index = new EmployeeDirectoryIndex();
+		loads = new AtomicInteger();
+		// company 1 has John Smith and Jane Doe, company 2 has Ann Lee only
+		loader = new Function<Long, List<Employee>>() {
+			@Override
+			public List<Employee> apply(Long companyId) {
+				loads.incrementAndGet();
+				List<Employee> employees = new ArrayList<Employee>();
+				if (companyId == 1) {
+					employees.add(employee(10, "John Smith", "Engineer"));
+					employees.add(employee(11, "Jane Doe", "Engineer"));
+				} else if (companyId == 2) {
+					employees.add(employee(20, "Ann Lee", "Manager"));
+				}
+				return employees;
+			}
+		};
+		transactionTemplate = new TransactionTemplate(new MemoryTransactionManager());
+	}
+
+	/**
+	 * Test method for
+	 * {@link EmployeeDirectoryIndex#getDirectory(long, java.util.function.Function)}.
+	 */
+	@Test
+	public void testGetDirectory() {
+		EmployeeDirectory directory = index.getDirectory(1, loader);
+		assertEquals(2, directory.size());
+		assertSame(directory, index.getDirectory(1, loader));
+		assertEquals(1, loads.get());
+
+		// a directory purged in a transaction is dropped once it commits, and loaded again
+		transactionTemplate.execute(new TransactionCallbackWithoutResult() {
+			@Override
+			protected void doInTransactionWithoutResult(TransactionStatus status) {
+				index.invalidate(1);
+				assertSame(directory, index.getDirectory(1, loader));
+			}
+		});
+		assertNotSame(directory, index.getDirectory(1, loader));
+		assertEquals(2, loads.get());
+
+		// the number of directories is bounded
+		index = new EmployeeDirectoryIndex(2);
+		for (long companyId = 1; companyId <= 10; companyId++) {
+			index.getDirectory(companyId, loader);
+		}
+		assertTrue(index.size() <= 2);
+	}
+
+	/**
+	 * Test method for
+	 * {@link EmployeeDirectoryIndex#update(long, long, long, String, String)}, with an employee
+	 * moving to another company, only the directories of both companies are changed.
+	 */
+	@Test
+	public void testUpdate() {
+		EmployeeDirectory directory1 = index.getDirectory(1, loader);
+		EmployeeDirectory directory2 = index.getDirectory(2, loader);
+		EmployeeDirectory directory3 = index.getDirectory(3, loader);
+
+		index.update(1, 1, 11, "Jane Smith", "Engineer");
+		assertEquals(Arrays.asList(10L, 11L), directory1.search("smith", 10));
+
+		index.update(2, 1, 11, "Jane Smith", "Manager");
+		assertEquals(Arrays.asList(10L), directory1.search("smith", 10));
+		assertEquals(Arrays.asList(11L), directory2.search("smith", 10));
+		assertEquals(0, directory3.size());
+
+		// rolled back changes never reach the directory
+		transactionTemplate.execute(new TransactionCallbackWithoutResult() {
+			@Override
+			protected void doInTransactionWithoutResult(TransactionStatus status) {
+				index.update(3, 0, 30, "Bob Smith", null);
+				status.setRollbackOnly();
+			}
+		});
+		assertEquals(0, directory3.size());
+	}
+
+	/**
+	 * Test method for {@link EmployeeDirectoryIndex#remove(long, long)}.
+	 */
+	@Test
+	public void testRemove() {
+		EmployeeDirectory directory1 = index.getDirectory(1, loader);
+		EmployeeDirectory directory2 = index.getDirectory(2, loader);
+		transactionTemplate.execute(new TransactionCallbackWithoutResult() {
+			@Override
+			protected void doInTransactionWithoutResult(TransactionStatus status) {
+				index.remove(1, 10);
+				assertEquals(2, directory1.size());
+			}
+		});
+		assertEquals(1, directory1.size());
+		assertEquals(Collections.emptyList(), directory1.search("john", 10));
+		assertEquals(1, directory2.size());
+	}
+
+	private static Employee employee(long id, String name, String title) {
+		Employee employee = new Employee();
+		employee.setId(id);
+		employee.setName(name);
+		employee.setTitle(title);
+		return employee;
+	}
+
+}
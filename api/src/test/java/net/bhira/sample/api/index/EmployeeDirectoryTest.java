@@ -0,0 +1,186 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Baldeep Hira
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.bhira.sample.api.index;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import net.bhira.sample.model.Employee;
+
+import org.junit.Test;
+
+/**
+ * JUnit test class for EmployeeDirectory.
+ * 
+ * @author Baldeep Hira
+ */
+public class EmployeeDirectoryTest {
+
+	/**
+	 * Test method for {@link net.bhira.sample.api.index.EmployeeDirectory#search(String, int)}.
+	 */
+	@Test
+	public void testSearch() {
+		EmployeeDirectory directory = directory(
+				employee(1, "John Smith", "Engineer"),
+				employee(2, "Johnny Walker", "Sales Manager"),
+				employee(3, "Jon Smithers", "Engineer"));
+		assertEquals(3, directory.size());
+
+		// exact word, then prefix, then typo
+		assertEquals(Arrays.asList(1L, 2L, 3L), directory.search("john", 10));
+		assertEquals(Arrays.asList(1L, 3L), directory.search("smth", 10));
+		assertEquals(Arrays.asList(1L, 3L), directory.search("enginer", 10));
+
+		// short words must match exactly, ties are ordered by the length of the name
+		assertEquals(Arrays.asList(1L, 3L, 2L), directory.search("jo", 10));
+		assertEquals(Collections.emptyList(), directory.search("jhn", 10));
+
+		// a match on the name ranks above a match on the title
+		assertEquals(Arrays.asList(2L), directory.search("manager", 10));
+		assertEquals(Arrays.asList(1L, 3L), directory.search("engineer", 10));
+
+		assertEquals(Collections.emptyList(), directory.search("nobody", 10));
+		assertEquals(Collections.emptyList(), directory.search(null, 10));
+		assertEquals(Collections.emptyList(), directory.search(" - ", 10));
+	}
+
+	/**
+	 * Test that case and accents are ignored, in the directory as well as in the query.
+	 */
+	@Test
+	public void testAccentsAndCase() {
+		EmployeeDirectory directory = directory(
+				employee(1, "Jos\u00e9 \u00c1lvarez", "Directeur G\u00e9n\u00e9ral"),
+				employee(2, "Jose Alvarado", null));
+
+		assertEquals(Arrays.asList(1L), directory.search("JOSE ALVAREZ", 10));
+		assertEquals(Arrays.asList(1L), directory.search("general", 10));
+		assertEquals(Arrays.asList(1L), directory.search("G\u00c9N\u00c9RAL", 10));
+		assertEquals(Arrays.asList(1L, 2L), directory.search("Jos\u00e8", 10));
+		assertEquals(Arrays.asList(2L), directory.search("\u00e1lvarado", 10));
+	}
+
+	/**
+	 * Test that an employee is scored once, with every query word, when the query word driving
+	 * the search matches both its name and its title.
+	 */
+	@Test
+	public void testMultipleWords() {
+		EmployeeDirectory directory = directory(
+				employee(2, "Johnny Walker", "Sales Manager"),
+				employee(7, "Sales Sam", "Sales Lead"),
+				employee(8, "Sam Jones", "Engineer"),
+				employee(9, "Sam Lee", "Engineer"));
+
+		assertEquals(Arrays.asList(7L), directory.search("sales sam", 10));
+		assertEquals(Arrays.asList(7L), directory.search("sam sales", 10));
+		assertEquals(Arrays.asList(7L, 2L), directory.search("sales", 10));
+		assertEquals(Arrays.asList(2L), directory.search("sales walk", 10));
+		assertEquals(Arrays.asList(9L, 8L), directory.search("engineer sam", 10));
+		assertEquals(Collections.emptyList(), directory.search("sales engineer", 10));
+	}
+
+	/**
+	 * Test that the search returns at most the given number of employees, the best ones.
+	 */
+	@Test
+	public void testLimit() {
+		List<Employee> employees = new ArrayList<Employee>();
+		for (int i = 1; i <= 100; i++) {
+			employees.add(employee(i, ((i % 10 == 0) ? "Sam " : "Samuel ") + i, "Engineer"));
+		}
+		EmployeeDirectory directory = directory(employees.toArray(new Employee[0]));
+
+		assertEquals(Arrays.asList(10L, 20L, 30L), directory.search("sam", 3));
+		assertEquals(Arrays.asList(10L, 20L), directory.search("engineer", 2));
+		assertEquals(100, directory.search("sam", 1000).size());
+		assertEquals(Collections.emptyList(), directory.search("sam", 0));
+	}
+
+	/**
+	 * Test method for
+	 * {@link net.bhira.sample.api.index.EmployeeDirectory#put(long, String, String)} and
+	 * {@link net.bhira.sample.api.index.EmployeeDirectory#remove(long)}.
+	 */
+	@Test
+	public void testPutRemove() {
+		EmployeeDirectory directory = directory(
+				employee(1, "Anna Berg", "Engineer"),
+				employee(2, "Carl Berg", "Engineer"));
+		assertEquals(4, directory.getWordCount());
+		assertEquals(4, directory.getOrdinalCount());
+
+		// the words no employee has anymore are pruned, along with their trigrams
+		directory.remove(1);
+		assertEquals(1, directory.size());
+		assertEquals(3, directory.getWordCount());
+		assertEquals(Collections.emptyList(), directory.search("anna", 10));
+		assertEquals(Collections.emptyList(), directory.search("ana", 10));
+		assertEquals(Arrays.asList(2L), directory.search("berg", 10));
+		directory.remove(1);
+		assertEquals(1, directory.size());
+
+		// the ordinal of a pruned word is given to the next new word
+		directory.put(3, "Dora Lind", null);
+		assertEquals(5, directory.getWordCount());
+		assertEquals(5, directory.getOrdinalCount());
+		assertEquals(Arrays.asList(3L), directory.search("dora", 10));
+		assertEquals(Arrays.asList(3L), directory.search("lind", 10));
+
+		// putting an employee again replaces its words
+		directory.put(2, "Carl Lind", "Manager");
+		assertEquals(2, directory.size());
+		assertEquals(4, directory.getWordCount());
+		assertEquals(5, directory.getOrdinalCount());
+		assertEquals(Collections.emptyList(), directory.search("berg", 10));
+		assertEquals(Collections.emptyList(), directory.search("enginer", 10));
+		assertEquals(Arrays.asList(2L, 3L), directory.search("lind", 10));
+		assertEquals(Arrays.asList(2L), directory.search("manager", 10));
+		assertEquals(Arrays.asList(2L), directory.search("carl lind", 10));
+
+		// employees put out of order are still found once
+		directory.put(0, "Lind", null);
+		directory.put(3, "Dora Lind", null);
+		assertEquals(3, directory.size());
+		assertEquals(Arrays.asList(0L, 2L, 3L), directory.search("lind", 10));
+	}
+
+	private static EmployeeDirectory directory(Employee... employees) {
+		return new EmployeeDirectory(Arrays.asList(employees));
+	}
+
+	private static Employee employee(long id, String name, String title) {
+		Employee employee = new Employee();
+		employee.setId(id);
+		employee.setName(name);
+		employee.setTitle(title);
+		return employee;
+	}
+
+}
@@ -0,0 +1,227 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Baldeep Hira
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.bhira.sample.api.index;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import net.bhira.sample.api.memory.MemoryTransactionManager;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * JUnit test class for OrgChartIndex, including the after commit changes of IndexUtil.
+ * 
+ * @author Baldeep Hira
+ */
+public class OrgChartIndexTest {
+
+	private OrgChartIndex index;
+	private AtomicInteger loads;
+	private Function<Long, Map<Long, Long>> loader;
+	private TransactionTemplate transactionTemplate;
+
+	@Before
+	public void setUp() {
+		index = new OrgChartIndex();
+		loads = new AtomicInteger();
+		// company 1 has 10 at the top and 11 reporting to 10, company 2 has 20 only
+		loader = new Function<Long, Map<Long, Long>>() {
+			@Override
+			public Map<Long, Long> apply(Long companyId) {
+				loads.incrementAndGet();
+				Map<Long, Long> managers = new HashMap<Long, Long>();
+				if (companyId == 1) {
+					managers.put(10L, 0L);
+					managers.put(11L, 10L);
+				} else if (companyId == 2) {
+					managers.put(20L, 0L);
+				}
+				return managers;
+			}
+		};
+		transactionTemplate = new TransactionTemplate(new MemoryTransactionManager());
+	}
+
+	/**
+	 * Test method for
+	 * {@link net.bhira.sample.api.index.OrgChartIndex#getChart(long, java.util.function.Function)}.
+	 */
+	@Test
+	public void testGetChart() {
+		OrgChart chart = index.getChart(1, loader);
+		assertEquals(2, chart.size());
+		assertSame(chart, index.getChart(1, loader));
+		assertEquals(1, loads.get());
+
+		// dropped charts are loaded again, a chart dropped in a transaction once it commits
+		transactionTemplate.execute(new TransactionCallbackWithoutResult() {
+			@Override
+			protected void doInTransactionWithoutResult(TransactionStatus status) {
+				index.invalidate(1);
+				assertSame(chart, index.getChart(1, loader));
+			}
+		});
+		assertNotSame(chart, index.getChart(1, loader));
+		assertEquals(2, loads.get());
+	}
+
+	/**
+	 * Test that the number of charts is bounded.
+	 */
+	@Test
+	public void testMaximumSize() {
+		index = new OrgChartIndex(2);
+		for (long companyId = 1; companyId <= 10; companyId++) {
+			index.getChart(companyId, loader);
+		}
+		assertTrue(index.size() <= 2);
+	}
+
+	/**
+	 * Test that a change reported while a chart is being loaded is applied on top of the loaded
+	 * chart, and that a failed load is not kept.
+	 */
+	@Test
+	public void testUpdateWhileLoading() {
+		OrgChart chart = index.getChart(1, new Function<Long, Map<Long, Long>>() {
+			@Override
+			public Map<Long, Long> apply(Long companyId) {
+				Map<Long, Long> managers = loader.apply(companyId);
+				index.update(1, 0, 12, 11);
+				return managers;
+			}
+		});
+		assertEquals(Arrays.asList(11L, 10L), chart.getChain(12));
+
+		try {
+			index.getChart(2, new Function<Long, Map<Long, Long>>() {
+				@Override
+				public Map<Long, Long> apply(Long companyId) {
+					throw new IllegalStateException("database is down");
+				}
+			});
+			fail("Expected IllegalStateException");
+		} catch (IllegalStateException ex) {
+			assertEquals("database is down", ex.getMessage());
+		}
+		assertEquals(1, index.getChart(2, loader).size());
+	}
+
+	/**
+	 * Test method for {@link OrgChartIndex#update(long, long, long, long)}
+	 * without a transaction, the change is applied right away.
+	 */
+	@Test
+	public void testUpdateWithoutTransaction() {
+		index.getChart(1, loader);
+		index.update(1, 0, 12, 11);
+		assertEquals(Arrays.asList(11L, 10L), index.getChart(1, loader).getChain(12));
+
+		// charts not loaded yet are not created by updates
+		index.update(3, 0, 30, 0);
+		assertEquals(0, index.getChart(3, loader).size());
+	}
+
+	/**
+	 * Test method for {@link OrgChartIndex#update(long, long, long, long)}
+	 * in a transaction, the change is applied only once it commits.
+	 */
+	@Test
+	public void testUpdateAfterCommit() {
+		OrgChart chart = index.getChart(1, loader);
+		transactionTemplate.execute(new TransactionCallbackWithoutResult() {
+			@Override
+			protected void doInTransactionWithoutResult(TransactionStatus status) {
+				index.update(1, 0, 12, 11);
+				assertEquals(Collections.emptyList(), chart.getChain(12));
+			}
+		});
+		assertEquals(Arrays.asList(11L, 10L), chart.getChain(12));
+	}
+
+	/**
+	 * Test method for {@link OrgChartIndex#update(long, long, long, long)}
+	 * in a transaction that is rolled back, the change is never applied.
+	 */
+	@Test
+	public void testUpdateRollback() {
+		OrgChart chart = index.getChart(1, loader);
+		transactionTemplate.execute(new TransactionCallbackWithoutResult() {
+			@Override
+			protected void doInTransactionWithoutResult(TransactionStatus status) {
+				index.update(1, 0, 12, 11);
+				index.remove(1, 11);
+				status.setRollbackOnly();
+			}
+		});
+		assertEquals(2, chart.size());
+		assertEquals(Collections.emptyList(), chart.getChain(12));
+		assertEquals(Arrays.asList(10L), chart.getChain(11));
+	}
+
+	/**
+	 * Test method for {@link OrgChartIndex#update(long, long, long, long)}
+	 * with an employee moving to another company, only the charts of both companies are changed.
+	 */
+	@Test
+	public void testUpdateMovesCompany() {
+		OrgChart chart1 = index.getChart(1, loader);
+		OrgChart chart2 = index.getChart(2, loader);
+		OrgChart chart3 = index.getChart(3, loader);
+		index.update(2, 1, 11, 20);
+		assertEquals(Collections.emptyList(), chart1.getReports(10, 10));
+		assertEquals(1, chart1.size());
+		assertEquals(Arrays.asList(11L), chart2.getReports(20, 10));
+		assertEquals(0, chart3.size());
+	}
+
+	/**
+	 * Test method for {@link net.bhira.sample.api.index.OrgChartIndex#remove(long, long)}.
+	 */
+	@Test
+	public void testRemove() {
+		OrgChart chart = index.getChart(1, loader);
+		transactionTemplate.execute(new TransactionCallbackWithoutResult() {
+			@Override
+			protected void doInTransactionWithoutResult(TransactionStatus status) {
+				index.remove(1, 11);
+				assertEquals(2, chart.size());
+			}
+		});
+		assertEquals(1, chart.size());
+		assertEquals(Collections.emptyList(), chart.getReports(10, 10));
+	}
+
+}
@@ -0,0 +1,178 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Baldeep Hira
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.bhira.sample.api.index;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * JUnit test class for OrgChart.
+ * 
+ * @author Baldeep Hira
+ */
+public class OrgChartTest {
+
+	private OrgChart chart;
+
+	/**
+	 * Build a chart with 1 at the top, 2 and 3 reporting to 1, 4 and 5 reporting to 2 and 6
+	 * reporting to 4.
+	 */
+	@Before
+	public void setUp() {
+		Map<Long, Long> managers = new HashMap<Long, Long>();
+		managers.put(1L, 0L);
+		managers.put(2L, 1L);
+		managers.put(3L, 1L);
+		managers.put(4L, 2L);
+		managers.put(5L, 2L);
+		managers.put(6L, 4L);
+		chart = new OrgChart(managers);
+	}
+
+	/**
+	 * Test method for {@link net.bhira.sample.api.index.OrgChart#getReports(long, int)}.
+	 */
+	@Test
+	public void testGetReports() {
+		assertEquals(6, chart.size());
+		assertEquals(Arrays.asList(2L, 3L), sorted(chart.getReports(1, 1)));
+		assertEquals(Arrays.asList(4L, 5L), sorted(chart.getReports(2, 1)));
+		assertEquals(Collections.emptyList(), chart.getReports(3, 5));
+		assertEquals(Collections.emptyList(), chart.getReports(99, 5));
+		assertEquals(Collections.emptyList(), chart.getReports(1, 0));
+
+		// ordered by level, the direct reports come first
+		assertLevels(chart.getReports(1, 2), Arrays.asList(2L, 3L), Arrays.asList(4L, 5L));
+		assertLevels(chart.getReports(1, 10), Arrays.asList(2L, 3L), Arrays.asList(4L, 5L),
+				Arrays.asList(6L));
+	}
+
+	/**
+	 * Test method for {@link net.bhira.sample.api.index.OrgChart#getChain(long)}.
+	 */
+	@Test
+	public void testGetChain() {
+		assertEquals(Arrays.asList(4L, 2L, 1L), chart.getChain(6));
+		assertEquals(Arrays.asList(1L), chart.getChain(3));
+		assertEquals(Collections.emptyList(), chart.getChain(1));
+		assertEquals(Collections.emptyList(), chart.getChain(99));
+	}
+
+	/**
+	 * Test methods for {@link net.bhira.sample.api.index.OrgChart#getReports(long, int)} and
+	 * {@link net.bhira.sample.api.index.OrgChart#getChain(long)} with cycles in the data.
+	 */
+	@Test
+	public void testCycles() {
+		// 1 and 2 manage each other, 3 reports to 2
+		Map<Long, Long> managers = new HashMap<Long, Long>();
+		managers.put(1L, 2L);
+		managers.put(2L, 1L);
+		managers.put(3L, 2L);
+		OrgChart cycle = new OrgChart(managers);
+		assertLevels(cycle.getReports(1, 10), Arrays.asList(2L), Arrays.asList(3L));
+		assertEquals(Arrays.asList(2L, 1L), cycle.getChain(3));
+		assertEquals(Arrays.asList(2L), cycle.getChain(1));
+
+		// an employee managing itself
+		cycle.put(4, 4);
+		assertEquals(Collections.emptyList(), cycle.getReports(4, 10));
+		assertEquals(Collections.emptyList(), cycle.getChain(4));
+	}
+
+	/**
+	 * Test method for {@link net.bhira.sample.api.index.OrgChart#put(long, long)}.
+	 */
+	@Test
+	public void testPut() {
+		// moving 4 under 3 takes its reports along
+		chart.put(4, 3);
+		assertEquals(Arrays.asList(5L), chart.getReports(2, 10));
+		assertLevels(chart.getReports(3, 10), Arrays.asList(4L), Arrays.asList(6L));
+		assertEquals(Arrays.asList(4L, 3L, 1L), chart.getChain(6));
+
+		// putting it again under the same manager does not add it twice
+		chart.put(4, 3);
+		assertEquals(Arrays.asList(4L), chart.getReports(3, 1));
+
+		// a new employee without a manager
+		chart.put(7, 0);
+		assertEquals(7, chart.size());
+		assertEquals(Collections.emptyList(), chart.getChain(7));
+		assertFalse(chart.getReports(1, 10).contains(7L));
+
+		// removing the manager of the chain moves it to the top
+		chart.put(2, 0);
+		assertEquals(Arrays.asList(3L), chart.getReports(1, 1));
+		assertEquals(Arrays.asList(2L), chart.getChain(5));
+	}
+
+	/**
+	 * Test method for {@link net.bhira.sample.api.index.OrgChart#remove(long)}.
+	 */
+	@Test
+	public void testRemove() {
+		chart.remove(5);
+		chart.remove(99);
+		assertEquals(5, chart.size());
+		assertEquals(Arrays.asList(4L), chart.getReports(2, 1));
+
+		// the reports of a removed manager stay, but are not reachable from above
+		chart.remove(4);
+		assertEquals(Collections.emptyList(), chart.getReports(2, 10));
+		assertEquals(Arrays.asList(4L), chart.getChain(6));
+	}
+
+	/**
+	 * Assert that the given reports hold the given levels in order, in any order within a level.
+	 */
+	@SafeVarargs
+	private static void assertLevels(List<Long> reports, List<Long>... levels) {
+		int from = 0;
+		for (List<Long> level : levels) {
+			assertTrue("expected " + level + " at " + from + " of " + reports,
+					from + level.size() <= reports.size());
+			assertEquals(level, sorted(reports.subList(from, from + level.size())));
+			from += level.size();
+		}
+		assertEquals(from, reports.size());
+	}
+
+	private static List<Long> sorted(List<Long> list) {
+		List<Long> copy = new ArrayList<Long>(list);
+		Collections.sort(copy);
+		return copy;
+	}
+
+}
@@ -0,0 +1,177 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Baldeep Hira
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.bhira.sample.api.memory;
+
+import static org.junit.Assert.*;
+
+import net.bhira.sample.api.index.EmployeeDirectoryIndex;
+import net.bhira.sample.api.index.OrgChartIndex;
+import net.bhira.sample.common.exception.DuplicateNameException;
+import net.bhira.sample.common.exception.InvalidReferenceException;
+import net.bhira.sample.model.Company;
+import net.bhira.sample.model.Department;
+import net.bhira.sample.model.Employee;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+
+/**
+ * JUnit test class for MemoryDepartmentDao, along with the foreign key checks of
+ * MemoryCompanyDao.
+ * 
+ * @author Baldeep Hira
+ */
+public class MemoryDepartmentDaoTest {
+
+	private MemoryStore store;
+	private MemoryCompanyDao companyDao;
+	private MemoryDepartmentDao departmentDao;
+	private MemoryEmployeeDao employeeDao;
+	private long companyId;
+
+	@Before
+	public void setUp() throws Exception {
+		store = new MemoryStore();
+		MemoryContactInfoDao contactInfoDao = new MemoryContactInfoDao();
+		contactInfoDao.store = store;
+		companyDao = new MemoryCompanyDao();
+		companyDao.store = store;
+		companyDao.contactInfoDao = contactInfoDao;
+		departmentDao = new MemoryDepartmentDao();
+		departmentDao.store = store;
+		departmentDao.contactInfoDao = contactInfoDao;
+		employeeDao = new MemoryEmployeeDao();
+		employeeDao.store = store;
+		employeeDao.contactInfoDao = contactInfoDao;
+		employeeDao.orgChartIndex = new OrgChartIndex();
+		employeeDao.employeeDirectoryIndex = new EmployeeDirectoryIndex();
+
+		Company company = new Company();
+		company.setName("C1");
+		companyDao.save(company);
+		companyId = company.getId();
+	}
+
+	/**
+	 * Test method for {@link net.bhira.sample.api.memory.MemoryDepartmentDao#save(Department)},
+	 * department names are unique within a company regardless of case, like uq_department.
+	 */
+	@Test
+	public void testSaveDuplicateName() throws Exception {
+		Department sales = department("Sales", companyId);
+		departmentDao.save(sales);
+		try {
+			departmentDao.save(department("SALES", companyId));
+			fail("Expected DuplicateNameException");
+		} catch (DuplicateNameException dne) {
+			// expected
+		}
+		assertEquals(1, store.departments.size());
+
+		// the same name is allowed in another company, and when saving the department itself
+		Company other = new Company();
+		other.setName("C2");
+		companyDao.save(other);
+		departmentDao.save(department("Sales", other.getId()));
+		sales = departmentDao.load(sales.getId());
+		sales.setName("sales");
+		departmentDao.save(sales);
+		assertEquals(1, sales.getVersion());
+
+		// moving a department into a company having a department with the same name
+		sales.setCompanyId(other.getId());
+		try {
+			departmentDao.save(sales);
+			fail("Expected DuplicateNameException");
+		} catch (DuplicateNameException dne) {
+			// expected
+		}
+		assertEquals(companyId, departmentDao.load(sales.getId()).getCompanyId());
+	}
+
+	/**
+	 * Test method for {@link net.bhira.sample.api.memory.MemoryDepartmentDao#save(Department)},
+	 * the company must exist, like fk_department_compy requires.
+	 */
+	@Test
+	public void testSaveReferences() throws Exception {
+		try {
+			departmentDao.save(department("Sales", companyId + 1));
+			fail("Expected InvalidReferenceException");
+		} catch (InvalidReferenceException ire) {
+			// expected
+		}
+		assertTrue(store.departments.isEmpty());
+	}
+
+	/**
+	 * Test method for {@link net.bhira.sample.api.memory.MemoryDepartmentDao#delete(long)} and
+	 * {@link net.bhira.sample.api.memory.MemoryCompanyDao#delete(long)}, rows referenced by a
+	 * foreign key cannot be deleted.
+	 */
+	@Test
+	public void testDeleteReferences() throws Exception {
+		Department sales = department("Sales", companyId);
+		departmentDao.save(sales);
+		Employee employee = new Employee();
+		employee.setName("E1");
+		employee.setCompanyId(companyId);
+		employee.setDepartmentId(sales.getId());
+		employeeDao.save(employee);
+
+		try {
+			departmentDao.delete(sales.getId());
+			fail("Expected DataIntegrityViolationException");
+		} catch (DataIntegrityViolationException dive) {
+			// expected
+		}
+		try {
+			departmentDao.deleteByCompany(companyId, 10);
+			fail("Expected DataIntegrityViolationException");
+		} catch (DataIntegrityViolationException dive) {
+			// expected
+		}
+		try {
+			companyDao.delete(companyId);
+			fail("Expected DataIntegrityViolationException");
+		} catch (DataIntegrityViolationException dive) {
+			// expected
+		}
+		assertEquals(1, store.departments.size());
+
+		assertTrue(employeeDao.delete(employee.getId()));
+		assertEquals(1, departmentDao.deleteByCompany(companyId, 10));
+		assertTrue(companyDao.delete(companyId));
+		assertTrue(store.companies.isEmpty());
+	}
+
+	private static Department department(String name, long companyId) {
+		Department department = new Department();
+		department.setName(name);
+		department.setCompanyId(companyId);
+		return department;
+	}
+
+}
@@ -0,0 +1,260 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Baldeep Hira
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.bhira.sample.api.memory;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import net.bhira.sample.api.index.EmployeeDirectoryIndex;
+import net.bhira.sample.api.index.OrgChartIndex;
+import net.bhira.sample.common.exception.InvalidReferenceException;
+import net.bhira.sample.common.exception.ObjectNotFoundException;
+import net.bhira.sample.common.exception.StaleObjectException;
+import net.bhira.sample.model.Company;
+import net.bhira.sample.model.Department;
+import net.bhira.sample.model.Employee;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+
+/**
+ * JUnit test class for MemoryEmployeeDao, including the foreign key checks that mirror the
+ * database schema.
+ * 
+ * @author Baldeep Hira
+ */
+public class MemoryEmployeeDaoTest {
+
+	private MemoryStore store;
+	private MemoryEmployeeDao employeeDao;
+	private long companyId;
+	private long departmentId;
+
+	@Before
+	public void setUp() throws Exception {
+		store = new MemoryStore();
+		MemoryContactInfoDao contactInfoDao = new MemoryContactInfoDao();
+		contactInfoDao.store = store;
+		MemoryCompanyDao companyDao = new MemoryCompanyDao();
+		companyDao.store = store;
+		companyDao.contactInfoDao = contactInfoDao;
+		MemoryDepartmentDao departmentDao = new MemoryDepartmentDao();
+		departmentDao.store = store;
+		departmentDao.contactInfoDao = contactInfoDao;
+		employeeDao = new MemoryEmployeeDao();
+		employeeDao.store = store;
+		employeeDao.contactInfoDao = contactInfoDao;
+		employeeDao.orgChartIndex = new OrgChartIndex();
+		employeeDao.employeeDirectoryIndex = new EmployeeDirectoryIndex();
+
+		Company company = new Company();
+		company.setName("C1");
+		companyDao.save(company);
+		companyId = company.getId();
+		Department department = new Department();
+		department.setName("D1");
+		department.setCompanyId(companyId);
+		departmentDao.save(department);
+		departmentId = department.getId();
+	}
+
+	/**
+	 * Test method for {@link net.bhira.sample.api.memory.MemoryEmployeeDao#save(Employee)}, the
+	 * company, department and manager must exist, like the foreign keys require.
+	 */
+	@Test
+	public void testSaveReferences() throws Exception {
+		assertInvalidReference(employee("E1", companyId + 1, 0, 0), "companyId");
+		assertInvalidReference(employee("E1", companyId, departmentId + 1, 0), "departmentId");
+		assertInvalidReference(employee("E1", companyId, departmentId, 99), "managerId");
+		assertTrue(store.employees.isEmpty());
+
+		Employee manager = employee("M1", companyId, departmentId, 0);
+		employeeDao.save(manager);
+		Employee employee = employee("E1", companyId, departmentId, manager.getId());
+		employeeDao.save(employee);
+		assertEquals(2, store.employees.size());
+		assertEquals(Arrays.asList(employee.getId()),
+				employeeDao.loadReportIds(companyId, manager.getId(), 1));
+	}
+
+	/**
+	 * Test method for {@link net.bhira.sample.api.memory.MemoryEmployeeDao#save(Employee)}, an
+	 * update must carry the current version of the employee.
+	 */
+	@Test
+	public void testSaveVersion() throws Exception {
+		Employee employee = employee("E1", companyId, 0, 0);
+		employeeDao.save(employee);
+		assertEquals(0, employee.getVersion());
+
+		Employee first = employeeDao.load(employee.getId());
+		Employee second = employeeDao.load(employee.getId());
+		first.setTitle("Engineer");
+		employeeDao.save(first);
+		assertEquals(1, first.getVersion());
+		try {
+			employeeDao.save(second);
+			fail("Expected StaleObjectException");
+		} catch (StaleObjectException soe) {
+			// expected
+		}
+		assertEquals("Engineer", employeeDao.load(employee.getId()).getTitle());
+
+		Employee missing = employee("E2", companyId, 0, 0);
+		missing.setId(99);
+		try {
+			employeeDao.save(missing);
+			fail("Expected ObjectNotFoundException");
+		} catch (ObjectNotFoundException onfe) {
+			// expected
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link net.bhira.sample.api.memory.MemoryEmployeeDao#saveAll(java.util.List)}, all the
+	 * employees are checked before any is written, so a failing batch writes nothing.
+	 */
+	@Test
+	public void testSaveAllAtomic() throws Exception {
+		Employee existing = employee("E1", companyId, 0, 0);
+		employeeDao.save(existing);
+
+		Employee created = employee("E2", companyId, 0, 0);
+		Employee updated = employeeDao.load(existing.getId());
+		updated.setTitle("Engineer");
+		Employee invalid = employee("E3", companyId, 0, 99);
+		try {
+			employeeDao.saveAll(Arrays.asList(created, updated, invalid));
+			fail("Expected InvalidReferenceException");
+		} catch (InvalidReferenceException ire) {
+			// expected
+		}
+		assertEquals(1, store.employees.size());
+		assertEquals(0, created.getId());
+		assertEquals(0, store.employees.get(existing.getId()).getVersion());
+		assertNull(store.employees.get(existing.getId()).getTitle());
+
+		// an employee updated twice in a batch is stale the second time
+		Employee again = employeeDao.load(existing.getId());
+		try {
+			employeeDao.saveAll(Arrays.asList(created, updated, again));
+			fail("Expected StaleObjectException");
+		} catch (StaleObjectException soe) {
+			// expected
+		}
+		assertEquals(1, store.employees.size());
+		assertEquals(0, created.getId());
+
+		employeeDao.saveAll(Arrays.asList(created, updated));
+		assertEquals(2, store.employees.size());
+		assertEquals(1, store.employees.get(existing.getId()).getVersion());
+	}
+
+	/**
+	 * Test method for
+	 * {@link net.bhira.sample.api.memory.MemoryEmployeeDao#updateManagers(long, java.util.Map)},
+	 * all the managers are checked before any employee is written.
+	 */
+	@Test
+	public void testUpdateManagers() throws Exception {
+		Employee manager = employee("M1", companyId, 0, 0);
+		employeeDao.save(manager);
+		Employee employee = employee("E1", companyId, 0, 0);
+		employeeDao.save(employee);
+
+		Map<Long, Long> managerIds = new LinkedHashMap<Long, Long>();
+		managerIds.put(employee.getId(), manager.getId());
+		managerIds.put(manager.getId(), 99L);
+		try {
+			employeeDao.updateManagers(companyId, managerIds);
+			fail("Expected InvalidReferenceException");
+		} catch (InvalidReferenceException ire) {
+			// expected
+		}
+		assertEquals(0, store.employees.get(employee.getId()).getManagerId());
+		assertEquals(Collections.emptyList(), employeeDao.loadReportIds(companyId,
+				manager.getId(), 1));
+
+		// employees that are not found in the company are skipped
+		managerIds.clear();
+		managerIds.put(employee.getId(), manager.getId());
+		managerIds.put(99L, manager.getId());
+		assertEquals(Arrays.asList(employee.getId()),
+				employeeDao.updateManagers(companyId, managerIds));
+		assertEquals(Arrays.asList(employee.getId()),
+				employeeDao.loadReportIds(companyId, manager.getId(), 1));
+	}
+
+	/**
+	 * Test method for {@link net.bhira.sample.api.memory.MemoryEmployeeDao#delete(long)}, a
+	 * manager cannot be deleted while employees report to it.
+	 */
+	@Test
+	public void testDeleteReferences() throws Exception {
+		Employee manager = employee("M1", companyId, 0, 0);
+		employeeDao.save(manager);
+		Employee employee = employee("E1", companyId, 0, manager.getId());
+		employeeDao.save(employee);
+
+		try {
+			employeeDao.delete(manager.getId());
+			fail("Expected DataIntegrityViolationException");
+		} catch (DataIntegrityViolationException dive) {
+			// expected
+		}
+		assertEquals(2, store.employees.size());
+
+		assertTrue(employeeDao.delete(employee.getId()));
+		assertTrue(employeeDao.delete(manager.getId()));
+		assertFalse(employeeDao.delete(manager.getId()));
+		assertTrue(store.employees.isEmpty());
+	}
+
+	private void assertInvalidReference(Employee employee, String attribute) throws Exception {
+		try {
+			employeeDao.save(employee);
+			fail("Expected InvalidReferenceException");
+		} catch (InvalidReferenceException ire) {
+			assertTrue(ire.getMessage().contains(attribute));
+		}
+	}
+
+	private static Employee employee(String name, long companyId, long departmentId,
+			long managerId) {
+		Employee employee = new Employee();
+		employee.setName(name);
+		employee.setCompanyId(companyId);
+		employee.setDepartmentId(departmentId);
+		employee.setManagerId(managerId);
+		return employee;
+	}
+
+}
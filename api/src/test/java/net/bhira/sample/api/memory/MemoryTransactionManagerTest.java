@@ -0,0 +1,176 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Baldeep Hira
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.bhira.sample.api.memory;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import net.bhira.sample.api.index.EmployeeDirectoryIndex;
+import net.bhira.sample.api.index.OrgChartIndex;
+import net.bhira.sample.common.exception.InvalidReferenceException;
+import net.bhira.sample.model.Company;
+import net.bhira.sample.model.Employee;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * JUnit test class for MemoryTransactionManager. As rolling back does not revert the DAO calls
+ * made in the transaction, a service method is only atomic if it makes a single DAO write, which
+ * is the case for every service method, while the purge and the import run a transaction per
+ * chunk. These tests pin down both sides.
+ * 
+ * @author Baldeep Hira
+ */
+public class MemoryTransactionManagerTest {
+
+	private MemoryStore store;
+	private MemoryEmployeeDao employeeDao;
+	private TransactionTemplate transactionTemplate;
+	private long companyId;
+	private Employee manager;
+
+	@Before
+	public void setUp() throws Exception {
+		store = new MemoryStore();
+		MemoryContactInfoDao contactInfoDao = new MemoryContactInfoDao();
+		contactInfoDao.store = store;
+		MemoryCompanyDao companyDao = new MemoryCompanyDao();
+		companyDao.store = store;
+		companyDao.contactInfoDao = contactInfoDao;
+		employeeDao = new MemoryEmployeeDao();
+		employeeDao.store = store;
+		employeeDao.contactInfoDao = contactInfoDao;
+		employeeDao.orgChartIndex = new OrgChartIndex();
+		employeeDao.employeeDirectoryIndex = new EmployeeDirectoryIndex();
+		transactionTemplate = new TransactionTemplate(new MemoryTransactionManager());
+
+		Company company = new Company();
+		company.setName("C1");
+		companyDao.save(company);
+		companyId = company.getId();
+		manager = employee("M1", 0);
+		employeeDao.save(manager);
+	}
+
+	/**
+	 * Test that the changes of the indexes made in a transaction are applied once it commits.
+	 */
+	@Test
+	public void testCommit() {
+		assertEquals(Collections.emptyList(), reports());
+		Employee employee = employee("E1", manager.getId());
+		transactionTemplate.execute(new TransactionCallbackWithoutResult() {
+			@Override
+			protected void doInTransactionWithoutResult(TransactionStatus status) {
+				save(employee);
+				assertEquals(Collections.emptyList(), reports());
+			}
+		});
+		assertEquals(Arrays.asList(employee.getId()), reports());
+	}
+
+	/**
+	 * Test that a failing DAO call leaves nothing behind to roll back, which keeps the service
+	 * methods atomic, as each of them makes a single DAO write.
+	 */
+	@Test
+	public void testRollbackFailedCall() {
+		Employee created = employee("E1", manager.getId());
+		Employee invalid = employee("E2", 99);
+		try {
+			transactionTemplate.execute(new TransactionCallbackWithoutResult() {
+				@Override
+				protected void doInTransactionWithoutResult(TransactionStatus status) {
+					saveAll(created, invalid);
+				}
+			});
+			fail("Expected IllegalStateException");
+		} catch (IllegalStateException ise) {
+			assertTrue(ise.getCause() instanceof InvalidReferenceException);
+		}
+		assertEquals(1, store.employees.size());
+		assertEquals(0, created.getId());
+		assertEquals(Collections.emptyList(), reports());
+	}
+
+	/**
+	 * Test that rolling back does not revert the DAO calls that completed in the transaction, so
+	 * a transaction making several DAO writes is not atomic in the "memory" profile.
+	 */
+	@Test
+	public void testRollbackKeepsCompletedCalls() {
+		Employee saved = employee("E1", manager.getId());
+		Employee invalid = employee("E2", 99);
+		try {
+			transactionTemplate.execute(new TransactionCallbackWithoutResult() {
+				@Override
+				protected void doInTransactionWithoutResult(TransactionStatus status) {
+					save(saved);
+					save(invalid);
+				}
+			});
+			fail("Expected IllegalStateException");
+		} catch (IllegalStateException ise) {
+			assertTrue(ise.getCause() instanceof InvalidReferenceException);
+		}
+		assertEquals(2, store.employees.size());
+		assertTrue(store.employees.containsKey(saved.getId()));
+	}
+
+	private List<Long> reports() {
+		return employeeDao.loadReportIds(companyId, manager.getId(), 1);
+	}
+
+	private void save(Employee employee) {
+		try {
+			employeeDao.save(employee);
+		} catch (Exception ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	private void saveAll(Employee... employees) {
+		try {
+			employeeDao.saveAll(Arrays.asList(employees));
+		} catch (Exception ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	private Employee employee(String name, long managerId) {
+		Employee employee = new Employee();
+		employee.setName(name);
+		employee.setCompanyId(companyId);
+		employee.setManagerId(managerId);
+		return employee;
+	}
+
+}
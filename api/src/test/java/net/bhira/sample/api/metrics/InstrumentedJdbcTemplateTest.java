@@ -0,0 +1,223 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Baldeep Hira
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.bhira.sample.api.metrics;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+
+import javax.sql.DataSource;
+
+import net.bhira.sample.api.dao.EmployeeDaoImpl;
+import net.bhira.sample.api.jdbc.EmployeeProjection;
+import net.bhira.sample.api.jdbc.JdbcUtil;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.support.StaticApplicationContext;
+import org.springframework.jdbc.core.PreparedStatementCallback;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+
+import io.prometheus.client.CollectorRegistry;
+
+/**
+ * JUnit test class for InstrumentedJdbcTemplate, checking that the statements built from the SQL
+ * constants of {@link net.bhira.sample.api.dao.EmployeeDaoImpl} are published under the name of
+ * the constant. The statements run against a stub data source that returns no rows.
+ * 
+ * @author Baldeep Hira
+ */
+public class InstrumentedJdbcTemplateTest {
+
+	private static final String DAO = "EmployeeDaoImpl.";
+
+	private InstrumentedJdbcTemplate jdbcTemplate;
+
+	@Before
+	public void setUp() {
+		jdbcTemplate = new InstrumentedJdbcTemplate();
+		jdbcTemplate.setDataSource(stub(DataSource.class));
+		StaticApplicationContext context = new StaticApplicationContext();
+		context.registerSingleton("employeeDao", EmployeeDaoImpl.class);
+		context.refresh();
+		jdbcTemplate.onApplicationEvent(new ContextRefreshedEvent(context));
+	}
+
+	/**
+	 * Test that statements with a parameter list of any length, e.g. "in (?,?,?)", are published
+	 * under the name of their "in (%s)" template.
+	 */
+	@Test
+	public void testParameterList() throws Exception {
+		String name = DAO + "SQL_LOAD_BY_IDS";
+		double count = count(name);
+		String sql = sql("SQL_LOAD_BY_IDS");
+		jdbcTemplate.queryForList(String.format(sql, JdbcUtil.inClause(1)), 1L);
+		assertEquals(count + 1, count(name), 0);
+		jdbcTemplate.queryForList(String.format(sql, JdbcUtil.inClause(3)), 1L, 2L, 3L);
+		assertEquals(count + 2, count(name), 0);
+
+		name = DAO + "SQL_DELETE_BY_IDS";
+		count = count(name);
+		jdbcTemplate.update(String.format(sql("SQL_DELETE_BY_IDS"), JdbcUtil.inClause(2)), 1L,
+				2L);
+		assertEquals(count + 1, count(name), 0);
+
+		count = count("other");
+		jdbcTemplate.queryForList("select id from employee where name = ?", "John");
+		assertEquals(count + 1, count("other"), 0);
+	}
+
+	/**
+	 * Test that projections, selecting the columns of the requested fields only, are published
+	 * under the name of their "select %s from" template.
+	 */
+	@Test
+	public void testSelectList() throws Exception {
+		String name = DAO + "SQL_LOAD_PAGE_BY_COMPANY";
+		double count = count(name);
+		String sql = sql("SQL_LOAD_PAGE_BY_COMPANY");
+		RowCallbackHandler handler = new RowCallbackHandler() {
+			@Override
+			public void processRow(ResultSet rs) throws SQLException {
+				fail("Expected no rows");
+			}
+		};
+		for (EmployeeProjection projection : Arrays.asList(EmployeeProjection.COMPACT,
+				EmployeeProjection.ALL, EmployeeProjection.parse("name,title"))) {
+			jdbcTemplate.query(JdbcUtil.streaming(String.format(sql, projection.getColumns()),
+					1L, 0L, 100), handler);
+		}
+		assertEquals(count + 3, count(name), 0);
+	}
+
+	/**
+	 * Test that inserts returning the generated keys, whose creator does not expose the SQL, are
+	 * published under the name of their constant, as well as batch inserts.
+	 */
+	@Test
+	public void testInsert() throws Exception {
+		String name = DAO + "SQL_INSERT";
+		double count = count(name);
+		PreparedStatementCreator creator = new PreparedStatementCreator() {
+			@Override
+			public PreparedStatement createPreparedStatement(Connection connection)
+					throws SQLException {
+				return connection.prepareStatement(sql("SQL_INSERT"),
+						Statement.RETURN_GENERATED_KEYS);
+			}
+		};
+		jdbcTemplate.update(creator, new GeneratedKeyHolder());
+		jdbcTemplate.execute(creator, new PreparedStatementCallback<int[]>() {
+			@Override
+			public int[] doInPreparedStatement(PreparedStatement pstmt) throws SQLException {
+				pstmt.addBatch();
+				pstmt.addBatch();
+				return pstmt.executeBatch();
+			}
+		});
+		assertEquals(count + 2, count(name), 0);
+
+		name = DAO + "SQL_CINFO_REL_INSERT";
+		count = count(name);
+		jdbcTemplate.batchUpdate(sql("SQL_CINFO_REL_INSERT"),
+				Arrays.asList(new Object[] { 1L, 10L }, new Object[] { 2L, 20L }));
+		assertEquals(count + 1, count(name), 0);
+	}
+
+	/**
+	 * Get the number of executions published for the given statement name.
+	 */
+	private static double count(String name) {
+		Double count = CollectorRegistry.defaultRegistry.getSampleValue(
+				"sql_statement_duration_seconds_count", new String[] { "statement" },
+				new String[] { name });
+		return (count == null) ? 0 : count;
+	}
+
+	/**
+	 * Get the value of the given SQL constant of EmployeeDaoImpl.
+	 */
+	private static String sql(String constant) {
+		try {
+			Field field = EmployeeDaoImpl.class.getDeclaredField(constant);
+			field.setAccessible(true);
+			return (String) field.get(null);
+		} catch (ReflectiveOperationException roe) {
+			throw new IllegalStateException(roe);
+		}
+	}
+
+	/**
+	 * Create a stub of the given JDBC interface. Statements update one row, batches one row per
+	 * statement, and queries and generated keys return no rows.
+	 */
+	@SuppressWarnings("unchecked")
+	private static <T> T stub(Class<T> type) {
+		return (T) Proxy.newProxyInstance(InstrumentedJdbcTemplateTest.class.getClassLoader(),
+				new Class<?>[] { type }, new InvocationHandler() {
+					private int batchSize;
+
+					@Override
+					public Object invoke(Object proxy, Method method, Object[] args) {
+						Class<?> returnType = method.getReturnType();
+						if (method.getDeclaringClass() == Object.class) {
+							return "equals".equals(method.getName()) ? proxy == args[0]
+									: "hashCode".equals(method.getName())
+											? System.identityHashCode(proxy) : type.getName();
+						} else if ("addBatch".equals(method.getName())) {
+							batchSize++;
+						} else if ("executeBatch".equals(method.getName())) {
+							int[] counts = new int[batchSize];
+							Arrays.fill(counts, 1);
+							batchSize = 0;
+							return counts;
+						} else if (returnType.isInterface()
+								&& returnType.getName().startsWith("java.sql.")) {
+							return stub(returnType);
+						} else if (returnType == boolean.class) {
+							return method.getName().startsWith("supports");
+						} else if (returnType == int.class) {
+							return "executeUpdate".equals(method.getName()) ? 1 : 0;
+						} else if (returnType == long.class) {
+							return 0L;
+						}
+						return null;
+					}
+				});
+	}
+
+}
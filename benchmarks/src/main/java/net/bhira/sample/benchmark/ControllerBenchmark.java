@@ -0,0 +1,191 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Baldeep Hira
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.bhira.sample.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+
+import net.bhira.sample.api.controller.EmployeeController;
+import net.bhira.sample.api.jdbc.ModifiedStamp;
+import net.bhira.sample.api.service.EmployeeService;
+import net.bhira.sample.model.Employee;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * JMH benchmark for the controller level serialization of employees, from the service result to
+ * the bytes of the http response. The employee service is replaced by an in memory stub, so only
+ * the controller and JSON cost is measured.
+ *
+ * @author Baldeep Hira
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ControllerBenchmark {
+
+	@Param({ "10", "1000" })
+	int size;
+
+	private EmployeeController controller;
+	private byte[] ids;
+
+	/**
+	 * Create the controller with the stub employee service.
+	 */
+	@Setup
+	public void setup() {
+		List<Employee> employees = ModelFixtures.employees(size);
+		controller = new EmployeeController();
+		ReflectionTestUtils.setField(controller, "employeeService", stubService(employees));
+
+		StringBuilder builder = new StringBuilder("[");
+		for (int i = 1; i <= size; i++) {
+			builder.append(i == 1 ? "" : ",").append(i);
+		}
+		ids = builder.append("]").toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	@Benchmark
+	public byte[] getEmployeesByCompany() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		BufferedResponse response = new BufferedResponse();
+		controller.getEmployeesByCompany(1, null, null, size, null, request, response).call();
+		return response.getContent();
+	}
+
+	@Benchmark
+	public byte[] getEmployeesByCompanyAllFields() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		BufferedResponse response = new BufferedResponse();
+		controller.getEmployeesByCompany(1, null, null, size, "all", request, response).call();
+		return response.getContent();
+	}
+
+	@Benchmark
+	public byte[] getEmployees() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.setContent(ids);
+		BufferedResponse response = new BufferedResponse();
+		String body = controller.getEmployees(request, response).call();
+		// the message converter would write the returned body to the response
+		response.getOutputStream().write(body.getBytes(StandardCharsets.UTF_8));
+		return response.getContent();
+	}
+
+	/**
+	 * Mock response writing to a plain byte array. The output stream of
+	 * {@link org.springframework.mock.web.MockHttpServletResponse} flushes after every single
+	 * byte, which would dominate the measurement of streamed responses.
+	 */
+	private static class BufferedResponse extends MockHttpServletResponse {
+
+		private final ByteArrayOutputStream content = new ByteArrayOutputStream(64 * 1024);
+
+		private final ServletOutputStream outputStream = new ServletOutputStream() {
+			@Override
+			public void write(int b) {
+				content.write(b);
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) {
+				content.write(b, off, len);
+			}
+
+			@Override
+			public boolean isReady() {
+				return true;
+			}
+
+			@Override
+			public void setWriteListener(WriteListener writeListener) {
+				throw new UnsupportedOperationException();
+			}
+		};
+
+		@Override
+		public ServletOutputStream getOutputStream() {
+			return outputStream;
+		}
+
+		byte[] getContent() {
+			return content.toByteArray();
+		}
+
+	}
+
+	/**
+	 * Create an {@link net.bhira.sample.api.service.EmployeeService} that serves the given
+	 * employees for loads by company and by IDs.
+	 */
+	private static EmployeeService stubService(List<Employee> employees) {
+		InvocationHandler handler = new InvocationHandler() {
+			@SuppressWarnings("unchecked")
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				if (method.getName().equals("loadByCompany") && args.length == 5) {
+					for (Employee employee : employees) {
+						((Consumer<Employee>) args[4]).accept(employee);
+					}
+					return null;
+				} else if (method.getName().equals("loadModifiedStampByCompany")) {
+					return new ModifiedStamp(employees.size(), new Date(0), 0, employees.size());
+				} else if (method.getName().equals("loadAll") && args.length == 1) {
+					return employees;
+				}
+				throw new UnsupportedOperationException(method.getName());
+			}
+		};
+		return (EmployeeService) Proxy.newProxyInstance(EmployeeService.class.getClassLoader(),
+				new Class<?>[] { EmployeeService.class }, handler);
+	}
+
+}
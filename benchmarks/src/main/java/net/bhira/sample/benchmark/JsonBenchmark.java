@@ -0,0 +1,123 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Baldeep Hira
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.bhira.sample.benchmark;
+
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import net.bhira.sample.common.JsonUtil;
+import net.bhira.sample.model.Company;
+import net.bhira.sample.model.Department;
+import net.bhira.sample.model.Employee;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.gson.reflect.TypeToken;
+
+/**
+ * JMH benchmark for serializing and deserializing lists of model objects with the shared Gson of
+ * {@link net.bhira.sample.common.JsonUtil}.
+ *
+ * @author Baldeep Hira
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonBenchmark {
+
+	private static final Type EMPLOYEES = new TypeToken<List<Employee>>() {
+	}.getType();
+	private static final Type COMPANIES = new TypeToken<List<Company>>() {
+	}.getType();
+	private static final Type DEPARTMENTS = new TypeToken<List<Department>>() {
+	}.getType();
+
+	@Param({ "10", "1000" })
+	int size;
+
+	private List<Employee> employees;
+	private List<Company> companies;
+	private List<Department> departments;
+	private String employeesJson;
+	private String companiesJson;
+	private String departmentsJson;
+
+	/**
+	 * Create the model objects and their JSON.
+	 */
+	@Setup
+	public void setup() {
+		employees = ModelFixtures.employees(size);
+		companies = ModelFixtures.companies(size);
+		departments = ModelFixtures.departments(size);
+		employeesJson = JsonUtil.getGson().toJson(employees, EMPLOYEES);
+		companiesJson = JsonUtil.getGson().toJson(companies, COMPANIES);
+		departmentsJson = JsonUtil.getGson().toJson(departments, DEPARTMENTS);
+	}
+
+	@Benchmark
+	public String serializeEmployees() {
+		return JsonUtil.getGson().toJson(employees, EMPLOYEES);
+	}
+
+	@Benchmark
+	public String serializeCompanies() {
+		return JsonUtil.getGson().toJson(companies, COMPANIES);
+	}
+
+	@Benchmark
+	public String serializeDepartments() {
+		return JsonUtil.getGson().toJson(departments, DEPARTMENTS);
+	}
+
+	@Benchmark
+	public List<Employee> deserializeEmployees() {
+		return JsonUtil.getGson().fromJson(employeesJson, EMPLOYEES);
+	}
+
+	@Benchmark
+	public List<Company> deserializeCompanies() {
+		return JsonUtil.getGson().fromJson(companiesJson, COMPANIES);
+	}
+
+	@Benchmark
+	public List<Department> deserializeDepartments() {
+		return JsonUtil.getGson().fromJson(departmentsJson, DEPARTMENTS);
+	}
+
+}
@@ -0,0 +1,104 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Baldeep Hira
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.bhira.sample.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import net.bhira.sample.common.exception.InvalidObjectException;
+import net.bhira.sample.model.BaseModel;
+import net.bhira.sample.model.Company;
+import net.bhira.sample.model.Department;
+import net.bhira.sample.model.Employee;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmark for {@link net.bhira.sample.model.BaseModel#initForSave()} and
+ * {@link net.bhira.sample.model.BaseModel#validate()}, the steps every save goes through before
+ * touching the database.
+ *
+ * @author Baldeep Hira
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ModelBenchmark {
+
+	@Param({ "1000" })
+	int size;
+
+	private List<Employee> employees;
+	private List<Company> companies;
+	private List<Department> departments;
+
+	/**
+	 * Create the model objects.
+	 */
+	@Setup
+	public void setup() {
+		employees = ModelFixtures.employees(size);
+		companies = ModelFixtures.companies(size);
+		departments = ModelFixtures.departments(size);
+	}
+
+	@Benchmark
+	public int saveEmployees() throws InvalidObjectException {
+		return prepare(employees);
+	}
+
+	@Benchmark
+	public int saveCompanies() throws InvalidObjectException {
+		return prepare(companies);
+	}
+
+	@Benchmark
+	public int saveDepartments() throws InvalidObjectException {
+		return prepare(departments);
+	}
+
+	private static int prepare(List<? extends BaseModel> models) throws InvalidObjectException {
+		int count = 0;
+		for (BaseModel model : models) {
+			model.initForSave();
+			model.validate();
+			count++;
+		}
+		return count;
+	}
+
+}
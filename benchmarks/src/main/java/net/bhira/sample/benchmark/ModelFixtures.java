@@ -0,0 +1,137 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Baldeep Hira
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.bhira.sample.benchmark;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import net.bhira.sample.model.BaseModel;
+import net.bhira.sample.model.Company;
+import net.bhira.sample.model.ContactInfo;
+import net.bhira.sample.model.Department;
+import net.bhira.sample.model.Employee;
+
+/**
+ * Helper class used to create the model objects used as benchmark input. The objects are fully
+ * populated, so that they look like the ones loaded from the database.
+ *
+ * @author Baldeep Hira
+ */
+public class ModelFixtures {
+
+	static final long NOW = 1404259200000L;
+
+	/**
+	 * Create a list of populated {@link net.bhira.sample.model.Employee} instances.
+	 *
+	 * @param size
+	 *            the number of employees to create.
+	 * @return List of {@link net.bhira.sample.model.Employee} instances.
+	 */
+	public static List<Employee> employees(int size) {
+		List<Employee> list = new ArrayList<Employee>(size);
+		for (int i = 1; i <= size; i++) {
+			Employee employee = new Employee();
+			employee.setId(i);
+			employee.setCompanyId(1);
+			employee.setDepartmentId(1 + i % 10);
+			employee.setManagerId(i / 10);
+			employee.setName("Employee " + i);
+			employee.setSalutation("Mr.");
+			employee.setSex(Employee.Sex.MALE);
+			employee.setDOB(new Date(NOW - (20 + i % 40) * 365L * 86400000L));
+			employee.setTitle("Software Engineer");
+			employee.setAddress(i + " Main Street, San Jose, CA 95131");
+			employee.setContactInfo(contactInfo(i));
+			audit(employee, i);
+			list.add(employee);
+		}
+		return list;
+	}
+
+	/**
+	 * Create a list of populated {@link net.bhira.sample.model.Company} instances.
+	 *
+	 * @param size
+	 *            the number of companies to create.
+	 * @return List of {@link net.bhira.sample.model.Company} instances.
+	 */
+	public static List<Company> companies(int size) {
+		List<Company> list = new ArrayList<Company>(size);
+		for (int i = 1; i <= size; i++) {
+			Company company = new Company();
+			company.setId(i);
+			company.setName("Company " + i);
+			company.setIndustry("Software");
+			company.setBillingAddress(i + " First Street, San Jose, CA 95131");
+			company.setShippingAddress(i + " Second Street, San Jose, CA 95131");
+			company.setContactInfo(contactInfo(i));
+			audit(company, i);
+			list.add(company);
+		}
+		return list;
+	}
+
+	/**
+	 * Create a list of populated {@link net.bhira.sample.model.Department} instances.
+	 *
+	 * @param size
+	 *            the number of departments to create.
+	 * @return List of {@link net.bhira.sample.model.Department} instances.
+	 */
+	public static List<Department> departments(int size) {
+		List<Department> list = new ArrayList<Department>(size);
+		for (int i = 1; i <= size; i++) {
+			Department department = new Department();
+			department.setId(i);
+			department.setCompanyId(1);
+			department.setName("Department " + i);
+			department.setBillingAddress(i + " First Street, San Jose, CA 95131");
+			department.setShippingAddress(i + " Second Street, San Jose, CA 95131");
+			department.setContactInfo(contactInfo(i));
+			audit(department, i);
+			list.add(department);
+		}
+		return list;
+	}
+
+	private static ContactInfo contactInfo(int i) {
+		ContactInfo contactInfo = new ContactInfo();
+		contactInfo.setId(i);
+		contactInfo.setPhone("408-555-" + (1000 + i % 9000));
+		contactInfo.setFax("408-555-0000");
+		contactInfo.setEmail("contact" + i + "@example.com");
+		contactInfo.setWebsite("http://www.example.com");
+		return contactInfo;
+	}
+
+	private static void audit(BaseModel model, int i) {
+		model.setCreated(new Date(NOW - i * 60000L));
+		model.setModified(new Date(NOW));
+		model.setCreatedBy("admin");
+		model.setModifiedBy("admin");
+	}
+
+}
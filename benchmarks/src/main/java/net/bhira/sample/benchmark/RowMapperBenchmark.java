@@ -0,0 +1,144 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Baldeep Hira
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.bhira.sample.benchmark;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import net.bhira.sample.api.jdbc.EmployeeRowMapper;
+import net.bhira.sample.model.Employee;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.jdbc.core.RowMapper;
+
+/**
+ * JMH benchmark for {@link net.bhira.sample.api.jdbc.EmployeeRowMapper} mapping all the rows of a
+ * synthetic result set shaped like the employee table. The index based mapper is compared with a
+ * mapper that looks up every column by its label, as the mapper did before.
+ *
+ * @author Baldeep Hira
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RowMapperBenchmark {
+
+	static final String[] EMPLOYEE_COLUMNS = EmployeeRowMapper.COLUMNS.split(",\\s*");
+
+	@Param({ "1000", "10000" })
+	int size;
+
+	private ResultSet resultSet;
+	private RowMapper<Employee> rowMapper;
+	private RowMapper<Employee> labelRowMapper;
+
+	/**
+	 * Create the result set with one row per employee.
+	 */
+	@Setup
+	public void setup() {
+		List<Object[]> rows = new ArrayList<Object[]>(size);
+		for (Employee employee : ModelFixtures.employees(size)) {
+			rows.add(new Object[] { employee.getId(), employee.getCompanyId(),
+					employee.getDepartmentId(), employee.getName(), employee.getManagerId(),
+					employee.getSalutation(), new Date(employee.getDOB().getTime()),
+					employee.getTitle(), employee.getSex().name(), employee.getAddress(),
+					new Timestamp(employee.getCreated().getTime()),
+					new Timestamp(employee.getModified().getTime()), employee.getCreatedBy(),
+					employee.getModifiedBy(), employee.getVersion() });
+		}
+		resultSet = SyntheticResultSet.create(EMPLOYEE_COLUMNS, rows);
+		rowMapper = new EmployeeRowMapper();
+		labelRowMapper = new LabelEmployeeRowMapper();
+	}
+
+	@Benchmark
+	public void mapEmployees(Blackhole blackhole) throws SQLException {
+		map(rowMapper, blackhole);
+	}
+
+	@Benchmark
+	public void mapEmployeesByLabel(Blackhole blackhole) throws SQLException {
+		map(labelRowMapper, blackhole);
+	}
+
+	private void map(RowMapper<Employee> mapper, Blackhole blackhole) throws SQLException {
+		resultSet.beforeFirst();
+		int rowNum = 0;
+		while (resultSet.next()) {
+			blackhole.consume(mapper.mapRow(resultSet, rowNum++));
+		}
+	}
+
+	/**
+	 * Employee row mapper that reads the columns by label, used as the baseline.
+	 */
+	static class LabelEmployeeRowMapper implements RowMapper<Employee> {
+
+		@Override
+		public Employee mapRow(ResultSet rs, int rowNum) throws SQLException {
+			Employee employee = new Employee();
+			employee.setId(rs.getLong("id"));
+			employee.setCompanyId(rs.getLong("companyid"));
+			employee.setDepartmentId(rs.getLong("departmentid"));
+			employee.setName(rs.getString("name"));
+			employee.setManagerId(rs.getLong("managerid"));
+			employee.setSalutation(rs.getString("salutation"));
+			employee.setDOB(rs.getDate("dob"));
+			employee.setTitle(rs.getString("title"));
+			String sex = rs.getString("sex");
+			if (sex != null) {
+				employee.setSex(Employee.Sex.valueOf(sex));
+			}
+			employee.setAddress(rs.getString("addr"));
+			employee.setCreated(rs.getTimestamp("created"));
+			employee.setModified(rs.getTimestamp("modified"));
+			employee.setCreatedBy(rs.getString("createdby"));
+			employee.setModifiedBy(rs.getString("modifiedby"));
+			employee.setVersion(rs.getLong("version"));
+			return employee;
+		}
+
+	}
+
+}
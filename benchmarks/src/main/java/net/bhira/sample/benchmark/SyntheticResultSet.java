@@ -0,0 +1,125 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Baldeep Hira
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.bhira.sample.benchmark;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In memory, forward only {@link java.sql.ResultSet} used as input for row mapper benchmarks. Like
+ * a JDBC driver it resolves column labels through a case insensitive lookup, so the benchmarks
+ * include the cost of label based access, but no network or parsing overhead. Only the getters
+ * used by the row mappers are supported, plus {@code beforeFirst()} to rewind the rows.
+ *
+ * @author Baldeep Hira
+ */
+public class SyntheticResultSet implements InvocationHandler {
+
+	private final Map<String, Integer> columns = new HashMap<String, Integer>();
+	private final List<Object[]> rows;
+	private int row = -1;
+	private boolean wasNull;
+
+	private SyntheticResultSet(String[] labels, List<Object[]> rows) {
+		for (int i = 0; i < labels.length; i++) {
+			columns.put(labels[i].toLowerCase(), i + 1);
+		}
+		this.rows = rows;
+	}
+
+	/**
+	 * Create a result set with the given columns and rows.
+	 *
+	 * @param labels
+	 *            the column labels.
+	 * @param rows
+	 *            the rows, each holding one value per column.
+	 * @return an instance of {@link java.sql.ResultSet}.
+	 */
+	public static ResultSet create(String[] labels, List<Object[]> rows) {
+		return (ResultSet) Proxy.newProxyInstance(SyntheticResultSet.class.getClassLoader(),
+				new Class<?>[] { ResultSet.class }, new SyntheticResultSet(labels, rows));
+	}
+
+	/**
+	 * @see java.lang.reflect.InvocationHandler#invoke(java.lang.Object, java.lang.reflect.Method,
+	 *      java.lang.Object[])
+	 */
+	@Override
+	public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+		String name = method.getName();
+		switch (name) {
+		case "next":
+			return ++row < rows.size();
+		case "beforeFirst":
+			row = -1;
+			return null;
+		case "wasNull":
+			return wasNull;
+		case "findColumn":
+			return findColumn((String) args[0]);
+		case "close":
+			return null;
+		case "isClosed":
+			return false;
+		default:
+			if (name.startsWith("get") && args != null && args.length == 1) {
+				return get(method.getReturnType(), args[0]);
+			}
+			throw new SQLException("Method not supported: " + name);
+		}
+	}
+
+	private int findColumn(String label) throws SQLException {
+		Integer index = columns.get(label.toLowerCase());
+		if (index == null) {
+			throw new SQLException("Column '" + label + "' not found.");
+		}
+		return index;
+	}
+
+	private Object get(Class<?> type, Object column) throws SQLException {
+		int index = (column instanceof String) ? findColumn((String) column) : (Integer) column;
+		Object value = rows.get(row)[index - 1];
+		wasNull = (value == null);
+		if (value != null || !type.isPrimitive()) {
+			return value;
+		}
+		if (type == long.class) {
+			return 0L;
+		} else if (type == int.class) {
+			return 0;
+		} else if (type == boolean.class) {
+			return false;
+		}
+		throw new SQLException("Type not supported: " + type);
+	}
+
+}
@@ -0,0 +1,181 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Baldeep Hira
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.bhira.sample.common;
+
+import java.lang.reflect.Type;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonDeserializationContext;
+import com.google.gson.JsonDeserializer;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.JsonSerializationContext;
+import com.google.gson.JsonSerializer;
+import com.google.gson.reflect.TypeToken;
+
+/**
+ * JMH benchmark comparing the shared Gson of {@link net.bhira.sample.common.JsonUtil} with the
+ * previous approach of creating a new Gson per request, whose date serializers created a new
+ * {@link java.text.SimpleDateFormat} for every date. Each invocation serializes or deserializes a
+ * list of records shaped like the audited model objects.
+ *
+ * @author Baldeep Hira
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonUtilBenchmark {
+
+	private static final Type LIST_TYPE = new TypeToken<List<Record>>() {
+	}.getType();
+
+	@Param({ "10", "1000" })
+	int size;
+
+	private List<Record> records;
+	private String json;
+
+	/**
+	 * Record with the typical fields of a model object.
+	 */
+	static class Record {
+		long id;
+		String name;
+		String title;
+		Date dob;
+		Date created;
+		Date modified;
+		String createdBy;
+		String modifiedBy;
+	}
+
+	/**
+	 * Create the records and their JSON.
+	 */
+	@Setup
+	public void setup() {
+		records = new ArrayList<Record>(size);
+		long now = 1404259200000L;
+		for (int i = 0; i < size; i++) {
+			Record record = new Record();
+			record.id = i + 1;
+			record.name = "Employee " + i;
+			record.title = "Engineer";
+			record.dob = new Date(now - (i + 20) * 365L * 86400000L);
+			record.created = new Date(now - i * 60000L);
+			record.modified = new Date(now);
+			record.createdBy = "admin";
+			record.modifiedBy = "admin";
+			records.add(record);
+		}
+		json = JsonUtil.getGson().toJson(records, LIST_TYPE);
+	}
+
+	@Benchmark
+	public String serializeLegacy() {
+		return createLegacyGson().toJson(records, LIST_TYPE);
+	}
+
+	@Benchmark
+	public String serializeShared() {
+		return JsonUtil.getGson().toJson(records, LIST_TYPE);
+	}
+
+	@Benchmark
+	public List<Record> deserializeLegacy() {
+		return createLegacyGson().fromJson(json, LIST_TYPE);
+	}
+
+	@Benchmark
+	public List<Record> deserializeShared() {
+		return JsonUtil.getGson().fromJson(json, LIST_TYPE);
+	}
+
+	/**
+	 * Create the Gson the way JsonUtil.createGson() did before the shared instance and the UTC
+	 * date adapter were introduced.
+	 *
+	 * @return an instance of {@link com.google.gson.Gson}.
+	 */
+	private static Gson createLegacyGson() {
+		JsonSerializer<Date> serializer = new JsonSerializer<Date>() {
+			@Override
+			public JsonElement serialize(Date src, Type typeOfSrc,
+					JsonSerializationContext context) {
+				if (src == null) {
+					return null;
+				}
+				SimpleDateFormat formatter = new SimpleDateFormat(JsonUtil.DATE_FORMAT);
+				formatter.setTimeZone(TimeZone.getTimeZone(JsonUtil.TIMEZONE));
+				return new JsonPrimitive(formatter.format(src));
+			}
+		};
+		JsonDeserializer<Date> deserializer = new JsonDeserializer<Date>() {
+			@Override
+			public Date deserialize(JsonElement json, Type typeOfT,
+					JsonDeserializationContext context) throws JsonParseException {
+				if (json == null) {
+					return null;
+				}
+				String date = json.getAsString();
+				SimpleDateFormat formatter = new SimpleDateFormat(JsonUtil.DATE_FORMAT);
+				formatter.setTimeZone(TimeZone.getTimeZone(JsonUtil.TIMEZONE));
+				try {
+					return formatter.parse(date);
+				} catch (ParseException e) {
+					throw new JsonParseException("Error parsing date " + date, e);
+				}
+			}
+		};
+		GsonBuilder gsonBuilder = new GsonBuilder();
+		gsonBuilder.registerTypeAdapter(Date.class, serializer);
+		gsonBuilder.registerTypeAdapter(Date.class, deserializer);
+		return gsonBuilder.create();
+	}
+
+}
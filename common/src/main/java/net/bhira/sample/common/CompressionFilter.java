@@ -0,0 +1,456 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Baldeep Hira
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.bhira.sample.common;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Servlet Filter used to compress the response body with gzip or deflate, as negotiated with the
+ * "Accept-Encoding" request header. The body is buffered until it reaches the configured threshold
+ * size, responses smaller than the threshold are sent uncompressed. Beyond the threshold the body
+ * is compressed while it is being written, so streamed responses are never held in memory.
+ * Responses that already have a "Content-Encoding" are left alone.
+ * <p>
+ * Once an encoding is negotiated, the "ETag" set by the application is replaced by the tag of the
+ * encoding, see {@link ConditionalGet#encodedEtag(String, String)}, so that the compressed and the
+ * identity body never share a strong validator. The tag is set before the size of the body is
+ * known, so bodies below the threshold carry the encoded tag too.
+ * <p>
+ * The body is compressed with blocking writes only, as the compressor writes the compressed bytes
+ * at its own pace, and the readiness of the underlying stream cannot be passed on to the
+ * application. A response that sets a {@link javax.servlet.WriteListener} before compression
+ * starts is therefore sent uncompressed, its non-blocking writes go straight to the wrapped
+ * stream. Setting one once the body is compressed fails. The controllers of this application
+ * write their responses with blocking IO.
+ * <p>
+ * Asynchronous requests are supported when the filter is mapped for the ASYNC dispatcher too. The
+ * compressed stream is finished at the end of the last dispatch of the request.
+ *
+ * @author Baldeep Hira
+ */
+public class CompressionFilter implements Filter {
+
+	static final String GZIP = "gzip";
+	static final String DEFLATE = "deflate";
+	static final int DEFAULT_THRESHOLD = 1024;
+
+	private static final String WRAPPER_ATTRIBUTE = CompressionFilter.class.getName() + ".WRAPPER";
+
+	/**
+	 * private singleton instance of the SLF4J logger for this class.
+	 */
+	private static final Logger LOG = LoggerFactory.getLogger(CompressionFilter.class);
+
+	private int threshold = DEFAULT_THRESHOLD;
+
+	/**
+	 * @see javax.servlet.Filter#destroy()
+	 */
+	@Override
+	public void destroy() {
+		// nothing to destroy
+	}
+
+	/**
+	 * @see javax.servlet.Filter#doFilter(javax.servlet.ServletRequest,
+	 *      javax.servlet.ServletResponse, javax.servlet.FilterChain)
+	 */
+	@Override
+	public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+			throws IOException, ServletException {
+		if (!(request instanceof HttpServletRequest)
+				|| !(response instanceof HttpServletResponse)) {
+			chain.doFilter(request, response);
+			return;
+		}
+
+		// the wrapper of an asynchronous request is reused by its later dispatches
+		CompressionResponse wrapper = (CompressionResponse) request.getAttribute(WRAPPER_ATTRIBUTE);
+		if (wrapper == null) {
+			HttpServletResponse httpResponse = (HttpServletResponse) response;
+			httpResponse.addHeader("Vary", "Accept-Encoding");
+			String encoding = negotiate(((HttpServletRequest) request)
+					.getHeader("Accept-Encoding"));
+			if (encoding == null) {
+				chain.doFilter(request, response);
+				return;
+			}
+			wrapper = new CompressionResponse(httpResponse, encoding, threshold);
+			request.setAttribute(WRAPPER_ATTRIBUTE, wrapper);
+		}
+
+		chain.doFilter(request, wrapper);
+
+		if (!request.isAsyncStarted()) {
+			request.removeAttribute(WRAPPER_ATTRIBUTE);
+			wrapper.finish();
+			LOG.trace("Content-Encoding is {}", wrapper.getHeader("Content-Encoding"));
+		}
+	}
+
+	/**
+	 * @see javax.servlet.Filter#init(javax.servlet.FilterConfig)
+	 */
+	@Override
+	public void init(FilterConfig filterConfig) throws ServletException {
+		String value = filterConfig.getInitParameter("threshold");
+		if (value != null) {
+			threshold = Integer.parseInt(value.trim());
+		}
+		LOG.info("Compression threshold is {} bytes", threshold);
+	}
+
+	/**
+	 * Choose the content encoding for the given "Accept-Encoding" header value. Gzip is preferred
+	 * over deflate when both are accepted with the same quality.
+	 *
+	 * @param acceptEncoding
+	 *            the value of the "Accept-Encoding" request header, may be null.
+	 * @return {@link #GZIP}, {@link #DEFLATE} or null if neither is accepted.
+	 */
+	static String negotiate(String acceptEncoding) {
+		if (acceptEncoding == null) {
+			return null;
+		}
+		float gzip = -1;
+		float deflate = -1;
+		float any = -1;
+		for (String part : acceptEncoding.split(",")) {
+			String[] tokens = part.split(";");
+			String coding = tokens[0].trim().toLowerCase();
+			float quality = 1;
+			for (int i = 1; i < tokens.length; i++) {
+				String param = tokens[i].trim();
+				if (param.startsWith("q=")) {
+					try {
+						quality = Float.parseFloat(param.substring(2).trim());
+					} catch (NumberFormatException nfe) {
+						quality = 0;
+					}
+				}
+			}
+			if (coding.equals(GZIP) || coding.equals("x-gzip")) {
+				gzip = quality;
+			} else if (coding.equals(DEFLATE)) {
+				deflate = quality;
+			} else if (coding.equals("*")) {
+				any = quality;
+			}
+		}
+		// codings that are not listed are acceptable with the quality of "*", if present
+		gzip = (gzip < 0) ? any : gzip;
+		deflate = (deflate < 0) ? any : deflate;
+		if (gzip > 0 && gzip >= deflate) {
+			return GZIP;
+		}
+		return (deflate > 0) ? DEFLATE : null;
+	}
+
+	/**
+	 * Response wrapper that buffers the body up to the threshold and compresses it from there on.
+	 */
+	static class CompressionResponse extends HttpServletResponseWrapper {
+
+		private final String encoding;
+		private final int threshold;
+		private final CompressionStream stream = new CompressionStream();
+		private PrintWriter writer;
+		private long contentLength = -1;
+		private String etag;
+		private boolean bypass;
+
+		CompressionResponse(HttpServletResponse response, String encoding, int threshold) {
+			super(response);
+			this.encoding = encoding;
+			this.threshold = threshold;
+		}
+
+		@Override
+		public ServletOutputStream getOutputStream() throws IOException {
+			if (writer != null) {
+				throw new IllegalStateException("getWriter() has already been called");
+			}
+			return stream;
+		}
+
+		@Override
+		public PrintWriter getWriter() throws IOException {
+			if (writer == null) {
+				writer = new PrintWriter(new OutputStreamWriter(stream, getCharacterEncoding()));
+			}
+			return writer;
+		}
+
+		@Override
+		public void setContentLength(int len) {
+			setContentLengthLong(len);
+		}
+
+		@Override
+		public void setContentLengthLong(long len) {
+			// the length is only known to be right if the body is sent uncompressed
+			contentLength = len;
+			if (bypass) {
+				super.setContentLengthLong(len);
+			}
+		}
+
+		@Override
+		public void setHeader(String name, String value) {
+			if (!intercept(name, value)) {
+				super.setHeader(name, value);
+			}
+		}
+
+		@Override
+		public void addHeader(String name, String value) {
+			if (!intercept(name, value)) {
+				super.addHeader(name, value);
+			}
+		}
+
+		@Override
+		public void flushBuffer() throws IOException {
+			if (writer != null) {
+				writer.flush();
+			}
+			stream.flush();
+			super.flushBuffer();
+		}
+
+		@Override
+		public boolean isCommitted() {
+			return stream.started || super.isCommitted();
+		}
+
+		@Override
+		public void resetBuffer() {
+			stream.reset();
+			super.resetBuffer();
+		}
+
+		@Override
+		public void reset() {
+			stream.reset();
+			super.reset();
+			etag = null;
+			super.addHeader("Vary", "Accept-Encoding");
+		}
+
+		/**
+		 * Write whatever is still buffered and finish the compressed stream, if any.
+		 */
+		void finish() throws IOException {
+			if (writer != null) {
+				writer.flush();
+			}
+			stream.finish();
+		}
+
+		private boolean intercept(String name, String value) {
+			if ("Content-Length".equalsIgnoreCase(name)) {
+				try {
+					setContentLengthLong(Long.parseLong(value));
+				} catch (NumberFormatException nfe) {
+					return false;
+				}
+				return true;
+			}
+			if ("ETag".equalsIgnoreCase(name)) {
+				etag = value;
+				if (!bypass && value != null) {
+					super.setHeader(name, ConditionalGet.encodedEtag(value, encoding));
+					return true;
+				}
+				return false;
+			}
+			if ("Content-Encoding".equalsIgnoreCase(name) && !stream.started) {
+				// the body is already encoded by the application, and so is its tag
+				bypass();
+			}
+			return false;
+		}
+
+		/**
+		 * Send the body as written by the application, restoring its own tag.
+		 */
+		private void bypass() {
+			bypass = true;
+			if (etag != null) {
+				super.setHeader("ETag", etag);
+			}
+		}
+
+		/**
+		 * Output stream that decides between the plain and the compressed body once the threshold
+		 * is reached, the stream is flushed, or the response is finished.
+		 */
+		private class CompressionStream extends ServletOutputStream {
+
+			private ByteArrayOutputStream buffer = new ByteArrayOutputStream(threshold);
+			private ServletOutputStream target;
+			private OutputStream out;
+			private boolean started;
+			private boolean finished;
+			private boolean nonBlocking;
+
+			@Override
+			public void write(int b) throws IOException {
+				write(new byte[] { (byte) b }, 0, 1);
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				if (finished) {
+					throw new IOException("Response is already finished");
+				}
+				if (out == null) {
+					if (!bypass && buffer.size() + len < threshold) {
+						buffer.write(b, off, len);
+						return;
+					}
+					start(!bypass);
+				}
+				out.write(b, off, len);
+			}
+
+			@Override
+			public void flush() throws IOException {
+				if (out == null) {
+					// flushing commits the response, so decide with what is buffered so far
+					if (buffer.size() == 0) {
+						return;
+					}
+					start(!bypass && buffer.size() >= threshold);
+				}
+				out.flush();
+			}
+
+			@Override
+			public void close() throws IOException {
+				finish();
+			}
+
+			@Override
+			public boolean isReady() {
+				return nonBlocking ? target.isReady() : true;
+			}
+
+			/**
+			 * Switch to non-blocking writes, which are passed on to the wrapped stream
+			 * uncompressed, see {@link CompressionFilter}.
+			 *
+			 * @throws IllegalStateException
+			 *             if the body is already being compressed.
+			 */
+			@Override
+			public void setWriteListener(WriteListener writeListener) {
+				if (out == null) {
+					// what is buffered so far is written before switching to non-blocking writes
+					bypass();
+					try {
+						start(false);
+					} catch (IOException ioe) {
+						throw new UncheckedIOException(ioe);
+					}
+				} else if (out != target) {
+					throw new IllegalStateException(
+							"Non blocking writes are not supported once the body is compressed");
+				}
+				nonBlocking = true;
+				target.setWriteListener(writeListener);
+			}
+
+			void reset() {
+				if (started) {
+					throw new IllegalStateException("Response is already committed");
+				}
+				buffer.reset();
+			}
+
+			void finish() throws IOException {
+				if (finished) {
+					return;
+				}
+				if (out == null) {
+					if (buffer.size() == 0) {
+						finished = true;
+						return;
+					}
+					start(!bypass && buffer.size() >= threshold);
+				}
+				finished = true;
+				if (out instanceof DeflaterOutputStream) {
+					((DeflaterOutputStream) out).finish();
+				}
+				if (!nonBlocking) {
+					// non-blocking writes are flushed by the container once it is ready
+					out.flush();
+				}
+			}
+
+			private void start(boolean compress) throws IOException {
+				HttpServletResponse response = (HttpServletResponse) getResponse();
+				target = response.getOutputStream();
+				if (compress) {
+					response.setHeader("Content-Encoding", encoding);
+					out = GZIP.equals(encoding) ? new GZIPOutputStream(target, 8192, true)
+							: new DeflaterOutputStream(target, true);
+				} else {
+					if (contentLength >= 0) {
+						response.setContentLengthLong(contentLength);
+					}
+					out = target;
+				}
+				started = true;
+				buffer.writeTo(out);
+				buffer = null;
+			}
+		}
+
+	}
+
+}
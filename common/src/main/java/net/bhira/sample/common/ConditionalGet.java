@@ -0,0 +1,161 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Baldeep Hira
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.bhira.sample.common;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Class providing the support for conditional GET requests. Resources are tagged with a strong
+ * ETag and, if known, their last modified time. Requests with a matching "If-None-Match" header,
+ * or without it but with an "If-Modified-Since" header not older than the last modified time, are
+ * answered with 304 (Not Modified) and no body. The tags of the compressed bodies sent by
+ * {@link CompressionFilter} carry the encoding, see {@link #encodedEtag(String, String)}, and
+ * match the tag of the resource too.
+ *
+ * @author Baldeep Hira
+ */
+public class ConditionalGet {
+
+	private static final String[] ENCODINGS = { CompressionFilter.GZIP, CompressionFilter.DEFLATE };
+
+	/**
+	 * Create a strong ETag from the given parts, e.g. the type, ID and modified time of a resource.
+	 * The parts are hashed, so the tag is opaque and of fixed length whatever the parts are.
+	 *
+	 * @param parts
+	 *            the values identifying the version of the resource.
+	 * @return the quoted ETag.
+	 */
+	public static String etag(Object... parts) {
+		StringBuilder sb = new StringBuilder();
+		for (Object part : parts) {
+			sb.append(part).append('/');
+		}
+		try {
+			byte[] hash = MessageDigest.getInstance("SHA-1").digest(
+					sb.toString().getBytes(StandardCharsets.UTF_8));
+			return '"' + Base64.getUrlEncoder().withoutPadding().encodeToString(hash) + '"';
+		} catch (NoSuchAlgorithmException nsae) {
+			// every Java platform is required to support SHA-1
+			throw new IllegalStateException(nsae);
+		}
+	}
+
+	/**
+	 * Get the ETag of the given content encoding of a resource, e.g. of its gzip compressed body.
+	 * A strong ETag stands for the exact bytes of the body, so the encoded body must not share it
+	 * with the identity body. The encoding is appended within the quotes, e.g. "tag-gzip".
+	 *
+	 * @param etag
+	 *            the quoted ETag of the resource, optionally weak.
+	 * @param encoding
+	 *            the content encoding, e.g. "gzip".
+	 * @return the quoted ETag of the encoded body.
+	 */
+	public static String encodedEtag(String etag, String encoding) {
+		if (etag.length() < 2 || !etag.endsWith("\"")) {
+			return etag;
+		}
+		return etag.substring(0, etag.length() - 1) + '-' + encoding + '"';
+	}
+
+	/**
+	 * Set the "ETag" and "Last-Modified" headers of the given response and check whether the
+	 * client already has this version of the resource. If so, the response status is set to 304
+	 * and the caller must not write a body.
+	 *
+	 * @param request
+	 *            the http request with the conditional headers.
+	 * @param response
+	 *            the http response on which the headers are set.
+	 * @param etag
+	 *            the quoted ETag of the resource, see {@link #etag(Object...)}.
+	 * @param lastModified
+	 *            the last modified time of the resource in milliseconds, or -1 if it is not known.
+	 * @return true if the response is a 304 (Not Modified), else false.
+	 */
+	public static boolean checkNotModified(HttpServletRequest request,
+			HttpServletResponse response, String etag, long lastModified) {
+		response.setHeader("ETag", etag);
+		if (lastModified >= 0) {
+			response.setDateHeader("Last-Modified", lastModified);
+		}
+
+		boolean notModified;
+		String ifNoneMatch = request.getHeader("If-None-Match");
+		if (ifNoneMatch != null) {
+			// If-None-Match takes precedence over If-Modified-Since
+			notModified = matches(ifNoneMatch, etag);
+		} else {
+			long ifModifiedSince = parseDate(request, "If-Modified-Since");
+			// http dates have a precision of seconds
+			notModified = lastModified >= 0 && ifModifiedSince >= 0
+					&& lastModified / 1000 <= ifModifiedSince / 1000;
+		}
+		if (notModified) {
+			response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+		}
+		return notModified;
+	}
+
+	private static boolean matches(String ifNoneMatch, String etag) {
+		for (String tag : ifNoneMatch.split(",")) {
+			tag = tag.trim();
+			// weak comparison, as used for If-None-Match
+			if (tag.startsWith("W/")) {
+				tag = tag.substring(2);
+			}
+			if (tag.equals("*") || tag.equals(etag) || stripEncoding(tag).equals(etag)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static String stripEncoding(String tag) {
+		for (String encoding : ENCODINGS) {
+			String suffix = "-" + encoding + '"';
+			if (tag.endsWith(suffix)) {
+				return tag.substring(0, tag.length() - suffix.length()) + '"';
+			}
+		}
+		return tag;
+	}
+
+	private static long parseDate(HttpServletRequest request, String name) {
+		try {
+			return request.getDateHeader(name);
+		} catch (IllegalArgumentException iae) {
+			// invalid dates are ignored
+			return -1;
+		}
+	}
+
+}
@@ -0,0 +1,202 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Baldeep Hira
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.bhira.sample.common;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reader of comma separated values as described by RFC 4180. It reads one record at a time from
+ * the underlying reader, so arbitrarily large input is parsed without holding it in memory. Fields
+ * may be enclosed in double quotes, in which case they may contain commas, line breaks and double
+ * quotes escaped by doubling them. Records are separated by LF, CRLF or CR line breaks, blank lines
+ * are skipped and a leading byte order mark is ignored.
+ *
+ * @author Baldeep Hira
+ */
+public class CsvReader implements Closeable {
+
+	private static final char SEPARATOR = ',';
+	private static final char QUOTE = '"';
+	private static final char BOM = '\uFEFF';
+
+	private final Reader reader;
+	private final char[] buffer = new char[8192];
+	private int position;
+	private int limit;
+	private long line = 1;
+	private long recordLine;
+
+	/**
+	 * Constructor for CsvReader.
+	 *
+	 * @param reader
+	 *            the reader of the comma separated values.
+	 */
+	public CsvReader(Reader reader) {
+		this.reader = reader;
+	}
+
+	/**
+	 * Read the next record.
+	 *
+	 * @return the list of fields of the record, or null if there are no more records.
+	 * @throws IOException
+	 *             if the input can not be read or a quoted field is malformed.
+	 */
+	public List<String> readRecord() throws IOException {
+		int c = read();
+		if (recordLine == 0 && c == BOM) {
+			c = read();
+		}
+		// skip blank lines
+		while (c == '\r' || c == '\n') {
+			readLineBreak(c);
+			c = read();
+		}
+		if (c < 0) {
+			return null;
+		}
+
+		recordLine = line;
+		List<String> fields = new ArrayList<String>();
+		StringBuilder field = new StringBuilder();
+		while (true) {
+			if (c == QUOTE && field.length() == 0) {
+				c = readQuoted(field);
+			}
+			if (c < 0 || c == '\r' || c == '\n') {
+				fields.add(field.toString());
+				if (c >= 0) {
+					readLineBreak(c);
+				}
+				return fields;
+			} else if (c == SEPARATOR) {
+				fields.add(field.toString());
+				field.setLength(0);
+			} else {
+				field.append((char) c);
+			}
+			c = read();
+		}
+	}
+
+	/**
+	 * Get the line number at which the record last read by {@link #readRecord()} starts, including
+	 * a malformed record for which it failed. As quoted fields may contain line breaks, a record
+	 * may span several lines.
+	 *
+	 * @return the 1 based line number, 0 if no record has been read yet.
+	 */
+	public long getLineNumber() {
+		return recordLine;
+	}
+
+	/**
+	 * Close the underlying reader.
+	 *
+	 * @throws IOException
+	 *             if the reader can not be closed.
+	 */
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+
+	/**
+	 * Read the rest of a quoted field, whose opening quote has been read, into the given field.
+	 *
+	 * @param field
+	 *            the field to append the value to.
+	 * @return the character following the closing quote.
+	 * @throws IOException
+	 *             if the field is not terminated or the closing quote is not followed by a
+	 *             separator or a line break.
+	 */
+	private int readQuoted(StringBuilder field) throws IOException {
+		long start = line;
+		while (true) {
+			int c = read();
+			if (c < 0) {
+				throw new IOException("Unterminated quoted field starting at line " + start);
+			}
+			if (c == QUOTE) {
+				c = read();
+				if (c != QUOTE) {
+					if (c >= 0 && c != SEPARATOR && c != '\r' && c != '\n') {
+						throw new IOException("Invalid character after quoted field at line "
+								+ line);
+					}
+					return c;
+				}
+			} else if (c == '\n' || (c == '\r' && peek() != '\n')) {
+				line++;
+			}
+			field.append((char) c);
+		}
+	}
+
+	/**
+	 * Consume the rest of the line break starting with the given character.
+	 *
+	 * @param c
+	 *            the first character of the line break, CR or LF.
+	 * @throws IOException
+	 *             if the input can not be read.
+	 */
+	private void readLineBreak(int c) throws IOException {
+		line++;
+		if (c == '\r' && peek() == '\n') {
+			position++;
+		}
+	}
+
+	private int peek() throws IOException {
+		if (position == limit && !fill()) {
+			return -1;
+		}
+		return buffer[position];
+	}
+
+	private int read() throws IOException {
+		if (position == limit && !fill()) {
+			return -1;
+		}
+		return buffer[position++];
+	}
+
+	private boolean fill() throws IOException {
+		int count = reader.read(buffer, 0, buffer.length);
+		if (count <= 0) {
+			return false;
+		}
+		position = 0;
+		limit = count;
+		return true;
+	}
+
+}
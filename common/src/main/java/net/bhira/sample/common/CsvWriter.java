@@ -0,0 +1,114 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Baldeep Hira
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.bhira.sample.common;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Writer of comma separated values as described by RFC 4180, the counterpart of
+ * {@link net.bhira.sample.common.CsvReader}. Fields containing a comma, a double quote or a line
+ * break are enclosed in double quotes, with the double quotes doubled, and records are terminated
+ * by CRLF.
+ *
+ * @author Baldeep Hira
+ */
+public class CsvWriter implements Flushable, Closeable {
+
+	private final Writer writer;
+
+	/**
+	 * Constructor for CsvWriter.
+	 *
+	 * @param writer
+	 *            the writer to which the comma separated values are written.
+	 */
+	public CsvWriter(Writer writer) {
+		this.writer = writer;
+	}
+
+	/**
+	 * Write a record with the given fields.
+	 *
+	 * @param fields
+	 *            the list of fields, a null field is written as an empty field.
+	 * @throws IOException
+	 *             if the record can not be written.
+	 */
+	public void writeRecord(List<String> fields) throws IOException {
+		for (int i = 0; i < fields.size(); i++) {
+			if (i > 0) {
+				writer.write(',');
+			}
+			String field = fields.get(i);
+			if (field == null) {
+				continue;
+			}
+			if (needsQuotes(field)) {
+				writer.write('"');
+				writer.write(field.replace("\"", "\"\""));
+				writer.write('"');
+			} else {
+				writer.write(field);
+			}
+		}
+		writer.write("\r\n");
+	}
+
+	/**
+	 * Flush the underlying writer.
+	 *
+	 * @throws IOException
+	 *             if the writer can not be flushed.
+	 */
+	@Override
+	public void flush() throws IOException {
+		writer.flush();
+	}
+
+	/**
+	 * Close the underlying writer.
+	 *
+	 * @throws IOException
+	 *             if the writer can not be closed.
+	 */
+	@Override
+	public void close() throws IOException {
+		writer.close();
+	}
+
+	private static boolean needsQuotes(String field) {
+		for (int i = 0; i < field.length(); i++) {
+			char c = field.charAt(i);
+			if (c == ',' || c == '"' || c == '\r' || c == '\n') {
+				return true;
+			}
+		}
+		return false;
+	}
+
+}
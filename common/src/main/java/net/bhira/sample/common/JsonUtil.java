@@ -23,21 +23,25 @@
  */
 package net.bhira.sample.common;
 
-import java.lang.reflect.Type;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
-import java.util.TimeZone;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
+import com.google.gson.ExclusionStrategy;
+import com.google.gson.FieldAttributes;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
-import com.google.gson.JsonDeserializationContext;
-import com.google.gson.JsonDeserializer;
-import com.google.gson.JsonElement;
 import com.google.gson.JsonParseException;
-import com.google.gson.JsonPrimitive;
-import com.google.gson.JsonSerializationContext;
-import com.google.gson.JsonSerializer;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
 
 /**
  * Class providing some JSON utilities.
@@ -49,6 +53,23 @@ public class JsonUtil {
 	static final String DATE_FORMAT = "yyyy-MM-dd'T'HH:mm:ss'Z'";
 	static final String TIMEZONE = "UTC";
 
+	/**
+	 * Shared Gson instance. Gson is immutable and thread-safe, and it caches the type adapter of
+	 * every class it has serialized once, so sharing it avoids rebuilding the reflective adapters
+	 * for each request.
+	 */
+	private static final Gson GSON = createGson();
+
+	/**
+	 * Get the shared, thread-safe instance of the customized Gson returned by
+	 * {@link #createGson()}. Use it instead of creating a new Gson for each request.
+	 *
+	 * @return the shared instance of {@link com.google.gson.Gson}.
+	 */
+	public static Gson getGson() {
+		return GSON;
+	}
+
 	/**
 	 * Create a customized version of Gson that handles Date formats and timezones correctly. It
 	 * uses UTC date format for parsing and formating dates and expects the date string values to be
@@ -57,45 +78,112 @@ public class JsonUtil {
 	 * @return an instance of {@link com.google.gson.Gson}.
 	 */
 	public static Gson createGson() {
+		return createGsonBuilder().create();
+	}
 
-		// create a custom serializer for dates
-		JsonSerializer<Date> serializer = new JsonSerializer<Date>() {
+	/**
+	 * Create a customized version of Gson, like {@link #createGson()}, that serializes only the
+	 * given fields declared by the given class and its super classes. The other fields declared by
+	 * these classes are skipped while serializing, whatever their values are. Fields declared by
+	 * other classes are not affected.
+	 *
+	 * @param type
+	 *            the class whose fields are filtered.
+	 * @param fieldNames
+	 *            the names of the fields to serialize.
+	 * @return an instance of {@link com.google.gson.Gson}.
+	 */
+	public static Gson createGson(Class<?> type, Collection<String> fieldNames) {
+		Set<String> names = new HashSet<String>(fieldNames);
+		GsonBuilder gsonBuilder = createGsonBuilder();
+		gsonBuilder.addSerializationExclusionStrategy(new ExclusionStrategy() {
 			@Override
-			public JsonElement serialize(Date src, Type typeOfSrc, JsonSerializationContext context) {
-				if (src == null) {
-					return null;
-				}
-				SimpleDateFormat formatter = new SimpleDateFormat(DATE_FORMAT);
-				formatter.setTimeZone(TimeZone.getTimeZone(TIMEZONE));
-				return new JsonPrimitive(formatter.format(src));
+			public boolean shouldSkipField(FieldAttributes field) {
+				return field.getDeclaringClass().isAssignableFrom(type)
+						&& !names.contains(field.getName());
 			}
-		};
 
-		// create a custom de-serializer for dates
-		JsonDeserializer<Date> deserializer = new JsonDeserializer<Date>() {
 			@Override
-			public Date deserialize(JsonElement json, Type typeOfT,
-					JsonDeserializationContext context) throws JsonParseException {
-				if (json == null) {
-					return null;
-				}
-				String date = json.getAsString();
-				SimpleDateFormat formatter = new SimpleDateFormat(DATE_FORMAT);
-				formatter.setTimeZone(TimeZone.getTimeZone(TIMEZONE));
-				try {
-					return formatter.parse(date);
-				} catch (ParseException e) {
-					throw new JsonParseException("Error parsing date " + date, e);
-				}
+			public boolean shouldSkipClass(Class<?> clazz) {
+				return false;
+			}
+		});
+		return gsonBuilder.create();
+	}
+
+	/**
+	 * Parse the given string in the UTC date format of the JSON dates, e.g. a date passed as
+	 * request parameter.
+	 *
+	 * @param value
+	 *            the string to parse, e.g. "2014-07-02T00:00:00Z".
+	 * @return the parsed date.
+	 * @throws IllegalArgumentException
+	 *             if the string is not a valid date.
+	 */
+	public static Date parseDate(String value) {
+		try {
+			return UtcDateTypeAdapter.parse(value.trim());
+		} catch (JsonParseException e) {
+			throw new IllegalArgumentException("Invalid date " + value, e);
+		}
+	}
 
+	/**
+	 * Read a JSON array of IDs from the given reader, e.g. the body of a batch request. The array
+	 * is read one element at a time and reading stops as soon as it holds more than the given
+	 * number of IDs, so an oversized request is rejected without being read into memory. An empty
+	 * body or a JSON null is read as an empty list.
+	 *
+	 * @param reader
+	 *            the reader positioned at the JSON array.
+	 * @param maxCount
+	 *            the maximum number of IDs allowed in the array.
+	 * @return the list of IDs in the order of the array.
+	 * @throws IllegalArgumentException
+	 *             if the array holds more than maxCount IDs.
+	 * @throws JsonSyntaxException
+	 *             if the JSON is not an array of numbers.
+	 * @throws IOException
+	 *             if the reader cannot be read.
+	 */
+	public static List<Long> readIds(Reader reader, int maxCount) throws IOException {
+		List<Long> ids = new ArrayList<Long>();
+		JsonReader in = new JsonReader(reader);
+		// lenient like Gson.fromJson(), which accepts a top level null
+		in.setLenient(true);
+		boolean empty = true;
+		try {
+			JsonToken token = in.peek();
+			empty = false;
+			if (token == JsonToken.NULL) {
+				return ids;
+			}
+			in.beginArray();
+			while (in.hasNext()) {
+				if (ids.size() == maxCount) {
+					throw new IllegalArgumentException("Too many IDs, at most " + maxCount
+							+ " are allowed");
+				}
+				ids.add(in.nextLong());
+			}
+			in.endArray();
+			return ids;
+		} catch (EOFException e) {
+			if (empty) {
+				return ids;
 			}
-		};
+			throw new JsonSyntaxException(e);
+		} catch (MalformedJsonException | IllegalStateException | NumberFormatException e) {
+			throw new JsonSyntaxException(e);
+		}
+	}
 
-		// create a custom gson that uses the custom date serializer/deserializer
+	private static GsonBuilder createGsonBuilder() {
+		// create a custom gson that uses the UTC date adapter
 		GsonBuilder gsonBuilder = new GsonBuilder();
-		gsonBuilder.registerTypeAdapter(Date.class, serializer);
-		gsonBuilder.registerTypeAdapter(Date.class, deserializer);
-		return gsonBuilder.create();
+		gsonBuilder.registerTypeAdapter(Date.class, UtcDateTypeAdapter.INSTANCE);
+		return gsonBuilder;
 	}
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,90 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Baldeep Hira
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.bhira.sample.common;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Class used to create and parse opaque cursors for keyset pagination. A cursor captures the sort
+ * key values of the last element in a page, e.g. the ID, so that the next page can be fetched by
+ * seeking past those values instead of counting offsets. Clients must treat the cursor as an opaque
+ * string and pass it back as is.
+ *
+ * @author Baldeep Hira
+ */
+public class PageCursor {
+
+	private static final String SEPARATOR = ":";
+
+	/**
+	 * Encode the given key values into an opaque cursor string.
+	 *
+	 * @param keys
+	 *            the sort key values of the last element in the page.
+	 * @return the URL safe cursor string.
+	 */
+	public static String encode(long... keys) {
+		StringBuilder buffer = new StringBuilder();
+		for (int i = 0; i < keys.length; i++) {
+			if (i > 0) {
+				buffer.append(SEPARATOR);
+			}
+			buffer.append(keys[i]);
+		}
+		byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+	}
+
+	/**
+	 * Decode the given cursor string into its key values.
+	 *
+	 * @param cursor
+	 *            the cursor string created by {@link #encode(long...)}.
+	 * @param count
+	 *            the expected number of key values in the cursor.
+	 * @return the key values captured in the cursor.
+	 * @throws IllegalArgumentException
+	 *             if the cursor is malformed.
+	 */
+	public static long[] decode(String cursor, int count) {
+		try {
+			String value = new String(Base64.getUrlDecoder().decode(cursor),
+					StandardCharsets.UTF_8);
+			String[] tokens = value.split(SEPARATOR);
+			if (tokens.length != count) {
+				throw new IllegalArgumentException("Invalid cursor " + cursor);
+			}
+			long[] keys = new long[count];
+			for (int i = 0; i < count; i++) {
+				keys[i] = Long.parseLong(tokens[i]);
+			}
+			return keys;
+		} catch (IllegalArgumentException iae) {
+			// NumberFormatException is also an IllegalArgumentException
+			throw new IllegalArgumentException("Invalid cursor " + cursor, iae);
+		}
+	}
+
+}
@@ -0,0 +1,207 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Baldeep Hira
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.bhira.sample.common;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Gson type adapter that formats and parses dates as UTC strings in the
+ * {@value net.bhira.sample.common.JsonUtil#DATE_FORMAT} format. The fixed format is converted
+ * with plain calendar arithmetic, so unlike {@link java.text.SimpleDateFormat} it needs neither a
+ * formatter nor a time zone lookup per date and is safe to share between threads without locking.
+ * Values outside the fast path (years before the Gregorian cutover or after 9999, or strings not
+ * exactly matching the format) are delegated to a {@link java.text.SimpleDateFormat}, so the
+ * results are always the same as those of the formatter.
+ *
+ * @author Baldeep Hira
+ */
+final class UtcDateTypeAdapter extends TypeAdapter<Date> {
+
+	static final UtcDateTypeAdapter INSTANCE = new UtcDateTypeAdapter();
+
+	private static final int LENGTH = 20;
+	private static final int MIN_YEAR = 1583;
+	private static final int MAX_YEAR = 9999;
+	private static final long SECONDS_PER_DAY = 86400L;
+	private static final long DAYS_PER_ERA = 146097L;
+	private static final long EPOCH_DAY_OFFSET = 719468L;
+
+	private UtcDateTypeAdapter() {
+	}
+
+	/**
+	 * @see com.google.gson.TypeAdapter#write(com.google.gson.stream.JsonWriter, java.lang.Object)
+	 */
+	@Override
+	public void write(JsonWriter out, Date value) throws IOException {
+		if (value == null) {
+			out.nullValue();
+		} else {
+			out.value(format(value));
+		}
+	}
+
+	/**
+	 * @see com.google.gson.TypeAdapter#read(com.google.gson.stream.JsonReader)
+	 */
+	@Override
+	public Date read(JsonReader in) throws IOException {
+		if (in.peek() == JsonToken.NULL) {
+			in.nextNull();
+			return null;
+		}
+		return parse(in.nextString());
+	}
+
+	/**
+	 * Format the given date as UTC string.
+	 * 
+	 * @param date
+	 *            the date to format.
+	 * @return the formatted date.
+	 */
+	static String format(Date date) {
+		long seconds = Math.floorDiv(date.getTime(), 1000L);
+		long days = Math.floorDiv(seconds, SECONDS_PER_DAY);
+		int secondOfDay = (int) Math.floorMod(seconds, SECONDS_PER_DAY);
+
+		// convert days since epoch to year, month and day of proleptic Gregorian calendar
+		long z = days + EPOCH_DAY_OFFSET;
+		long era = Math.floorDiv(z, DAYS_PER_ERA);
+		long dayOfEra = z - era * DAYS_PER_ERA;
+		long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+		long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+		long mp = (5 * dayOfYear + 2) / 153;
+		int day = (int) (dayOfYear - (153 * mp + 2) / 5 + 1);
+		int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+		long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+		if (year < MIN_YEAR || year > MAX_YEAR) {
+			return createFormatter().format(date);
+		}
+
+		char[] chars = new char[LENGTH];
+		put(chars, 0, (int) year, 4);
+		chars[4] = '-';
+		put(chars, 5, month, 2);
+		chars[7] = '-';
+		put(chars, 8, day, 2);
+		chars[10] = 'T';
+		put(chars, 11, secondOfDay / 3600, 2);
+		chars[13] = ':';
+		put(chars, 14, (secondOfDay / 60) % 60, 2);
+		chars[16] = ':';
+		put(chars, 17, secondOfDay % 60, 2);
+		chars[19] = 'Z';
+		return new String(chars);
+	}
+
+	/**
+	 * Parse the given UTC string to date.
+	 * 
+	 * @param value
+	 *            the string to parse.
+	 * @return the parsed date.
+	 * @throws JsonParseException
+	 *             if the string is not a valid date.
+	 */
+	static Date parse(String value) {
+		if (value.length() == LENGTH && value.charAt(4) == '-' && value.charAt(7) == '-'
+				&& value.charAt(10) == 'T' && value.charAt(13) == ':' && value.charAt(16) == ':'
+				&& value.charAt(19) == 'Z') {
+			int year = get(value, 0, 4);
+			int month = get(value, 5, 2);
+			int day = get(value, 8, 2);
+			int hour = get(value, 11, 2);
+			int minute = get(value, 14, 2);
+			int second = get(value, 17, 2);
+			if (year >= MIN_YEAR && month >= 1 && month <= 12 && day >= 1
+					&& day <= daysInMonth(year, month) && hour >= 0 && hour <= 23 && minute >= 0
+					&& minute <= 59 && second >= 0 && second <= 59) {
+				long seconds = epochDay(year, month, day) * SECONDS_PER_DAY + hour * 3600
+						+ minute * 60 + second;
+				return new Date(seconds * 1000L);
+			}
+		}
+
+		// anything else is parsed the way SimpleDateFormat always did, including its leniency
+		try {
+			return createFormatter().parse(value);
+		} catch (ParseException e) {
+			throw new JsonParseException("Error parsing date " + value, e);
+		}
+	}
+
+	private static SimpleDateFormat createFormatter() {
+		SimpleDateFormat formatter = new SimpleDateFormat(JsonUtil.DATE_FORMAT);
+		formatter.setTimeZone(TimeZone.getTimeZone(JsonUtil.TIMEZONE));
+		return formatter;
+	}
+
+	private static void put(char[] chars, int offset, int value, int width) {
+		for (int i = offset + width - 1; i >= offset; i--) {
+			chars[i] = (char) ('0' + value % 10);
+			value /= 10;
+		}
+	}
+
+	private static int get(String value, int offset, int width) {
+		int result = 0;
+		for (int i = offset; i < offset + width; i++) {
+			char ch = value.charAt(i);
+			if (ch < '0' || ch > '9') {
+				return -1;
+			}
+			result = result * 10 + (ch - '0');
+		}
+		return result;
+	}
+
+	private static int daysInMonth(int year, int month) {
+		if (month == 2) {
+			boolean leap = (year % 4 == 0) && (year % 100 != 0 || year % 400 == 0);
+			return leap ? 29 : 28;
+		}
+		return (month == 4 || month == 6 || month == 9 || month == 11) ? 30 : 31;
+	}
+
+	private static long epochDay(int year, int month, int day) {
+		long y = (month <= 2) ? year - 1 : year;
+		long era = Math.floorDiv(y, 400L);
+		long yearOfEra = y - era * 400;
+		long dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+		long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+		return era * DAYS_PER_ERA + dayOfEra - EPOCH_DAY_OFFSET;
+	}
+
+}
@@ -0,0 +1,317 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Baldeep Hira
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.bhira.sample.common;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * JUnit test class for CompressionFilter.
+ * 
+ * @author Baldeep Hira
+ */
+public class CompressionFilterTest {
+
+	private static final int THRESHOLD = 64;
+
+	private CompressionFilter filter;
+	private ServletFakes.Request request;
+	private ServletFakes.Response response;
+
+	@Before
+	public void setUp() throws ServletException {
+		filter = new CompressionFilter();
+		filter.init(ServletFakes.filterConfig(Collections.singletonMap("threshold",
+				String.valueOf(THRESHOLD))));
+		request = new ServletFakes.Request();
+		response = new ServletFakes.Response();
+	}
+
+	/**
+	 * Test method for {@link net.bhira.sample.common.CompressionFilter#negotiate(java.lang.String)}.
+	 */
+	@Test
+	public void testNegotiate() {
+		assertNull(CompressionFilter.negotiate(null));
+		assertNull(CompressionFilter.negotiate("identity"));
+		assertEquals("gzip", CompressionFilter.negotiate("gzip, deflate, br"));
+		assertEquals("gzip", CompressionFilter.negotiate("x-gzip"));
+		assertEquals("deflate", CompressionFilter.negotiate("deflate"));
+		assertEquals("deflate", CompressionFilter.negotiate("gzip;q=0, deflate"));
+		assertEquals("deflate", CompressionFilter.negotiate("gzip;q=0.5, deflate;q=1.0"));
+		assertEquals("gzip", CompressionFilter.negotiate("*"));
+		assertNull(CompressionFilter.negotiate("*;q=0"));
+		assertNull(CompressionFilter.negotiate("gzip;q=0, *;q=0"));
+	}
+
+	/**
+	 * Test that a response smaller than the threshold is sent uncompressed.
+	 */
+	@Test
+	public void testSmallResponse() throws Exception {
+		request.headers.put("Accept-Encoding", "gzip");
+		filter.doFilter(request.proxy, response.proxy, write("small", true));
+
+		assertEquals("small", new String(response.body.toByteArray(), StandardCharsets.UTF_8));
+		assertNull(response.headers.get("Content-Encoding"));
+		assertEquals("Accept-Encoding", response.headers.get("Vary"));
+	}
+
+	/**
+	 * Test that a response larger than the threshold is compressed with gzip, without the content
+	 * length set by the application.
+	 */
+	@Test
+	public void testGzip() throws Exception {
+		String body = repeat("gzip body ", 100);
+		request.headers.put("Accept-Encoding", "gzip, deflate");
+		filter.doFilter(request.proxy, response.proxy, write(body, true));
+
+		assertEquals("gzip", response.headers.get("Content-Encoding"));
+		assertNull(response.headers.get("Content-Length"));
+		assertTrue(response.body.size() < body.length());
+		assertEquals(body, inflate(new GZIPInputStream(new ByteArrayInputStream(
+				response.body.toByteArray()))));
+	}
+
+	/**
+	 * Test that a response is compressed with deflate, when gzip is not accepted.
+	 */
+	@Test
+	public void testDeflate() throws Exception {
+		String body = repeat("deflate body ", 100);
+		request.headers.put("Accept-Encoding", "deflate");
+		filter.doFilter(request.proxy, response.proxy, write(body, false));
+
+		assertEquals("deflate", response.headers.get("Content-Encoding"));
+		assertEquals(body, inflate(new InflaterInputStream(new ByteArrayInputStream(
+				response.body.toByteArray()))));
+	}
+
+	/**
+	 * Test that the response is not compressed, if the client does not accept it or if the
+	 * application encoded the body itself.
+	 */
+	@Test
+	public void testNotCompressed() throws Exception {
+		String body = repeat("plain body ", 100);
+		filter.doFilter(request.proxy, response.proxy, write(body, true));
+		assertNull(response.headers.get("Content-Encoding"));
+		assertEquals(body, new String(response.body.toByteArray(), StandardCharsets.UTF_8));
+
+		request = new ServletFakes.Request();
+		response = new ServletFakes.Response();
+		request.headers.put("Accept-Encoding", "gzip");
+		filter.doFilter(request.proxy, response.proxy, new FilterChain() {
+			@Override
+			public void doFilter(ServletRequest req, ServletResponse res) throws IOException {
+				((HttpServletResponse) res).setHeader("Content-Encoding", "br");
+				res.getOutputStream().write(body.getBytes(StandardCharsets.UTF_8));
+			}
+		});
+		assertEquals("br", response.headers.get("Content-Encoding"));
+		assertEquals(body, new String(response.body.toByteArray(), StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Test that the ETag of a compressed response carries the encoding, and that the ETag of a
+	 * response left alone is kept.
+	 */
+	@Test
+	public void testEtag() throws Exception {
+		String etag = ConditionalGet.etag("a");
+		String body = repeat("tagged body ", 100);
+		request.headers.put("Accept-Encoding", "gzip");
+		filter.doFilter(request.proxy, response.proxy, tag(etag, null, body));
+		assertEquals("gzip", response.headers.get("Content-Encoding"));
+		assertEquals(ConditionalGet.encodedEtag(etag, "gzip"), response.headers.get("ETag"));
+
+		response = new ServletFakes.Response();
+		filter.doFilter(request.proxy, response.proxy, tag(etag, "br", body));
+		assertEquals("br", response.headers.get("Content-Encoding"));
+		assertEquals(etag, response.headers.get("ETag"));
+
+		request = new ServletFakes.Request();
+		response = new ServletFakes.Response();
+		filter.doFilter(request.proxy, response.proxy, tag(etag, null, body));
+		assertNull(response.headers.get("Content-Encoding"));
+		assertEquals(etag, response.headers.get("ETag"));
+	}
+
+	/**
+	 * Test that a response switching to non-blocking writes before compression starts is passed
+	 * on uncompressed, and that it cannot switch once the body is compressed.
+	 */
+	@Test
+	public void testWriteListener() throws Exception {
+		String etag = ConditionalGet.etag("a");
+		String body = repeat("non-blocking body ", 20);
+		WriteListener listener = new WriteListener() {
+			@Override
+			public void onWritePossible() {
+			}
+
+			@Override
+			public void onError(Throwable t) {
+			}
+		};
+		request.headers.put("Accept-Encoding", "gzip");
+		filter.doFilter(request.proxy, response.proxy, new FilterChain() {
+			@Override
+			public void doFilter(ServletRequest req, ServletResponse res) throws IOException {
+				((HttpServletResponse) res).setHeader("ETag", etag);
+				ServletOutputStream out = res.getOutputStream();
+				out.write("start ".getBytes(StandardCharsets.UTF_8));
+				out.setWriteListener(listener);
+				response.ready = false;
+				assertFalse(out.isReady());
+				response.ready = true;
+				assertTrue(out.isReady());
+				out.write(body.getBytes(StandardCharsets.UTF_8));
+			}
+		});
+		assertSame(listener, response.writeListener);
+		assertNull(response.headers.get("Content-Encoding"));
+		assertEquals(etag, response.headers.get("ETag"));
+		assertEquals("start " + body, response.body.toString("UTF-8"));
+
+		response = new ServletFakes.Response();
+		filter.doFilter(request.proxy, response.proxy, new FilterChain() {
+			@Override
+			public void doFilter(ServletRequest req, ServletResponse res) throws IOException {
+				ServletOutputStream out = res.getOutputStream();
+				out.write(body.getBytes(StandardCharsets.UTF_8));
+				try {
+					out.setWriteListener(listener);
+					fail("Expected IllegalStateException");
+				} catch (IllegalStateException ise) {
+					// expected
+				}
+			}
+		});
+		assertNull(response.writeListener);
+		assertEquals("gzip", response.headers.get("Content-Encoding"));
+		assertEquals(body, inflate(new GZIPInputStream(new ByteArrayInputStream(
+				response.body.toByteArray()))));
+	}
+
+	/**
+	 * Test that the compressed stream of an asynchronous request is written across dispatches
+	 * and finished at the end of the last one.
+	 */
+	@Test
+	public void testAsync() throws Exception {
+		String first = repeat("first part ", 20);
+		String second = repeat("second part ", 20);
+		request.headers.put("Accept-Encoding", "gzip");
+		filter.doFilter(request.proxy, response.proxy, new FilterChain() {
+			@Override
+			public void doFilter(ServletRequest req, ServletResponse res) throws IOException {
+				res.getOutputStream().write(first.getBytes(StandardCharsets.UTF_8));
+				request.asyncStarted = true;
+			}
+		});
+		assertEquals("gzip", response.headers.get("Content-Encoding"));
+
+		// the async dispatch gets the original response, and writes to the same stream
+		request.asyncStarted = false;
+		filter.doFilter(request.proxy, response.proxy, write(second, false));
+		assertEquals(first + second, inflate(new GZIPInputStream(new ByteArrayInputStream(
+				response.body.toByteArray()))));
+		assertTrue(request.attributes.isEmpty());
+	}
+
+	/**
+	 * Create a chain writing the given body to the output stream or the writer of the response.
+	 */
+	private static FilterChain write(String body, boolean setLength) {
+		return new FilterChain() {
+			@Override
+			public void doFilter(ServletRequest req, ServletResponse res) throws IOException {
+				byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+				if (setLength) {
+					res.setContentLength(bytes.length);
+					res.getOutputStream().write(bytes);
+				} else {
+					res.getWriter().write(body);
+				}
+			}
+		};
+	}
+
+	/**
+	 * Create a chain tagging the response with the given ETag, optionally encoding the body
+	 * itself, before writing the body.
+	 */
+	private static FilterChain tag(String etag, String encoding, String body) {
+		return new FilterChain() {
+			@Override
+			public void doFilter(ServletRequest req, ServletResponse res) throws IOException {
+				HttpServletResponse httpResponse = (HttpServletResponse) res;
+				httpResponse.setHeader("ETag", etag);
+				if (encoding != null) {
+					httpResponse.setHeader("Content-Encoding", encoding);
+				}
+				res.getOutputStream().write(body.getBytes(StandardCharsets.UTF_8));
+			}
+		};
+	}
+
+	private static String inflate(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[1024];
+		for (int n = in.read(buffer); n >= 0; n = in.read(buffer)) {
+			out.write(buffer, 0, n);
+		}
+		return new String(out.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	private static String repeat(String value, int count) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < count; i++) {
+			sb.append(value);
+		}
+		return sb.toString();
+	}
+
+}
@@ -0,0 +1,137 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Baldeep Hira
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.bhira.sample.common;
+
+import static org.junit.Assert.*;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * JUnit test class for ConditionalGet.
+ * 
+ * @author Baldeep Hira
+ */
+public class ConditionalGetTest {
+
+	private static final long MODIFIED = 1404259200000L;
+
+	private ServletFakes.Request request;
+	private ServletFakes.Response response;
+
+	@Before
+	public void setUp() {
+		request = new ServletFakes.Request();
+		response = new ServletFakes.Response();
+	}
+
+	/**
+	 * Test method for {@link net.bhira.sample.common.ConditionalGet#etag(java.lang.Object[])}.
+	 */
+	@Test
+	public void testEtag() {
+		String etag = ConditionalGet.etag("employee", 1L, MODIFIED);
+		assertEquals(etag, ConditionalGet.etag("employee", 1L, MODIFIED));
+		assertNotEquals(etag, ConditionalGet.etag("employee", 1L, MODIFIED + 1000));
+		assertNotEquals(etag, ConditionalGet.etag("employee", 11L, MODIFIED));
+		assertTrue(etag.startsWith("\"") && etag.endsWith("\""));
+		assertFalse(etag.substring(1, etag.length() - 1).contains("\""));
+	}
+
+	/**
+	 * Test that the headers are set and a request without conditions is not a 304.
+	 */
+	@Test
+	public void testUnconditional() {
+		String etag = ConditionalGet.etag("a");
+		assertFalse(ConditionalGet.checkNotModified(request.proxy, response.proxy, etag, MODIFIED));
+		assertEquals(etag, response.headers.get("ETag"));
+		assertEquals("Wed, 02 Jul 2014 00:00:00 GMT", response.headers.get("Last-Modified"));
+		assertEquals(HttpServletResponse.SC_OK, response.status);
+	}
+
+	/**
+	 * Test the "If-None-Match" header.
+	 */
+	@Test
+	public void testIfNoneMatch() {
+		String etag = ConditionalGet.etag("a");
+		request.headers.put("If-None-Match", "\"other\", " + etag);
+		assertTrue(ConditionalGet.checkNotModified(request.proxy, response.proxy, etag, -1));
+		assertEquals(HttpServletResponse.SC_NOT_MODIFIED, response.status);
+		assertNull(response.headers.get("Last-Modified"));
+
+		// a changed resource is sent, even if it is not newer than If-Modified-Since
+		response = new ServletFakes.Response();
+		request.headers.put("If-None-Match", "\"other\"");
+		request.headers.put("If-Modified-Since", "Wed, 02 Jul 2014 00:00:00 GMT");
+		assertFalse(ConditionalGet.checkNotModified(request.proxy, response.proxy, etag, MODIFIED));
+		assertEquals(HttpServletResponse.SC_OK, response.status);
+
+		request.headers.put("If-None-Match", "*");
+		assertTrue(ConditionalGet.checkNotModified(request.proxy, response.proxy, etag, MODIFIED));
+	}
+
+	/**
+	 * Test method for
+	 * {@link net.bhira.sample.common.ConditionalGet#encodedEtag(String, String)}.
+	 */
+	@Test
+	public void testEncodedEtag() {
+		String etag = ConditionalGet.etag("a");
+		String gzip = ConditionalGet.encodedEtag(etag, "gzip");
+		assertEquals(etag.substring(0, etag.length() - 1) + "-gzip\"", gzip);
+		assertEquals("W/\"a-deflate\"", ConditionalGet.encodedEtag("W/\"a\"", "deflate"));
+
+		// the tag of the compressed body matches the tag of the resource
+		request.headers.put("If-None-Match", gzip);
+		assertTrue(ConditionalGet.checkNotModified(request.proxy, response.proxy, etag, -1));
+		assertEquals(etag, response.headers.get("ETag"));
+
+		response = new ServletFakes.Response();
+		request.headers.put("If-None-Match", ConditionalGet.encodedEtag(etag, "br"));
+		assertFalse(ConditionalGet.checkNotModified(request.proxy, response.proxy, etag, -1));
+	}
+
+	/**
+	 * Test the "If-Modified-Since" header.
+	 */
+	@Test
+	public void testIfModifiedSince() {
+		String etag = ConditionalGet.etag("a");
+		request.headers.put("If-Modified-Since", "Wed, 02 Jul 2014 00:00:00 GMT");
+		assertTrue(ConditionalGet.checkNotModified(request.proxy, response.proxy, etag,
+				MODIFIED + 999));
+
+		response = new ServletFakes.Response();
+		assertFalse(ConditionalGet.checkNotModified(request.proxy, response.proxy, etag,
+				MODIFIED + 1000));
+
+		// without the last modified time, the date can not be compared
+		assertFalse(ConditionalGet.checkNotModified(request.proxy, response.proxy, etag, -1));
+	}
+
+}
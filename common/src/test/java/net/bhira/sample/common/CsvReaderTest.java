@@ -0,0 +1,93 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Baldeep Hira
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.bhira.sample.common;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * JUnit test class for CsvReader.
+ * 
+ * @author Baldeep Hira
+ */
+public class CsvReaderTest {
+
+	/**
+	 * Test method for {@link net.bhira.sample.common.CsvReader#readRecord()}.
+	 */
+	@Test
+	public void testReadRecord() throws IOException {
+		String csv = "\uFEFFname,title\r\nJohn,,\n\nJane,CEO";
+		CsvReader reader = new CsvReader(new StringReader(csv));
+		assertEquals(Arrays.asList("name", "title"), reader.readRecord());
+		assertEquals(1, reader.getLineNumber());
+		assertEquals(Arrays.asList("John", "", ""), reader.readRecord());
+		assertEquals(2, reader.getLineNumber());
+		assertEquals(Arrays.asList("Jane", "CEO"), reader.readRecord());
+		assertEquals(4, reader.getLineNumber());
+		assertNull(reader.readRecord());
+		reader.close();
+	}
+
+	/**
+	 * Test method for {@link net.bhira.sample.common.CsvReader#readRecord()} with quoted fields.
+	 */
+	@Test
+	public void testReadRecordQuoted() throws IOException {
+		String csv = "\"Doe, John\",\"say \"\"hi\"\"\",\"\"\n\"two\r\nlines\",x\r\nlast,\"\"\r\n";
+		CsvReader reader = new CsvReader(new StringReader(csv));
+		assertEquals(Arrays.asList("Doe, John", "say \"hi\"", ""), reader.readRecord());
+		assertEquals(1, reader.getLineNumber());
+		assertEquals(Arrays.asList("two\r\nlines", "x"), reader.readRecord());
+		assertEquals(2, reader.getLineNumber());
+		assertEquals(Arrays.asList("last", ""), reader.readRecord());
+		assertEquals(4, reader.getLineNumber());
+		assertNull(reader.readRecord());
+		reader.close();
+	}
+
+	/**
+	 * Test method for {@link net.bhira.sample.common.CsvReader#readRecord()} with malformed
+	 * quoted fields.
+	 */
+	@Test
+	public void testReadRecordInvalid() {
+		String[] records = { "a,\"unterminated\nb", "a,\"quoted\"trailing,b" };
+		for (String record : records) {
+			CsvReader reader = new CsvReader(new StringReader(record));
+			try {
+				reader.readRecord();
+				fail("Expected IOException for record " + record);
+			} catch (IOException ioe) {
+				// expected
+			}
+		}
+	}
+
+}
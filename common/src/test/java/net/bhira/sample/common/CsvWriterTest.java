@@ -0,0 +1,76 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Baldeep Hira
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.bhira.sample.common;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * JUnit test class for CsvWriter.
+ * 
+ * @author Baldeep Hira
+ */
+public class CsvWriterTest {
+
+	/**
+	 * Test method for {@link net.bhira.sample.common.CsvWriter#writeRecord(java.util.List)}.
+	 */
+	@Test
+	public void testWriteRecord() throws IOException {
+		StringWriter out = new StringWriter();
+		CsvWriter writer = new CsvWriter(out);
+		writer.writeRecord(Arrays.asList("id", "name", "title"));
+		writer.writeRecord(Arrays.asList("1", null, ""));
+		writer.flush();
+		assertEquals("id,name,title\r\n1,,\r\n", out.toString());
+		writer.close();
+	}
+
+	/**
+	 * Test method for {@link net.bhira.sample.common.CsvWriter#writeRecord(java.util.List)} with
+	 * fields that need quotes, read back with {@link net.bhira.sample.common.CsvReader}.
+	 */
+	@Test
+	public void testWriteRecordQuoted() throws IOException {
+		List<String> fields = Arrays.asList("Doe, John", "say \"hi\"", "two\r\nlines", "x");
+		StringWriter out = new StringWriter();
+		CsvWriter writer = new CsvWriter(out);
+		writer.writeRecord(fields);
+		assertEquals("\"Doe, John\",\"say \"\"hi\"\"\",\"two\r\nlines\",x\r\n", out.toString());
+
+		CsvReader reader = new CsvReader(new StringReader(out.toString()));
+		assertEquals(fields, reader.readRecord());
+		assertNull(reader.readRecord());
+		reader.close();
+		writer.close();
+	}
+
+}
@@ -25,14 +25,18 @@ package net.bhira.sample.common;
 
 import static org.junit.Assert.*;
 
+import java.io.IOException;
+import java.io.StringReader;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.TimeZone;
 
 import org.junit.Test;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
 
 /**
  * JUnit test class for JsonUtil.
@@ -80,4 +84,112 @@ public class JsonUtilTest {
 		assertEquals(now, deserializedDate);
 	}
 
+	/**
+	 * Test method for {@link net.bhira.sample.common.JsonUtil#getGson()}.
+	 */
+	@Test
+	public void testGetGson() {
+		Gson gson = JsonUtil.getGson();
+		assertNotNull(gson);
+		assertSame(gson, JsonUtil.getGson());
+
+		// shared instance must produce the same JSON as a newly created one
+		Date date = new Date(1404259200000L);
+		assertEquals(JsonUtil.createGson().toJson(date), gson.toJson(date));
+		assertEquals("\"2014-07-02T00:00:00Z\"", gson.toJson(date));
+		assertEquals(date, gson.fromJson("\"2014-07-02T00:00:00Z\"", Date.class));
+		assertNull(gson.fromJson("null", Date.class));
+	}
+
+	/**
+	 * Test method for
+	 * {@link net.bhira.sample.common.JsonUtil#createGson(java.lang.Class, java.util.Collection)}.
+	 */
+	@Test
+	public void testCreateGsonWithFields() {
+		Child child = new Child();
+		child.id = 7;
+		child.name = "child";
+		child.count = 3;
+		child.created = new Date(1404259200000L);
+		child.nested = new Other();
+		child.nested.value = "nested";
+
+		// only the named fields of the class hierarchy are written, including primitives
+		Gson gson = JsonUtil.createGson(Child.class, Arrays.asList("id", "created"));
+		assertEquals("{\"created\":\"2014-07-02T00:00:00Z\",\"id\":7}", gson.toJson(child));
+
+		// fields declared by other classes are not filtered
+		gson = JsonUtil.createGson(Child.class, Arrays.asList("count", "nested"));
+		assertEquals("{\"count\":3,\"nested\":{\"value\":\"nested\"}}", gson.toJson(child));
+
+		// deserialization is not affected
+		Child parsed = gson.fromJson("{\"id\":9,\"name\":\"x\",\"count\":1}", Child.class);
+		assertEquals(9, parsed.id);
+		assertEquals("x", parsed.name);
+		assertEquals(1, parsed.count);
+	}
+
+	/**
+	 * Test method for {@link net.bhira.sample.common.JsonUtil#parseDate(java.lang.String)}.
+	 */
+	@Test
+	public void testParseDate() {
+		assertEquals(new Date(1404259200000L), JsonUtil.parseDate("2014-07-02T00:00:00Z"));
+		assertEquals(new Date(1404259200000L), JsonUtil.parseDate(" 2014-07-02T00:00:00Z "));
+		String[] values = { "", "yesterday", "1404259200000" };
+		for (String value : values) {
+			try {
+				JsonUtil.parseDate(value);
+				fail("Expected IllegalArgumentException for date " + value);
+			} catch (IllegalArgumentException iae) {
+				// expected
+			}
+		}
+	}
+
+	/**
+	 * Test method for {@link net.bhira.sample.common.JsonUtil#readIds(java.io.Reader, int)}.
+	 */
+	@Test
+	public void testReadIds() throws IOException {
+		assertEquals(Arrays.asList(3L, 1L, 2L), JsonUtil.readIds(new StringReader("[3, 1, 2]"), 3));
+		assertEquals(Arrays.asList(), JsonUtil.readIds(new StringReader("[]"), 3));
+		assertEquals(Arrays.asList(), JsonUtil.readIds(new StringReader("null"), 3));
+		assertEquals(Arrays.asList(), JsonUtil.readIds(new StringReader(""), 3));
+
+		// reading stops at the first ID over the limit, the rest is not looked at
+		try {
+			JsonUtil.readIds(new StringReader("[1, 2, 3, 4, {"), 3);
+			fail("Expected IllegalArgumentException for 4 IDs");
+		} catch (IllegalArgumentException iae) {
+			// expected
+		}
+
+		String[] values = { "{}", "[1, \"x\"]", "[1, null]", "[1, 2", "[1.5]", "5" };
+		for (String value : values) {
+			try {
+				JsonUtil.readIds(new StringReader(value), 3);
+				fail("Expected JsonSyntaxException for " + value);
+			} catch (JsonSyntaxException jse) {
+				// expected
+			}
+		}
+	}
+
+	static class Base {
+		long id;
+		String name;
+	}
+
+	static class Child extends Base {
+		int count;
+		Date created;
+		Other nested;
+	}
+
+	static class Other {
+		String value;
+	}
+
 }
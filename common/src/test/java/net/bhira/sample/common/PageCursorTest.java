@@ -0,0 +1,74 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Baldeep Hira
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.bhira.sample.common;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * JUnit test class for PageCursor.
+ * 
+ * @author Baldeep Hira
+ */
+public class PageCursorTest {
+
+	/**
+	 * Test method for {@link net.bhira.sample.common.PageCursor#encode(long...)}.
+	 */
+	@Test
+	public void testEncode() {
+		String cursor = PageCursor.encode(1234);
+		assertNotNull(cursor);
+		assertFalse(cursor.contains("1234"));
+		assertArrayEquals(new long[] { 1234 }, PageCursor.decode(cursor, 1));
+	}
+
+	/**
+	 * Test method for {@link net.bhira.sample.common.PageCursor#decode(java.lang.String, int)}.
+	 */
+	@Test
+	public void testDecode() {
+		String cursor = PageCursor.encode(1404259200000L, 42);
+		assertArrayEquals(new long[] { 1404259200000L, 42 }, PageCursor.decode(cursor, 2));
+	}
+
+	/**
+	 * Test method for {@link net.bhira.sample.common.PageCursor#decode(java.lang.String, int)}
+	 * with malformed cursors.
+	 */
+	@Test
+	public void testDecodeInvalid() {
+		String[] cursors = { "not a cursor", "YWJj", PageCursor.encode(1, 2) };
+		for (String cursor : cursors) {
+			try {
+				PageCursor.decode(cursor, 1);
+				fail("Expected IllegalArgumentException for cursor " + cursor);
+			} catch (IllegalArgumentException iae) {
+				// expected
+			}
+		}
+	}
+
+}
@@ -0,0 +1,189 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Baldeep Hira
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.bhira.sample.common;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Minimal in memory fakes of the servlet API used by the tests of servlet helpers, built as
+ * dynamic proxies that implement only the methods the helpers call.
+ * 
+ * @author Baldeep Hira
+ */
+class ServletFakes {
+
+	/**
+	 * Fake request with headers and attributes.
+	 */
+	static class Request implements InvocationHandler {
+		final Map<String, String> headers = new HashMap<String, String>();
+		final Map<String, Object> attributes = new HashMap<String, Object>();
+		boolean asyncStarted;
+		final HttpServletRequest proxy = (HttpServletRequest) Proxy.newProxyInstance(
+				HttpServletRequest.class.getClassLoader(),
+				new Class<?>[] { HttpServletRequest.class }, this);
+
+		@Override
+		public Object invoke(Object p, Method method, Object[] args) throws Throwable {
+			switch (method.getName()) {
+			case "getHeader":
+				return headers.get(args[0]);
+			case "getDateHeader":
+				String value = headers.get(args[0]);
+				return (value == null) ? -1L : httpDateFormat().parse(value).getTime();
+			case "getAttribute":
+				return attributes.get(args[0]);
+			case "setAttribute":
+				attributes.put((String) args[0], args[1]);
+				return null;
+			case "removeAttribute":
+				attributes.remove(args[0]);
+				return null;
+			case "isAsyncStarted":
+				return asyncStarted;
+			default:
+				throw new UnsupportedOperationException(method.getName());
+			}
+		}
+	}
+
+	/**
+	 * Fake response collecting the headers, status and body.
+	 */
+	static class Response implements InvocationHandler {
+		final Map<String, String> headers = new HashMap<String, String>();
+		final ByteArrayOutputStream body = new ByteArrayOutputStream();
+		int status = HttpServletResponse.SC_OK;
+		boolean committed;
+		boolean ready = true;
+		WriteListener writeListener;
+		final HttpServletResponse proxy = (HttpServletResponse) Proxy.newProxyInstance(
+				HttpServletResponse.class.getClassLoader(),
+				new Class<?>[] { HttpServletResponse.class }, this);
+		private final ServletOutputStream stream = new ServletOutputStream() {
+			@Override
+			public void write(int b) throws IOException {
+				committed = true;
+				body.write(b);
+			}
+
+			@Override
+			public boolean isReady() {
+				return ready;
+			}
+
+			@Override
+			public void setWriteListener(WriteListener listener) {
+				writeListener = listener;
+			}
+		};
+
+		@Override
+		public Object invoke(Object p, Method method, Object[] args) throws Throwable {
+			switch (method.getName()) {
+			case "setHeader":
+				headers.put((String) args[0], (String) args[1]);
+				return null;
+			case "addHeader":
+				String old = headers.get(args[0]);
+				headers.put((String) args[0], (old == null) ? (String) args[1] : old + ", "
+						+ args[1]);
+				return null;
+			case "setDateHeader":
+				headers.put((String) args[0], httpDateFormat().format(new Date((Long) args[1])));
+				return null;
+			case "getHeader":
+				return headers.get(args[0]);
+			case "setContentLength":
+			case "setContentLengthLong":
+				headers.put("Content-Length", String.valueOf(args[0]));
+				return null;
+			case "setStatus":
+				status = (Integer) args[0];
+				return null;
+			case "getOutputStream":
+				return stream;
+			case "getCharacterEncoding":
+				return "UTF-8";
+			case "isCommitted":
+				return committed;
+			case "flushBuffer":
+				committed = true;
+				return null;
+			case "resetBuffer":
+			case "reset":
+				if (committed) {
+					throw new IllegalStateException("committed");
+				}
+				body.reset();
+				return null;
+			default:
+				throw new UnsupportedOperationException(method.getName());
+			}
+		}
+	}
+
+	/**
+	 * Create a filter config with the given init parameters.
+	 */
+	static FilterConfig filterConfig(Map<String, String> parameters) {
+		return (FilterConfig) Proxy.newProxyInstance(FilterConfig.class.getClassLoader(),
+				new Class<?>[] { FilterConfig.class }, new InvocationHandler() {
+					@Override
+					public Object invoke(Object p, Method method, Object[] args) {
+						if (method.getName().equals("getInitParameter")) {
+							return parameters.get(args[0]);
+						}
+						throw new UnsupportedOperationException(method.getName());
+					}
+				});
+	}
+
+	/**
+	 * Create the formatter for http dates.
+	 */
+	static SimpleDateFormat httpDateFormat() {
+		SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz",
+				Locale.US);
+		format.setTimeZone(TimeZone.getTimeZone("GMT"));
+		return format;
+	}
+
+}
@@ -0,0 +1,113 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Baldeep Hira
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.bhira.sample.common;
+
+import static org.junit.Assert.*;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Random;
+import java.util.TimeZone;
+
+import org.junit.Test;
+
+import com.google.gson.JsonParseException;
+
+/**
+ * JUnit test class for UtcDateTypeAdapter.
+ * 
+ * @author Baldeep Hira
+ */
+public class UtcDateTypeAdapterTest {
+
+	private static SimpleDateFormat createFormatter() {
+		SimpleDateFormat formatter = new SimpleDateFormat(JsonUtil.DATE_FORMAT);
+		formatter.setTimeZone(TimeZone.getTimeZone(JsonUtil.TIMEZONE));
+		return formatter;
+	}
+
+	/**
+	 * Test method for {@link net.bhira.sample.common.UtcDateTypeAdapter#format(java.util.Date)}.
+	 */
+	@Test
+	public void testFormat() {
+		SimpleDateFormat formatter = createFormatter();
+		long[] values = { 0L, -1L, 999L, -1000L, 951782400000L, 1404259199999L,
+				253402300799000L, 253402300800000L, -12219292800000L, -12219292800001L,
+				-62135596800000L };
+		for (long value : values) {
+			Date date = new Date(value);
+			assertEquals(formatter.format(date), UtcDateTypeAdapter.format(date));
+		}
+
+		Random random = new Random(42);
+		for (int i = 0; i < 10000; i++) {
+			Date date = new Date(random.nextLong() % 300000000000000L);
+			assertEquals(formatter.format(date), UtcDateTypeAdapter.format(date));
+		}
+	}
+
+	/**
+	 * Test method for {@link net.bhira.sample.common.UtcDateTypeAdapter#parse(java.lang.String)}.
+	 * 
+	 * @throws ParseException
+	 *             if the expected value can not be parsed.
+	 */
+	@Test
+	public void testParse() throws ParseException {
+		SimpleDateFormat formatter = createFormatter();
+		String[] values = { "1970-01-01T00:00:00Z", "2000-02-29T23:59:59Z",
+				"2014-07-02T10:20:30Z", "1583-01-01T00:00:00Z", "1582-10-15T00:00:00Z",
+				"9999-12-31T23:59:59Z", "1900-02-29T00:00:00Z", "2014-13-01T00:00:00Z",
+				"2014-07-02T24:00:00Z", "2014-07-02T10:20:30Zextra", "2014-7-2T1:2:3Z" };
+		for (String value : values) {
+			assertEquals(value, formatter.parse(value), UtcDateTypeAdapter.parse(value));
+		}
+
+		Random random = new Random(42);
+		for (int i = 0; i < 10000; i++) {
+			String value = formatter.format(new Date(random.nextLong() % 250000000000000L));
+			assertEquals(value, formatter.parse(value), UtcDateTypeAdapter.parse(value));
+		}
+	}
+
+	/**
+	 * Test method for {@link net.bhira.sample.common.UtcDateTypeAdapter#parse(java.lang.String)}
+	 * with invalid values.
+	 */
+	@Test
+	public void testParseInvalid() {
+		String[] values = { "", "not a date", "2014-07-02" };
+		for (String value : values) {
+			try {
+				UtcDateTypeAdapter.parse(value);
+				fail("Expected JsonParseException for " + value);
+			} catch (JsonParseException ex) {
+				// expected
+			}
+		}
+	}
+
+}
@@ -44,6 +44,7 @@ public abstract class BaseModel implements Serializable {
 	private Date modified;
 	private String createdBy;
 	private String modifiedBy;
+	private long version;
 
 	// -------------------------UTILITY METHODS----------------------------
 
@@ -212,4 +213,24 @@ public abstract class BaseModel implements Serializable {
 		this.modifiedBy = modifiedBy;
 	}
 
+	/**
+	 * Get the version of this model. It starts at 0 for a new model and is incremented each time
+	 * the model is updated. An update is only applied if it carries the current version.
+	 * 
+	 * @return the version of this model.
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Set the version of this model.
+	 * 
+	 * @param version
+	 *            the version of this model, as it was loaded.
+	 */
+	public void setVersion(long version) {
+		this.version = version;
+	}
+
 }
\ No newline at end of file
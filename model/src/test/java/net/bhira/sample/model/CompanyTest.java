@@ -292,4 +292,25 @@ public class CompanyTest {
 		assertEquals("User A", company.getModifiedBy());
 	}
 
+	/**
+	 * Test method for {@link net.bhira.sample.model.BaseModel#getVersion()}.
+	 */
+	@Test
+	public void testGetVersion() {
+		Company company = new Company();
+		assertEquals(0, company.getVersion());
+		company.setVersion(3);
+		assertEquals(3, company.getVersion());
+	}
+
+	/**
+	 * Test method for {@link net.bhira.sample.model.BaseModel#setVersion(long)}.
+	 */
+	@Test
+	public void testSetVersion() {
+		Company company = new Company();
+		company.setVersion(3);
+		assertEquals(3, company.getVersion());
+	}
+
 }
\ No newline at end of file
@@ -293,4 +293,25 @@ public class DepartmentTest {
 		assertEquals("User A", department.getModifiedBy());
 	}
 
+	/**
+	 * Test method for {@link net.bhira.sample.model.BaseModel#getVersion()}.
+	 */
+	@Test
+	public void testGetVersion() {
+		Department department = new Department();
+		assertEquals(0, department.getVersion());
+		department.setVersion(3);
+		assertEquals(3, department.getVersion());
+	}
+
+	/**
+	 * Test method for {@link net.bhira.sample.model.BaseModel#setVersion(long)}.
+	 */
+	@Test
+	public void testSetVersion() {
+		Department department = new Department();
+		department.setVersion(3);
+		assertEquals(3, department.getVersion());
+	}
+
 }
\ No newline at end of file
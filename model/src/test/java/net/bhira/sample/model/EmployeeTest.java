@@ -395,4 +395,25 @@ public class EmployeeTest {
 		assertEquals("Baldeep Hira", employee.getModifiedBy());
 	}
 
+	/**
+	 * Test method for {@link net.bhira.sample.model.BaseModel#getVersion()}.
+	 */
+	@Test
+	public void testGetVersion() {
+		Employee employee = new Employee();
+		assertEquals(0, employee.getVersion());
+		employee.setVersion(3);
+		assertEquals(3, employee.getVersion());
+	}
+
+	/**
+	 * Test method for {@link net.bhira.sample.model.BaseModel#setVersion(long)}.
+	 */
+	@Test
+	public void testSetVersion() {
+		Employee employee = new Employee();
+		employee.setVersion(3);
+		assertEquals(3, employee.getVersion());
+	}
+
 }
\ No newline at end of file